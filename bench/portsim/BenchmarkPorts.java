@@ -0,0 +1,74 @@
+package portsim;
+
+import portsim.cargo.Cargo;
+import portsim.generator.WorkloadGenerator;
+import portsim.port.Port;
+import portsim.ship.Ship;
+import portsim.util.BadEncodingException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+/**
+ * Builds the ports used by the benchmarks from seeded workload generators, so that every run
+ * of a benchmark sees exactly the same port.
+ */
+public final class BenchmarkPorts {
+    /**
+     * Seed used for every generated port
+     */
+    public static final long SEED = 20211022;
+
+    /**
+     * Not instantiable
+     */
+    private BenchmarkPorts() {}
+
+    /**
+     * Returns a generator seeded with {@link #SEED} and no cargo, ships, quays or movements.
+     *
+     * @return empty seeded generator
+     */
+    public static WorkloadGenerator generator() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setSeed(SEED);
+        generator.setCargoCount(0);
+        generator.setShipCount(0);
+        generator.setQuayCount(0);
+        generator.setMovementCount(0);
+        return generator;
+    }
+
+    /**
+     * Returns the encoded port produced by the given generator.
+     *
+     * @param generator generator to run
+     * @return encoded port
+     */
+    public static String encode(WorkloadGenerator generator) {
+        StringWriter writer = new StringWriter();
+        try {
+            generator.generate(writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Clears the cargo and ship registries and loads the given encoded port.
+     *
+     * @param encoded encoded port
+     * @return loaded port
+     */
+    public static Port load(String encoded) {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        try {
+            return Port.initialisePort(new StringReader(encoded));
+        } catch (IOException | BadEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
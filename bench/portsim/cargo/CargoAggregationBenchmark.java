@@ -0,0 +1,145 @@
+package portsim.cargo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.BenchmarkPorts;
+import portsim.ship.Ship;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks aggregations over all cargo: the {@link CargoColumns} aggregations with each set
+ * of {@link CargoColumns.Kernels}, against the same aggregation computed by iterating over the
+ * cargo objects.
+ * <p>
+ * The cargo is a seeded random mix of containers and bulk cargo of every type, bound for 20
+ * destinations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class CargoAggregationBenchmark {
+    /**
+     * Number of destinations the cargo is bound for
+     */
+    private static final int DESTINATIONS = 20;
+
+    /**
+     * Number of pieces of cargo
+     */
+    @Param({"10000", "1000000"})
+    public int size;
+
+    /**
+     * Kernels used by the column aggregations
+     */
+    @Param({"SCALAR", "UNROLLED"})
+    public CargoColumns.Kernels kernels;
+
+    /**
+     * The cargo registry's columns
+     */
+    private CargoColumns columns;
+
+    /**
+     * Every piece of cargo, for the object iteration benchmarks
+     */
+    private Cargo[] cargo;
+
+    /**
+     * Fills the cargo registry.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        SplittableRandom random = new SplittableRandom(BenchmarkPorts.SEED);
+        ContainerType[] containerTypes = ContainerType.values();
+        BulkCargoType[] bulkCargoTypes = BulkCargoType.values();
+        cargo = new Cargo[size];
+        for (int i = 0; i < size; i++) {
+            String destination = "Country " + random.nextInt(DESTINATIONS);
+            if (random.nextBoolean()) {
+                cargo[i] = new Container(i, destination,
+                        containerTypes[random.nextInt(containerTypes.length)]);
+            } else {
+                cargo[i] = new BulkCargo(i, destination, random.nextInt(10000),
+                        bulkCargoTypes[random.nextInt(bulkCargoTypes.length)]);
+            }
+        }
+        columns = Cargo.getCargoColumns();
+        columns.setKernels(kernels);
+    }
+
+    /**
+     * Clears the cargo registry.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    /**
+     * Counts the containers of each type in the columns.
+     *
+     * @return counts by type
+     */
+    @Benchmark
+    public int[] countContainersByType() {
+        return columns.countByType(CargoColumns.CONTAINER);
+    }
+
+    /**
+     * Sums the tonnage of each bulk cargo type in the columns.
+     *
+     * @return tonnage by type
+     */
+    @Benchmark
+    public long[] tonnageByType() {
+        return columns.tonnageByType();
+    }
+
+    /**
+     * Sums the tonnage bound for each destination in the columns.
+     *
+     * @return tonnage by destination
+     */
+    @Benchmark
+    public long[] tonnageByDestination() {
+        return columns.tonnageByDestination();
+    }
+
+    /**
+     * Sums the tonnage of each bulk cargo type by iterating over the cargo objects. Does not
+     * depend on the kernels.
+     *
+     * @return tonnage by type
+     */
+    @Benchmark
+    public long[] tonnageByTypeFromObjects() {
+        long[] totals = new long[BulkCargoType.values().length];
+        for (Cargo piece : cargo) {
+            if (piece instanceof BulkCargo) {
+                BulkCargo bulk = (BulkCargo) piece;
+                totals[bulk.getType().ordinal()] += bulk.getTonnage();
+            }
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,143 @@
+package portsim.network;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link PortNetwork#run(long)} with conservative and optimistic synchronisation,
+ * at varying numbers of threads and transit times.
+ * <p>
+ * Each measurement simulates one day of a freshly built ring of ports whose ships sail to the
+ * next port in the ring. Short transit times make conservative synchronisation meet often and
+ * optimistic synchronisation roll back often. The score is the average time per simulated
+ * minute of the network.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class PortNetworkBenchmark {
+    /**
+     * Number of minutes simulated by each measurement
+     */
+    private static final int MINUTES = 24 * 60;
+
+    /**
+     * Number of ports in the ring
+     */
+    private static final int PORTS = 8;
+
+    /**
+     * Countries the ships and cargo are bound for, one for each port
+     */
+    private static final String[] COUNTRIES = {"Australia", "Japan", "China", "Singapore",
+        "Korea", "India", "Chile", "Peru"};
+
+    /**
+     * How the ports are kept in step
+     */
+    @Param({"CONSERVATIVE", "OPTIMISTIC"})
+    public Synchronisation synchronisation;
+
+    /**
+     * Number of threads advancing the ports
+     */
+    @Param({"1", "4"})
+    public int threads;
+
+    /**
+     * Number of minutes ships take to reach the next port
+     */
+    @Param({"5", "60"})
+    public long transitTime;
+
+    /**
+     * The network being benchmarked
+     */
+    private PortNetwork network;
+
+    /**
+     * Builds a fresh ring of ports.
+     */
+    @Setup(Level.Iteration)
+    public void build() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        network = new PortNetwork(threads);
+        network.setSynchronisation(synchronisation);
+        List<Port> ports = new ArrayList<>();
+        int cargoId = 1;
+        for (int p = 0; p < PORTS; p++) {
+            String destination = COUNTRIES[(p + 1) % PORTS];
+            Port port = new Port("Port " + p);
+            for (int q = 0; q < 50; q++) {
+                port.addQuay(new ContainerQuay(p * 100 + q, 1000));
+            }
+            for (int s = 0; s < 120; s++) {
+                ContainerShip ship = new ContainerShip(1000000 + p * 10000 + s, "Ship " + s,
+                        destination, NauticalFlag.NOVEMBER, 50);
+                port.getShipQueue().add(ship);
+                port.addMovement(new ShipMovement(15 + s * 12, MovementDirection.OUTBOUND,
+                        ship));
+            }
+            for (int c = 0; c < 20000; c++) {
+                port.getYard().store(new Container(cargoId++, destination,
+                        ContainerType.STANDARD));
+            }
+            network.addPort(port);
+            ports.add(port);
+        }
+        for (int p = 0; p < PORTS; p++) {
+            network.addRoute(ports.get(p), ports.get((p + 1) % PORTS), transitTime);
+        }
+    }
+
+    /**
+     * Clears the registries populated by the network.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    /**
+     * Simulates one day.
+     *
+     * @return the number of ships that arrived at their next port
+     */
+    @Benchmark
+    @OperationsPerInvocation(MINUTES)
+    public long runOneDay() {
+        network.run(MINUTES);
+        return network.getShipsDelivered();
+    }
+}
@@ -0,0 +1,123 @@
+package portsim.port;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.BenchmarkPorts;
+import portsim.cargo.Cargo;
+import portsim.generator.WorkloadGenerator;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.Ship;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Port#fork()} at varying amounts of stored cargo, and a what-if run on a
+ * fork: delaying the next ship to arrive by four hours and simulating the next six.
+ * <p>
+ * The port is loaded once and run for half a day before it is forked. Forking should take
+ * about the same time whatever the amount of cargo stored, as the yard, pending movements
+ * and movement store are shared rather than copied.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class PortForkBenchmark {
+    /**
+     * Number of minutes simulated before the port is forked
+     */
+    private static final int ELAPSED = 12 * 60;
+
+    /**
+     * Number of minutes simulated by each what-if run
+     */
+    private static final int WHAT_IF = 6 * 60;
+
+    /**
+     * Number of pieces of cargo stored at the port
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int yard;
+
+    /**
+     * The port being forked
+     */
+    private Port port;
+
+    /**
+     * Generates and loads the port, then runs it for half a day.
+     */
+    @Setup(Level.Trial)
+    public void load() {
+        WorkloadGenerator generator = BenchmarkPorts.generator();
+        generator.setCargoCount(yard);
+        generator.setStoredCargoFraction(1);
+        generator.setShipCount(200);
+        generator.setQuayCount(50);
+        generator.setMovementCount(2000);
+        generator.setContainerShips(0, 100);
+        generator.setHorizon(2 * ELAPSED);
+        generator.setDwellTime(60, 6 * 60);
+        port = BenchmarkPorts.load(BenchmarkPorts.encode(generator));
+        for (int minute = 0; minute < ELAPSED; minute++) {
+            port.elapseOneMinute();
+        }
+    }
+
+    /**
+     * Clears the registries populated by the port.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    /**
+     * Forks the port.
+     *
+     * @return the fork
+     */
+    @Benchmark
+    public Port fork() {
+        return port.fork();
+    }
+
+    /**
+     * Forks the port, delays the next ship to arrive by four hours and simulates six hours.
+     *
+     * @return the fork's time after the run
+     */
+    @Benchmark
+    public long delayedArrival() {
+        Port fork = port.fork();
+        for (Movement movement : fork.getMovementsBetween(fork.getTime() + 1, Long.MAX_VALUE,
+                MovementDirection.INBOUND)) {
+            if (movement instanceof ShipMovement) {
+                fork.getMovements().remove(movement);
+                fork.addMovement(new ShipMovement(movement.getTime() + 4 * 60,
+                        MovementDirection.INBOUND, ((ShipMovement) movement).getShip()));
+                break;
+            }
+        }
+        for (int minute = 0; minute < WHAT_IF; minute++) {
+            fork.elapseOneMinute();
+        }
+        return fork.getTime();
+    }
+}
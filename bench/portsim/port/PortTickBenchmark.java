@@ -0,0 +1,118 @@
+package portsim.port;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.BenchmarkPorts;
+import portsim.cargo.Cargo;
+import portsim.generator.WorkloadGenerator;
+import portsim.ship.Ship;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Port#elapseOneMinute()} at varying numbers of quays, stored cargo and
+ * scheduled movements.
+ * <p>
+ * Each measurement simulates one day of a freshly loaded generated port, so every shot sees
+ * the same sequence of ticks. The score is the average time per simulated minute.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class PortTickBenchmark {
+    /**
+     * Number of minutes simulated by each measurement
+     */
+    private static final int MINUTES = 24 * 60;
+
+    /**
+     * Number of quays at the port
+     */
+    @Param({"10", "100", "1000"})
+    public int quays;
+
+    /**
+     * Number of pieces of cargo stored at the port
+     */
+    @Param({"1000", "10000", "100000"})
+    public int yard;
+
+    /**
+     * Number of movements scheduled over the day
+     */
+    @Param({"1000", "10000"})
+    public int movements;
+
+    /**
+     * Encoding of the port loaded before each measurement
+     */
+    private String encoded;
+
+    /**
+     * The port being benchmarked
+     */
+    private Port port;
+
+    /**
+     * Generates the port for this combination of parameters.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        WorkloadGenerator generator = BenchmarkPorts.generator();
+        generator.setCargoCount(yard);
+        generator.setStoredCargoFraction(1);
+        generator.setShipCount(movements / 10);
+        generator.setQuayCount(quays);
+        generator.setMovementCount(movements);
+        generator.setContainerShips(0, 100);
+        generator.setHorizon(MINUTES);
+        generator.setDwellTime(60, 6 * 60);
+        encoded = BenchmarkPorts.encode(generator);
+    }
+
+    /**
+     * Loads a fresh copy of the port.
+     */
+    @Setup(Level.Iteration)
+    public void load() {
+        port = BenchmarkPorts.load(encoded);
+    }
+
+    /**
+     * Clears the registries populated by the port.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    /**
+     * Simulates one day.
+     *
+     * @return the port's time after the day
+     */
+    @Benchmark
+    @OperationsPerInvocation(MINUTES)
+    public long elapseOneDay() {
+        for (int minute = 0; minute < MINUTES; minute++) {
+            port.elapseOneMinute();
+        }
+        return port.getTime();
+    }
+}
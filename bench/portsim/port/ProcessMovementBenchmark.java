@@ -0,0 +1,249 @@
+package portsim.port;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.BenchmarkPorts;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Port#processMovement(portsim.movement.Movement)} for each type and
+ * direction of movement, including the calls into the port's statistics evaluators.
+ * <p>
+ * Each benchmark processes a single movement against a port storing {@code yard} pieces of
+ * cargo. The state a movement changes is restored before every invocation, outside of the
+ * measured time, so every invocation does the same work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ProcessMovementBenchmark {
+    /**
+     * Benchmark a ship arriving at the port.
+     *
+     * @param state port and movements
+     * @param queue ship queue emptied before the invocation
+     */
+    @Benchmark
+    public void shipInbound(PortState state, EmptyQueue queue) {
+        state.port.processMovement(state.shipInbound);
+    }
+
+    /**
+     * Benchmark a docked ship departing from the port.
+     *
+     * @param state port and movements
+     * @param ship  ship docked before the invocation
+     */
+    @Benchmark
+    public void shipOutbound(PortState state, DockedShip ship) {
+        state.port.processMovement(state.shipOutbound);
+    }
+
+    /**
+     * Benchmark cargo being delivered to the port.
+     *
+     * @param state port and movements
+     * @param cargo cargo removed from the yard before the invocation
+     */
+    @Benchmark
+    public void cargoInbound(PortState state, CargoAbsent cargo) {
+        state.port.processMovement(state.cargoInbound);
+    }
+
+    /**
+     * Benchmark cargo being collected from the port.
+     *
+     * @param state port and movements
+     * @param cargo cargo added to the yard before the invocation
+     */
+    @Benchmark
+    public void cargoOutbound(PortState state, CargoPresent cargo) {
+        state.port.processMovement(state.cargoOutbound);
+    }
+
+    /**
+     * A port storing cargo, and one movement of each type and direction.
+     */
+    @State(Scope.Thread)
+    public static class PortState {
+        /**
+         * Number of pieces of cargo stored at the port
+         */
+        @Param({"100", "10000"})
+        public int yard;
+
+        /**
+         * The port processing the movements
+         */
+        Port port;
+
+        /**
+         * Quay the departing ship is docked at
+         */
+        Quay quay;
+
+        /**
+         * Ship that arrives at the port
+         */
+        ShipMovement shipInbound;
+
+        /**
+         * Ship that departs from the port. The ship has no capacity, so the port checks every
+         * stored cargo for it without loading any.
+         */
+        ShipMovement shipOutbound;
+
+        /**
+         * Cargo delivered to the port
+         */
+        CargoMovement cargoInbound;
+
+        /**
+         * Cargo collected from the port
+         */
+        CargoMovement cargoOutbound;
+
+        /**
+         * Builds the port and movements.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            Cargo.resetCargoRegistry();
+            Ship.resetShipRegistry();
+            port = new Port("Benchmark");
+            port.addStatisticsEvaluator(new QuayOccupancyEvaluator(port));
+            port.addStatisticsEvaluator(new ShipFlagEvaluator());
+            port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+            port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+            for (int id = 0; id < 10; id++) {
+                port.addQuay(new ContainerQuay(id, 100));
+            }
+            quay = port.getQuays().get(0);
+
+            String[] destinations = {"Australia", "China", "Germany", "Japan"};
+            List<Cargo> stored = new ArrayList<>();
+            for (int id = 0; id < yard; id++) {
+                stored.add(new Container(id, destinations[id % destinations.length],
+                        ContainerType.STANDARD));
+            }
+            port.processMovement(new CargoMovement(0, MovementDirection.INBOUND, stored));
+
+            List<Cargo> moved = new ArrayList<>();
+            moved.add(new Container(yard, "Australia", ContainerType.REEFER));
+            cargoInbound = new CargoMovement(0, MovementDirection.INBOUND, moved);
+            cargoOutbound = new CargoMovement(0, MovementDirection.OUTBOUND, moved);
+
+            shipInbound = new ShipMovement(0, MovementDirection.INBOUND,
+                    new ContainerShip(1000000, "Arriving", "Australia", NauticalFlag.HOTEL, 100));
+            shipOutbound = new ShipMovement(0, MovementDirection.OUTBOUND,
+                    new ContainerShip(1000001, "Departing", "Australia", NauticalFlag.NOVEMBER,
+                            0));
+        }
+
+        /**
+         * Clears the registries populated by the setup.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Cargo.resetCargoRegistry();
+            Ship.resetShipRegistry();
+        }
+    }
+
+    /**
+     * Empties the ship queue before each invocation.
+     */
+    @State(Scope.Thread)
+    public static class EmptyQueue {
+        /**
+         * Removes the ship added by the previous invocation.
+         *
+         * @param state port being benchmarked
+         */
+        @Setup(Level.Invocation)
+        public void setUp(PortState state) {
+            while (state.port.getShipQueue().size() > 0) {
+                state.port.getShipQueue().poll();
+            }
+        }
+    }
+
+    /**
+     * Docks the departing ship before each invocation.
+     */
+    @State(Scope.Thread)
+    public static class DockedShip {
+        /**
+         * Docks the ship that departed in the previous invocation.
+         *
+         * @param state port being benchmarked
+         */
+        @Setup(Level.Invocation)
+        public void setUp(PortState state) {
+            if (state.quay.isEmpty()) {
+                state.quay.shipArrives(state.shipOutbound.getShip());
+            }
+        }
+    }
+
+    /**
+     * Removes the moved cargo from the yard before each invocation.
+     */
+    @State(Scope.Thread)
+    public static class CargoAbsent {
+        /**
+         * Collects the cargo delivered in the previous invocation.
+         *
+         * @param state port being benchmarked
+         */
+        @Setup(Level.Invocation)
+        public void setUp(PortState state) {
+            state.port.processMovement(state.cargoOutbound);
+        }
+    }
+
+    /**
+     * Adds the moved cargo to the yard before each invocation.
+     */
+    @State(Scope.Thread)
+    public static class CargoPresent {
+        /**
+         * Delivers the cargo collected in the previous invocation.
+         *
+         * @param state port being benchmarked
+         */
+        @Setup(Level.Invocation)
+        public void setUp(PortState state) {
+            state.port.processMovement(state.cargoInbound);
+        }
+    }
+}
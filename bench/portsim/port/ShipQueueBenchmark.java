@@ -0,0 +1,137 @@
+package portsim.port;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.BenchmarkPorts;
+import portsim.cargo.Cargo;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ShipQueue#add(Ship)}, {@link ShipQueue#peek()} and
+ * {@link ShipQueue#poll()} across queue sizes and mixes of nautical flags.
+ * <p>
+ * The flag mixes are:
+ * <ul>
+ * <li>{@code NOVEMBER} - every ship is a bulk carrier with no priority flag, the worst case
+ * for peek</li>
+ * <li>{@code MIXED} - ship types and flags chosen uniformly at random</li>
+ * <li>{@code BRAVO} - every ship carries dangerous cargo, the best case for peek</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class ShipQueueBenchmark {
+    /**
+     * Number of ships in the queue
+     */
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    /**
+     * Mix of flags of the ships in the queue
+     */
+    @Param({"NOVEMBER", "MIXED", "BRAVO"})
+    public String flags;
+
+    /**
+     * The queue being benchmarked
+     */
+    private ShipQueue queue;
+
+    /**
+     * Ship added by the add benchmark
+     */
+    private Ship extra;
+
+    /**
+     * Fills the queue with ships of the chosen flag mix. Run before every iteration so that
+     * the add benchmark starts each iteration from the chosen size.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        SplittableRandom random = new SplittableRandom(BenchmarkPorts.SEED);
+        NauticalFlag[] values = NauticalFlag.values();
+        queue = new ShipQueue();
+        for (int i = 0; i < size; i++) {
+            long imoNumber = 1000000 + i;
+            if (flags.equals("NOVEMBER")) {
+                queue.add(new BulkCarrier(imoNumber, "Ship", "Australia",
+                        NauticalFlag.NOVEMBER, 100));
+            } else if (flags.equals("BRAVO")) {
+                queue.add(new BulkCarrier(imoNumber, "Ship", "Australia",
+                        NauticalFlag.BRAVO, 100));
+            } else if (random.nextBoolean()) {
+                queue.add(new BulkCarrier(imoNumber, "Ship", "Australia",
+                        values[random.nextInt(values.length)], 100));
+            } else {
+                queue.add(new ContainerShip(imoNumber, "Ship", "Australia",
+                        values[random.nextInt(values.length)], 100));
+            }
+        }
+        extra = new BulkCarrier(9999999, "Extra", "Australia", NauticalFlag.NOVEMBER, 100);
+    }
+
+    /**
+     * Clears the registries populated by the setup.
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    /**
+     * Adds a ship to the back of the queue. The queue grows by one ship per call within an
+     * iteration.
+     */
+    @Benchmark
+    public void add() {
+        queue.add(extra);
+    }
+
+    /**
+     * Finds the next ship to dock without removing it.
+     *
+     * @return next ship
+     */
+    @Benchmark
+    public Ship peek() {
+        return queue.peek();
+    }
+
+    /**
+     * Removes the next ship to dock and puts it back at the end of the queue, keeping the
+     * size of the queue constant.
+     *
+     * @return polled ship
+     */
+    @Benchmark
+    public Ship pollAndAdd() {
+        Ship ship = queue.poll();
+        queue.add(ship);
+        return ship;
+    }
+}
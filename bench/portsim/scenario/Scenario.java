@@ -0,0 +1,147 @@
+package portsim.scenario;
+
+import portsim.BenchmarkPorts;
+import portsim.cargo.BulkCargoType;
+import portsim.generator.ArrivalPattern;
+import portsim.generator.WeightedChoice;
+import portsim.generator.WorkloadGenerator;
+
+/**
+ * The canned port configurations run by the {@link ScenarioSuite}.
+ * <p>
+ * Every scenario is generated from {@link BenchmarkPorts#SEED}, so every run simulates
+ * exactly the same port.
+ */
+public enum Scenario {
+    /**
+     * A small port on an ordinary day: ships arrive evenly and there is little cargo.
+     */
+    QUIET_DAY("quiet-day", 24 * 60) {
+        @Override
+        void configure(WorkloadGenerator generator) {
+            generator.setCargoCount(2000);
+            generator.setShipCount(200);
+            generator.setQuayCount(20);
+            generator.setMovementCount(2000);
+            generator.setArrivalPattern(ArrivalPattern.UNIFORM, 1);
+        }
+    },
+    /**
+     * The day after a storm: a long queue of ships is waiting to dock and more arrive in
+     * bursts than the quays can handle.
+     */
+    STORM_BACKLOG("storm-backlog", 24 * 60) {
+        @Override
+        void configure(WorkloadGenerator generator) {
+            generator.setCargoCount(10000);
+            generator.setShipCount(2000);
+            generator.setQueuedShips(500);
+            generator.setQuayCount(20);
+            generator.setMovementCount(20000);
+            generator.setArrivalPattern(ArrivalPattern.BURST, 100);
+        }
+    },
+    /**
+     * A very large container terminal with a thousand quays and a busy yard.
+     */
+    MEGA_TERMINAL("mega-terminal", 24 * 60) {
+        @Override
+        void configure(WorkloadGenerator generator) {
+            generator.setCargoCount(100000);
+            generator.setShipCount(10000);
+            generator.setQuayCount(1000);
+            generator.setMovementCount(100000);
+            generator.setBulkRatio(0.1);
+        }
+    },
+    /**
+     * A port handling mostly bulk carriers of oil and coal.
+     */
+    BULK_HEAVY("bulk-heavy", 24 * 60) {
+        @Override
+        void configure(WorkloadGenerator generator) {
+            generator.setCargoCount(20000);
+            generator.setShipCount(1000);
+            generator.setQuayCount(50);
+            generator.setMovementCount(10000);
+            generator.setBulkRatio(0.9);
+            generator.setBulkCargoTypes(new WeightedChoice<BulkCargoType>()
+                    .add(BulkCargoType.OIL, 4).add(BulkCargoType.COAL, 3)
+                    .add(BulkCargoType.MINERALS, 2).add(BulkCargoType.GRAIN, 1));
+        }
+    };
+
+    /**
+     * Name of the scenario used in reports and the baseline file
+     */
+    private final String key;
+
+    /**
+     * Number of minutes simulated
+     */
+    private final long minutes;
+
+    /**
+     * Creates a scenario.
+     *
+     * @param key     name of the scenario
+     * @param minutes number of minutes simulated
+     */
+    Scenario(String key, long minutes) {
+        this.key = key;
+        this.minutes = minutes;
+    }
+
+    /**
+     * Returns the name of the scenario used in reports and the baseline file.
+     *
+     * @return scenario name
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the number of minutes the scenario simulates.
+     *
+     * @return number of minutes
+     */
+    public long getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * Returns the encoded port for this scenario.
+     *
+     * @return encoded port
+     */
+    public String generate() {
+        WorkloadGenerator generator = BenchmarkPorts.generator();
+        generator.setHorizon(minutes);
+        configure(generator);
+        return BenchmarkPorts.encode(generator);
+    }
+
+    /**
+     * Applies the settings of this scenario to a seeded generator.
+     *
+     * @param generator generator to configure
+     */
+    abstract void configure(WorkloadGenerator generator);
+
+    /**
+     * Returns the scenario with the given name.
+     *
+     * @param key name of the scenario
+     * @return scenario with that name
+     * @throws IllegalArgumentException if there is no such scenario
+     */
+    public static Scenario fromKey(String key) throws IllegalArgumentException {
+        for (Scenario scenario : values()) {
+            if (scenario.key.equals(key)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("no such scenario: " + key);
+    }
+}
@@ -0,0 +1,195 @@
+package portsim.scenario;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The measurements taken from one run of a {@link Scenario}.
+ */
+public class ScenarioResult {
+    /**
+     * The metrics reported for every scenario.
+     */
+    public enum Metric {
+        /**
+         * Wall clock time to load, simulate and save the port, in milliseconds
+         */
+        WALL_TIME("wallTimeMs", false),
+        /**
+         * Simulated minutes per second of wall clock time while simulating
+         */
+        MINUTES_PER_SECOND("simMinutesPerSecond", true),
+        /**
+         * Bytes allocated by the simulation thread per simulated minute. Unlike an
+         * allocation rate in bytes per second, this does not depend on the speed of the
+         * machine.
+         */
+        ALLOCATION_RATE("allocatedBytesPerSimMinute", false),
+        /**
+         * Peak heap usage during the run, in megabytes
+         */
+        PEAK_HEAP("peakHeapMb", false);
+
+        /**
+         * Name of the metric in reports and the baseline file
+         */
+        private final String key;
+
+        /**
+         * Whether larger values of the metric are better
+         */
+        private final boolean higherIsBetter;
+
+        /**
+         * Creates a metric.
+         *
+         * @param key            name of the metric
+         * @param higherIsBetter whether larger values are better
+         */
+        Metric(String key, boolean higherIsBetter) {
+            this.key = key;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        /**
+         * Returns the name of the metric in reports and the baseline file.
+         *
+         * @return metric name
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns true if the given value is worse than the baseline value by more than the
+         * given tolerance.
+         *
+         * @param value     measured value
+         * @param baseline  baseline value
+         * @param tolerance allowed relative change, e.g. 0.2 for 20%
+         * @return true if the value is a regression
+         */
+        public boolean isRegression(double value, double baseline, double tolerance) {
+            if (higherIsBetter) {
+                return value < baseline * (1 - tolerance);
+            }
+            return value > baseline * (1 + tolerance);
+        }
+    }
+
+    /**
+     * The scenario that was run
+     */
+    private final Scenario scenario;
+
+    /**
+     * The value of each metric
+     */
+    private final Map<Metric, Double> values = new EnumMap<>(Metric.class);
+
+    /**
+     * Allocation rate in megabytes per second of wall clock time, for information only
+     */
+    private final double allocatedMbPerSecond;
+
+    /**
+     * Creates a result.
+     *
+     * @param scenario             scenario that was run
+     * @param wallTimeMillis       wall clock time to load, simulate and save
+     * @param minutesPerSecond     simulated minutes per second
+     * @param bytesPerMinute       bytes allocated per simulated minute
+     * @param peakHeapMb           peak heap usage in megabytes
+     * @param allocatedMbPerSecond allocation rate in megabytes per second
+     */
+    public ScenarioResult(Scenario scenario, double wallTimeMillis, double minutesPerSecond,
+                          double bytesPerMinute, double peakHeapMb,
+                          double allocatedMbPerSecond) {
+        this.scenario = scenario;
+        values.put(Metric.WALL_TIME, wallTimeMillis);
+        values.put(Metric.MINUTES_PER_SECOND, minutesPerSecond);
+        values.put(Metric.ALLOCATION_RATE, bytesPerMinute);
+        values.put(Metric.PEAK_HEAP, peakHeapMb);
+        this.allocatedMbPerSecond = allocatedMbPerSecond;
+    }
+
+    /**
+     * Returns a result holding the median of each metric over the given runs of the same
+     * scenario.
+     *
+     * @param runs results of each run
+     * @return median result
+     * @throws IllegalArgumentException if there are no runs
+     */
+    public static ScenarioResult median(List<ScenarioResult> runs)
+            throws IllegalArgumentException {
+        if (runs.isEmpty()) {
+            throw new IllegalArgumentException("no runs");
+        }
+        double[] medians = new double[Metric.values().length];
+        double[] values = new double[runs.size()];
+        for (Metric metric : Metric.values()) {
+            for (int i = 0; i < runs.size(); i++) {
+                values[i] = runs.get(i).get(metric);
+            }
+            medians[metric.ordinal()] = median(values);
+        }
+        for (int i = 0; i < runs.size(); i++) {
+            values[i] = runs.get(i).allocatedMbPerSecond;
+        }
+        return new ScenarioResult(runs.get(0).scenario, medians[Metric.WALL_TIME.ordinal()],
+                medians[Metric.MINUTES_PER_SECOND.ordinal()],
+                medians[Metric.ALLOCATION_RATE.ordinal()], medians[Metric.PEAK_HEAP.ordinal()],
+                median(values));
+    }
+
+    /* Returns the median of the given values, reordering them */
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle]
+                : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    /**
+     * Returns the scenario that was run.
+     *
+     * @return scenario
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Returns the value of the given metric.
+     *
+     * @param metric metric to return
+     * @return measured value
+     */
+    public double get(Metric metric) {
+        return values.get(metric);
+    }
+
+    /**
+     * Returns the allocation rate in megabytes per second of wall clock time.
+     *
+     * @return allocation rate
+     */
+    public double getAllocatedMbPerSecond() {
+        return allocatedMbPerSecond;
+    }
+
+    /**
+     * Returns a one line summary of this result.
+     *
+     * @return summary of the result
+     */
+    @Override
+    public String toString() {
+        return String.format("%-14s %10.1f ms %12.1f min/s %12.0f B/min %8.1f MB/s %8.1f MB peak",
+                scenario.getKey(), get(Metric.WALL_TIME), get(Metric.MINUTES_PER_SECOND),
+                get(Metric.ALLOCATION_RATE), allocatedMbPerSecond, get(Metric.PEAK_HEAP));
+    }
+}
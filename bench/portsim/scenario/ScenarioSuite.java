@@ -0,0 +1,236 @@
+package portsim.scenario;
+
+import portsim.BenchmarkPorts;
+import portsim.port.Port;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Runs the end-to-end {@link Scenario}s and compares the results against a baseline file.
+ * <p>
+ * Each scenario loads its generated port, simulates a fixed number of minutes and saves
+ * the port to a temporary file. Its {@link ScenarioResult.Metric}s are then checked against
+ * the baseline. The suite exits with status 1 if any metric is worse than its baseline by
+ * more than the tolerance. The tolerance is read from the baseline file and can be
+ * overridden on the command line.
+ * <p>
+ * Usage: {@code [--update] [--baseline file] [--tolerance fraction] [--warmup runs]
+ * [--runs runs] [scenario ...]}
+ * <ul>
+ * <li>{@code --update} writes the results to the baseline file instead of comparing</li>
+ * <li>{@code --baseline} is the baseline file, {@code bench/scenario-baseline.properties}
+ * by default</li>
+ * <li>{@code --tolerance} is the allowed relative regression, e.g. {@code 0.25}</li>
+ * <li>{@code --warmup} is the number of unmeasured runs of each scenario, 1 by default</li>
+ * <li>{@code --runs} is the number of measured runs of each scenario, 3 by default; the
+ * median of each metric is reported</li>
+ * <li>{@code scenario} names the scenarios to run, all of them by default</li>
+ * </ul>
+ */
+public class ScenarioSuite {
+    /**
+     * Default location of the baseline file
+     */
+    private static final String DEFAULT_BASELINE = "bench/scenario-baseline.properties";
+
+    /**
+     * Tolerance used if neither the baseline file nor the command line gives one
+     */
+    private static final double DEFAULT_TOLERANCE = 0.25;
+
+    /**
+     * Not instantiable
+     */
+    private ScenarioSuite() {}
+
+    /**
+     * Runs the scenario suite.
+     *
+     * @param args command line arguments
+     * @throws IOException if the baseline or save files cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        boolean update = false;
+        String baselineFile = DEFAULT_BASELINE;
+        Double tolerance = null;
+        int warmup = 1;
+        int runs = 3;
+        List<Scenario> scenarios = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--update":
+                    update = true;
+                    break;
+                case "--baseline":
+                    baselineFile = args[++i];
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    scenarios.add(Scenario.fromKey(args[i]));
+                    break;
+            }
+        }
+        if (scenarios.isEmpty()) {
+            scenarios.addAll(List.of(Scenario.values()));
+        }
+
+        Properties baseline = new Properties();
+        Path baselinePath = Path.of(baselineFile);
+        if (Files.exists(baselinePath)) {
+            try (Reader reader = new FileReader(baselineFile)) {
+                baseline.load(reader);
+            }
+        }
+        if (tolerance == null) {
+            tolerance = Double.parseDouble(baseline.getProperty("tolerance",
+                    String.valueOf(DEFAULT_TOLERANCE)));
+        }
+
+        List<ScenarioResult> results = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            String encoded = scenario.generate();
+            for (int i = 0; i < warmup; i++) {
+                run(scenario, encoded);
+            }
+            List<ScenarioResult> measured = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                measured.add(run(scenario, encoded));
+            }
+            ScenarioResult result = ScenarioResult.median(measured);
+            System.out.println(result);
+            results.add(result);
+        }
+
+        if (update) {
+            writeBaseline(baselineFile, baseline, results, tolerance);
+            System.out.println("Baseline written to " + baselineFile);
+            return;
+        }
+
+        int regressions = 0;
+        for (ScenarioResult result : results) {
+            for (ScenarioResult.Metric metric : ScenarioResult.Metric.values()) {
+                String key = result.getScenario().getKey() + "." + metric.getKey();
+                String expected = baseline.getProperty(key);
+                if (expected == null) {
+                    System.out.println("No baseline for " + key);
+                    continue;
+                }
+                double value = result.get(metric);
+                double base = Double.parseDouble(expected);
+                if (metric.isRegression(value, base, tolerance)) {
+                    System.out.printf("REGRESSION %s: %.1f (baseline %.1f, tolerance %.0f%%)%n",
+                            key, value, base, tolerance * 100);
+                    regressions++;
+                }
+            }
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " metric(s) regressed");
+            System.exit(1);
+        }
+        System.out.println("No regressions");
+    }
+
+    /**
+     * Loads, simulates and saves the given scenario, measuring the simulation thread.
+     *
+     * @param scenario scenario to run
+     * @param encoded  encoded port of the scenario
+     * @return measurements of the run
+     * @throws IOException if the port cannot be saved
+     */
+    public static ScenarioResult run(Scenario scenario, String encoded) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+        System.gc();
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+        }
+
+        long start = System.nanoTime();
+        Port port = BenchmarkPorts.load(encoded);
+
+        long simulationStart = System.nanoTime();
+        long allocationStart = threads.getThreadAllocatedBytes(thread);
+        for (long minute = 0; minute < scenario.getMinutes(); minute++) {
+            port.elapseOneMinute();
+        }
+        port.awaitEvaluators();
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocationStart;
+        long simulationEnd = System.nanoTime();
+
+        Path save = Files.createTempFile("portsim-" + scenario.getKey(), ".txt");
+        try (Writer writer = new BufferedWriter(new FileWriter(save.toFile()))) {
+            writer.write(port.encode());
+        } finally {
+            Files.delete(save);
+        }
+        long end = System.nanoTime();
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        double simulationSeconds = (simulationEnd - simulationStart) / 1e9;
+        return new ScenarioResult(scenario, (end - start) / 1e6,
+                scenario.getMinutes() / simulationSeconds,
+                (double) allocated / scenario.getMinutes(), peakHeap / (1024.0 * 1024.0),
+                allocated / (1024.0 * 1024.0) / simulationSeconds);
+    }
+
+    /* Writes the results into the baseline file, keeping entries for scenarios not run */
+    private static void writeBaseline(String file, Properties baseline,
+                                      List<ScenarioResult> results, double tolerance)
+            throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        for (String key : baseline.stringPropertyNames()) {
+            entries.put(key, baseline.getProperty(key));
+        }
+        entries.put("tolerance", String.valueOf(tolerance));
+        for (ScenarioResult result : results) {
+            for (ScenarioResult.Metric metric : ScenarioResult.Metric.values()) {
+                entries.put(result.getScenario().getKey() + "." + metric.getKey(),
+                        String.format(Locale.ROOT, "%.1f", result.get(metric)));
+            }
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("# Scenario suite baseline, regenerate with --update"
+                    + System.lineSeparator());
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue() + System.lineSeparator());
+            }
+        }
+    }
+}
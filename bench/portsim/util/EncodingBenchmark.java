@@ -0,0 +1,545 @@
+package portsim.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.BenchmarkPorts;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.generator.WorkloadGenerator;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.port.ShipQueue;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks every encode() and fromString(String) pair, and encoding and loading a whole
+ * port.
+ * <p>
+ * Decoding cargo, ships and ports adds them to the global registries, which reject
+ * duplicates. Those benchmarks clear the affected registry after each decode, so their
+ * scores include the (small, constant) cost of clearing it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EncodingBenchmark {
+    /**
+     * Number of containers carried by the encoded container ship and cargo movement
+     */
+    private static final int CARGO = 10;
+
+    /**
+     * Number of ships in the encoded ship queue
+     */
+    private static final int QUEUED_SHIPS = 100;
+
+    /**
+     * Encodes a container.
+     *
+     * @param state encoded entities
+     * @return encoded container
+     */
+    @Benchmark
+    public String containerEncode(CargoState state) {
+        return state.container.encode();
+    }
+
+    /**
+     * Decodes a container.
+     *
+     * @param state encoded entities
+     * @return decoded container
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public Cargo containerFromString(CargoState state) throws BadEncodingException {
+        Cargo cargo = Cargo.fromString(state.containerEncoded);
+        Cargo.resetCargoRegistry();
+        return cargo;
+    }
+
+    /**
+     * Encodes bulk cargo.
+     *
+     * @param state encoded entities
+     * @return encoded bulk cargo
+     */
+    @Benchmark
+    public String bulkCargoEncode(CargoState state) {
+        return state.bulkCargo.encode();
+    }
+
+    /**
+     * Decodes bulk cargo.
+     *
+     * @param state encoded entities
+     * @return decoded bulk cargo
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public Cargo bulkCargoFromString(CargoState state) throws BadEncodingException {
+        Cargo cargo = Cargo.fromString(state.bulkCargoEncoded);
+        Cargo.resetCargoRegistry();
+        return cargo;
+    }
+
+    /**
+     * Encodes a loaded container ship.
+     *
+     * @param state encoded entities
+     * @return encoded container ship
+     */
+    @Benchmark
+    public String containerShipEncode(ShipState state) {
+        return state.containerShip.encode();
+    }
+
+    /**
+     * Decodes a loaded container ship.
+     *
+     * @param state encoded entities
+     * @return decoded container ship
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public Ship containerShipFromString(ShipState state) throws BadEncodingException {
+        Ship ship = Ship.fromString(state.containerShipEncoded);
+        Ship.resetShipRegistry();
+        return ship;
+    }
+
+    /**
+     * Encodes a loaded bulk carrier.
+     *
+     * @param state encoded entities
+     * @return encoded bulk carrier
+     */
+    @Benchmark
+    public String bulkCarrierEncode(ShipState state) {
+        return state.bulkCarrier.encode();
+    }
+
+    /**
+     * Decodes a loaded bulk carrier.
+     *
+     * @param state encoded entities
+     * @return decoded bulk carrier
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public Ship bulkCarrierFromString(ShipState state) throws BadEncodingException {
+        Ship ship = Ship.fromString(state.bulkCarrierEncoded);
+        Ship.resetShipRegistry();
+        return ship;
+    }
+
+    /**
+     * Encodes an occupied container quay.
+     *
+     * @param state encoded entities
+     * @return encoded quay
+     */
+    @Benchmark
+    public String containerQuayEncode(PortEntityState state) {
+        return state.containerQuay.encode();
+    }
+
+    /**
+     * Decodes an occupied container quay.
+     *
+     * @param state encoded entities
+     * @return decoded quay
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public Quay containerQuayFromString(PortEntityState state) throws BadEncodingException {
+        return Quay.fromString(state.containerQuayEncoded);
+    }
+
+    /**
+     * Encodes an empty bulk quay.
+     *
+     * @param state encoded entities
+     * @return encoded quay
+     */
+    @Benchmark
+    public String bulkQuayEncode(PortEntityState state) {
+        return state.bulkQuay.encode();
+    }
+
+    /**
+     * Decodes an empty bulk quay.
+     *
+     * @param state encoded entities
+     * @return decoded quay
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public Quay bulkQuayFromString(PortEntityState state) throws BadEncodingException {
+        return Quay.fromString(state.bulkQuayEncoded);
+    }
+
+    /**
+     * Encodes a ship movement.
+     *
+     * @param state encoded entities
+     * @return encoded movement
+     */
+    @Benchmark
+    public String shipMovementEncode(PortEntityState state) {
+        return state.shipMovement.encode();
+    }
+
+    /**
+     * Decodes a ship movement.
+     *
+     * @param state encoded entities
+     * @return decoded movement
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public ShipMovement shipMovementFromString(PortEntityState state)
+            throws BadEncodingException {
+        return ShipMovement.fromString(state.shipMovementEncoded);
+    }
+
+    /**
+     * Encodes a cargo movement.
+     *
+     * @param state encoded entities
+     * @return encoded movement
+     */
+    @Benchmark
+    public String cargoMovementEncode(PortEntityState state) {
+        return state.cargoMovement.encode();
+    }
+
+    /**
+     * Decodes a cargo movement.
+     *
+     * @param state encoded entities
+     * @return decoded movement
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public CargoMovement cargoMovementFromString(PortEntityState state)
+            throws BadEncodingException {
+        return CargoMovement.fromString(state.cargoMovementEncoded);
+    }
+
+    /**
+     * Encodes a ship queue.
+     *
+     * @param state encoded entities
+     * @return encoded queue
+     */
+    @Benchmark
+    public String shipQueueEncode(PortEntityState state) {
+        return state.shipQueue.encode();
+    }
+
+    /**
+     * Decodes a ship queue.
+     *
+     * @param state encoded entities
+     * @return decoded queue
+     * @throws BadEncodingException never
+     */
+    @Benchmark
+    public ShipQueue shipQueueFromString(PortEntityState state) throws BadEncodingException {
+        return ShipQueue.fromString(state.shipQueueEncoded);
+    }
+
+    /**
+     * Encodes a whole generated port.
+     *
+     * @param state encoded port
+     * @return encoded port
+     */
+    @Benchmark
+    public String portEncode(PortState state) {
+        return state.port.encode();
+    }
+
+    /**
+     * Loads a whole generated port.
+     *
+     * @param state encoded port
+     * @return loaded port
+     * @throws Exception never
+     */
+    @Benchmark
+    public Port portInitialise(PortState state) throws Exception {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        return Port.initialisePort(new StringReader(state.encoded));
+    }
+
+    /**
+     * Cargo and its encodings, with an empty cargo registry.
+     */
+    @State(Scope.Thread)
+    public static class CargoState {
+        /**
+         * A container
+         */
+        Cargo container;
+
+        /**
+         * Encoding of the container
+         */
+        String containerEncoded;
+
+        /**
+         * Bulk cargo
+         */
+        Cargo bulkCargo;
+
+        /**
+         * Encoding of the bulk cargo
+         */
+        String bulkCargoEncoded;
+
+        /**
+         * Creates and encodes the cargo.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            resetRegistries();
+            container = new Container(1, "Australia", ContainerType.REEFER);
+            containerEncoded = container.encode();
+            bulkCargo = new BulkCargo(2, "Australia", 100, BulkCargoType.OIL);
+            bulkCargoEncoded = bulkCargo.encode();
+            Cargo.resetCargoRegistry();
+        }
+
+        /**
+         * Clears the registries.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            resetRegistries();
+        }
+    }
+
+    /**
+     * Loaded ships and their encodings, with their cargo registered and an empty ship
+     * registry.
+     */
+    @State(Scope.Thread)
+    public static class ShipState {
+        /**
+         * A container ship carrying {@link #CARGO} containers
+         */
+        Ship containerShip;
+
+        /**
+         * Encoding of the container ship
+         */
+        String containerShipEncoded;
+
+        /**
+         * A bulk carrier carrying bulk cargo
+         */
+        Ship bulkCarrier;
+
+        /**
+         * Encoding of the bulk carrier
+         */
+        String bulkCarrierEncoded;
+
+        /**
+         * Creates and encodes the ships.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            resetRegistries();
+            containerShip = new ContainerShip(1000000, "Container", "Australia",
+                    NauticalFlag.HOTEL, 100);
+            for (int id = 0; id < CARGO; id++) {
+                containerShip.loadCargo(new Container(id, "Australia", ContainerType.STANDARD));
+            }
+            containerShipEncoded = containerShip.encode();
+            bulkCarrier = new BulkCarrier(1000001, "Bulk", "Australia", NauticalFlag.BRAVO,
+                    500);
+            bulkCarrier.loadCargo(new BulkCargo(CARGO, "Australia", 100, BulkCargoType.COAL));
+            bulkCarrierEncoded = bulkCarrier.encode();
+            Ship.resetShipRegistry();
+        }
+
+        /**
+         * Clears the registries.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            resetRegistries();
+        }
+    }
+
+    /**
+     * Quays, movements and a ship queue and their encodings, with the ships and cargo they
+     * refer to registered.
+     */
+    @State(Scope.Thread)
+    public static class PortEntityState {
+        /**
+         * A container quay with a ship docked
+         */
+        Quay containerQuay;
+
+        /**
+         * Encoding of the container quay
+         */
+        String containerQuayEncoded;
+
+        /**
+         * An empty bulk quay
+         */
+        Quay bulkQuay;
+
+        /**
+         * Encoding of the bulk quay
+         */
+        String bulkQuayEncoded;
+
+        /**
+         * A ship movement
+         */
+        ShipMovement shipMovement;
+
+        /**
+         * Encoding of the ship movement
+         */
+        String shipMovementEncoded;
+
+        /**
+         * A cargo movement of {@link #CARGO} containers
+         */
+        CargoMovement cargoMovement;
+
+        /**
+         * Encoding of the cargo movement
+         */
+        String cargoMovementEncoded;
+
+        /**
+         * A ship queue of {@link #QUEUED_SHIPS} ships
+         */
+        ShipQueue shipQueue;
+
+        /**
+         * Encoding of the ship queue
+         */
+        String shipQueueEncoded;
+
+        /**
+         * Creates and encodes the entities.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            resetRegistries();
+            shipQueue = new ShipQueue();
+            for (int i = 0; i < QUEUED_SHIPS; i++) {
+                shipQueue.add(new ContainerShip(1000000 + i, "Queued", "Australia",
+                        NauticalFlag.values()[i % NauticalFlag.values().length], 100));
+            }
+            shipQueueEncoded = shipQueue.encode();
+
+            Ship ship = shipQueue.getShipQueue().get(0);
+            containerQuay = new ContainerQuay(1, 100);
+            containerQuay.shipArrives(ship);
+            containerQuayEncoded = containerQuay.encode();
+            bulkQuay = new BulkQuay(2, 1000);
+            bulkQuayEncoded = bulkQuay.encode();
+
+            shipMovement = new ShipMovement(100, MovementDirection.INBOUND, ship);
+            shipMovementEncoded = shipMovement.encode();
+            List<Cargo> cargo = new ArrayList<>();
+            for (int id = 0; id < CARGO; id++) {
+                cargo.add(new Container(id, "Australia", ContainerType.STANDARD));
+            }
+            cargoMovement = new CargoMovement(100, MovementDirection.OUTBOUND, cargo);
+            cargoMovementEncoded = cargoMovement.encode();
+        }
+
+        /**
+         * Clears the registries.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            resetRegistries();
+        }
+    }
+
+    /**
+     * A generated port and its encoding.
+     */
+    @State(Scope.Thread)
+    public static class PortState {
+        /**
+         * Encoding of the port
+         */
+        String encoded;
+
+        /**
+         * The loaded port
+         */
+        Port port;
+
+        /**
+         * Generates and loads the port.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            WorkloadGenerator generator = BenchmarkPorts.generator();
+            generator.setCargoCount(1000);
+            generator.setShipCount(100);
+            generator.setQuayCount(10);
+            generator.setMovementCount(1000);
+            encoded = BenchmarkPorts.encode(generator);
+            port = BenchmarkPorts.load(encoded);
+        }
+
+        /**
+         * Clears the registries.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            resetRegistries();
+        }
+    }
+
+    /* Clears the cargo and ship registries */
+    private static void resetRegistries() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+}
@@ -0,0 +1,114 @@
+package portsim.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.BenchmarkPorts;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.ship.BulkCarrier;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the registry lookups {@link Cargo#getCargoById(int)} and
+ * {@link Ship#getShipByImoNumber(long)} at varying registry sizes.
+ * <p>
+ * Each call looks up the next key from a fixed, seeded sequence of random registered keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class RegistryBenchmark {
+    /**
+     * Number of keys in the lookup sequence, a power of two
+     */
+    private static final int KEYS = 4096;
+
+    /**
+     * Number of cargo and ships in the registries
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * Cargo ids to look up
+     */
+    private final int[] cargoIds = new int[KEYS];
+
+    /**
+     * Ship IMO numbers to look up
+     */
+    private final long[] imoNumbers = new long[KEYS];
+
+    /**
+     * Position in the lookup sequences
+     */
+    private int next = 0;
+
+    /**
+     * Fills the registries and chooses the keys to look up.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        for (int i = 0; i < size; i++) {
+            new Container(i, "Australia", ContainerType.STANDARD);
+            new BulkCarrier(1000000 + i, "Ship", "Australia", NauticalFlag.NOVEMBER, 100);
+        }
+        SplittableRandom random = new SplittableRandom(BenchmarkPorts.SEED);
+        for (int i = 0; i < KEYS; i++) {
+            cargoIds[i] = random.nextInt(size);
+            imoNumbers[i] = 1000000 + random.nextInt(size);
+        }
+    }
+
+    /**
+     * Clears the registries.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    /**
+     * Looks up a piece of cargo by its id.
+     *
+     * @return cargo found
+     * @throws NoSuchCargoException never
+     */
+    @Benchmark
+    public Cargo getCargoById() throws NoSuchCargoException {
+        return Cargo.getCargoById(cargoIds[next++ & (KEYS - 1)]);
+    }
+
+    /**
+     * Looks up a ship by its IMO number.
+     *
+     * @return ship found
+     * @throws NoSuchShipException never
+     */
+    @Benchmark
+    public Ship getShipByImoNumber() throws NoSuchShipException {
+        return Ship.getShipByImoNumber(imoNumbers[next++ & (KEYS - 1)]);
+    }
+}
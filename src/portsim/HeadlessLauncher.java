@@ -0,0 +1,121 @@
+package portsim;
+
+import portsim.evaluators.EvaluatorReport;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.metrics.AllocationProbe;
+import portsim.port.Port;
+import portsim.util.BadEncodingException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Entry point for running the Port Simulation without a GUI.
+ * <p>
+ * The simulation is advanced as fast as possible rather than at the pace of the GUI, which
+ * makes this suitable for batch runs and capacity studies. No JavaFX classes are loaded, so no
+ * display is required.
+ */
+public class HeadlessLauncher {
+    /**
+     * Not instantiable
+     */
+    private HeadlessLauncher() {}
+
+    /**
+     * Loads a port and runs the simulation headlessly.
+     * <p>
+     * Usage: {@code [--allocations] port_file [minutes]}
+     * <p>
+     * Where
+     * <ul>
+     * <li>{@code --allocations} measures the bytes allocated by each phase of every tick and
+     * prints a summary at the end of the run</li>
+     * <li>{@code port_file} is the path to the file containing the port</li>
+     * <li>{@code minutes} is the number of simulated minutes to run for; if omitted, the
+     * simulation runs until there are no pending movements left</li>
+     * </ul>
+     * Once the run completes, the results of each statistics evaluator are printed along with
+     * the throughput of the run in simulated minutes per second.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        boolean allocations = args.length > 0 && args[0].equals("--allocations");
+        int first = allocations ? 1 : 0;
+        if (args.length - first < 1 || args.length - first > 2) {
+            System.err.println("Usage: [--allocations] port_file [minutes]");
+            System.exit(1);
+        }
+        long minutes = -1;
+        if (args.length - first == 2) {
+            try {
+                minutes = Long.parseLong(args[first + 1]);
+            } catch (NumberFormatException e) {
+                minutes = -1;
+            }
+            if (minutes < 0) {
+                System.err.println("minutes must be a non-negative integer: "
+                        + args[first + 1]);
+                System.exit(1);
+            }
+        }
+
+        Port port;
+        try (Reader reader = new FileReader(args[first])) {
+            port = Port.initialisePort(reader);
+        } catch (BadEncodingException | IOException e) {
+            System.err.println("Error loading from file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+
+        AllocationProbe allocationProbe = null;
+        if (allocations) {
+            allocationProbe = new AllocationProbe();
+            port.setTickProbe(allocationProbe);
+        }
+
+        long start = System.nanoTime();
+        long elapsed = run(port, minutes);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (StatisticsEvaluator evaluator : port.getEvaluators()) {
+            System.out.println(EvaluatorReport.describe(evaluator));
+            System.out.println();
+        }
+        System.out.println("Simulated " + elapsed + " minute(s) in "
+                + String.format("%.3f", seconds) + " s ("
+                + String.format("%.1f", seconds > 0 ? elapsed / seconds : 0)
+                + " simulated minutes/s)");
+        if (allocationProbe != null) {
+            System.out.println(allocationProbe.describe());
+        }
+    }
+
+    /**
+     * Advances the given port by the given number of minutes, or until it has no pending
+     * movements left if minutes is negative.
+     *
+     * @param port    port to run
+     * @param minutes number of minutes to run for, or a negative number to run until the
+     *                port has no pending movements or recurring schedules
+     * @return number of minutes the port was advanced by
+     */
+    public static long run(Port port, long minutes) {
+        long elapsed = 0;
+        while (minutes < 0 ? hasPendingMovements(port) : elapsed < minutes) {
+            port.elapseOneMinute();
+            elapsed++;
+        }
+        port.awaitEvaluators();
+        return elapsed;
+    }
+
+    /* Returns true if the port has movements or schedule occurrences still to process */
+    private static boolean hasPendingMovements(Port port) {
+        return port.getPendingMovementCount() > 0 || port.getRecurringScheduleCount() > 0;
+    }
+}
@@ -38,6 +38,9 @@ public class BulkCargo extends Cargo {
         }
         this.tonnage = tonnage;
         this.type = type;
+        if (type != null) {
+            describe(CargoColumns.BULK_CARGO, type.ordinal(), tonnage);
+        }
     }
 
     /**
@@ -98,7 +101,8 @@ public class BulkCargo extends Cargo {
     public boolean equals(Object o) {
         if (o instanceof BulkCargo) {
             BulkCargo other = (BulkCargo) o;
-            return super.equals(o) && type.equals(other.type) && tonnage == other.tonnage;
+            return super.equals(o) && Objects.equals(type, other.type)
+                    && tonnage == other.tonnage;
         }
         return false;
     }
@@ -111,7 +115,9 @@ public class BulkCargo extends Cargo {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), type, tonnage);
+        // same value as Objects.hash(super.hashCode(), type, tonnage), without boxing
+        return 31 * (31 * (31 + super.hashCode()) + Objects.hashCode(type))
+                + Integer.hashCode(tonnage);
     }
 
     /**
@@ -24,9 +24,19 @@ public abstract class Cargo {
     private String destination;
 
     /**
-     * Database of all cargo currently active in the simulation
+     * Code of the destination in the {@link CountryDictionary}
      */
-    private static Map<Integer, Cargo> cargoRegistry = new HashMap<>();
+    private int destinationCode;
+
+    /**
+     * Row of this cargo in the {@link #cargoColumns}
+     */
+    private int row;
+
+    /**
+     * Database of all cargo currently active in the simulation, stored by column
+     */
+    private static final CargoColumns cargoColumns = new CargoColumns();
 
     /**
      * Creates a new Cargo with the given ID and destination port.
@@ -46,13 +56,26 @@ public abstract class Cargo {
         }
         this.id = id;
         this.destination = destination;
-        if (cargoRegistry.get(id) != null) {
+        this.destinationCode = CountryDictionary.code(destination);
+        if (cargoColumns.rowOf(id) >= 0) {
             throw new IllegalArgumentException("a cargo already exists with the given ID");
         } else {
-            cargoRegistry.put(id, this);
+            this.row = cargoColumns.add(this);
         }
     }
 
+    /**
+     * Records the kind, type and tonnage of this cargo in the cargo columns. Called by
+     * subclass constructors once their fields are set.
+     *
+     * @param kind    kind of the cargo, see {@link CargoColumns}
+     * @param type    ordinal of the cargo's type
+     * @param tonnage tonnage of the cargo, 0 for containers
+     */
+    void describe(byte kind, int type, int tonnage) {
+        cargoColumns.describe(row, kind, type, tonnage);
+    }
+
     /**
      * Retrieve the ID of this piece of cargo.
      *
@@ -73,6 +96,17 @@ public abstract class Cargo {
         return destination;
     }
 
+    /**
+     * Retrieve the code of the destination of this piece of cargo in the
+     * {@link CountryDictionary}. Two pieces of cargo have the same destination if and only if
+     * they have the same destination code.
+     *
+     * @return the cargo's destination code
+     */
+    public int getDestinationCode() {
+        return destinationCode;
+    }
+
     /**
      * Returns the human-readable string representation of this cargo.
      * <p>
@@ -98,13 +132,92 @@ public abstract class Cargo {
                 this.destination);
     }
 
+    /**
+     * Returns where this cargo is: in a yard, on a ship, or neither.
+     *
+     * @return location of this cargo
+     */
+    public CargoLocation getLocation() {
+        return isRegistered() ? cargoColumns.getLocation(row) : CargoLocation.NONE;
+    }
+
+    /**
+     * Returns the yard or ship holding this cargo.
+     *
+     * @return the CargoYard or Ship holding this cargo, or null if its location is
+     *     {@link CargoLocation#NONE}
+     */
+    public Object getHolder() {
+        return isRegistered() ? cargoColumns.getHolder(row) : null;
+    }
+
+    /**
+     * Records where this cargo is. Yards and ships call this as they store, load and unload
+     * cargo, keeping the location index in the cargo columns up to date. Cargo no longer in
+     * the registry, because the registry has been reset since it was created, is not
+     * recorded.
+     *
+     * @param location location of this cargo
+     * @param holder   the CargoYard or Ship holding this cargo, or null if the location is
+     *                 {@link CargoLocation#NONE}
+     * @throws IllegalArgumentException if the holder is null for a location other than NONE,
+     *                                  or not null for NONE
+     */
+    public void setLocation(CargoLocation location, Object holder)
+            throws IllegalArgumentException {
+        if ((location == CargoLocation.NONE) != (holder == null)) {
+            throw new IllegalArgumentException("cargo at " + location + " cannot be held by "
+                    + holder);
+        }
+        if (isRegistered()) {
+            cargoColumns.locate(row, location, holder);
+        }
+    }
+
+    /* Returns true if this cargo still owns its row, i.e. the registry was not reset since */
+    private boolean isRegistered() {
+        return row < cargoColumns.size() && cargoColumns.getCargo(row) == this;
+    }
+
     /**
      * Resets the global cargo registry. This utility method is for the testing suite.
      *
      * @given
      */
     public static void resetCargoRegistry() {
-        Cargo.cargoRegistry = new HashMap<>();
+        cargoColumns.clear();
+    }
+
+    /**
+     * Empties the cargo registry and returns what it held, so that it can be put back by
+     * {@link #restoreCargoRegistry(CargoColumns)}. Until then, the cargo it held is not
+     * registered: its location is not recorded and it cannot be found by ID.
+     *
+     * @return column store holding the cargo that was registered
+     */
+    public static CargoColumns takeCargoRegistry() {
+        return cargoColumns.takeRows();
+    }
+
+    /**
+     * Replaces the contents of the cargo registry with the cargo taken by
+     * {@link #takeCargoRegistry()}. Cargo registered since it was taken is forgotten.
+     *
+     * @param registry column store returned by takeCargoRegistry()
+     */
+    public static void restoreCargoRegistry(CargoColumns registry) {
+        cargoColumns.swapRows(registry);
+        registry.clear();
+    }
+
+    /**
+     * Returns the column store holding every piece of cargo in the simulation, for aggregate
+     * queries over all cargo. The store is the registry itself, not a copy.
+     *
+     * @return cargo columns
+     */
+    public static CargoColumns getCargoColumns() {
+        return cargoColumns;
     }
 
     /**
@@ -118,7 +231,11 @@ public abstract class Cargo {
      * @ass2
      */
     public static Map<Integer, Cargo> getCargoRegistry() {
-        return new HashMap<>(cargoRegistry);
+        Map<Integer, Cargo> registry = new HashMap<>();
+        for (int row = 0; row < cargoColumns.size(); row++) {
+            registry.put(cargoColumns.getId(row), cargoColumns.getCargo(row));
+        }
+        return registry;
     }
 
     /**
@@ -129,7 +246,7 @@ public abstract class Cargo {
      * @ass2
      */
     public static boolean cargoExists(int id) {
-        return cargoRegistry.get(id) != null;
+        return cargoColumns.rowOf(id) >= 0;
     }
 
     /**
@@ -141,8 +258,9 @@ public abstract class Cargo {
      * @ass2
      */
     public static Cargo getCargoById(int id) throws NoSuchCargoException {
-        if (cargoExists(id)) {
-            return cargoRegistry.get(id);
+        int row = cargoColumns.rowOf(id);
+        if (row >= 0) {
+            return cargoColumns.getCargo(row);
         } else {
             throw new NoSuchCargoException("no cargo with this id: " + id);
         }
@@ -160,7 +278,8 @@ public abstract class Cargo {
     @Override
     public boolean equals(Object o) {
         if (o instanceof Cargo) {
-            return this.destination.equals(((Cargo) o).destination) && this.id == ((Cargo) o).id;
+            return Objects.equals(this.destination, ((Cargo) o).destination)
+                    && this.id == ((Cargo) o).id;
         }
         return false;
     }
@@ -175,7 +294,8 @@ public abstract class Cargo {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(this.id, this.destination);
+        // same value as Objects.hash(id, destination), without boxing
+        return 31 * (31 + Integer.hashCode(this.id)) + Objects.hashCode(this.destination);
     }
 
     /**
@@ -0,0 +1,789 @@
+package portsim.cargo;
+
+import portsim.util.CountryDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column store holding the attributes of every piece of cargo in the simulation as parallel
+ * primitive arrays, one row per piece of cargo.
+ * <p>
+ * This is the storage behind the cargo registry (see {@link Cargo#getCargoById(int)}): every
+ * piece of cargo is given a row when it is created, in order of creation. Alongside the cargo
+ * object itself, each row holds the cargo's ID, destination code (see
+ * {@link CountryDictionary}), kind, type ordinal and tonnage. Aggregate queries over all cargo
+ * run as loops over these arrays, without touching the cargo objects.
+ * <p>
+ * Each row also records where its cargo is: its {@link CargoLocation} and the yard or ship
+ * holding it. Yards and ships update the location as cargo is stored, loaded and unloaded
+ * (see {@link Cargo#setLocation(CargoLocation, Object)}), so finding where a piece of cargo
+ * is takes constant time, and {@link #select(CargoPredicate)} answers questions such as
+ * "where are all reefer containers bound for Japan" with one pass over the columns.
+ * <p>
+ * Individual rows can be read through the row accessors, or through a {@link Record}, a
+ * reusable flyweight positioned on one row at a time.
+ * <p>
+ * Aggregations are computed by one of two sets of {@link Kernels}. The default is read from
+ * the {@code portsim.cargo.kernels} system property ({@code unrolled} or {@code scalar}) and
+ * is {@link Kernels#UNROLLED} if the property is not set.
+ * <p>
+ * Like the cargo registry, this class is not thread-safe.
+ */
+public final class CargoColumns {
+    /**
+     * Kind of a row holding a {@link Container}
+     */
+    public static final byte CONTAINER = 0;
+
+    /**
+     * Kind of a row holding a {@link BulkCargo}
+     */
+    public static final byte BULK_CARGO = 1;
+
+    /**
+     * Kind of a row whose cargo has not been fully constructed
+     */
+    public static final byte UNKNOWN = -1;
+
+    /**
+     * The ways in which aggregations over the columns can be computed. Both give the same
+     * results.
+     */
+    public enum Kernels {
+        /**
+         * One pass over the rows, branching on each row's kind
+         */
+        SCALAR,
+        /**
+         * One pass over the rows, four rows at a time, without branches. Each aggregation is
+         * computed as a histogram keyed on the row's kind and type or destination, spread over
+         * four interleaved sets of buckets. The four rows of a step then update different
+         * buckets even when their keys are equal, so they do not wait on each other.
+         */
+        UNROLLED
+    }
+
+    /**
+     * Kernels used by new column stores, from the {@code portsim.cargo.kernels} system property
+     */
+    private static final Kernels DEFAULT_KERNELS = Kernels.valueOf(
+            System.getProperty("portsim.cargo.kernels", "unrolled").toUpperCase());
+
+    /**
+     * Number of rows allocated initially
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Greatest number of types of either kind, the stride between kinds in kind and type
+     * histograms
+     */
+    private static final int TYPES = Math.max(ContainerType.values().length,
+            BulkCargoType.values().length);
+
+    /**
+     * Number of buckets in a kind and type histogram: one stride for each kind, plus one for
+     * {@link #UNKNOWN}
+     */
+    private static final int KIND_TYPE_BUCKETS = 3 * TYPES;
+
+    /**
+     * Every cargo location, indexed by ordinal
+     */
+    private static final CargoLocation[] LOCATIONS = CargoLocation.values();
+
+    /**
+     * Cargo ID of each row
+     */
+    private int[] ids = new int[INITIAL_CAPACITY];
+
+    /**
+     * Destination code of each row
+     */
+    private int[] destinations = new int[INITIAL_CAPACITY];
+
+    /**
+     * Kind of each row
+     */
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Type ordinal of each row, a ContainerType or BulkCargoType depending on the kind
+     */
+    private byte[] types = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Tonnage of each row, 0 for containers
+     */
+    private int[] tonnages = new int[INITIAL_CAPACITY];
+
+    /**
+     * Cargo object of each row
+     */
+    private Cargo[] cargo = new Cargo[INITIAL_CAPACITY];
+
+    /**
+     * Location ordinal of each row
+     */
+    private byte[] locations = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Yard or ship holding the cargo of each row, or null if it is not held
+     */
+    private Object[] holders = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Number of rows in use
+     */
+    private int size;
+
+    /**
+     * Open addressing hash table from cargo ID to row; each slot holds row + 1, or 0 if empty
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Kernels used to compute aggregations
+     */
+    private Kernels kernels = DEFAULT_KERNELS;
+
+    /**
+     * Creates an empty column store.
+     */
+    public CargoColumns() {
+    }
+
+    /**
+     * Returns the kernels used to compute aggregations over this store.
+     *
+     * @return aggregation kernels
+     */
+    public Kernels getKernels() {
+        return kernels;
+    }
+
+    /**
+     * Sets the kernels used to compute aggregations over this store.
+     *
+     * @param kernels aggregation kernels
+     */
+    public void setKernels(Kernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * Adds a row for the given cargo, of unknown kind until {@link #describe} is called.
+     *
+     * @param cargo cargo to add
+     * @return row of the cargo
+     */
+    int add(Cargo cargo) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            destinations = Arrays.copyOf(destinations, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            tonnages = Arrays.copyOf(tonnages, capacity);
+            this.cargo = Arrays.copyOf(this.cargo, capacity);
+            locations = Arrays.copyOf(locations, capacity);
+            holders = Arrays.copyOf(holders, capacity);
+            rehash(capacity * 2);
+        }
+        int row = size++;
+        ids[row] = cargo.getId();
+        destinations[row] = cargo.getDestinationCode();
+        kinds[row] = UNKNOWN;
+        types[row] = 0;
+        tonnages[row] = 0;
+        this.cargo[row] = cargo;
+        locations[row] = (byte) CargoLocation.NONE.ordinal();
+        holders[row] = null;
+        insert(cargo.getId(), row);
+        return row;
+    }
+
+    /**
+     * Records the kind, type and tonnage of the cargo in the given row.
+     *
+     * @param row     row of the cargo
+     * @param kind    kind of the cargo
+     * @param type    ordinal of the cargo's type
+     * @param tonnage tonnage of the cargo, 0 for containers
+     */
+    void describe(int row, byte kind, int type, int tonnage) {
+        kinds[row] = kind;
+        types[row] = (byte) type;
+        tonnages[row] = tonnage;
+    }
+
+    /**
+     * Records where the cargo in the given row is.
+     *
+     * @param row      row of the cargo
+     * @param location location of the cargo
+     * @param holder   yard or ship holding the cargo, or null if it is not held
+     */
+    void locate(int row, CargoLocation location, Object holder) {
+        locations[row] = (byte) location.ordinal();
+        holders[row] = holder;
+    }
+
+    /**
+     * Removes every row.
+     */
+    void clear() {
+        Arrays.fill(cargo, 0, size, null);
+        Arrays.fill(holders, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    /**
+     * Moves every row into a new column store, leaving this one empty. The rows are not
+     * copied.
+     *
+     * @return column store holding the rows of this one
+     */
+    CargoColumns takeRows() {
+        CargoColumns taken = new CargoColumns();
+        swapRows(taken);
+        return taken;
+    }
+
+    /**
+     * Exchanges the rows of this store with the rows of the given store. The rows are not
+     * copied.
+     *
+     * @param other store to exchange rows with
+     */
+    void swapRows(CargoColumns other) {
+        int[] ids = this.ids;
+        this.ids = other.ids;
+        other.ids = ids;
+        int[] destinations = this.destinations;
+        this.destinations = other.destinations;
+        other.destinations = destinations;
+        byte[] kinds = this.kinds;
+        this.kinds = other.kinds;
+        other.kinds = kinds;
+        byte[] types = this.types;
+        this.types = other.types;
+        other.types = types;
+        int[] tonnages = this.tonnages;
+        this.tonnages = other.tonnages;
+        other.tonnages = tonnages;
+        Cargo[] cargo = this.cargo;
+        this.cargo = other.cargo;
+        other.cargo = cargo;
+        byte[] locations = this.locations;
+        this.locations = other.locations;
+        other.locations = locations;
+        Object[] holders = this.holders;
+        this.holders = other.holders;
+        other.holders = holders;
+        int size = this.size;
+        this.size = other.size;
+        other.size = size;
+        int[] slots = this.slots;
+        this.slots = other.slots;
+        other.slots = slots;
+    }
+
+    /* Returns the first slot to probe for the given ID */
+    private int slotOf(int id) {
+        return (id * 0x9E3779B9 >>> 7) & (slots.length - 1);
+    }
+
+    /* Adds an ID to the hash table */
+    private void insert(int id, int row) {
+        int slot = slotOf(id);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        slots[slot] = row + 1;
+    }
+
+    /* Rebuilds the hash table with the given number of slots */
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int row = 0; row < size; row++) {
+            insert(ids[row], row);
+        }
+    }
+
+    /**
+     * Returns the row of the cargo with the given ID.
+     *
+     * @param id cargo ID
+     * @return row of the cargo, or -1 if there is no cargo with that ID
+     */
+    public int rowOf(int id) {
+        int slot = slotOf(id);
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (ids[entry - 1] == id) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of rows, i.e. the number of pieces of cargo in the simulation.
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the cargo in the given row.
+     *
+     * @param row row to read
+     * @return cargo object
+     */
+    public Cargo getCargo(int row) {
+        return cargo[checkRow(row)];
+    }
+
+    /**
+     * Returns the ID of the cargo in the given row.
+     *
+     * @param row row to read
+     * @return cargo ID
+     */
+    public int getId(int row) {
+        return ids[checkRow(row)];
+    }
+
+    /**
+     * Returns the destination code of the cargo in the given row.
+     *
+     * @param row row to read
+     * @return destination code
+     */
+    public int getDestinationCode(int row) {
+        return destinations[checkRow(row)];
+    }
+
+    /**
+     * Returns the kind of the cargo in the given row: {@link #CONTAINER}, {@link #BULK_CARGO}
+     * or {@link #UNKNOWN}.
+     *
+     * @param row row to read
+     * @return cargo kind
+     */
+    public byte getKind(int row) {
+        return kinds[checkRow(row)];
+    }
+
+    /**
+     * Returns the ordinal of the type of the cargo in the given row, a {@link ContainerType}
+     * or {@link BulkCargoType} ordinal depending on its kind.
+     *
+     * @param row row to read
+     * @return type ordinal
+     */
+    public int getType(int row) {
+        return types[checkRow(row)];
+    }
+
+    /**
+     * Returns the tonnage of the cargo in the given row, 0 for containers.
+     *
+     * @param row row to read
+     * @return tonnage
+     */
+    public int getTonnage(int row) {
+        return tonnages[checkRow(row)];
+    }
+
+    /**
+     * Returns where the cargo in the given row is.
+     *
+     * @param row row to read
+     * @return cargo location
+     */
+    public CargoLocation getLocation(int row) {
+        return LOCATIONS[locations[checkRow(row)]];
+    }
+
+    /**
+     * Returns the yard or ship holding the cargo in the given row.
+     *
+     * @param row row to read
+     * @return the CargoYard or Ship holding the cargo, or null if its location is
+     *     {@link CargoLocation#NONE}
+     */
+    public Object getHolder(int row) {
+        return holders[checkRow(row)];
+    }
+
+    /**
+     * Returns the cargo in every row matching the given predicate, in order of creation.
+     *
+     * @param predicate condition on the rows to return
+     * @return matching cargo
+     */
+    public List<Cargo> select(CargoPredicate predicate) {
+        List<Cargo> selected = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            if (predicate.test(this, row)) {
+                selected.add(cargo[row]);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the number of rows matching the given predicate.
+     *
+     * @param predicate condition on the rows to count
+     * @return number of matching rows
+     */
+    public int count(CargoPredicate predicate) {
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (predicate.test(this, row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /* Returns the given row, or throws if it is not in use */
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+        return row;
+    }
+
+    /**
+     * Returns a new flyweight for reading rows of this store, not yet positioned on a row.
+     *
+     * @return flyweight record
+     */
+    public Record record() {
+        return new Record();
+    }
+
+    /**
+     * Returns the number of pieces of cargo of each type of the given kind.
+     *
+     * @param kind {@link #CONTAINER} or {@link #BULK_CARGO}
+     * @return counts indexed by ContainerType or BulkCargoType ordinal
+     */
+    public int[] countByType(byte kind) {
+        int[] counts = new int[typeCount(kind)];
+        if (kernels == Kernels.UNROLLED) {
+            long[] histogram = kindTypeHistogram(null);
+            for (int type = 0; type < counts.length; type++) {
+                counts[type] = (int) histogram[(kind + 1) * TYPES + type];
+            }
+            return counts;
+        }
+        for (int row = 0; row < size; row++) {
+            if (kinds[row] == kind) {
+                counts[types[row]]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the total tonnage of bulk cargo of each type.
+     *
+     * @return tonnage indexed by BulkCargoType ordinal
+     */
+    public long[] tonnageByType() {
+        long[] totals = new long[BulkCargoType.values().length];
+        if (kernels == Kernels.UNROLLED) {
+            long[] histogram = kindTypeHistogram(tonnages);
+            System.arraycopy(histogram, (BULK_CARGO + 1) * TYPES, totals, 0, totals.length);
+            return totals;
+        }
+        for (int row = 0; row < size; row++) {
+            if (kinds[row] == BULK_CARGO) {
+                totals[types[row]] += tonnages[row];
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Returns the number of pieces of cargo bound for each destination.
+     *
+     * @return counts indexed by destination code
+     */
+    public int[] countByDestination() {
+        int[] counts = new int[CountryDictionary.size()];
+        if (kernels == Kernels.UNROLLED) {
+            long[] histogram = destinationHistogram(null, counts.length);
+            for (int destination = 0; destination < counts.length; destination++) {
+                counts[destination] = (int) histogram[destination + 1];
+            }
+            return counts;
+        }
+        for (int row = 0; row < size; row++) {
+            int destination = destinations[row];
+            if (destination >= 0) {
+                counts[destination]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the total tonnage of bulk cargo bound for each destination.
+     *
+     * @return tonnage indexed by destination code
+     */
+    public long[] tonnageByDestination() {
+        long[] totals = new long[CountryDictionary.size()];
+        if (kernels == Kernels.UNROLLED) {
+            long[] histogram = destinationHistogram(tonnages, totals.length);
+            System.arraycopy(histogram, 1, totals, 0, totals.length);
+            return totals;
+        }
+        for (int row = 0; row < size; row++) {
+            int destination = destinations[row];
+            if (destination >= 0) {
+                totals[destination] += tonnages[row];
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Returns the total tonnage of all bulk cargo.
+     *
+     * @return total tonnage
+     */
+    public long totalTonnage() {
+        if (kernels == Kernels.UNROLLED) {
+            long total0 = 0;
+            long total1 = 0;
+            long total2 = 0;
+            long total3 = 0;
+            int row = 0;
+            for (; row + 3 < size; row += 4) {
+                total0 += tonnages[row];
+                total1 += tonnages[row + 1];
+                total2 += tonnages[row + 2];
+                total3 += tonnages[row + 3];
+            }
+            for (; row < size; row++) {
+                total0 += tonnages[row];
+            }
+            return total0 + total1 + total2 + total3;
+        }
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += tonnages[row];
+        }
+        return total;
+    }
+
+    /*
+     * Returns the number of rows (if weights is null) or the sum of their weights in each
+     * kind and type bucket, (kind + 1) * TYPES + type
+     */
+    private long[] kindTypeHistogram(int[] weights) {
+        long[] buckets = new long[4 * KIND_TYPE_BUCKETS];
+        int row = 0;
+        if (weights == null) {
+            for (; row + 3 < size; row += 4) {
+                buckets[(kinds[row] + 1) * TYPES + types[row]]++;
+                buckets[KIND_TYPE_BUCKETS + (kinds[row + 1] + 1) * TYPES + types[row + 1]]++;
+                buckets[2 * KIND_TYPE_BUCKETS + (kinds[row + 2] + 1) * TYPES + types[row + 2]]++;
+                buckets[3 * KIND_TYPE_BUCKETS + (kinds[row + 3] + 1) * TYPES + types[row + 3]]++;
+            }
+            for (; row < size; row++) {
+                buckets[(kinds[row] + 1) * TYPES + types[row]]++;
+            }
+        } else {
+            for (; row + 3 < size; row += 4) {
+                buckets[(kinds[row] + 1) * TYPES + types[row]] += weights[row];
+                buckets[KIND_TYPE_BUCKETS + (kinds[row + 1] + 1) * TYPES + types[row + 1]]
+                        += weights[row + 1];
+                buckets[2 * KIND_TYPE_BUCKETS + (kinds[row + 2] + 1) * TYPES + types[row + 2]]
+                        += weights[row + 2];
+                buckets[3 * KIND_TYPE_BUCKETS + (kinds[row + 3] + 1) * TYPES + types[row + 3]]
+                        += weights[row + 3];
+            }
+            for (; row < size; row++) {
+                buckets[(kinds[row] + 1) * TYPES + types[row]] += weights[row];
+            }
+        }
+        return merge(buckets, KIND_TYPE_BUCKETS);
+    }
+
+    /*
+     * Returns the number of rows (if weights is null) or the sum of their weights bound for
+     * each destination, indexed by destination code + 1 so that rows without a destination
+     * fall in bucket 0
+     */
+    private long[] destinationHistogram(int[] weights, int codes) {
+        int stride = codes + 1;
+        long[] buckets = new long[4 * stride];
+        int row = 0;
+        if (weights == null) {
+            for (; row + 3 < size; row += 4) {
+                buckets[destinations[row] + 1]++;
+                buckets[stride + destinations[row + 1] + 1]++;
+                buckets[2 * stride + destinations[row + 2] + 1]++;
+                buckets[3 * stride + destinations[row + 3] + 1]++;
+            }
+            for (; row < size; row++) {
+                buckets[destinations[row] + 1]++;
+            }
+        } else {
+            for (; row + 3 < size; row += 4) {
+                buckets[destinations[row] + 1] += weights[row];
+                buckets[stride + destinations[row + 1] + 1] += weights[row + 1];
+                buckets[2 * stride + destinations[row + 2] + 1] += weights[row + 2];
+                buckets[3 * stride + destinations[row + 3] + 1] += weights[row + 3];
+            }
+            for (; row < size; row++) {
+                buckets[destinations[row] + 1] += weights[row];
+            }
+        }
+        return merge(buckets, stride);
+    }
+
+    /* Sums four interleaved sets of buckets of the given stride into the first set */
+    private static long[] merge(long[] buckets, int stride) {
+        for (int bucket = 0; bucket < stride; bucket++) {
+            buckets[bucket] += buckets[stride + bucket] + buckets[2 * stride + bucket]
+                    + buckets[3 * stride + bucket];
+        }
+        return buckets;
+    }
+
+    /* Returns the number of types of the given kind */
+    private static int typeCount(byte kind) {
+        if (kind == CONTAINER) {
+            return ContainerType.values().length;
+        }
+        if (kind == BULK_CARGO) {
+            return BulkCargoType.values().length;
+        }
+        throw new IllegalArgumentException("unknown cargo kind: " + kind);
+    }
+
+    /**
+     * A reusable view of one row of the store. Moving a record to another row allocates
+     * nothing, so one record can be used to read any number of rows.
+     */
+    public final class Record {
+        /**
+         * Row the record is positioned on
+         */
+        private int row = -1;
+
+        /**
+         * Creates a record not yet positioned on a row.
+         */
+        private Record() {
+        }
+
+        /**
+         * Positions this record on the given row.
+         *
+         * @param row row to read
+         * @return this record
+         * @throws IndexOutOfBoundsException if the row is not in use
+         */
+        public Record moveTo(int row) throws IndexOutOfBoundsException {
+            this.row = checkRow(row);
+            return this;
+        }
+
+        /**
+         * Returns the row this record is positioned on.
+         *
+         * @return current row, or -1 if not positioned
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Returns the cargo ID of the current row.
+         *
+         * @return cargo ID
+         */
+        public int getId() {
+            return ids[row];
+        }
+
+        /**
+         * Returns the destination code of the current row.
+         *
+         * @return destination code
+         */
+        public int getDestinationCode() {
+            return destinations[row];
+        }
+
+        /**
+         * Returns the kind of the current row.
+         *
+         * @return cargo kind
+         */
+        public byte getKind() {
+            return kinds[row];
+        }
+
+        /**
+         * Returns the type ordinal of the current row.
+         *
+         * @return type ordinal
+         */
+        public int getType() {
+            return types[row];
+        }
+
+        /**
+         * Returns the tonnage of the current row.
+         *
+         * @return tonnage
+         */
+        public int getTonnage() {
+            return tonnages[row];
+        }
+
+        /**
+         * Returns the location of the current row.
+         *
+         * @return cargo location
+         */
+        public CargoLocation getLocation() {
+            return LOCATIONS[locations[row]];
+        }
+
+        /**
+         * Returns the yard or ship holding the cargo of the current row.
+         *
+         * @return holder of the cargo, or null if it is not held
+         */
+        public Object getHolder() {
+            return holders[row];
+        }
+
+        /**
+         * Returns the cargo object of the current row.
+         *
+         * @return cargo object
+         */
+        public Cargo getCargo() {
+            return cargo[row];
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package portsim.cargo;
+
+/**
+ * Where a piece of cargo is in the simulation (see {@link Cargo#getLocation()}).
+ */
+public enum CargoLocation {
+    /**
+     * The cargo is not held by a port or a ship: it has not yet arrived, has left by land, or
+     * is being moved between a yard and a ship.
+     */
+    NONE,
+
+    /**
+     * The cargo is stored in the yard of a port.
+     */
+    YARD,
+
+    /**
+     * The cargo is on board a ship, which may be docked at a quay.
+     */
+    SHIP
+}
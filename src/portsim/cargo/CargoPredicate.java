@@ -0,0 +1,167 @@
+package portsim.cargo;
+
+import portsim.port.Quay;
+import portsim.util.CountryDictionary;
+
+/**
+ * A condition on the rows of a {@link CargoColumns} store, used to select cargo with
+ * {@link CargoColumns#select(CargoPredicate)} and {@link CargoColumns#count(CargoPredicate)}.
+ * <p>
+ * Predicates are built from the factory methods of this interface and combined with
+ * {@link #and(CargoPredicate)}, {@link #or(CargoPredicate)} and {@link #negate()}. For
+ * example, the reefer containers bound for Japan that are on board a ship are selected by
+ * <pre>
+ * Cargo.getCargoColumns().select(CargoPredicate.destination("Japan")
+ *         .and(CargoPredicate.containerType(ContainerType.REEFER))
+ *         .and(CargoPredicate.location(CargoLocation.SHIP)));</pre>
+ * Each predicate reads only the columns it needs, without touching the cargo objects.
+ */
+@FunctionalInterface
+public interface CargoPredicate {
+    /**
+     * Returns true if the cargo in the given row meets this condition.
+     *
+     * @param columns store holding the row
+     * @param row     row to test
+     * @return true if the row matches
+     */
+    boolean test(CargoColumns columns, int row);
+
+    /**
+     * Returns a predicate matching rows that meet both this condition and the other.
+     *
+     * @param other condition that must also be met
+     * @return combined predicate
+     */
+    default CargoPredicate and(CargoPredicate other) {
+        return (columns, row) -> test(columns, row) && other.test(columns, row);
+    }
+
+    /**
+     * Returns a predicate matching rows that meet this condition, the other, or both.
+     *
+     * @param other alternative condition
+     * @return combined predicate
+     */
+    default CargoPredicate or(CargoPredicate other) {
+        return (columns, row) -> test(columns, row) || other.test(columns, row);
+    }
+
+    /**
+     * Returns a predicate matching rows that do not meet this condition.
+     *
+     * @return negated predicate
+     */
+    default CargoPredicate negate() {
+        return (columns, row) -> !test(columns, row);
+    }
+
+    /**
+     * Returns a predicate matching every row.
+     *
+     * @return predicate matching all cargo
+     */
+    static CargoPredicate any() {
+        return (columns, row) -> true;
+    }
+
+    /**
+     * Returns a predicate matching cargo bound for the given destination.
+     *
+     * @param destination destination port
+     * @return predicate on the destination
+     */
+    static CargoPredicate destination(String destination) {
+        int code = CountryDictionary.lookup(destination);
+        return (columns, row) -> code != CountryDictionary.NONE
+                && columns.getDestinationCode(row) == code;
+    }
+
+    /**
+     * Returns a predicate matching containers of any type.
+     *
+     * @return predicate matching containers
+     */
+    static CargoPredicate containers() {
+        return (columns, row) -> columns.getKind(row) == CargoColumns.CONTAINER;
+    }
+
+    /**
+     * Returns a predicate matching bulk cargo of any type.
+     *
+     * @return predicate matching bulk cargo
+     */
+    static CargoPredicate bulkCargo() {
+        return (columns, row) -> columns.getKind(row) == CargoColumns.BULK_CARGO;
+    }
+
+    /**
+     * Returns a predicate matching containers of the given type.
+     *
+     * @param type container type
+     * @return predicate on the container type
+     */
+    static CargoPredicate containerType(ContainerType type) {
+        int ordinal = type.ordinal();
+        return (columns, row) -> columns.getKind(row) == CargoColumns.CONTAINER
+                && columns.getType(row) == ordinal;
+    }
+
+    /**
+     * Returns a predicate matching bulk cargo of the given type.
+     *
+     * @param type bulk cargo type
+     * @return predicate on the bulk cargo type
+     */
+    static CargoPredicate bulkCargoType(BulkCargoType type) {
+        int ordinal = type.ordinal();
+        return (columns, row) -> columns.getKind(row) == CargoColumns.BULK_CARGO
+                && columns.getType(row) == ordinal;
+    }
+
+    /**
+     * Returns a predicate matching bulk cargo whose tonnage is within the given range.
+     * Containers, which have no tonnage, never match.
+     *
+     * @param min least tonnage, inclusive
+     * @param max greatest tonnage, inclusive
+     * @return predicate on the tonnage
+     */
+    static CargoPredicate tonnageBetween(int min, int max) {
+        return (columns, row) -> columns.getKind(row) == CargoColumns.BULK_CARGO
+                && columns.getTonnage(row) >= min && columns.getTonnage(row) <= max;
+    }
+
+    /**
+     * Returns a predicate matching cargo at the given kind of location.
+     *
+     * @param location cargo location
+     * @return predicate on the location
+     */
+    static CargoPredicate location(CargoLocation location) {
+        return (columns, row) -> columns.getLocation(row) == location;
+    }
+
+    /**
+     * Returns a predicate matching cargo held by the given yard or ship.
+     *
+     * @param holder the CargoYard or Ship holding the cargo
+     * @return predicate on the holder
+     */
+    static CargoPredicate heldBy(Object holder) {
+        return (columns, row) -> holder != null && columns.getHolder(row) == holder;
+    }
+
+    /**
+     * Returns a predicate matching cargo on board the ship docked at the given quay. The quay
+     * is checked when each row is tested, so the predicate follows ships as they dock and
+     * leave.
+     *
+     * @param quay quay the cargo's ship is docked at
+     * @return predicate on the quay
+     */
+    static CargoPredicate atQuay(Quay quay) {
+        return (columns, row) -> quay.getShip() != null
+                && columns.getHolder(row) == quay.getShip();
+    }
+}
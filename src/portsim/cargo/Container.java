@@ -28,6 +28,9 @@ public class Container extends Cargo {
             throws IllegalArgumentException {
         super(id, destination);
         this.type = type;
+        if (type != null) {
+            describe(CargoColumns.CONTAINER, type.ordinal(), 0);
+        }
     }
 
     /**
@@ -73,7 +76,7 @@ public class Container extends Cargo {
     @Override
     public boolean equals(Object o) {
         if (o instanceof Container) {
-            return super.equals(o) && type.equals(((Container) o).type);
+            return super.equals(o) && Objects.equals(type, ((Container) o).type);
         }
         return false;
     }
@@ -86,7 +89,8 @@ public class Container extends Cargo {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), type);
+        // same value as Objects.hash(super.hashCode(), type), without boxing
+        return 31 * (31 + super.hashCode()) + Objects.hashCode(type);
     }
 
     /**
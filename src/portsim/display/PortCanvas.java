@@ -214,7 +214,7 @@ public class PortCanvas extends Canvas {
         gc.fillRect(350, roadStartY + 160, 90, 5);
 
         gc.setFill(Color.FIREBRICK);
-        int num = viewModel.getPort().getCargo().size();
+        int num = viewModel.getPort().getCargoView().size();
         int cols = 9;
         for (int i = 0; i < num * 4; i++) {
             gc.fillRect(220 + 8 + (i % cols) * (CONTAINER_WIDTH + 2),
@@ -317,8 +317,9 @@ public class PortCanvas extends Canvas {
         gc.fillRect(x, getHeight() - pad - 5, SHIP_WIDTH * 2 + 10,
             2);
         // draw ships
-        for (int j = 0; j < capacity && j < sq.getShipQueue().size(); j++) {
-            drawShip(sq.getShipQueue().get(j), x + SHIP_WIDTH / 3,
+        List<Ship> ships = sq.getShipQueueView();
+        for (int j = 0; j < capacity && j < ships.size(); j++) {
+            drawShip(ships.get(j), x + SHIP_WIDTH / 3,
                 pad + 12 + j * lineLength, true);
         }
     }
@@ -412,7 +413,7 @@ public class PortCanvas extends Canvas {
     private void drawQuays() {
         GraphicsContext gc = getGraphicsContext2D();
         gc.setFill(Color.MIDNIGHTBLUE);
-        List<Quay> quays = this.viewModel.getPort().getQuays();
+        List<Quay> quays = this.viewModel.getPort().getQuaysView();
 
         final double quayWidth = SHIP_WIDTH * 5 / 3;
         final double marginLeft = 5;
@@ -16,12 +16,14 @@ import portsim.cargo.*;
 import portsim.evaluators.*;
 import portsim.movement.CargoMovement;
 import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
 import portsim.movement.ShipMovement;
 import portsim.port.*;
 import portsim.ship.BulkCarrier;
 import portsim.ship.ContainerShip;
 import portsim.ship.NauticalFlag;
 import portsim.ship.Ship;
+import portsim.ship.ShipQuery;
 
 import java.io.FileWriter;
 import java.io.IOException;
@@ -68,6 +70,11 @@ public class View {
      */
     private static final int MAX_QUAYS = 8;
 
+    /**
+     * Maximum number of ships offered by the ship search dialog
+     */
+    private static final int MAX_SHIP_CHOICES = 50;
+
     /**
      * Creates a new view for the given view model and adds the associated GUI elements to the given
      * stage.
@@ -252,7 +259,7 @@ public class View {
                 return;
             }
 
-            var defaultShipNumber = 1000000 + Ship.getShipRegistry().size();
+            var defaultShipNumber = 1000000 + Ship.getShipIndex().size();
             var imoNumber = getResponse("Add Ship",
                 "Please enter the ship IMO number",
                 "IMO number:",
@@ -354,7 +361,7 @@ public class View {
                 return;
             }
 
-            var defaultCargoNumber = 1 + Cargo.getCargoRegistry().size();
+            var defaultCargoNumber = 1 + Cargo.getCargoColumns().size();
             var cargoId = getResponse("Add Cargo",
                 "Please enter the cargo ID",
                 "cargo ID:",
@@ -470,20 +477,24 @@ public class View {
                 // can't create generic movement
                 return;
             }
-            var encoding = getResponse("Add " + type,
-                "Please enter the encoding of the movement that you would like to add",
-                "Encoding:",
-                "");
-            // fail if it fails the bounds specified in Movement#Constructor
-            if (encoding.isEmpty()) {
-                return;
-            }
             Movement newMovement;
             try {
-                if (type.equals("CargoMovement")) {
-                    newMovement = CargoMovement.fromString(encoding.get());
+                if (type.equals("ShipMovement")) {
+                    var shipMovement = getShipMovement();
+                    if (shipMovement.isEmpty()) {
+                        return;
+                    }
+                    newMovement = shipMovement.get();
                 } else {
-                    newMovement = ShipMovement.fromString(encoding.get());
+                    var encoding = getResponse("Add " + type,
+                        "Please enter the encoding of the movement that you would like to add",
+                        "Encoding:",
+                        "");
+                    // fail if it fails the bounds specified in Movement#Constructor
+                    if (encoding.isEmpty()) {
+                        return;
+                    }
+                    newMovement = CargoMovement.fromString(encoding.get());
                 }
                 viewModel.getPort().addMovement(newMovement);
             } catch (Exception exception) {
@@ -549,6 +560,60 @@ public class View {
         return saveAs;
     }
 
+    /*
+     * Prompts the user to search for a ship by the start of its name, then for the direction
+     * and time of the ship's movement
+     */
+    private Optional<ShipMovement> getShipMovement() {
+        var namePrefix = getResponse("Add ShipMovement",
+            "Please enter the start of the ship's name",
+            "Ship name:",
+            "");
+        if (namePrefix.isEmpty()) {
+            return Optional.empty();
+        }
+        var query = new ShipQuery();
+        query.setNamePrefix(namePrefix.get());
+        var options = new LinkedHashMap<String, Ship>();
+        for (Ship ship : Ship.getShipIndex().find(query, MAX_SHIP_CHOICES)) {
+            options.put(ship + " " + ship.getImoNumber(), ship);
+        }
+        if (options.isEmpty()) {
+            viewModel.createErrorDialog("No ship found",
+                "No ship's name starts with \"" + namePrefix.get() + "\"");
+            return Optional.empty();
+        }
+        var matches = Ship.getShipIndex().count(query);
+        var choice = getChoice("Add ShipMovement",
+            matches > options.size()
+                ? "Showing the first " + options.size() + " of " + matches + " ships"
+                : "Please choose the ship",
+            "Ship:",
+            options.keySet().iterator().next(),
+            options.keySet().toArray(new String[0]));
+        if (choice.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var direction = getChoice("Add ShipMovement",
+            "Please choose the direction of the movement", "Direction:",
+            MovementDirection.INBOUND,
+            MovementDirection.values());
+        if (direction.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var time = getResponse("Add ShipMovement",
+            "Please enter the time of the movement",
+            "Time:",
+            (int) viewModel.getPort().getTime());
+        if (time.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ShipMovement(time.get(), direction.get(),
+            options.get(choice.get())));
+    }
+
     /* Prompts the user to choose a quay from a list of all the port's quays or to add later */
     private Optional<Object> chooseShipLocation(String title, String header, Ship ship) {
         var options = new TreeMap<String, Object>();
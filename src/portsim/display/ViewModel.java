@@ -19,7 +19,6 @@ import portsim.cargo.Container;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.StringJoiner;
 import java.util.stream.Collectors;
 
@@ -110,7 +109,7 @@ public class ViewModel {
 
         this.port = Port.initialisePort(new FileReader(filename));
 
-        this.numQuays.set(port.getQuays().size());
+        this.numQuays.set(port.getQuaysView().size());
 
         this.selectedShip.addListener((observable, oldValue, newValue) -> {
             if (newValue == null) {
@@ -168,11 +167,11 @@ public class ViewModel {
 
                 } else if (getSelectedShip().getValue() instanceof ContainerShip) {
                     ContainerShip containerShip = (ContainerShip) getSelectedShip().getValue();
-                    if (containerShip.getCargo() == null) {
+                    if (containerShip.getCargoView() == null) {
                         cargoManifestText.set("No cargo on board.");
                     } else {
                         String containers = "";
-                        for (Container container : containerShip.getCargo()) {
+                        for (Container container : containerShip.getCargoView()) {
                             containers += container.toString();
                             containers += ",";
                             containers += System.lineSeparator();
@@ -249,46 +248,14 @@ public class ViewModel {
      * @ass2
      */
     public void updateEvaluatorText() {
+        // evaluators may be consuming movements on their own threads
+        port.awaitEvaluators();
         if (port.getEvaluators().size() == 0) {
             evaluatorsText.set("No Evaluators Present");
         } else {
             String all = "";
-            String contents = "";
             for (StatisticsEvaluator evl : port.getEvaluators()) {
-                if (evl instanceof QuayOccupancyEvaluator) {
-                    contents = evl.getClass().getSimpleName() + System.lineSeparator()
-                            + ((QuayOccupancyEvaluator) evl).getQuaysOccupied() + " Quay(s) "
-                            + "currently occupied";
-
-                } else if (evl instanceof ShipFlagEvaluator) {
-                    contents = evl.getClass().getSimpleName() + System.lineSeparator();
-                    for (String flag : ((ShipFlagEvaluator) evl).getFlagDistribution().keySet()) {
-                        contents += flag;
-                        contents += " : ";
-                        contents += ((ShipFlagEvaluator) evl).getFlagStatistics(flag);
-                        contents += System.lineSeparator();
-                    }
-                    contents = contents.substring(0, contents.length() - 1);
-
-                } else if (evl instanceof ShipThroughputEvaluator) {
-                    contents = evl.getClass().getSimpleName() + System.lineSeparator()
-                            + ((ShipThroughputEvaluator) evl).getThroughputPerHour()
-                            + " Ships passed in the last hour";
-
-                // CargoDecompositionEvaluator
-                } else {
-                    contents = evl.getClass().getSimpleName() + System.lineSeparator();
-                    for (Map.Entry<String, Integer> distribution :
-                            ((CargoDecompositionEvaluator) evl)
-                                    .getCargoDistribution().entrySet()) {
-                        contents += distribution.getKey();
-                        contents += " : ";
-                        contents += distribution.getValue();
-                        contents += System.lineSeparator();
-                    }
-                    contents = contents.substring(0, contents.length() - 1);
-                }
-                all += contents;
+                all += EvaluatorReport.describe(evl);
                 all += System.lineSeparator();
             }
             all = all.substring(0, all.length() - 1);
@@ -402,7 +369,7 @@ public class ViewModel {
             BulkCargo c = ((BulkCarrier) ship).getCargo();
             lineJoiner.add("Carrying:      \t" + (c == null ? "Nothing" : c.getType()));
         } else if (ship instanceof ContainerShip) {
-            lineJoiner.add("Carrying:      \t" + ((ContainerShip) ship).getCargo().size()
+            lineJoiner.add("Carrying:      \t" + ((ContainerShip) ship).getCargoView().size()
                 + " containers");
         }
         return lineJoiner.toString();
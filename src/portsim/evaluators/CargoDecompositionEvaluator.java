@@ -2,6 +2,7 @@ package portsim.evaluators;
 
 import portsim.cargo.*;
 import portsim.movement.*;
+import portsim.port.Port;
 import portsim.ship.*;
 
 import java.util.*;
@@ -38,6 +39,26 @@ public class CargoDecompositionEvaluator extends StatisticsEvaluator {
         containerDistribution = new HashMap<>();
     }
 
+    /**
+     * Creates a copy of the given evaluator.
+     *
+     * @param original evaluator to copy
+     */
+    private CargoDecompositionEvaluator(CargoDecompositionEvaluator original) {
+        super(original);
+        cargoDistribution = new HashMap<>(original.cargoDistribution);
+        bulkCargoDistribution = new HashMap<>(original.bulkCargoDistribution);
+        containerDistribution = new HashMap<>(original.containerDistribution);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CargoDecompositionEvaluator copyFor(Port fork) {
+        return new CargoDecompositionEvaluator(this);
+    }
+
     /**
      * Returns the distribution of which cargo types that have entered the port.
      *
@@ -89,7 +110,7 @@ public class CargoDecompositionEvaluator extends StatisticsEvaluator {
         if (movement.getDirection() == MovementDirection.INBOUND) {
             // Cargo Movement
             if (movement.getClass().getSimpleName().equals("CargoMovement")) {
-                List<Cargo> cargos = ((CargoMovement) movement).getCargo();
+                List<Cargo> cargos = ((CargoMovement) movement).getCargoView();
                 Iterator<Cargo> allCargos = cargos.iterator();
                 while (allCargos.hasNext()) {
                     Cargo nextCargo = allCargos.next();
@@ -132,8 +153,8 @@ public class CargoDecompositionEvaluator extends StatisticsEvaluator {
                 // ship movement
                 Ship ship = ((ShipMovement) movement).getShip();
                 if (ship.getClass().getSimpleName().equals("ContainerShip")) {
-                    if (((ContainerShip) ship).getCargo().size() != 0) {
-                        for (Container cargo : ((ContainerShip) ship).getCargo()) {
+                    if (((ContainerShip) ship).getCargoView().size() != 0) {
+                        for (Container cargo : ((ContainerShip) ship).getCargoView()) {
                             if (cargoDistribution.containsKey("Container")) {
                                 cargoDistribution.replace("Container",
                                         cargoDistribution.get("Container") + 1);
@@ -0,0 +1,340 @@
+package portsim.evaluators;
+
+import portsim.metrics.TickProbe;
+import portsim.movement.Movement;
+import portsim.movement.ShipMovement;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers movement and tick events to statistics evaluators on dedicated threads.
+ * <p>
+ * The port is the single producer: it publishes events into a fixed size ring buffer and
+ * returns immediately. Every evaluator is driven by its own consumer thread which reads the
+ * ring buffer in order, so each evaluator still sees exactly the same sequence of
+ * onProcessMovement(Movement) and elapseOneMinute() calls as it would when called
+ * synchronously by the port. The producer only waits when the slowest consumer is a full
+ * buffer behind.
+ * <p>
+ * The port keeps loading and unloading a ship after its movement has been published, so a
+ * ship movement is published with a copy of the ship taken at that time (see
+ * {@link portsim.ship.Ship#copy()}). Evaluators therefore read the cargo a ship carried when
+ * the movement was processed, as they would if called synchronously, and never read a ship
+ * the port is changing.
+ * <p>
+ * Evaluator state is updated asynchronously, so callers that read from evaluators should call
+ * {@link #barrier()} first to wait until every published event has been consumed.
+ * <p>
+ * An exception thrown by an evaluator cannot reach the port, which has moved on by then, so
+ * each consumer records the first one its evaluator throws and keeps delivering the events
+ * that follow. {@link #barrier()} and {@link #shutdown()} then throw it, as the port would
+ * have when calling the evaluator synchronously.
+ */
+public class EvaluatorPipeline {
+    /**
+     * Default number of slots in the ring buffer
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Events published into the ring buffer, a null slot denotes a tick event
+     */
+    private final Movement[] events;
+
+    /**
+     * Mask used to map a sequence number onto a slot in the ring buffer
+     */
+    private final int mask;
+
+    /**
+     * Sequence number of the last published event
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    /**
+     * The consumers reading from the ring buffer, one per evaluator
+     */
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Sequence number the producer has claimed for the next event (producer thread only)
+     */
+    private long nextSequence = 0;
+
+    /**
+     * Cached minimum consumer sequence used to avoid scanning every consumer on each publish
+     */
+    private long cachedGatingSequence = -1;
+
+    /**
+     * Whether this pipeline has been shut down
+     */
+    private volatile boolean shutdown = false;
+
+    /**
+     * Probe notified of the time taken by each evaluator callback, or null
+     */
+    private volatile TickProbe tickProbe;
+
+    /**
+     * Creates a new pipeline with a ring buffer of {@link #DEFAULT_CAPACITY} slots.
+     */
+    public EvaluatorPipeline() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new pipeline with a ring buffer of the given number of slots.
+     *
+     * @param capacity number of slots in the ring buffer
+     * @throws IllegalArgumentException if capacity is not a positive power of two
+     */
+    public EvaluatorPipeline(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a positive power of two: "
+                    + capacity);
+        }
+        this.events = new Movement[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Starts a consumer thread for the given evaluator. The evaluator receives every event
+     * published after this method returns.
+     *
+     * @param evaluator evaluator to drive from the pipeline
+     * @throws IllegalStateException if the pipeline has been shut down
+     */
+    public void addEvaluator(StatisticsEvaluator evaluator) throws IllegalStateException {
+        if (shutdown) {
+            throw new IllegalStateException("the pipeline has been shut down");
+        }
+        Consumer consumer = new Consumer(evaluator, cursor.get());
+        consumers.add(consumer);
+        consumer.thread.start();
+    }
+
+    /**
+     * Sets the probe to be notified of the time taken by each evaluator callback. The probe is
+     * called from the consumer threads.
+     *
+     * @param probe probe to notify, or null to stop timing evaluator callbacks
+     */
+    public void setTickProbe(TickProbe probe) {
+        this.tickProbe = probe;
+    }
+
+    /**
+     * Publishes a processed movement to every evaluator. A ship movement is published with a
+     * copy of its ship, so later changes to the ship's cargo are not seen by the evaluators.
+     *
+     * @param movement movement that was processed by the port
+     */
+    public void publishMovement(Movement movement) {
+        publish(freeze(movement));
+    }
+
+    /* Returns the movement with its ship replaced by a copy of the ship as it is now */
+    private static Movement freeze(Movement movement) {
+        if (movement instanceof ShipMovement) {
+            return new ShipMovement(movement.getTime(), movement.getDirection(),
+                    ((ShipMovement) movement).getShip().copy());
+        }
+        return movement;
+    }
+
+    /**
+     * Publishes a simulation tick to every evaluator.
+     */
+    public void publishTick() {
+        publish(null);
+    }
+
+    /* Claims the next slot, waiting for the slowest consumer if the buffer is full */
+    private void publish(Movement event) {
+        long sequence = nextSequence++;
+        long wrapPoint = sequence - events.length;
+        if (wrapPoint > cachedGatingSequence) {
+            long gating;
+            while (wrapPoint > (gating = minimumSequence(sequence - 1))) {
+                LockSupport.parkNanos(1);
+            }
+            cachedGatingSequence = gating;
+        }
+        events[(int) sequence & mask] = event;
+        cursor.set(sequence);
+        for (Consumer consumer : consumers) {
+            if (consumer.waiting) {
+                LockSupport.unpark(consumer.thread);
+            }
+        }
+    }
+
+    /* Returns the lowest sequence processed by any consumer, or the given default */
+    private long minimumSequence(long minimum) {
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * Blocks until every event published before this call has been consumed by every
+     * evaluator. After this method returns, reads from the evaluators are consistent with the
+     * state of the port at the time of the call.
+     *
+     * @throws IllegalStateException if an evaluator has thrown an exception while consuming
+     *                               an event, which is given as the cause
+     */
+    public void barrier() throws IllegalStateException {
+        awaitConsumers();
+        checkFailures();
+    }
+
+    /* Waits until every consumer still running has consumed every event published so far */
+    private void awaitConsumers() {
+        long target = cursor.get();
+        for (Consumer consumer : consumers) {
+            while (consumer.sequence.get() < target && consumer.thread.isAlive()) {
+                LockSupport.unpark(consumer.thread);
+                Thread.onSpinWait();
+                Thread.yield();
+            }
+        }
+    }
+
+    /* Throws the first exception thrown by the evaluator of the first consumer that failed */
+    private void checkFailures() throws IllegalStateException {
+        for (Consumer consumer : consumers) {
+            RuntimeException failure = consumer.failure;
+            if (failure != null) {
+                throw new IllegalStateException("evaluator "
+                        + consumer.evaluator.getClass().getSimpleName()
+                        + " failed while consuming an event", failure);
+            }
+        }
+    }
+
+    /**
+     * Waits for all published events to be consumed and then stops every consumer thread.
+     *
+     * @throws IllegalStateException if an evaluator has thrown an exception while consuming
+     *                               an event, which is given as the cause
+     */
+    public void shutdown() throws IllegalStateException {
+        awaitConsumers();
+        shutdown = true;
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.thread.join();
+            } catch (InterruptedException i) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        checkFailures();
+    }
+
+    /**
+     * Returns the number of events that have been published but not yet consumed by the
+     * slowest evaluator.
+     *
+     * @return number of outstanding events
+     */
+    public long getBacklog() {
+        long published = cursor.get();
+        return published - minimumSequence(published);
+    }
+
+    /**
+     * A consumer thread that feeds the events in the ring buffer to a single evaluator.
+     */
+    private class Consumer implements Runnable {
+        /**
+         * The evaluator driven by this consumer
+         */
+        private final StatisticsEvaluator evaluator;
+
+        /**
+         * Sequence number of the last event processed by this consumer
+         */
+        private final AtomicLong sequence;
+
+        /**
+         * The thread running this consumer
+         */
+        private final Thread thread;
+
+        /**
+         * Whether this consumer is parked waiting for new events
+         */
+        private volatile boolean waiting = false;
+
+        /**
+         * The first exception thrown by the evaluator, or null if it has thrown none
+         */
+        private volatile RuntimeException failure;
+
+        /**
+         * Creates a consumer that starts reading after the given sequence number.
+         *
+         * @param evaluator evaluator to drive
+         * @param start     sequence number of the last event this consumer should skip
+         */
+        Consumer(StatisticsEvaluator evaluator, long start) {
+            this.evaluator = evaluator;
+            this.sequence = new AtomicLong(start);
+            this.thread = new Thread(this,
+                    "portsim-evaluator-" + evaluator.getClass().getSimpleName());
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Processes events until the pipeline is shut down and the buffer is drained.
+         */
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (true) {
+                long available = cursor.get();
+                if (available < next) {
+                    if (shutdown) {
+                        return;
+                    }
+                    waiting = true;
+                    if (cursor.get() < next && !shutdown) {
+                        LockSupport.parkNanos(100_000);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                for (; next <= available; next++) {
+                    Movement event = events[(int) next & mask];
+                    TickProbe probe = tickProbe;
+                    long start = probe == null ? 0 : System.nanoTime();
+                    try {
+                        if (event == null) {
+                            evaluator.elapseOneMinute();
+                        } else {
+                            evaluator.onProcessMovement(event);
+                        }
+                    } catch (RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                    if (probe != null) {
+                        probe.evaluatorCalled(evaluator, event == null, System.nanoTime() - start);
+                    }
+                }
+                sequence.set(available);
+            }
+        }
+    }
+}
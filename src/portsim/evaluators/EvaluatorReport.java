@@ -0,0 +1,107 @@
+package portsim.evaluators;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Formats the statistics gathered by evaluators as human-readable text.
+ * <p>
+ * This is the text shown in the GUI's evaluator panel, and is also used wherever evaluator
+ * results are reported outside of the GUI. The same statistics can also be read as named
+ * values, for tables of results (see {@link #tabulate(StatisticsEvaluator)}).
+ */
+public final class EvaluatorReport {
+    /**
+     * Not instantiable
+     */
+    private EvaluatorReport() {}
+
+    /**
+     * Returns the contents of the given evaluator, with each line separated by
+     * {@link System#lineSeparator()}. The first line is the name of the evaluator, followed by:
+     * <ul>
+     * <li>for a {@link QuayOccupancyEvaluator}: <pre>num Quay(s) currently occupied</pre></li>
+     * <li>for a {@link ShipFlagEvaluator}: <pre>country : num</pre> for each country flag
+     * seen</li>
+     * <li>for a {@link ShipThroughputEvaluator}:
+     * <pre>num Ships passed in the last hour</pre></li>
+     * <li>for a {@link CargoDecompositionEvaluator}: <pre>cargo : num</pre> for each cargo
+     * class seen</li>
+     * </ul>
+     *
+     * @param evaluator evaluator to describe
+     * @return description of the evaluator's statistics
+     */
+    public static String describe(StatisticsEvaluator evaluator) {
+        String contents;
+        if (evaluator instanceof QuayOccupancyEvaluator) {
+            contents = evaluator.getClass().getSimpleName() + System.lineSeparator()
+                    + ((QuayOccupancyEvaluator) evaluator).getQuaysOccupied() + " Quay(s) "
+                    + "currently occupied";
+
+        } else if (evaluator instanceof ShipFlagEvaluator) {
+            contents = evaluator.getClass().getSimpleName() + System.lineSeparator();
+            for (String flag : ((ShipFlagEvaluator) evaluator).getFlagDistribution().keySet()) {
+                contents += flag;
+                contents += " : ";
+                contents += ((ShipFlagEvaluator) evaluator).getFlagStatistics(flag);
+                contents += System.lineSeparator();
+            }
+            contents = contents.substring(0, contents.length() - 1);
+
+        } else if (evaluator instanceof ShipThroughputEvaluator) {
+            contents = evaluator.getClass().getSimpleName() + System.lineSeparator()
+                    + ((ShipThroughputEvaluator) evaluator).getThroughputPerHour()
+                    + " Ships passed in the last hour";
+
+        } else if (evaluator instanceof CargoDecompositionEvaluator) {
+            contents = evaluator.getClass().getSimpleName() + System.lineSeparator();
+            for (Map.Entry<String, Integer> distribution :
+                    ((CargoDecompositionEvaluator) evaluator)
+                            .getCargoDistribution().entrySet()) {
+                contents += distribution.getKey();
+                contents += " : ";
+                contents += distribution.getValue();
+                contents += System.lineSeparator();
+            }
+            contents = contents.substring(0, contents.length() - 1);
+
+        } else {
+            contents = evaluator.getClass().getSimpleName();
+        }
+        return contents;
+    }
+
+    /**
+     * Returns the statistics of the given evaluator as named values, in the order they are
+     * listed by {@link #describe(StatisticsEvaluator)}:
+     * <ul>
+     * <li>for a {@link QuayOccupancyEvaluator}: {@code quaysOccupied}</li>
+     * <li>for a {@link ShipFlagEvaluator}: each country flag seen</li>
+     * <li>for a {@link ShipThroughputEvaluator}: {@code throughputPerHour}</li>
+     * <li>for a {@link CargoDecompositionEvaluator}: each cargo class seen</li>
+     * </ul>
+     * Other evaluators have no values.
+     *
+     * @param evaluator evaluator to tabulate
+     * @return mapping from the name of each statistic to its value
+     */
+    public static Map<String, Integer> tabulate(StatisticsEvaluator evaluator) {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        if (evaluator instanceof QuayOccupancyEvaluator) {
+            values.put("quaysOccupied",
+                    ((QuayOccupancyEvaluator) evaluator).getQuaysOccupied());
+        } else if (evaluator instanceof ShipFlagEvaluator) {
+            for (Map.Entry<String, Integer> flag :
+                    ((ShipFlagEvaluator) evaluator).getFlagDistribution().entrySet()) {
+                values.put(String.valueOf(flag.getKey()), flag.getValue());
+            }
+        } else if (evaluator instanceof ShipThroughputEvaluator) {
+            values.put("throughputPerHour",
+                    ((ShipThroughputEvaluator) evaluator).getThroughputPerHour());
+        } else if (evaluator instanceof CargoDecompositionEvaluator) {
+            values.putAll(((CargoDecompositionEvaluator) evaluator).getCargoDistribution());
+        }
+        return values;
+    }
+}
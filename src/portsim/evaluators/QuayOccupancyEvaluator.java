@@ -22,6 +22,28 @@ public class QuayOccupancyEvaluator extends StatisticsEvaluator {
         this.port = port;
     }
 
+    /**
+     * Creates a copy of the given evaluator that monitors the quays of the given port.
+     *
+     * @param original evaluator to copy
+     * @param port     port to monitor quays
+     */
+    private QuayOccupancyEvaluator(QuayOccupancyEvaluator original, Port port) {
+        super(original);
+        this.port = port;
+    }
+
+    /**
+     * Returns a copy of this evaluator that monitors the quays of the given fork.
+     *
+     * @param fork fork of the port that the copy will evaluate
+     * @return copy of this evaluator
+     */
+    @Override
+    public QuayOccupancyEvaluator copyFor(Port fork) {
+        return new QuayOccupancyEvaluator(this, fork);
+    }
+
     /**
      * Return the number of quays that are currently occupied. A quay is occupied if
      * Quay.isEmpty() returns false.
@@ -30,8 +52,8 @@ public class QuayOccupancyEvaluator extends StatisticsEvaluator {
      */
     public int getQuaysOccupied() {
         int occupyNumber = 0;
-        if (port.getQuays().size() != 0) {
-            for (Quay quay : port.getQuays()) {
+        if (port.getQuaysView().size() != 0) {
+            for (Quay quay : port.getQuaysView()) {
                 if (!quay.isEmpty()) {
                     occupyNumber++;
                 }
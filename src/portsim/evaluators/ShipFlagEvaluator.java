@@ -1,7 +1,10 @@
 package portsim.evaluators;
 
 import portsim.movement.*;
+import portsim.port.Port;
 import portsim.ship.Ship;
+import portsim.util.CountryDictionary;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,24 +15,59 @@ import java.util.Map;
  */
 public class ShipFlagEvaluator extends StatisticsEvaluator {
     /**
-     * a mapping of country-of-origin flags to the number of times that flag has been seen in
-     * inbound movements.
+     * the number of times each country-of-origin flag has been seen in inbound movements,
+     * indexed by the flag's code in the {@link CountryDictionary}.
      */
-    private Map<String, Integer> flagDistribution;
+    private int[] flagCounts;
+
+    /**
+     * the number of times a ship without a country-of-origin flag has been seen in inbound
+     * movements.
+     */
+    private int unflaggedCount;
 
     /**
      * Constructs a new ShipFlagEvaluator.
      */
     public ShipFlagEvaluator() {
-        flagDistribution = new HashMap<>();
+        flagCounts = new int[0];
     }
 
     /**
-     * Return the flag distribution seen at this port.
+     * Creates a copy of the given evaluator.
+     *
+     * @param original evaluator to copy
+     */
+    private ShipFlagEvaluator(ShipFlagEvaluator original) {
+        super(original);
+        flagCounts = original.flagCounts.clone();
+        unflaggedCount = original.unflaggedCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ShipFlagEvaluator copyFor(Port fork) {
+        return new ShipFlagEvaluator(this);
+    }
+
+    /**
+     * Return the flag distribution seen at this port, as a new mapping of each flag seen to
+     * the number of times it has been seen.
      *
      * @return flag distribution
      */
     public Map<String, Integer> getFlagDistribution() {
+        Map<String, Integer> flagDistribution = new HashMap<>();
+        for (int code = 0; code < flagCounts.length; code++) {
+            if (flagCounts[code] > 0) {
+                flagDistribution.put(CountryDictionary.name(code), flagCounts[code]);
+            }
+        }
+        if (unflaggedCount > 0) {
+            flagDistribution.put(null, unflaggedCount);
+        }
         return flagDistribution;
     }
 
@@ -40,8 +78,12 @@ public class ShipFlagEvaluator extends StatisticsEvaluator {
      * @return number of times flag seen or 0 if not seen
      */
     public int getFlagStatistics(String flag) {
-        if (flagDistribution.containsKey(flag)) {
-            return flagDistribution.get(flag);
+        if (flag == null) {
+            return unflaggedCount;
+        }
+        int code = CountryDictionary.lookup(flag);
+        if (code >= 0 && code < flagCounts.length) {
+            return flagCounts[code];
         }
         return 0;
     }
@@ -66,12 +108,16 @@ public class ShipFlagEvaluator extends StatisticsEvaluator {
         if (movement.getDirection() == MovementDirection.INBOUND
                 && movement.getClass().getSimpleName().equals("ShipMovement")) {
             Ship ship = ((ShipMovement) movement).getShip();
-            String flag = ship.getOriginFlag();
-            if (!flagDistribution.containsKey(flag)) {
-                flagDistribution.put(flag, 1);
-            } else {
-                flagDistribution.replace(flag, flagDistribution.get(flag) + 1);
+            int code = ship.getOriginCode();
+            if (code == CountryDictionary.NONE) {
+                unflaggedCount++;
+                return;
+            }
+            if (code >= flagCounts.length) {
+                flagCounts = Arrays.copyOf(flagCounts,
+                        Math.max(code + 1, CountryDictionary.size()));
             }
+            flagCounts[code]++;
         }
     }
 }
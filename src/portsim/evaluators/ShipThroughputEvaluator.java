@@ -1,6 +1,7 @@
 package portsim.evaluators;
 
 import portsim.movement.*;
+import portsim.port.Port;
 import java.util.*;
 
 /**
@@ -22,6 +23,24 @@ public class ShipThroughputEvaluator extends StatisticsEvaluator {
         movementTime = new HashMap<>();
     }
 
+    /**
+     * Creates a copy of the given evaluator.
+     *
+     * @param original evaluator to copy
+     */
+    private ShipThroughputEvaluator(ShipThroughputEvaluator original) {
+        super(original);
+        movementTime = new HashMap<>(original.movementTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ShipThroughputEvaluator copyFor(Port fork) {
+        return new ShipThroughputEvaluator(this);
+    }
+
     /**
      * Return the number of ships that have passed through the port in the last 60 minutes.
      *
@@ -57,21 +76,15 @@ public class ShipThroughputEvaluator extends StatisticsEvaluator {
     @Override
     public void elapseOneMinute() {
         super.elapseOneMinute();
-        List<Movement> movements = new ArrayList<>();
         if (movementTime.size() != 0) {
 
-            // find movements -  more than 60 minutes since a ship exited the port
-            for (Map.Entry<Movement, Long> entry : movementTime.entrySet()) {
-                if (getTime() - entry.getValue() > 60) {
-                    movements.add(entry.getKey());
+            // remove movements - more than 60 minutes since a ship exited the port
+            Iterator<Long> times = movementTime.values().iterator();
+            while (times.hasNext()) {
+                if (getTime() - times.next() > 60) {
+                    times.remove();
                 }
             }
         }
-        // remove the movement
-        if (movements.size() != 0) {
-            for (Movement movement : movements) {
-                movementTime.remove(movement);
-            }
-        }
     }
 }
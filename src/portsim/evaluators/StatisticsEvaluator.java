@@ -1,6 +1,7 @@
 package portsim.evaluators;
 
 import portsim.movement.Movement;
+import portsim.port.Port;
 
 /**
  * A base class representing an object that gathers and reports data on various aspects of the
@@ -20,6 +21,16 @@ public abstract class StatisticsEvaluator {
         this.time = 0;
     }
 
+    /**
+     * Creates a statistics evaluator with the same time as the given one, for a copy made by
+     * {@link #copyFor(Port)}.
+     *
+     * @param original evaluator to copy
+     */
+    protected StatisticsEvaluator(StatisticsEvaluator original) {
+        this.time = original.time;
+    }
+
     /**
      * Return the time since the evaluator was created.
      *
@@ -44,4 +55,22 @@ public abstract class StatisticsEvaluator {
     public void elapseOneMinute() {
         time++;
     }
+
+    /**
+     * Returns a new evaluator of the same kind, with the same data and time as this one, to
+     * evaluate the given fork of the port this evaluator was added to (see
+     * {@link Port#fork()}). Movements and minutes passed to either evaluator afterwards do
+     * not change the other.
+     * <p>
+     * By default evaluators cannot be copied, and this method throws an
+     * UnsupportedOperationException.
+     *
+     * @param fork fork of the port that the copy will evaluate
+     * @return copy of this evaluator
+     * @throws UnsupportedOperationException if this evaluator cannot be copied
+     */
+    public StatisticsEvaluator copyFor(Port fork) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(getClass().getSimpleName()
+                + " cannot be copied");
+    }
 }
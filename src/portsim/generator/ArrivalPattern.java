@@ -0,0 +1,21 @@
+package portsim.generator;
+
+/**
+ * The ways in which generated ships can be spread over the simulated period.
+ */
+public enum ArrivalPattern {
+    /**
+     * Each ship arrives at a time chosen uniformly at random over the period.
+     */
+    UNIFORM,
+    /**
+     * Ships arrive one after another with exponentially distributed gaps, as a Poisson
+     * process whose rate spreads the ships over the period.
+     */
+    POISSON,
+    /**
+     * Ships arrive in groups that all arrive in the same minute, with the groups evenly
+     * spaced over the period. Models a backlog of ships released at once, e.g. after a storm.
+     */
+    BURST
+}
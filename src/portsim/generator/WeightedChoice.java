@@ -0,0 +1,100 @@
+package portsim.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A discrete probability distribution over a fixed set of values, each with a relative
+ * weight.
+ *
+ * @param <T> type of value being chosen
+ */
+public class WeightedChoice<T> {
+    /**
+     * The values that can be chosen
+     */
+    private final List<T> values = new ArrayList<>();
+
+    /**
+     * Running total of the weights, such that value i is chosen for samples in
+     * [cumulative[i - 1], cumulative[i])
+     */
+    private double[] cumulative = new double[0];
+
+    /**
+     * Creates an empty distribution.
+     */
+    public WeightedChoice() {}
+
+    /**
+     * Creates a distribution choosing uniformly between the given values.
+     *
+     * @param values values to choose between
+     * @param <T>    type of value being chosen
+     * @return uniform distribution over the values
+     */
+    @SafeVarargs
+    public static <T> WeightedChoice<T> uniform(T... values) {
+        WeightedChoice<T> choice = new WeightedChoice<>();
+        for (T value : values) {
+            choice.add(value, 1);
+        }
+        return choice;
+    }
+
+    /**
+     * Adds a value to the distribution with the given relative weight.
+     *
+     * @param value  value to add
+     * @param weight relative weight of the value
+     * @return this distribution
+     * @throws IllegalArgumentException if weight is not positive
+     */
+    public WeightedChoice<T> add(T value, double weight) throws IllegalArgumentException {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("weight must be positive: " + weight);
+        }
+        int size = values.size();
+        double[] next = new double[size + 1];
+        System.arraycopy(cumulative, 0, next, 0, size);
+        next[size] = (size == 0 ? 0 : cumulative[size - 1]) + weight;
+        cumulative = next;
+        values.add(value);
+        return this;
+    }
+
+    /**
+     * Returns the number of values in this distribution.
+     *
+     * @return number of values
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Chooses a value at random according to the weights of the values.
+     *
+     * @param random source of randomness
+     * @return chosen value
+     * @throws IllegalStateException if the distribution is empty
+     */
+    public T sample(SplittableRandom random) throws IllegalStateException {
+        if (values.isEmpty()) {
+            throw new IllegalStateException("the distribution is empty");
+        }
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] <= target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return values.get(low);
+    }
+}
@@ -0,0 +1,749 @@
+package portsim.generator;
+
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.ContainerType;
+import portsim.ship.NauticalFlag;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates large synthetic ports for load testing, in the format read by
+ * {@link portsim.port.Port#initialisePort(java.io.Reader)}.
+ * <p>
+ * Generation is deterministic: the same seed and settings always produce the same file. The
+ * output is written as it is generated and no cargo, ships or movements are kept in memory,
+ * so files with millions of entities can be produced with a small heap. Every entity is
+ * derived from the seed and its own index, which lets the generator write ships whose cargo
+ * was written earlier in the file without having to remember that cargo.
+ * <p>
+ * The generated port is laid out as follows:
+ * <ul>
+ * <li>Ship {@code i} has IMO number {@code 1000000 + i}. Container ships carry up to
+ * {@code cargoPerShip} containers and bulk carriers carry up to one piece of bulk cargo. The
+ * cargo on board ship {@code i} takes the ids {@code i * cargoPerShip} onwards, and is
+ * destined for the ship's origin country so that it can legally be loaded.</li>
+ * <li>The remaining cargo is free, and a fraction of it is stored at the port. Cargo
+ * movements only move free cargo.</li>
+ * <li>The first {@code queuedShips} ships start in the ship queue. Every other ship has an
+ * INBOUND movement following the arrival pattern, and every ship has an OUTBOUND movement a
+ * random dwell time after it arrives.</li>
+ * <li>Every quay starts empty and is large enough to dock any generated ship.</li>
+ * </ul>
+ */
+public class WorkloadGenerator {
+    /**
+     * IMO number of the first generated ship
+     */
+    private static final long FIRST_IMO_NUMBER = 1000000;
+
+    /**
+     * Largest number of ships that can be given valid IMO numbers
+     */
+    private static final int MAX_SHIPS = 9000000;
+
+    /**
+     * Random stream used for ships
+     */
+    private static final long SHIP_STREAM = 1;
+
+    /**
+     * Random stream used for cargo
+     */
+    private static final long CARGO_STREAM = 2;
+
+    /**
+     * Random stream used for quays
+     */
+    private static final long QUAY_STREAM = 3;
+
+    /**
+     * Random stream used for ship movements
+     */
+    private static final long SHIP_MOVEMENT_STREAM = 4;
+
+    /**
+     * Random stream used for cargo movements
+     */
+    private static final long CARGO_MOVEMENT_STREAM = 5;
+
+    /**
+     * Prefixes for generated ship names
+     */
+    private static final String[] SHIP_NAMES = {"Atlantic", "Baltic", "Coral", "Ever",
+        "Golden", "Harbour", "Maersk", "Northern", "Ocean", "Pacific", "Southern", "Star"};
+
+    /**
+     * Name of the generated port
+     */
+    private String portName = "Generated";
+
+    /**
+     * Seed from which everything is generated
+     */
+    private long seed = 0;
+
+    /**
+     * Number of pieces of cargo
+     */
+    private int cargoCount = 1000;
+
+    /**
+     * Number of ships
+     */
+    private int shipCount = 100;
+
+    /**
+     * Number of quays
+     */
+    private int quayCount = 10;
+
+    /**
+     * Target number of movements
+     */
+    private int movementCount = 1000;
+
+    /**
+     * Number of ships that start in the ship queue
+     */
+    private int queuedShips = 0;
+
+    /**
+     * Number of minutes over which ships arrive and cargo moves
+     */
+    private long horizon = 7 * 24 * 60;
+
+    /**
+     * How ship arrivals are spread over the horizon
+     */
+    private ArrivalPattern arrivalPattern = ArrivalPattern.POISSON;
+
+    /**
+     * Number of ships arriving together for the BURST pattern
+     */
+    private int burstSize = 50;
+
+    /**
+     * Shortest time in minutes a ship stays before departing
+     */
+    private long minDwell = 60;
+
+    /**
+     * Longest time in minutes a ship stays before departing
+     */
+    private long maxDwell = 12 * 60;
+
+    /**
+     * Fraction of ships, quays and free cargo that are bulk rather than container
+     */
+    private double bulkRatio = 0.3;
+
+    /**
+     * Number of containers on board each container ship
+     */
+    private int cargoPerShip = 5;
+
+    /**
+     * Largest container capacity of a container ship
+     */
+    private int maxContainerCapacity = 100;
+
+    /**
+     * Largest tonnage capacity of a bulk carrier
+     */
+    private int maxBulkCapacity = 500;
+
+    /**
+     * Fraction of the free cargo that is stored at the port
+     */
+    private double storedCargoFraction = 0.1;
+
+    /**
+     * Fraction of cargo movements that are INBOUND
+     */
+    private double inboundCargoRatio = 0.5;
+
+    /**
+     * Largest number of pieces of cargo in one cargo movement
+     */
+    private int maxCargoPerMovement = 5;
+
+    /**
+     * Distribution of the nautical flags of ships
+     */
+    private WeightedChoice<NauticalFlag> flags = WeightedChoice.uniform(NauticalFlag.values());
+
+    /**
+     * Distribution of the origin countries of ships
+     */
+    private WeightedChoice<String> origins = WeightedChoice.uniform("Australia", "China",
+            "Germany", "Japan", "Singapore", "United States");
+
+    /**
+     * Distribution of the destinations of free cargo
+     */
+    private WeightedChoice<String> destinations = WeightedChoice.uniform("Australia", "China",
+            "Germany", "Japan", "Singapore", "United States");
+
+    /**
+     * Distribution of the types of containers
+     */
+    private WeightedChoice<ContainerType> containerTypes =
+            WeightedChoice.uniform(ContainerType.values());
+
+    /**
+     * Distribution of the types of bulk cargo
+     */
+    private WeightedChoice<BulkCargoType> bulkCargoTypes =
+            WeightedChoice.uniform(BulkCargoType.values());
+
+    /**
+     * Simple names of the statistics evaluators added to the port
+     */
+    private List<String> evaluators = new ArrayList<>(Arrays.asList("QuayOccupancyEvaluator",
+            "ShipFlagEvaluator", "ShipThroughputEvaluator", "CargoDecompositionEvaluator"));
+
+    /**
+     * Creates a generator with the default settings: 1000 cargo, 100 ships, 10 quays and
+     * 1000 movements spread over a week.
+     */
+    public WorkloadGenerator() {}
+
+    /**
+     * Generates a port and writes it to a file.
+     * <p>
+     * Usage: {@code output_file [seed [cargo ships quays movements]]}
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 1 && args.length != 2 && args.length != 6) {
+            System.err.println("Usage: output_file [seed [cargo ships quays movements]]");
+            System.exit(1);
+        }
+        WorkloadGenerator generator = new WorkloadGenerator();
+        try {
+            if (args.length > 1) {
+                generator.setSeed(Long.parseLong(args[1]));
+            }
+            if (args.length > 2) {
+                generator.setCargoCount(Integer.parseInt(args[2]));
+                generator.setShipCount(Integer.parseInt(args[3]));
+                generator.setQuayCount(Integer.parseInt(args[4]));
+                generator.setMovementCount(Integer.parseInt(args[5]));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid argument: " + e.getMessage());
+            System.exit(1);
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(args[0]), 1 << 16)) {
+            generator.generate(writer);
+        } catch (IOException e) {
+            System.err.println("Error writing to file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Sets the name of the generated port.
+     *
+     * @param portName name of the port
+     * @throws IllegalArgumentException if the name is empty or contains a line break
+     */
+    public void setPortName(String portName) throws IllegalArgumentException {
+        if (portName.isEmpty() || portName.contains("\n") || portName.contains("\r")) {
+            throw new IllegalArgumentException("invalid port name: " + portName);
+        }
+        this.portName = portName;
+    }
+
+    /**
+     * Sets the seed from which the port is generated.
+     *
+     * @param seed random seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of pieces of cargo in the simulation.
+     *
+     * @param cargoCount number of cargo
+     * @throws IllegalArgumentException if cargoCount &lt; 0
+     */
+    public void setCargoCount(int cargoCount) throws IllegalArgumentException {
+        requireNonNegative(cargoCount, "cargoCount");
+        this.cargoCount = cargoCount;
+    }
+
+    /**
+     * Sets the number of ships in the simulation.
+     *
+     * @param shipCount number of ships
+     * @throws IllegalArgumentException if shipCount &lt; 0 or there are too many ships to
+     *                                  give each a seven digit IMO number
+     */
+    public void setShipCount(int shipCount) throws IllegalArgumentException {
+        requireNonNegative(shipCount, "shipCount");
+        if (shipCount > MAX_SHIPS) {
+            throw new IllegalArgumentException("shipCount must be at most " + MAX_SHIPS + ": "
+                    + shipCount);
+        }
+        this.shipCount = shipCount;
+    }
+
+    /**
+     * Sets the number of quays at the port.
+     *
+     * @param quayCount number of quays
+     * @throws IllegalArgumentException if quayCount &lt; 0
+     */
+    public void setQuayCount(int quayCount) throws IllegalArgumentException {
+        requireNonNegative(quayCount, "quayCount");
+        this.quayCount = quayCount;
+    }
+
+    /**
+     * Sets the number of movements to schedule. Every ship has its ship movements generated,
+     * and the rest of the movements are cargo movements, so more movements than this are
+     * generated if the ships alone need more.
+     *
+     * @param movementCount number of movements
+     * @throws IllegalArgumentException if movementCount &lt; 0
+     */
+    public void setMovementCount(int movementCount) throws IllegalArgumentException {
+        requireNonNegative(movementCount, "movementCount");
+        this.movementCount = movementCount;
+    }
+
+    /**
+     * Sets the number of ships that start in the ship queue.
+     *
+     * @param queuedShips number of queued ships
+     * @throws IllegalArgumentException if queuedShips &lt; 0
+     */
+    public void setQueuedShips(int queuedShips) throws IllegalArgumentException {
+        requireNonNegative(queuedShips, "queuedShips");
+        this.queuedShips = queuedShips;
+    }
+
+    /**
+     * Sets the number of minutes over which ships arrive and cargo moves.
+     *
+     * @param horizon length of the simulated period in minutes
+     * @throws IllegalArgumentException if horizon &lt; 1
+     */
+    public void setHorizon(long horizon) throws IllegalArgumentException {
+        if (horizon < 1) {
+            throw new IllegalArgumentException("horizon must be at least 1: " + horizon);
+        }
+        this.horizon = horizon;
+    }
+
+    /**
+     * Sets how ship arrivals are spread over the simulated period.
+     *
+     * @param arrivalPattern pattern of arrivals
+     * @param burstSize      number of ships arriving together, used by
+     *                       {@link ArrivalPattern#BURST}
+     * @throws IllegalArgumentException if burstSize &lt; 1
+     */
+    public void setArrivalPattern(ArrivalPattern arrivalPattern, int burstSize)
+            throws IllegalArgumentException {
+        if (burstSize < 1) {
+            throw new IllegalArgumentException("burstSize must be at least 1: " + burstSize);
+        }
+        this.arrivalPattern = arrivalPattern;
+        this.burstSize = burstSize;
+    }
+
+    /**
+     * Sets the range of times a ship stays at the port before it departs. The dwell time of
+     * each ship is chosen uniformly from this range.
+     *
+     * @param minDwell shortest dwell time in minutes
+     * @param maxDwell longest dwell time in minutes
+     * @throws IllegalArgumentException if minDwell &lt; 0 or maxDwell &lt; minDwell
+     */
+    public void setDwellTime(long minDwell, long maxDwell) throws IllegalArgumentException {
+        if (minDwell < 0 || maxDwell < minDwell) {
+            throw new IllegalArgumentException("invalid dwell time range: " + minDwell + " to "
+                    + maxDwell);
+        }
+        this.minDwell = minDwell;
+        this.maxDwell = maxDwell;
+    }
+
+    /**
+     * Sets the fraction of ships, quays and free cargo that are bulk rather than container.
+     *
+     * @param bulkRatio fraction between 0 and 1
+     * @throws IllegalArgumentException if bulkRatio is not between 0 and 1
+     */
+    public void setBulkRatio(double bulkRatio) throws IllegalArgumentException {
+        requireFraction(bulkRatio, "bulkRatio");
+        this.bulkRatio = bulkRatio;
+    }
+
+    /**
+     * Sets the number of containers on board each container ship, and the largest capacity of
+     * the ships. Container ships have a capacity chosen uniformly between cargoPerShip and
+     * maxCapacity.
+     *
+     * @param cargoPerShip number of containers on board each container ship
+     * @param maxCapacity  largest container capacity of a ship
+     * @throws IllegalArgumentException if cargoPerShip &lt; 0 or maxCapacity &lt;
+     *                                  max(cargoPerShip, 1)
+     */
+    public void setContainerShips(int cargoPerShip, int maxCapacity)
+            throws IllegalArgumentException {
+        requireNonNegative(cargoPerShip, "cargoPerShip");
+        if (maxCapacity < Math.max(cargoPerShip, 1)) {
+            throw new IllegalArgumentException("maxCapacity must be at least cargoPerShip: "
+                    + maxCapacity);
+        }
+        this.cargoPerShip = cargoPerShip;
+        this.maxContainerCapacity = maxCapacity;
+    }
+
+    /**
+     * Sets the largest tonnage capacity of a bulk carrier. This is also the largest tonnage of
+     * any generated bulk cargo.
+     *
+     * @param maxCapacity largest tonnage capacity of a bulk carrier
+     * @throws IllegalArgumentException if maxCapacity &lt; 1
+     */
+    public void setMaxBulkCapacity(int maxCapacity) throws IllegalArgumentException {
+        if (maxCapacity < 1) {
+            throw new IllegalArgumentException("maxCapacity must be at least 1: "
+                    + maxCapacity);
+        }
+        this.maxBulkCapacity = maxCapacity;
+    }
+
+    /**
+     * Sets the fraction of the free cargo that is stored at the port at the start.
+     *
+     * @param storedCargoFraction fraction between 0 and 1
+     * @throws IllegalArgumentException if storedCargoFraction is not between 0 and 1
+     */
+    public void setStoredCargoFraction(double storedCargoFraction)
+            throws IllegalArgumentException {
+        requireFraction(storedCargoFraction, "storedCargoFraction");
+        this.storedCargoFraction = storedCargoFraction;
+    }
+
+    /**
+     * Sets the shape of the generated cargo movements.
+     *
+     * @param inboundRatio        fraction of cargo movements that are INBOUND
+     * @param maxCargoPerMovement largest number of pieces of cargo in one movement
+     * @throws IllegalArgumentException if inboundRatio is not between 0 and 1 or
+     *                                  maxCargoPerMovement &lt; 1
+     */
+    public void setCargoMovements(double inboundRatio, int maxCargoPerMovement)
+            throws IllegalArgumentException {
+        requireFraction(inboundRatio, "inboundRatio");
+        if (maxCargoPerMovement < 1) {
+            throw new IllegalArgumentException("maxCargoPerMovement must be at least 1: "
+                    + maxCargoPerMovement);
+        }
+        this.inboundCargoRatio = inboundRatio;
+        this.maxCargoPerMovement = maxCargoPerMovement;
+    }
+
+    /**
+     * Sets the distribution of the nautical flags of ships.
+     *
+     * @param flags distribution of flags
+     * @throws IllegalArgumentException if the distribution is empty
+     */
+    public void setFlags(WeightedChoice<NauticalFlag> flags) throws IllegalArgumentException {
+        this.flags = requireNonEmpty(flags, "flags");
+    }
+
+    /**
+     * Sets the distribution of the origin countries of ships.
+     *
+     * @param origins distribution of countries
+     * @throws IllegalArgumentException if the distribution is empty
+     */
+    public void setOrigins(WeightedChoice<String> origins) throws IllegalArgumentException {
+        this.origins = requireNonEmpty(origins, "origins");
+    }
+
+    /**
+     * Sets the distribution of the destinations of free cargo.
+     *
+     * @param destinations distribution of countries
+     * @throws IllegalArgumentException if the distribution is empty
+     */
+    public void setDestinations(WeightedChoice<String> destinations)
+            throws IllegalArgumentException {
+        this.destinations = requireNonEmpty(destinations, "destinations");
+    }
+
+    /**
+     * Sets the distribution of the types of containers.
+     *
+     * @param containerTypes distribution of container types
+     * @throws IllegalArgumentException if the distribution is empty
+     */
+    public void setContainerTypes(WeightedChoice<ContainerType> containerTypes)
+            throws IllegalArgumentException {
+        this.containerTypes = requireNonEmpty(containerTypes, "containerTypes");
+    }
+
+    /**
+     * Sets the distribution of the types of bulk cargo.
+     *
+     * @param bulkCargoTypes distribution of bulk cargo types
+     * @throws IllegalArgumentException if the distribution is empty
+     */
+    public void setBulkCargoTypes(WeightedChoice<BulkCargoType> bulkCargoTypes)
+            throws IllegalArgumentException {
+        this.bulkCargoTypes = requireNonEmpty(bulkCargoTypes, "bulkCargoTypes");
+    }
+
+    /**
+     * Sets the statistics evaluators added to the port.
+     *
+     * @param evaluators simple class names of the evaluators
+     */
+    public void setEvaluators(List<String> evaluators) {
+        this.evaluators = new ArrayList<>(evaluators);
+    }
+
+    /**
+     * Generates a port with the current settings and writes it to the given writer. The
+     * writer is not closed.
+     *
+     * @param writer writer to write the encoded port to
+     * @throws IOException if an IOException is encountered when writing
+     */
+    public void generate(Writer writer) throws IOException {
+        String newline = System.lineSeparator();
+        int onboardCargo = (int) Math.min(cargoCount, (long) shipCount * cargoPerShip);
+        int freeCargo = cargoCount - onboardCargo;
+        int queued = Math.min(queuedShips, shipCount);
+        int storedCargo = (int) (freeCargo * storedCargoFraction);
+        int shipMovements = 2 * shipCount - queued;
+        int cargoMovements = freeCargo == 0 ? 0 : Math.max(0, movementCount - shipMovements);
+        StringBuilder line = new StringBuilder();
+
+        writer.write(portName + newline);
+        writer.write("0" + newline);
+
+        writer.write(cargoCount + newline);
+        ShipSpec owner = null;
+        for (int id = 0; id < cargoCount; id++) {
+            line.setLength(0);
+            SplittableRandom random = random(CARGO_STREAM, id);
+            if (id < onboardCargo && (owner == null || owner.index != id / cargoPerShip)) {
+                owner = ship(id / cargoPerShip);
+            }
+            if (id < onboardCargo && !owner.bulk) {
+                line.append("Container:").append(id).append(':').append(owner.origin)
+                        .append(':').append(containerTypes.sample(random));
+            } else if (id < onboardCargo && id % cargoPerShip == 0) {
+                line.append("BulkCargo:").append(id).append(':').append(owner.origin)
+                        .append(':').append(bulkCargoTypes.sample(random)).append(':')
+                        .append(random.nextInt(owner.capacity + 1));
+            } else if (random.nextDouble() < bulkRatio) {
+                line.append("BulkCargo:").append(id).append(':')
+                        .append(destinations.sample(random)).append(':')
+                        .append(bulkCargoTypes.sample(random)).append(':')
+                        .append(random.nextInt(1, maxBulkCapacity + 1));
+            } else {
+                line.append("Container:").append(id).append(':')
+                        .append(destinations.sample(random)).append(':')
+                        .append(containerTypes.sample(random));
+            }
+            writer.append(line.append(newline));
+        }
+
+        writer.write(shipCount + newline);
+        for (int index = 0; index < shipCount; index++) {
+            ShipSpec ship = ship(index);
+            long firstCargo = (long) index * cargoPerShip;
+            int carried = (int) Math.max(0, Math.min(cargoPerShip, cargoCount - firstCargo));
+            line.setLength(0);
+            line.append(ship.bulk ? "BulkCarrier:" : "ContainerShip:")
+                    .append(FIRST_IMO_NUMBER + index).append(':').append(ship.name).append(':')
+                    .append(ship.origin).append(':').append(ship.flag).append(':')
+                    .append(ship.capacity).append(':');
+            if (ship.bulk) {
+                if (carried > 0) {
+                    line.append(firstCargo);
+                }
+            } else {
+                line.append(carried).append(':');
+                for (int i = 0; i < carried; i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    line.append(firstCargo + i);
+                }
+            }
+            writer.append(line.append(newline));
+        }
+
+        writer.write(quayCount + newline);
+        for (int id = 0; id < quayCount; id++) {
+            if (random(QUAY_STREAM, id).nextDouble() < bulkRatio) {
+                writer.write("BulkQuay:" + id + ":None:" + maxBulkCapacity + newline);
+            } else {
+                writer.write("ContainerQuay:" + id + ":None:" + maxContainerCapacity + newline);
+            }
+        }
+
+        writer.write("ShipQueue:" + queued + ":");
+        for (int index = 0; index < queued; index++) {
+            writer.write((index > 0 ? "," : "") + (FIRST_IMO_NUMBER + index));
+        }
+        writer.write(newline);
+
+        writer.write("StoredCargo:" + storedCargo + ":");
+        for (int i = 0; i < storedCargo; i++) {
+            writer.write((i > 0 ? "," : "") + (onboardCargo + i));
+        }
+        writer.write(newline);
+
+        writer.write("Movements:" + ((long) shipMovements + cargoMovements) + newline);
+        int arrivals = shipCount - queued;
+        long bursts = (arrivals + burstSize - 1) / burstSize;
+        double clock = 0;
+        for (int index = 0; index < shipCount; index++) {
+            SplittableRandom random = random(SHIP_MOVEMENT_STREAM, index);
+            long imoNumber = FIRST_IMO_NUMBER + index;
+            long arrival = 0;
+            if (index >= queued) {
+                int arrivalIndex = index - queued;
+                switch (arrivalPattern) {
+                    case UNIFORM:
+                        arrival = random.nextLong(1, horizon + 1);
+                        break;
+                    case POISSON:
+                        clock -= Math.log(1 - random.nextDouble()) * horizon / arrivals;
+                        arrival = 1 + (long) clock;
+                        break;
+                    default:
+                        arrival = 1 + arrivalIndex / burstSize * horizon / bursts;
+                        break;
+                }
+                writer.write("ShipMovement:" + arrival + ":INBOUND:" + imoNumber + newline);
+            }
+            long departure = arrival + Math.max(1, random.nextLong(minDwell, maxDwell + 1));
+            writer.write("ShipMovement:" + departure + ":OUTBOUND:" + imoNumber + newline);
+        }
+        for (int index = 0; index < cargoMovements; index++) {
+            SplittableRandom random = random(CARGO_MOVEMENT_STREAM, index);
+            int size = random.nextInt(1, Math.min(maxCargoPerMovement, freeCargo) + 1);
+            int start = random.nextInt(freeCargo);
+            line.setLength(0);
+            line.append("CargoMovement:").append(random.nextLong(1, horizon + 1)).append(':')
+                    .append(random.nextDouble() < inboundCargoRatio ? "INBOUND" : "OUTBOUND")
+                    .append(':').append(size).append(':');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(onboardCargo + (start + i) % freeCargo);
+            }
+            writer.append(line.append(newline));
+        }
+
+        writer.write("Evaluators:" + evaluators.size() + ":" + String.join(",", evaluators));
+        writer.flush();
+    }
+
+    /* Returns the randomly chosen attributes of the ship with the given index */
+    private ShipSpec ship(int index) {
+        SplittableRandom random = random(SHIP_STREAM, index);
+        ShipSpec ship = new ShipSpec();
+        ship.index = index;
+        ship.bulk = random.nextDouble() < bulkRatio;
+        ship.name = SHIP_NAMES[random.nextInt(SHIP_NAMES.length)] + " " + index;
+        ship.origin = origins.sample(random);
+        ship.flag = flags.sample(random);
+        ship.capacity = ship.bulk ? random.nextInt(1, maxBulkCapacity + 1)
+                : random.nextInt(Math.max(cargoPerShip, 1), maxContainerCapacity + 1);
+        return ship;
+    }
+
+    /* Returns a random number generator for the given entity, independent of all others */
+    private SplittableRandom random(long stream, long index) {
+        long z = seed + stream * 0x9E3779B97F4A7C15L + index * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    /* Throws an IllegalArgumentException if the value is negative */
+    private static void requireNonNegative(long value, String name)
+            throws IllegalArgumentException {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative: " + value);
+        }
+    }
+
+    /* Throws an IllegalArgumentException if the value is not between 0 and 1 */
+    private static void requireFraction(double value, String name)
+            throws IllegalArgumentException {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1: " + value);
+        }
+    }
+
+    /* Throws an IllegalArgumentException if the distribution is empty */
+    private static <T> WeightedChoice<T> requireNonEmpty(WeightedChoice<T> choice, String name)
+            throws IllegalArgumentException {
+        if (choice.size() == 0) {
+            throw new IllegalArgumentException(name + " must not be empty");
+        }
+        return choice;
+    }
+
+    /**
+     * The attributes of a generated ship.
+     */
+    private static class ShipSpec {
+        /**
+         * Index of the ship
+         */
+        private int index;
+
+        /**
+         * Whether the ship is a bulk carrier
+         */
+        private boolean bulk;
+
+        /**
+         * Name of the ship
+         */
+        private String name;
+
+        /**
+         * Country of origin of the ship
+         */
+        private String origin;
+
+        /**
+         * Nautical flag of the ship
+         */
+        private NauticalFlag flag;
+
+        /**
+         * Tonnage or container capacity of the ship
+         */
+        private int capacity;
+    }
+}
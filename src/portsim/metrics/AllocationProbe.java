@@ -0,0 +1,328 @@
+package portsim.metrics;
+
+import portsim.evaluators.StatisticsEvaluator;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Tick probe that measures the bytes allocated by the simulation thread during each tick and
+ * attributes them to the {@link TickPhase}s of the tick.
+ * <p>
+ * Allocation is read from the JVM's per-thread allocation counter, which is exact and does not
+ * itself allocate. Only the thread running the simulation is measured: evaluators running on
+ * their own threads with asynchronous evaluators enabled are not included. Bytes allocated
+ * during a tick but outside any phase are reported as the tick's unattributed bytes.
+ * <p>
+ * If a registry is given, the following counters are also maintained:
+ * <ul>
+ *     <li>{@code alloc.tick} - bytes allocated by all ticks</li>
+ *     <li>{@code alloc.phase.<phase>} - bytes allocated in each {@link TickPhase}</li>
+ * </ul>
+ */
+public class AllocationProbe implements TickProbe {
+    /**
+     * Number of tick phases
+     */
+    private static final int PHASES = TickPhase.values().length;
+
+    /**
+     * Source of the simulation thread's allocation counter
+     */
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Counter of bytes allocated by all ticks, or null if there is no registry
+     */
+    private final Counter tickCounter;
+
+    /**
+     * Counters of bytes allocated in each phase, or null if there is no registry
+     */
+    private final Counter[] phaseCounters;
+
+    /**
+     * Bytes allocated in each phase over all ticks, indexed by phase ordinal
+     */
+    private final long[] phaseTotals = new long[PHASES];
+
+    /**
+     * Most bytes allocated in each phase by a single tick, indexed by phase ordinal
+     */
+    private final long[] phaseMaxima = new long[PHASES];
+
+    /**
+     * Bytes allocated in each phase of the last tick, indexed by phase ordinal
+     */
+    private final long[] lastPhase = new long[PHASES];
+
+    /**
+     * Allocation counter at the start of the current phase
+     */
+    private long phaseStart;
+
+    /**
+     * Allocation counter at the start of the current tick
+     */
+    private long tickStart;
+
+    /**
+     * Bytes allocated by all ticks
+     */
+    private long total;
+
+    /**
+     * Most bytes allocated by a single tick
+     */
+    private long maximum;
+
+    /**
+     * Bytes allocated by the last tick
+     */
+    private long last;
+
+    /**
+     * Bytes allocated by the last tick outside any phase
+     */
+    private long lastUnattributed;
+
+    /**
+     * Number of ticks measured
+     */
+    private long ticks;
+
+    /**
+     * Creates a probe that keeps its measurements to itself.
+     *
+     * @throws UnsupportedOperationException if the JVM cannot measure thread allocation
+     */
+    public AllocationProbe() throws UnsupportedOperationException {
+        this(null);
+    }
+
+    /**
+     * Creates a probe that also records its measurements into the given registry.
+     *
+     * @param registry registry to record into, or null to keep the measurements to this probe
+     * @throws UnsupportedOperationException if the JVM cannot measure thread allocation
+     */
+    public AllocationProbe(MetricsRegistry registry) throws UnsupportedOperationException {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(
+                    "thread allocation measurement is not supported by this JVM");
+        }
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        if (registry == null) {
+            this.tickCounter = null;
+            this.phaseCounters = null;
+        } else {
+            this.tickCounter = registry.counter("alloc.tick");
+            this.phaseCounters = new Counter[PHASES];
+            for (TickPhase phase : TickPhase.values()) {
+                phaseCounters[phase.ordinal()] =
+                        registry.counter("alloc.phase." + phase.name().toLowerCase());
+            }
+        }
+    }
+
+    /**
+     * Returns true if the running JVM can measure the bytes allocated by a thread.
+     *
+     * @return true if allocation can be measured
+     */
+    public static boolean isSupported() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .isThreadAllocatedMemorySupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tickStarted(long time) {
+        for (int i = 0; i < PHASES; i++) {
+            lastPhase[i] = 0;
+        }
+        tickStart = threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseStarted(TickPhase phase) {
+        phaseStart = threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseEnded(TickPhase phase) {
+        long bytes = threads.getCurrentThreadAllocatedBytes() - phaseStart;
+        int index = phase.ordinal();
+        lastPhase[index] = bytes;
+        phaseTotals[index] += bytes;
+        phaseMaxima[index] = Math.max(phaseMaxima[index], bytes);
+        if (phaseCounters != null) {
+            phaseCounters[index].add(bytes);
+        }
+    }
+
+    /**
+     * Does nothing: evaluator allocation is counted in the {@link TickPhase#EVALUATORS} and
+     * {@link TickPhase#MOVEMENTS} phases of the thread that calls the evaluator.
+     *
+     * @param evaluator evaluator that was called
+     * @param tick      true if elapseOneMinute() was called, false if onProcessMovement()
+     *                  was called
+     * @param nanos     time taken by the evaluator in nanoseconds
+     */
+    @Override
+    public void evaluatorCalled(StatisticsEvaluator evaluator, boolean tick, long nanos) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tickEnded(long time, int movementsDispatched, int queueDepth, int yardSize) {
+        long bytes = threads.getCurrentThreadAllocatedBytes() - tickStart;
+        long attributed = 0;
+        for (int i = 0; i < PHASES; i++) {
+            attributed += lastPhase[i];
+        }
+        last = bytes;
+        lastUnattributed = Math.max(0, bytes - attributed);
+        total += bytes;
+        maximum = Math.max(maximum, bytes);
+        ticks++;
+        if (tickCounter != null) {
+            tickCounter.add(bytes);
+        }
+    }
+
+    /**
+     * Returns the number of ticks measured.
+     *
+     * @return number of ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the bytes allocated by all ticks measured.
+     *
+     * @return bytes allocated
+     */
+    public long getTotalBytes() {
+        return total;
+    }
+
+    /**
+     * Returns the bytes allocated in the given phase over all ticks measured.
+     *
+     * @param phase phase to return
+     * @return bytes allocated in the phase
+     */
+    public long getTotalBytes(TickPhase phase) {
+        return phaseTotals[phase.ordinal()];
+    }
+
+    /**
+     * Returns the mean number of bytes allocated per tick.
+     *
+     * @return mean bytes per tick, or 0 if no ticks have been measured
+     */
+    public double getMeanTickBytes() {
+        return ticks == 0 ? 0 : (double) total / ticks;
+    }
+
+    /**
+     * Returns the most bytes allocated by a single tick.
+     *
+     * @return maximum bytes per tick
+     */
+    public long getMaxTickBytes() {
+        return maximum;
+    }
+
+    /**
+     * Returns the most bytes allocated in the given phase by a single tick.
+     *
+     * @param phase phase to return
+     * @return maximum bytes allocated in the phase
+     */
+    public long getMaxTickBytes(TickPhase phase) {
+        return phaseMaxima[phase.ordinal()];
+    }
+
+    /**
+     * Returns the bytes allocated by the last tick measured.
+     *
+     * @return bytes allocated by the last tick
+     */
+    public long getLastTickBytes() {
+        return last;
+    }
+
+    /**
+     * Returns the bytes allocated in the given phase of the last tick measured. This is 0 if
+     * the phase did not run during that tick.
+     *
+     * @param phase phase to return
+     * @return bytes allocated in the phase
+     */
+    public long getLastTickBytes(TickPhase phase) {
+        return lastPhase[phase.ordinal()];
+    }
+
+    /**
+     * Returns the bytes allocated by the last tick outside any of its phases.
+     *
+     * @return unattributed bytes of the last tick
+     */
+    public long getLastUnattributedBytes() {
+        return lastUnattributed;
+    }
+
+    /**
+     * Discards all measurements taken so far.
+     */
+    public void reset() {
+        for (int i = 0; i < PHASES; i++) {
+            phaseTotals[i] = 0;
+            phaseMaxima[i] = 0;
+            lastPhase[i] = 0;
+        }
+        total = 0;
+        maximum = 0;
+        last = 0;
+        lastUnattributed = 0;
+        ticks = 0;
+    }
+
+    /**
+     * Returns a multi-line summary of the bytes allocated per tick by each phase.
+     *
+     * @return allocation summary
+     */
+    public String describe() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Allocation over %d tick(s): %.1f bytes/tick mean, "
+                + "%d bytes/tick max", ticks, getMeanTickBytes(), maximum));
+        for (TickPhase phase : TickPhase.values()) {
+            int index = phase.ordinal();
+            builder.append(System.lineSeparator()).append(String.format(
+                    "  %-10s %14d bytes total %12.1f bytes/tick mean %10d bytes/tick max",
+                    phase.name().toLowerCase(), phaseTotals[index],
+                    ticks == 0 ? 0 : (double) phaseTotals[index] / ticks,
+                    phaseMaxima[index]));
+        }
+        return builder.toString();
+    }
+}
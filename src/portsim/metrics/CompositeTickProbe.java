@@ -0,0 +1,75 @@
+package portsim.metrics;
+
+import portsim.evaluators.StatisticsEvaluator;
+
+/**
+ * Tick probe that forwards every callback to several other probes, in order.
+ * <p>
+ * A port notifies a single probe, so this is used to attach, for example, both a
+ * {@link PortInstrumentation} and a {@link PortMonitor} to the same port.
+ */
+public class CompositeTickProbe implements TickProbe {
+    /**
+     * The probes callbacks are forwarded to
+     */
+    private final TickProbe[] probes;
+
+    /**
+     * Creates a probe forwarding to the given probes.
+     *
+     * @param probes probes to forward callbacks to
+     */
+    public CompositeTickProbe(TickProbe... probes) {
+        this.probes = probes.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tickStarted(long time) {
+        for (TickProbe probe : probes) {
+            probe.tickStarted(time);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseStarted(TickPhase phase) {
+        for (TickProbe probe : probes) {
+            probe.phaseStarted(phase);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseEnded(TickPhase phase) {
+        for (TickProbe probe : probes) {
+            probe.phaseEnded(phase);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evaluatorCalled(StatisticsEvaluator evaluator, boolean tick, long nanos) {
+        for (TickProbe probe : probes) {
+            probe.evaluatorCalled(evaluator, tick, nanos);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tickEnded(long time, int movementsDispatched, int queueDepth, int yardSize) {
+        for (TickProbe probe : probes) {
+            probe.tickEnded(time, movementsDispatched, queueDepth, yardSize);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package portsim.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count, such as the number of movements dispatched by the port.
+ * <p>
+ * Counters may be incremented concurrently from any thread.
+ */
+public class Counter {
+    /**
+     * The current count
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Increments this counter by one.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Increments this counter by the given amount.
+     *
+     * @param amount amount to add to the count
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     *
+     * @return count
+     */
+    public long get() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the human-readable string representation of this counter.
+     *
+     * @return the current count
+     */
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
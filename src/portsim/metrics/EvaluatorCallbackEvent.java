@@ -0,0 +1,35 @@
+package portsim.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a single call into a statistics evaluator.
+ */
+@Name("portsim.EvaluatorCallback")
+@Label("Evaluator Callback")
+@Category("Port Simulation")
+@Description("A movement or tick delivered to a statistics evaluator")
+public class EvaluatorCallbackEvent extends jdk.jfr.Event {
+    /**
+     * Simple class name of the evaluator
+     */
+    @Label("Evaluator")
+    String evaluator;
+
+    /**
+     * Name of the evaluator method that was called
+     */
+    @Label("Callback")
+    String callback;
+
+    /**
+     * Time taken by the evaluator
+     */
+    @Label("Callback Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long callbackTime;
+}
@@ -0,0 +1,41 @@
+package portsim.metrics;
+
+/**
+ * A value sampled at a point in time, such as the number of ships waiting in the queue.
+ * <p>
+ * Gauges are set by a single writer and may be read from any thread.
+ */
+public class Gauge {
+    /**
+     * The most recently recorded value
+     */
+    private volatile long value;
+
+    /**
+     * Records the current value of this gauge.
+     *
+     * @param value new value
+     */
+    public void set(long value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the most recently recorded value.
+     *
+     * @return gauge value
+     */
+    public long get() {
+        return value;
+    }
+
+    /**
+     * Returns the human-readable string representation of this gauge.
+     *
+     * @return the current value
+     */
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
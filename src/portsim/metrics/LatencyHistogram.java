@@ -0,0 +1,140 @@
+package portsim.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations in nanoseconds.
+ * <p>
+ * Durations are counted in power of two buckets, so recording a value is a handful of atomic
+ * increments and never allocates. Percentiles are reported as the upper bound of the bucket
+ * they fall in, which is accurate to within a factor of two.
+ */
+public class LatencyHistogram {
+    /**
+     * Number of buckets, one for each possible bit length of a duration
+     */
+    private static final int BUCKETS = 64;
+
+    /**
+     * Number of recorded durations in each bucket
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Number of recorded durations
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Sum of all recorded durations
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Largest recorded duration
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos duration in nanoseconds, negative durations are recorded as zero
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(Math.max(0, BUCKETS - 1 - Long.numberOfLeadingZeros(nanos)));
+        count.increment();
+        total.add(nanos);
+        if (nanos > max.get()) {
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return number of durations
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of all recorded durations.
+     *
+     * @return total duration in nanoseconds
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the largest recorded duration.
+     *
+     * @return maximum duration in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations, or 0 if nothing has been recorded.
+     *
+     * @return mean duration in nanoseconds
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getTotal() / n;
+    }
+
+    /**
+     * Returns an upper bound for the given percentile of the recorded durations.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return duration in nanoseconds that the given percentage of recordings do not exceed,
+     *         or 0 if nothing has been recorded
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     */
+    public long getPercentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100: "
+                    + percentile);
+        }
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            counts[index] = buckets.get(index);
+            n += counts[index];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += counts[index];
+            if (seen >= rank && seen > 0) {
+                return Math.min(index == BUCKETS - 1 ? Long.MAX_VALUE : (1L << index + 1) - 1,
+                        getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns the human-readable string representation of this histogram.
+     * <p>
+     * For example: <pre>count=1200 mean=5321ns p50=8191ns p99=65535ns max=70213ns</pre>
+     *
+     * @return summary of the recorded durations
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.0fns p50=%dns p99=%dns max=%dns", getCount(),
+                getMean(), getPercentile(50), getPercentile(99), getMax());
+    }
+}
@@ -0,0 +1,117 @@
+package portsim.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-process collection of named counters, gauges and latency histograms.
+ * <p>
+ * Metrics are created on first use and the same instance is returned for every later lookup of
+ * the same name, so callers on hot paths should look a metric up once and keep a reference to
+ * it.
+ */
+public class MetricsRegistry {
+    /**
+     * Counters registered by name
+     */
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Gauges registered by name
+     */
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Histograms registered by name
+     */
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter with the given name, creating it if it does not exist.
+     *
+     * @param name name of the counter
+     * @return counter registered under name
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Returns the gauge with the given name, creating it if it does not exist.
+     *
+     * @param name name of the gauge
+     * @return gauge registered under name
+     */
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, n -> new Gauge());
+    }
+
+    /**
+     * Returns the latency histogram with the given name, creating it if it does not exist.
+     *
+     * @param name name of the histogram
+     * @return histogram registered under name
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns all counters in this registry, sorted by name. Adding or removing elements from
+     * the returned map should not affect the registry.
+     *
+     * @return counters by name
+     */
+    public Map<String, Counter> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * Returns all gauges in this registry, sorted by name. Adding or removing elements from
+     * the returned map should not affect the registry.
+     *
+     * @return gauges by name
+     */
+    public Map<String, Gauge> getGauges() {
+        return new TreeMap<>(gauges);
+    }
+
+    /**
+     * Returns all latency histograms in this registry, sorted by name. Adding or removing
+     * elements from the returned map should not affect the registry.
+     *
+     * @return histograms by name
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    /**
+     * Returns a human-readable report of every metric in this registry, one metric per line
+     * separated by {@link System#lineSeparator()}.
+     * <p>
+     * For example:
+     * <pre>
+     * movements.dispatched = 42
+     * queue.depth = 3
+     * tick.duration = count=1200 mean=5321ns p50=8191ns p99=65535ns max=70213ns
+     * </pre>
+     *
+     * @return report of all metrics
+     */
+    public String report() {
+        Map<String, Object> all = new TreeMap<>();
+        all.putAll(counters);
+        all.putAll(gauges);
+        all.putAll(histograms);
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Object> metric : all.entrySet()) {
+            if (report.length() > 0) {
+                report.append(System.lineSeparator());
+            }
+            report.append(metric.getKey()).append(" = ").append(metric.getValue());
+        }
+        return report.toString();
+    }
+}
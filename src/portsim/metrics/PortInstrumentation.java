@@ -0,0 +1,203 @@
+package portsim.metrics;
+
+import portsim.evaluators.StatisticsEvaluator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tick probe that records the time spent in each phase of a port tick into a
+ * {@link MetricsRegistry} and emits the matching Flight Recorder events.
+ * <p>
+ * The following metrics are maintained:
+ * <ul>
+ *     <li>{@code tick.duration} - histogram of the time taken by each tick</li>
+ *     <li>{@code tick.phase.<phase>} - histogram of the time taken by each {@link TickPhase}
+ *     </li>
+ *     <li>{@code tick.count} - counter of ticks</li>
+ *     <li>{@code movements.dispatched} - counter of movements processed</li>
+ *     <li>{@code queue.depth} - gauge of the ships waiting in the ship queue</li>
+ *     <li>{@code yard.size} - gauge of the cargo stored at the port</li>
+ *     <li>{@code evaluator.<EvaluatorSimpleName>} - histogram of the time taken by each call
+ *     into the evaluator</li>
+ * </ul>
+ */
+public class PortInstrumentation implements TickProbe {
+    /**
+     * Registry the metrics are recorded into
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * Histogram of tick durations
+     */
+    private final LatencyHistogram tickDuration;
+
+    /**
+     * Histogram of phase durations, indexed by phase ordinal
+     */
+    private final LatencyHistogram[] phaseDurations;
+
+    /**
+     * Counter of ticks
+     */
+    private final Counter ticks;
+
+    /**
+     * Counter of movements processed
+     */
+    private final Counter movementsDispatched;
+
+    /**
+     * Gauge of ships in the ship queue
+     */
+    private final Gauge queueDepth;
+
+    /**
+     * Gauge of cargo stored at the port
+     */
+    private final Gauge yardSize;
+
+    /**
+     * Histograms of evaluator callback durations, by evaluator class
+     */
+    private final Map<Class<?>, LatencyHistogram> evaluatorDurations = new ConcurrentHashMap<>();
+
+    /**
+     * Start time of the current tick
+     */
+    private long tickStart;
+
+    /**
+     * Start times of the phases of the current tick, indexed by phase ordinal
+     */
+    private final long[] phaseStarts = new long[TickPhase.values().length];
+
+    /**
+     * Flight Recorder event for the current tick
+     */
+    private TickEvent tickEvent;
+
+    /**
+     * Flight Recorder events for the phases of the current tick, indexed by phase ordinal
+     */
+    private final TickPhaseEvent[] phaseEvents = new TickPhaseEvent[TickPhase.values().length];
+
+    /**
+     * The port's time during the current tick
+     */
+    private long time;
+
+    /**
+     * Creates a new probe recording into the given registry.
+     *
+     * @param registry registry to record metrics into
+     */
+    public PortInstrumentation(MetricsRegistry registry) {
+        this.registry = registry;
+        this.tickDuration = registry.histogram("tick.duration");
+        this.phaseDurations = new LatencyHistogram[TickPhase.values().length];
+        for (TickPhase phase : TickPhase.values()) {
+            phaseDurations[phase.ordinal()] =
+                    registry.histogram("tick.phase." + phase.name().toLowerCase());
+        }
+        this.ticks = registry.counter("tick.count");
+        this.movementsDispatched = registry.counter("movements.dispatched");
+        this.queueDepth = registry.gauge("queue.depth");
+        this.yardSize = registry.gauge("yard.size");
+    }
+
+    /**
+     * Returns the registry this probe records into.
+     *
+     * @return metrics registry
+     */
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tickStarted(long time) {
+        this.time = time;
+        TickEvent event = new TickEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            tickEvent = event;
+        }
+        tickStart = System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseStarted(TickPhase phase) {
+        TickPhaseEvent event = new TickPhaseEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            phaseEvents[phase.ordinal()] = event;
+        }
+        phaseStarts[phase.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseEnded(TickPhase phase) {
+        phaseDurations[phase.ordinal()].record(System.nanoTime() - phaseStarts[phase.ordinal()]);
+        TickPhaseEvent event = phaseEvents[phase.ordinal()];
+        if (event != null) {
+            phaseEvents[phase.ordinal()] = null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.simulationTime = time;
+                event.phase = phase.name();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evaluatorCalled(StatisticsEvaluator evaluator, boolean tick, long nanos) {
+        evaluatorDurations.computeIfAbsent(evaluator.getClass(), c ->
+                registry.histogram("evaluator." + c.getSimpleName())).record(nanos);
+        EvaluatorCallbackEvent event = new EvaluatorCallbackEvent();
+        if (event.shouldCommit()) {
+            event.evaluator = evaluator.getClass().getSimpleName();
+            event.callback = tick ? "elapseOneMinute" : "onProcessMovement";
+            event.callbackTime = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tickEnded(long time, int movementsDispatched, int queueDepth, int yardSize) {
+        tickDuration.record(System.nanoTime() - tickStart);
+        ticks.increment();
+        this.movementsDispatched.add(movementsDispatched);
+        this.queueDepth.set(queueDepth);
+        this.yardSize.set(yardSize);
+        TickEvent event = tickEvent;
+        if (event != null) {
+            tickEvent = null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.simulationTime = time;
+                event.movementsDispatched = movementsDispatched;
+                event.queueDepth = queueDepth;
+                event.yardSize = yardSize;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package portsim.metrics;
+
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.port.Port;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Publishes live gauges of a port as a platform MBean.
+ * <p>
+ * The monitor is attached to a port as its tick probe (see
+ * {@link Port#setTickProbe(TickProbe)}, combined with other probes through
+ * {@link CompositeTickProbe} if needed). Every {@code publishInterval} ticks it takes a
+ * {@link PortSnapshot} on the simulation thread and publishes it through a volatile reference.
+ * JMX clients only ever read the published snapshot, so polling from JConsole never takes a
+ * lock held by the simulation or touches the port itself.
+ * <p>
+ * By default, snapshots do not wait for the port's asynchronous evaluators, so monitoring
+ * does not hold the simulation back; their evaluator outputs may then lag behind the port
+ * (see {@link PortSnapshot#PortSnapshot(Port, double, PortSnapshot)}). Waiting can be turned
+ * on with {@link #setAwaitEvaluators(boolean)}.
+ */
+public class PortMonitor implements PortMonitorMXBean, TickProbe {
+    /**
+     * The port being monitored
+     */
+    private final Port port;
+
+    /**
+     * Number of ticks between snapshots
+     */
+    private final int publishInterval;
+
+    /**
+     * Registry of engine metrics to expose, or null
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * The most recently published snapshot
+     */
+    private volatile PortSnapshot snapshot;
+
+    /**
+     * Name this monitor is registered under, or null if not registered
+     */
+    private ObjectName objectName;
+
+    /**
+     * Whether snapshots wait for the port's asynchronous evaluators
+     */
+    private boolean awaitEvaluators = false;
+
+    /**
+     * Ticks since the last snapshot was published
+     */
+    private int ticksSincePublish = 0;
+
+    /**
+     * Wall clock time of the last snapshot, in nanoseconds
+     */
+    private long lastPublishNanos;
+
+    /**
+     * Creates a monitor publishing a snapshot of the given port after every tick.
+     *
+     * @param port port to monitor
+     */
+    public PortMonitor(Port port) {
+        this(port, 1, null);
+    }
+
+    /**
+     * Creates a monitor publishing a snapshot of the given port every publishInterval ticks,
+     * and exposing the engine metrics in the given registry.
+     * <p>
+     * An initial snapshot is published immediately, so this should be called on the thread
+     * running the simulation.
+     *
+     * @param port            port to monitor
+     * @param publishInterval number of ticks between snapshots
+     * @param registry        engine metrics to expose, or null
+     * @throws IllegalArgumentException if publishInterval &lt; 1
+     */
+    public PortMonitor(Port port, int publishInterval, MetricsRegistry registry)
+            throws IllegalArgumentException {
+        if (publishInterval < 1) {
+            throw new IllegalArgumentException("publishInterval must be at least 1: "
+                    + publishInterval);
+        }
+        this.port = port;
+        this.publishInterval = publishInterval;
+        this.registry = registry;
+        this.lastPublishNanos = System.nanoTime();
+        this.snapshot = new PortSnapshot(port, 0, null);
+    }
+
+    /**
+     * Sets whether snapshots wait for the port's asynchronous evaluators to catch up with the
+     * port, so that their evaluator outputs are never out of date. This makes the simulation
+     * thread wait for the evaluators every time a snapshot is published. Off by default.
+     *
+     * @param awaitEvaluators whether snapshots wait for the evaluators
+     */
+    public void setAwaitEvaluators(boolean awaitEvaluators) {
+        this.awaitEvaluators = awaitEvaluators;
+    }
+
+    /**
+     * Returns whether snapshots wait for the port's asynchronous evaluators.
+     *
+     * @return true if snapshots wait for the evaluators
+     */
+    public boolean isAwaitEvaluators() {
+        return awaitEvaluators;
+    }
+
+    /**
+     * Registers this monitor with the platform MBean server under the name
+     * {@code portsim:type=Port,name=<port name>}.
+     *
+     * @return name the monitor was registered under
+     * @throws JMException if the monitor could not be registered
+     */
+    public ObjectName register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("portsim:type=Port,name="
+                + ObjectName.quote(port.getName()));
+        server.registerMBean(this, name);
+        objectName = name;
+        return name;
+    }
+
+    /**
+     * Removes this monitor from the platform MBean server. Does nothing if the monitor is not
+     * registered.
+     *
+     * @throws JMException if the monitor could not be unregistered
+     */
+    public void unregister() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Takes a snapshot of the port and publishes it immediately. This must be called on the
+     * thread running the simulation.
+     */
+    public void publish() {
+        long now = System.nanoTime();
+        double elapsed = (now - lastPublishNanos) / 1e9;
+        double rate = elapsed > 0 ? ticksSincePublish / elapsed : 0;
+        snapshot = awaitEvaluators ? new PortSnapshot(port, rate)
+                : new PortSnapshot(port, rate, snapshot);
+        ticksSincePublish = 0;
+        lastPublishNanos = now;
+    }
+
+    /**
+     * Returns the most recently published snapshot.
+     *
+     * @return port snapshot
+     */
+    public PortSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tickStarted(long time) {}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseStarted(TickPhase phase) {}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseEnded(TickPhase phase) {}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evaluatorCalled(StatisticsEvaluator evaluator, boolean tick, long nanos) {}
+
+    /**
+     * Publishes a new snapshot if publishInterval ticks have passed since the last one.
+     *
+     * @param time                the port's time
+     * @param movementsDispatched number of movements processed during the tick
+     * @param queueDepth          number of ships waiting in the ship queue
+     * @param yardSize            number of pieces of cargo stored at the port
+     */
+    @Override
+    public void tickEnded(long time, int movementsDispatched, int queueDepth, int yardSize) {
+        if (++ticksSincePublish >= publishInterval) {
+            publish();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPortName() {
+        return snapshot.getPortName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTime() {
+        return snapshot.getTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> getShipQueueSizeByFlag() {
+        return snapshot.getShipQueueSizeByFlag();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getShipQueueSize() {
+        return snapshot.getShipQueueSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOccupiedQuays() {
+        return snapshot.getOccupiedQuays();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQuayCount() {
+        return snapshot.getQuayCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> getStoredCargoByType() {
+        return snapshot.getStoredCargoByType();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStoredCargo() {
+        return snapshot.getStoredCargo();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPendingMovements() {
+        return snapshot.getPendingMovements();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTicksPerSecond() {
+        return snapshot.getTicksPerSecond();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getEvaluatorOutputs() {
+        return snapshot.getEvaluatorOutputs();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getEngineMetrics() {
+        if (registry == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> metrics = new TreeMap<>();
+        registry.getCounters().forEach((name, counter) -> metrics.put(name, counter.toString()));
+        registry.getGauges().forEach((name, gauge) -> metrics.put(name, gauge.toString()));
+        registry.getHistograms().forEach((name, histogram) ->
+                metrics.put(name, histogram.toString()));
+        return metrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSnapshotTimestamp() {
+        return snapshot.getTimestamp();
+    }
+}
@@ -0,0 +1,105 @@
+package portsim.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface publishing live gauges of a port through JMX.
+ * <p>
+ * Every attribute is read from the most recently published {@link PortSnapshot}, so reading
+ * an attribute never blocks or slows down the thread running the simulation.
+ */
+public interface PortMonitorMXBean {
+    /**
+     * Returns the name of the monitored port.
+     *
+     * @return port name
+     */
+    String getPortName();
+
+    /**
+     * Returns the port's time, in minutes since the simulation started.
+     *
+     * @return simulation time
+     */
+    long getTime();
+
+    /**
+     * Returns the number of ships waiting in the ship queue for each nautical flag.
+     *
+     * @return queue size by flag name
+     */
+    Map<String, Integer> getShipQueueSizeByFlag();
+
+    /**
+     * Returns the number of ships waiting in the ship queue.
+     *
+     * @return queue size
+     */
+    int getShipQueueSize();
+
+    /**
+     * Returns the number of quays that have a ship docked.
+     *
+     * @return occupied quays
+     */
+    int getOccupiedQuays();
+
+    /**
+     * Returns the number of quays at the port.
+     *
+     * @return quays
+     */
+    int getQuayCount();
+
+    /**
+     * Returns the number of pieces of cargo stored at the port for each cargo type, keyed as
+     * {@code CargoClass.TYPE}, for example {@code Container.REEFER} or {@code BulkCargo.OIL}.
+     *
+     * @return stored cargo count by type
+     */
+    Map<String, Integer> getStoredCargoByType();
+
+    /**
+     * Returns the number of pieces of cargo stored at the port.
+     *
+     * @return stored cargo count
+     */
+    int getStoredCargo();
+
+    /**
+     * Returns the number of movements waiting to be processed.
+     *
+     * @return pending movements
+     */
+    int getPendingMovements();
+
+    /**
+     * Returns the rate at which the simulation advanced between the two most recent
+     * snapshots.
+     *
+     * @return simulated minutes per second of wall clock time
+     */
+    double getTicksPerSecond();
+
+    /**
+     * Returns the output of each statistics evaluator at the port, keyed by the evaluator's
+     * simple class name.
+     *
+     * @return evaluator outputs
+     */
+    Map<String, String> getEvaluatorOutputs();
+
+    /**
+     * Returns the metrics recorded by the engine's instrumentation, if any.
+     *
+     * @return metric values by name, empty if no metrics registry is attached
+     */
+    Map<String, String> getEngineMetrics();
+
+    /**
+     * Returns the wall clock time at which the current snapshot was published.
+     *
+     * @return milliseconds since the epoch
+     */
+    long getSnapshotTimestamp();
+}
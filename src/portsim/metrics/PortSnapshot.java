@@ -0,0 +1,295 @@
+package portsim.metrics;
+
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.EvaluatorReport;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.port.CargoYard;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable copy of the observable state of a port at one point in time.
+ * <p>
+ * Snapshots are taken on the thread running the simulation and may then be read from any
+ * thread without synchronisation.
+ * <p>
+ * When the port's evaluators are asynchronous (see {@link Port#enableAsyncEvaluators(int)}),
+ * a snapshot can either wait for them to catch up with the port, or take their outputs
+ * without waiting if they already have and otherwise keep the outputs of an earlier snapshot.
+ */
+public final class PortSnapshot {
+    /**
+     * Name of the port
+     */
+    private final String portName;
+
+    /**
+     * The port's time
+     */
+    private final long time;
+
+    /**
+     * Number of ships in the ship queue by nautical flag
+     */
+    private final Map<String, Integer> shipQueueSizeByFlag;
+
+    /**
+     * Number of ships in the ship queue
+     */
+    private final int shipQueueSize;
+
+    /**
+     * Number of quays with a ship docked
+     */
+    private final int occupiedQuays;
+
+    /**
+     * Number of quays at the port
+     */
+    private final int quayCount;
+
+    /**
+     * Number of pieces of stored cargo by cargo type
+     */
+    private final Map<String, Integer> storedCargoByType;
+
+    /**
+     * Number of pieces of stored cargo
+     */
+    private final int storedCargo;
+
+    /**
+     * Number of movements waiting to be processed
+     */
+    private final int pendingMovements;
+
+    /**
+     * Simulated minutes per second since the previous snapshot
+     */
+    private final double ticksPerSecond;
+
+    /**
+     * Evaluator output by evaluator simple name
+     */
+    private final Map<String, String> evaluatorOutputs;
+
+    /**
+     * Wall clock time the snapshot was taken at
+     */
+    private final long timestamp;
+
+    /**
+     * Takes a snapshot of the given port, waiting for its evaluators to catch up with the port
+     * (see {@link Port#awaitEvaluators()}). This must be called on the thread running the
+     * simulation.
+     *
+     * @param port           port to take a snapshot of
+     * @param ticksPerSecond current simulation rate to record in the snapshot
+     */
+    public PortSnapshot(Port port, double ticksPerSecond) {
+        this(port, ticksPerSecond, null, true);
+    }
+
+    /**
+     * Takes a snapshot of the given port without waiting for its evaluators. The evaluator
+     * outputs are read from the evaluators if they have caught up with the port (see
+     * {@link Port#isEvaluatorsIdle()}), and are otherwise those of the previous snapshot, or
+     * empty if there is none. This must be called on the thread running the simulation.
+     *
+     * @param port           port to take a snapshot of
+     * @param ticksPerSecond current simulation rate to record in the snapshot
+     * @param previous       earlier snapshot of the port, or null
+     */
+    public PortSnapshot(Port port, double ticksPerSecond, PortSnapshot previous) {
+        this(port, ticksPerSecond, previous, false);
+    }
+
+    /**
+     * Takes a snapshot of the given port, optionally waiting for its evaluators.
+     *
+     * @param port           port to take a snapshot of
+     * @param ticksPerSecond current simulation rate to record in the snapshot
+     * @param previous       earlier snapshot of the port, or null
+     * @param await          whether to wait for the evaluators to catch up with the port
+     */
+    private PortSnapshot(Port port, double ticksPerSecond, PortSnapshot previous,
+                         boolean await) {
+        this.portName = port.getName();
+        this.time = port.getTime();
+        this.ticksPerSecond = ticksPerSecond;
+        this.timestamp = System.currentTimeMillis();
+
+        Map<String, Integer> byFlag = new LinkedHashMap<>();
+        for (NauticalFlag flag : NauticalFlag.values()) {
+            byFlag.put(flag.name(), 0);
+        }
+        int queued = 0;
+        for (Ship ship : port.getShipQueue().getShipQueueView()) {
+            byFlag.merge(ship.getFlag().name(), 1, Integer::sum);
+            queued++;
+        }
+        this.shipQueueSizeByFlag = Collections.unmodifiableMap(byFlag);
+        this.shipQueueSize = queued;
+
+        int occupied = 0;
+        int quays = 0;
+        for (Quay quay : port.getQuaysView()) {
+            if (!quay.isEmpty()) {
+                occupied++;
+            }
+            quays++;
+        }
+        this.occupiedQuays = occupied;
+        this.quayCount = quays;
+
+        Map<String, Integer> byType = new TreeMap<>();
+        CargoYard yard = port.getYard();
+        for (ContainerType type : ContainerType.values()) {
+            if (yard.getContainerCount(type) > 0) {
+                byType.put("Container." + type, yard.getContainerCount(type));
+            }
+        }
+        for (BulkCargoType type : BulkCargoType.values()) {
+            if (yard.getBulkCargoCount(type) > 0) {
+                byType.put("BulkCargo." + type, yard.getBulkCargoCount(type));
+            }
+        }
+        int stored = yard.size();
+        this.storedCargoByType = Collections.unmodifiableMap(byType);
+        this.storedCargo = stored;
+
+        this.pendingMovements = port.getPendingMovementCount();
+
+        if (await) {
+            port.awaitEvaluators();
+        }
+        if (port.isEvaluatorsIdle()) {
+            Map<String, String> outputs = new LinkedHashMap<>();
+            for (StatisticsEvaluator evaluator : port.getEvaluators()) {
+                outputs.put(evaluator.getClass().getSimpleName(),
+                        EvaluatorReport.describe(evaluator));
+            }
+            this.evaluatorOutputs = Collections.unmodifiableMap(outputs);
+        } else {
+            this.evaluatorOutputs = previous == null ? Collections.emptyMap()
+                    : previous.evaluatorOutputs;
+        }
+    }
+
+    /**
+     * Returns the name of the port.
+     *
+     * @return port name
+     */
+    public String getPortName() {
+        return portName;
+    }
+
+    /**
+     * Returns the port's time when the snapshot was taken.
+     *
+     * @return simulation time
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the number of ships waiting in the ship queue for each nautical flag.
+     *
+     * @return queue size by flag name
+     */
+    public Map<String, Integer> getShipQueueSizeByFlag() {
+        return shipQueueSizeByFlag;
+    }
+
+    /**
+     * Returns the number of ships waiting in the ship queue.
+     *
+     * @return queue size
+     */
+    public int getShipQueueSize() {
+        return shipQueueSize;
+    }
+
+    /**
+     * Returns the number of quays that have a ship docked.
+     *
+     * @return occupied quays
+     */
+    public int getOccupiedQuays() {
+        return occupiedQuays;
+    }
+
+    /**
+     * Returns the number of quays at the port.
+     *
+     * @return quays
+     */
+    public int getQuayCount() {
+        return quayCount;
+    }
+
+    /**
+     * Returns the number of pieces of stored cargo for each cargo type.
+     *
+     * @return stored cargo count by type
+     */
+    public Map<String, Integer> getStoredCargoByType() {
+        return storedCargoByType;
+    }
+
+    /**
+     * Returns the number of pieces of cargo stored at the port.
+     *
+     * @return stored cargo count
+     */
+    public int getStoredCargo() {
+        return storedCargo;
+    }
+
+    /**
+     * Returns the number of movements waiting to be processed.
+     *
+     * @return pending movements
+     */
+    public int getPendingMovements() {
+        return pendingMovements;
+    }
+
+    /**
+     * Returns the simulation rate recorded in this snapshot.
+     *
+     * @return simulated minutes per second
+     */
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * Returns the output of each statistics evaluator at the port. If the snapshot did not
+     * wait for asynchronous evaluators, these may be the outputs of an earlier snapshot.
+     *
+     * @return evaluator outputs by evaluator simple name
+     */
+    public Map<String, String> getEvaluatorOutputs() {
+        return evaluatorOutputs;
+    }
+
+    /**
+     * Returns the wall clock time at which this snapshot was taken.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,39 @@
+package portsim.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one call to {@link portsim.port.Port#elapseOneMinute()}.
+ */
+@Name("portsim.Tick")
+@Label("Port Tick")
+@Category("Port Simulation")
+@Description("One simulated minute of a port")
+public class TickEvent extends jdk.jfr.Event {
+    /**
+     * The port's time after the tick
+     */
+    @Label("Simulation Time")
+    long simulationTime;
+
+    /**
+     * Number of movements processed during the tick
+     */
+    @Label("Movements Dispatched")
+    int movementsDispatched;
+
+    /**
+     * Number of ships waiting in the ship queue at the end of the tick
+     */
+    @Label("Queue Depth")
+    int queueDepth;
+
+    /**
+     * Number of pieces of cargo stored at the port at the end of the tick
+     */
+    @Label("Yard Size")
+    int yardSize;
+}
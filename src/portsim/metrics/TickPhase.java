@@ -0,0 +1,26 @@
+package portsim.metrics;
+
+/**
+ * The phases of a single call to {@link portsim.port.Port#elapseOneMinute()}.
+ */
+public enum TickPhase {
+    /**
+     * Bringing the next ship from the ship queue to an empty quay.
+     */
+    DOCKING,
+
+    /**
+     * Unloading the cargo of docked ships into the port's warehouses.
+     */
+    UNLOADING,
+
+    /**
+     * Processing the movements whose action time is the current time.
+     */
+    MOVEMENTS,
+
+    /**
+     * Advancing the statistics evaluators by one minute.
+     */
+    EVALUATORS
+}
@@ -0,0 +1,27 @@
+package portsim.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one {@link TickPhase} of a port tick.
+ */
+@Name("portsim.TickPhase")
+@Label("Port Tick Phase")
+@Category("Port Simulation")
+@Description("One phase of a simulated minute of a port")
+public class TickPhaseEvent extends jdk.jfr.Event {
+    /**
+     * The port's time during the tick
+     */
+    @Label("Simulation Time")
+    long simulationTime;
+
+    /**
+     * Name of the phase
+     */
+    @Label("Phase")
+    String phase;
+}
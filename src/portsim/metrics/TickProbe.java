@@ -0,0 +1,56 @@
+package portsim.metrics;
+
+import portsim.evaluators.StatisticsEvaluator;
+
+/**
+ * Receives timing callbacks from a port as it advances the simulation.
+ * <p>
+ * A port without a probe skips all of these callbacks, so instrumentation costs nothing unless
+ * a probe has been set with {@link portsim.port.Port#setTickProbe(TickProbe)}.
+ * <p>
+ * Apart from {@link #evaluatorCalled(StatisticsEvaluator, boolean, long)}, every method is
+ * called on the thread running the simulation.
+ */
+public interface TickProbe {
+    /**
+     * Called at the start of a tick, after the port's time has been advanced.
+     *
+     * @param time the port's new time
+     */
+    void tickStarted(long time);
+
+    /**
+     * Called when the port begins a phase of the current tick.
+     *
+     * @param phase phase being started
+     */
+    void phaseStarted(TickPhase phase);
+
+    /**
+     * Called when the port completes a phase of the current tick.
+     *
+     * @param phase phase that was completed
+     */
+    void phaseEnded(TickPhase phase);
+
+    /**
+     * Called after a statistics evaluator has been notified of a movement or tick. When
+     * asynchronous evaluators are enabled this is called from the evaluator's own thread.
+     *
+     * @param evaluator evaluator that was called
+     * @param tick      true if elapseOneMinute() was called, false if onProcessMovement()
+     *                  was called
+     * @param nanos     time taken by the evaluator in nanoseconds
+     */
+    void evaluatorCalled(StatisticsEvaluator evaluator, boolean tick, long nanos);
+
+    /**
+     * Called at the end of a tick.
+     *
+     * @param time                the port's time
+     * @param movementsDispatched number of movements processed during the tick
+     * @param queueDepth          number of ships waiting in the ship queue
+     * @param yardSize            number of pieces of cargo stored at the port
+     */
+    void tickEnded(long time, int movementsDispatched, int queueDepth, int yardSize);
+}
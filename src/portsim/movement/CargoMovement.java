@@ -16,6 +16,11 @@ public class CargoMovement extends Movement {
      */
     private List<Cargo> cargo;
 
+    /**
+     * Read-only view of the cargo, shared by every caller of {@link #getCargoView()}
+     */
+    private List<Cargo> cargoView;
+
     /**
      * Creates a new cargo movement with the given action time and direction to be undertaken
      * with the given cargo.
@@ -30,6 +35,7 @@ public class CargoMovement extends Movement {
                          List<Cargo> cargo) throws IllegalArgumentException {
         super(time, direction);
         this.cargo = cargo;
+        this.cargoView = Collections.unmodifiableList(cargo);
     }
 
     /**
@@ -44,6 +50,31 @@ public class CargoMovement extends Movement {
         return new ArrayList<>(cargo);
     }
 
+    /**
+     * Returns a read-only view of the cargo that will be moved.
+     * <p>
+     * Unlike {@link #getCargo()}, no copy is made. The view throws
+     * UnsupportedOperationException if modified.
+     *
+     * @return read-only view of all cargo in the movement
+     */
+    public List<Cargo> getCargoView() {
+        return cargoView;
+    }
+
+    /**
+     * Returns a cargo movement of the same cargo in the same direction, to occur at the given
+     * time.
+     *
+     * @param time the time the returned movement should occur
+     * @return copy of this movement at the given time
+     * @throws IllegalArgumentException if time &lt; 0
+     */
+    @Override
+    public CargoMovement withTime(long time) throws IllegalArgumentException {
+        return new CargoMovement(time, getDirection(), cargo);
+    }
+
     /**
      * Returns the human-readable string representation of this CargoMovement.
      * <p>
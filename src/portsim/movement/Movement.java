@@ -10,12 +10,12 @@ public abstract class Movement {
     /**
      * The time in minutes that the movement should be completed
      */
-    private long time;
+    private final long time;
 
     /**
      * The direction of the movement in relation to the port
      */
-    private MovementDirection direction;
+    private final MovementDirection direction;
 
     /**
      * Creates a new movement with the given action time and direction.
@@ -44,6 +44,17 @@ public abstract class Movement {
         return time;
     }
 
+    /**
+     * Returns a movement of the same kind and direction as this one, moving the same ships or
+     * cargo, to occur at the given time. A movement never changes once created, so a
+     * {@link MovementQueue} moving a movement to a new time holds the returned copy instead.
+     *
+     * @param time the time the returned movement should occur
+     * @return copy of this movement at the given time
+     * @throws IllegalArgumentException if time &lt; 0
+     */
+    public abstract Movement withTime(long time) throws IllegalArgumentException;
+
     /**
      * Returns the direction of the movement.
      *
@@ -0,0 +1,113 @@
+package portsim.movement;
+
+/**
+ * A stable reference to a movement added to a {@link MovementQueue}, used to cancel or
+ * reschedule the movement while it is waiting to be processed.
+ * <p>
+ * A handle stays valid for as long as its movement is in the queue, however the queue is
+ * reordered around it. Once the movement leaves the queue, by being polled, removed or
+ * cancelled, the handle is no longer pending and cancelling or rescheduling it has no effect.
+ */
+public final class MovementHandle {
+    /**
+     * The queue the movement was added to
+     */
+    final MovementQueue queue;
+
+    /**
+     * The movement, replaced by a copy at the new time whenever the movement is rescheduled
+     */
+    Movement movement;
+
+    /**
+     * Position of the handle in the queue's heap, or -1 if the movement has left the queue
+     */
+    int index = -1;
+
+    /**
+     * Order in which the movement was added to or last rescheduled in the queue, used to
+     * order movements with the same time
+     */
+    long sequence;
+
+    /**
+     * The queue's list of movements with the same time and direction as this one
+     */
+    MovementQueue.Bucket bucket;
+
+    /**
+     * The queue's list of movements with the same time and ship as this one, or null if the
+     * movement is not a ship movement
+     */
+    MovementQueue.Bucket shipBucket;
+
+    /**
+     * Previous handle in the queue's list of movements with the same time and direction
+     */
+    MovementHandle previous;
+
+    /**
+     * Next handle in the queue's list of movements with the same time and direction
+     */
+    MovementHandle next;
+
+    /**
+     * Previous handle in the queue's list of movements with the same time and ship
+     */
+    MovementHandle previousForShip;
+
+    /**
+     * Next handle in the queue's list of movements with the same time and ship
+     */
+    MovementHandle nextForShip;
+
+    /**
+     * The handle that took over this one's movement in its queue, or null if none has. A
+     * handle shared with forks of its queue is never changed, so a queue that reschedules its
+     * movement, or stops sharing it, moves the movement to a new handle instead.
+     */
+    MovementHandle forward;
+
+    /**
+     * Creates a handle for a movement added to the given queue.
+     *
+     * @param queue    queue the movement is added to
+     * @param movement movement
+     * @param sequence order in which the movement was added
+     */
+    MovementHandle(MovementQueue queue, Movement movement, long sequence) {
+        this.queue = queue;
+        this.movement = movement;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns the movement this handle refers to. Rescheduling the movement replaces it with
+     * a copy at the new time, which this method returns from then on.
+     *
+     * @return movement
+     */
+    public Movement getMovement() {
+        return movement;
+    }
+
+    /**
+     * Returns true if the movement is still waiting in its queue.
+     *
+     * @return true if the movement is pending
+     */
+    public boolean isPending() {
+        return queue.isPending(this);
+    }
+
+    /**
+     * Returns the human-readable string representation of this handle, that of its movement
+     * followed by "(pending)" if it is still waiting in its queue.
+     *
+     * @return string representation of this handle
+     */
+    @Override
+    public String toString() {
+        return movement + (isPending() ? " (pending)" : "");
+    }
+}
@@ -0,0 +1,1651 @@
+package portsim.movement;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import portsim.ship.Ship;
+
+/**
+ * A queue of movements waiting to be processed, ordered by the time of each movement (see
+ * {@link Movement#getTime()}). Movements with the same time leave the queue in the order they
+ * were added.
+ * <p>
+ * Every movement added with {@link #schedule(Movement)} is given a {@link MovementHandle}
+ * that records where it sits in the queue, so the movement can later be cancelled or moved to
+ * a different time without searching for it. The queue is a binary heap that keeps each
+ * handle's position up to date as it is reordered, so adding, polling, cancelling and
+ * rescheduling all take O(log n) time.
+ * <p>
+ * The queue also keeps its movements in lists of movements with the same time, indexed by
+ * time for each direction and for each ship. These answer questions such as "which ships
+ * arrive in the next six hours" in O(log n + k) time for k matching movements, without
+ * copying or sorting the queue (see {@link #between(long, long)},
+ * {@link #between(long, long, MovementDirection)} and {@link #forShip(long, long, long)}).
+ * <p>
+ * The queue can be marked with {@link #mark()} and later reset to the mark with
+ * {@link #reset(Mark)}. From its first mark the queue keeps a log of the movements added,
+ * removed and rescheduled, and resets by undoing them, so marking takes constant time and
+ * resetting takes time proportional to the changes undone.
+ * <p>
+ * A queue can be forked with {@link #fork(UnaryOperator)}. The movements queued when a queue
+ * is first forked are then shared, unchanged, by the queue and its forks, and each of them
+ * keeps only the movements added to it and the shared movements removed from it since.
+ * Polling, cancelling and rescheduling still take O(log n) time, and once every shared
+ * movement has left a queue it stops sharing them.
+ */
+public class MovementQueue extends AbstractQueue<Movement> {
+    /**
+     * Initial number of handles the heap can hold
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Handles of the queued movements, as a binary heap ordered by time then sequence
+     */
+    private MovementHandle[] heap;
+
+    /**
+     * Number of movements in the queue
+     */
+    private int size;
+
+    /**
+     * Sequence number given to the next movement added or rescheduled
+     */
+    private long nextSequence;
+
+    /**
+     * Number of structural changes made to the queue, used to detect concurrent modification
+     */
+    private int modCount;
+
+    /**
+     * Lists of queued movements with the same time, by direction then time, excluding any
+     * shared movements
+     */
+    private Map<MovementDirection, TreeMap<Long, Bucket>> byTime;
+
+    /**
+     * Lists of queued ship movements with the same time, by ship IMO number then time,
+     * excluding any shared movements
+     */
+    private Map<Long, TreeMap<Long, Bucket>> byShip;
+
+    /**
+     * The movements shared with forks of the queue and the queue's view of them, or null if
+     * the queue shares no movements
+     */
+    private Sharing sharing;
+
+    /**
+     * Changes made to the queue since its first mark, or null if it keeps no history
+     */
+    private History history;
+
+    /**
+     * The queued movements with one time, in the order they were added or rescheduled
+     */
+    static final class Bucket {
+        /**
+         * The time of the movements, the list's key in its map
+         */
+        private final Long time;
+
+        /**
+         * The map holding the list
+         */
+        private final TreeMap<Long, Bucket> owner;
+
+        /**
+         * First handle in the list
+         */
+        private MovementHandle first;
+
+        /**
+         * Last handle in the list
+         */
+        private MovementHandle last;
+
+        /**
+         * Creates an empty list for the given time in the given map.
+         *
+         * @param time  time of the movements
+         * @param owner map holding the list
+         */
+        private Bucket(Long time, TreeMap<Long, Bucket> owner) {
+            this.time = time;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * The movements of a queue when it was first forked, shared by the queue and its forks.
+     * Neither the structures nor the handles in them are changed once shared, other than the
+     * {@link MovementHandle#forward} of a handle by the queue that issued it.
+     */
+    private static final class Shared {
+        /**
+         * Handles of the shared movements, as a binary heap ordered by time then sequence
+         */
+        private final MovementHandle[] heap;
+
+        /**
+         * Number of shared movements
+         */
+        private final int size;
+
+        /**
+         * Lists of shared movements with the same time, by direction then time
+         */
+        private final Map<MovementDirection, TreeMap<Long, Bucket>> byTime;
+
+        /**
+         * Lists of shared ship movements with the same time, by ship IMO number then time
+         */
+        private final Map<Long, TreeMap<Long, Bucket>> byShip;
+
+        /**
+         * Creates the shared movements from the structures of a queue.
+         *
+         * @param heap   handles of the movements, as a binary heap
+         * @param size   number of movements
+         * @param byTime lists of movements by direction then time
+         * @param byShip lists of ship movements by ship IMO number then time
+         */
+        private Shared(MovementHandle[] heap, int size,
+                       Map<MovementDirection, TreeMap<Long, Bucket>> byTime,
+                       Map<Long, TreeMap<Long, Bucket>> byShip) {
+            this.heap = heap;
+            this.size = size;
+            this.byTime = byTime;
+            this.byShip = byShip;
+        }
+    }
+
+    /**
+     * One queue's view of the movements it shares: which of them have left the queue, and the
+     * movement the queue holds in place of each.
+     */
+    private static final class Sharing {
+        /**
+         * The shared movements
+         */
+        private final Shared shared;
+
+        /**
+         * Handles of the shared movements that have left the queue
+         */
+        private final Set<MovementHandle> removed;
+
+        /**
+         * Shared handles, ordered by time then sequence, such that every shared handle still
+         * in the queue is one of them or below one of them in the shared heap
+         */
+        private final TreeSet<MovementHandle> front;
+
+        /**
+         * Function returning the movement the queue holds in place of a shared one, or null
+         * if it holds the shared movements themselves
+         */
+        private final UnaryOperator<Movement> replacement;
+
+        /**
+         * The movement the queue holds in place of each shared handle returned so far, or
+         * null if it holds the shared movements themselves
+         */
+        private final Map<MovementHandle, Movement> replaced;
+
+        /**
+         * Creates the view of the queue whose movements are shared, holding them itself.
+         *
+         * @param shared the shared movements, at least one
+         */
+        private Sharing(Shared shared) {
+            this.shared = shared;
+            this.removed = new HashSet<>();
+            this.front = new TreeSet<>(MovementQueue::compare);
+            this.front.add(shared.heap[0]);
+            this.replacement = null;
+            this.replaced = null;
+        }
+
+        /**
+         * Creates the view of a fork of a queue, starting from that queue's view.
+         *
+         * @param sharing     the view of the queue forked
+         * @param replacement function returning the movement the fork holds in place of a
+         *                    shared one
+         */
+        private Sharing(Sharing sharing, UnaryOperator<Movement> replacement) {
+            this.shared = sharing.shared;
+            this.removed = new HashSet<>(sharing.removed);
+            this.front = new TreeSet<>(sharing.front);
+            this.replacement = replacement;
+            this.replaced = new IdentityHashMap<>();
+        }
+
+        /**
+         * Returns the earliest shared handle still in the queue, dropping the handles that
+         * have left it from the front.
+         *
+         * @return earliest shared handle, or null if every one has left the queue
+         */
+        private MovementHandle first() {
+            while (!front.isEmpty()) {
+                MovementHandle first = front.first();
+                if (!removed.contains(first)) {
+                    return first;
+                }
+                front.pollFirst();
+                int child = 2 * first.index + 1;
+                if (child < shared.size) {
+                    front.add(shared.heap[child]);
+                }
+                if (child + 1 < shared.size) {
+                    front.add(shared.heap[child + 1]);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the movement the queue holds in place of the given shared handle's, making
+         * the replacement the first time it is asked for.
+         *
+         * @param handle shared handle
+         * @return movement held by the queue
+         */
+        private Movement movementOf(MovementHandle handle) {
+            if (replacement == null) {
+                return handle.movement;
+            }
+            Movement movement = replaced.get(handle);
+            if (movement == null) {
+                movement = replacement.apply(handle.movement);
+                replaced.put(handle, movement);
+            }
+            return movement;
+        }
+    }
+
+    /**
+     * Creates a new empty movement queue.
+     */
+    public MovementQueue() {
+        heap = new MovementHandle[INITIAL_CAPACITY];
+        byTime = newDirectionMaps();
+        byShip = new HashMap<>();
+    }
+
+    /* Returns a map holding an empty map of lists for each direction */
+    private static Map<MovementDirection, TreeMap<Long, Bucket>> newDirectionMaps() {
+        Map<MovementDirection, TreeMap<Long, Bucket>> maps =
+                new EnumMap<>(MovementDirection.class);
+        for (MovementDirection direction : MovementDirection.values()) {
+            maps.put(direction, new TreeMap<>());
+        }
+        return maps;
+    }
+
+    /**
+     * Adds a movement to the queue and returns a handle that can be used to cancel or
+     * reschedule it.
+     *
+     * @param movement movement to add
+     * @return handle for the queued movement
+     * @throws NullPointerException if the movement or its direction is null
+     */
+    public MovementHandle schedule(Movement movement) {
+        if (movement == null) {
+            throw new NullPointerException("movement");
+        }
+        if (movement.getDirection() == null) {
+            throw new NullPointerException("movement direction");
+        }
+        MovementHandle handle = new MovementHandle(this, movement, nextSequence++);
+        insert(handle);
+        return handle;
+    }
+
+    /* Adds a handle not yet in the queue to the heap and to the lists for its time. */
+    private void insert(MovementHandle handle) {
+        if (size == heap.length) {
+            MovementHandle[] grown = new MovementHandle[size * 2];
+            System.arraycopy(heap, 0, grown, 0, size);
+            heap = grown;
+        }
+        modCount++;
+        link(handle);
+        siftUp(size++, handle);
+        if (history != null) {
+            history.record(History.SCHEDULED, handle, 0, 0);
+        }
+    }
+
+    /**
+     * Removes the movement referred to by the given handle from the queue.
+     *
+     * @param handle handle of a movement added to this queue
+     * @return true if the movement was waiting in the queue and has been removed, false if it
+     *     had already left the queue
+     * @throws IllegalArgumentException if the handle was not issued by this queue
+     */
+    public boolean cancel(MovementHandle handle) throws IllegalArgumentException {
+        checkOwner(handle);
+        return removeHandle(resolve(handle));
+    }
+
+    /* Removes the movement of an own or shared handle, returning false if it has left */
+    private boolean removeHandle(MovementHandle handle) {
+        if (isOwn(handle)) {
+            removeAt(handle.index);
+        } else if (isShared(handle)) {
+            removeShared(handle);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Moves the movement referred to by the given handle to a new time, keeping the same
+     * handle. Movements are never changed, so the handle then refers to a copy of the
+     * movement at the new time (see {@link Movement#withTime(long)}), and any other queue
+     * holding the original movement is unaffected.
+     * <p>
+     * The movement is ordered after any movements already queued for the new time, as if it
+     * had just been added.
+     *
+     * @param handle  handle of a movement added to this queue
+     * @param newTime the new time the movement should occur
+     * @return true if the movement was waiting in the queue and has been rescheduled, false if
+     *     it had already left the queue
+     * @throws IllegalArgumentException if the handle was not issued by this queue or
+     *                                  newTime &lt; 0
+     */
+    public boolean reschedule(MovementHandle handle, long newTime)
+            throws IllegalArgumentException {
+        checkOwner(handle);
+        if (newTime < 0) {
+            throw new IllegalArgumentException("Time must be greater than"
+                    + " or equal to 0: " + newTime);
+        }
+        handle = resolve(handle);
+        if (isShared(handle)) {
+            // a shared handle must not change, so the movement moves to a handle of its own
+            Movement movement = sharing.movementOf(handle).withTime(newTime);
+            removeShared(handle);
+            MovementHandle own = new MovementHandle(this, movement, nextSequence++);
+            handle.forward = own;
+            if (history != null) {
+                history.record(History.FORWARDED, handle, 0, 0);
+            }
+            insert(own);
+            return true;
+        }
+        if (!isOwn(handle)) {
+            return false;
+        }
+        long oldTime = handle.movement.getTime();
+        if (history != null) {
+            history.rescheduled(handle);
+        }
+        unlink(handle);
+        handle.movement = handle.movement.withTime(newTime);
+        handle.sequence = nextSequence++;
+        link(handle);
+        modCount++;
+        // a later sequence can only move the handle down, so an equal time sifts down too
+        if (newTime < oldTime) {
+            siftUp(handle.index, handle);
+        } else {
+            siftDown(handle.index, handle);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a movement to the queue.
+     *
+     * @param movement movement to add
+     * @return true
+     * @throws NullPointerException if the movement or its direction is null
+     */
+    @Override
+    public boolean offer(Movement movement) {
+        schedule(movement);
+        return true;
+    }
+
+    /**
+     * Removes and returns the earliest movement in the queue.
+     *
+     * @return earliest movement, or null if the queue is empty
+     */
+    @Override
+    public Movement poll() {
+        MovementHandle first = first();
+        if (first == null) {
+            return null;
+        }
+        Movement movement = first.queue == this ? first.movement : sharing.movementOf(first);
+        if (size > 0 && heap[0] == first) {
+            removeAt(0);
+        } else {
+            removeShared(first);
+        }
+        return movement;
+    }
+
+    /**
+     * Returns the earliest movement in the queue without removing it.
+     *
+     * @return earliest movement, or null if the queue is empty
+     */
+    @Override
+    public Movement peek() {
+        MovementHandle first = first();
+        if (first == null) {
+            return null;
+        }
+        return first.queue == this ? first.movement : sharing.movementOf(first);
+    }
+
+    /**
+     * Returns the time of the earliest movement in the queue.
+     *
+     * @return time of the earliest movement, or Long.MAX_VALUE if the queue is empty
+     */
+    public long nextTime() {
+        MovementHandle first = first();
+        return first == null ? Long.MAX_VALUE : first.bucket.time;
+    }
+
+    /* Returns the handle of the earliest movement, own or shared, or null if there is none */
+    private MovementHandle first() {
+        MovementHandle own = size == 0 ? null : heap[0];
+        MovementHandle shared = sharing == null ? null : sharing.first();
+        return own == null || shared != null && compare(shared, own) < 0 ? shared : own;
+    }
+
+    /**
+     * Returns the number of movements in the queue.
+     *
+     * @return number of queued movements
+     */
+    @Override
+    public int size() {
+        return sharing == null ? size
+                : size + sharing.shared.size - sharing.removed.size();
+    }
+
+    /**
+     * Removes every movement from the queue. Handles of the removed movements are no longer
+     * pending.
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            MovementHandle handle = heap[i];
+            if (history != null) {
+                history.record(History.REMOVED, handle, 0, 0);
+                history.record(History.PLACED, handle, i, 0);
+            }
+            handle.index = -1;
+            handle.previous = handle.next = null;
+            handle.previousForShip = handle.nextForShip = null;
+            handle.bucket = handle.shipBucket = null;
+            heap[i] = null;
+        }
+        for (TreeMap<Long, Bucket> buckets : byTime.values()) {
+            buckets.clear();
+        }
+        byShip.clear();
+        size = 0;
+        if (sharing != null) {
+            stopSharing();
+        }
+        modCount++;
+    }
+
+    /**
+     * Returns a new queue holding the same movements in the same order. Movements with the
+     * same time leave the copy in the order they would have left this queue, and movements
+     * added to either queue later are ordered after every movement already in it.
+     * <p>
+     * The movements themselves are shared rather than copied. The copy gives out its own
+     * handles, so handles issued by this queue cannot be used with the copy. Unlike a fork
+     * (see {@link #fork(UnaryOperator)}), the copy shares none of the queue's structures.
+     * This takes O(n log n) time.
+     *
+     * @return copy of this queue
+     */
+    public MovementQueue copy() {
+        return copy(UnaryOperator.identity());
+    }
+
+    /**
+     * Returns a new queue holding, in place of each movement in this queue, the movement the
+     * given function returns for it, in the same order as {@link #copy()}. Each replacement
+     * must have the same time and direction as the movement it replaces, and for a ship
+     * movement a ship with the same IMO number. This takes O(n log n) time.
+     *
+     * @param replacement function returning the movement to hold in place of each movement
+     * @return copy of this queue holding the replacements
+     */
+    public MovementQueue copy(UnaryOperator<Movement> replacement) {
+        if (sharing == null) {
+            return copyOf(heap, size, replacement);
+        }
+        MovementHandle[] handles = new MovementHandle[size()];
+        System.arraycopy(heap, 0, handles, 0, size);
+        int count = size;
+        Shared shared = sharing.shared;
+        for (int i = 0; i < shared.size; i++) {
+            if (!sharing.removed.contains(shared.heap[i])) {
+                handles[count++] = shared.heap[i];
+            }
+        }
+        // the handles in the order they are processed form a binary heap
+        Arrays.sort(handles, MovementQueue::compare);
+        return copyOf(handles, count, replacement);
+    }
+
+    /* Returns a new queue holding replacements of the movements of a heap of handles */
+    private MovementQueue copyOf(MovementHandle[] handles, int count,
+                                 UnaryOperator<Movement> replacement) {
+        MovementQueue copy = new MovementQueue();
+        copy.heap = new MovementHandle[Math.max(handles.length, INITIAL_CAPACITY)];
+        MovementHandle[] bySequence = new MovementHandle[count];
+        for (int i = 0; i < count; i++) {
+            MovementHandle original = handles[i];
+            Movement movement = original.queue == this ? original.movement
+                    : sharing.movementOf(original);
+            MovementHandle handle = new MovementHandle(copy, replacement.apply(movement),
+                    original.sequence);
+            handle.index = i;
+            copy.heap[i] = handle;
+            bySequence[i] = handle;
+        }
+        copy.size = count;
+        copy.nextSequence = nextSequence;
+        // lists of movements with the same time are kept in the order they were added
+        Arrays.sort(bySequence, (a, b) -> Long.compare(a.sequence, b.sequence));
+        for (MovementHandle handle : bySequence) {
+            copy.link(handle);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a fork of this queue: a new queue holding, in place of each movement in this
+     * queue, the movement the given function returns for it, in the same order as
+     * {@link #copy()}. Each replacement must have the same direction as the movement it
+     * replaces, and for a ship movement a ship with the same IMO number. The fork never holds
+     * a movement of this queue: if the function returns the movement it is given, or one at
+     * a different time, the fork holds a copy of it at the time of the movement it replaces.
+     * <p>
+     * The movements queued when this queue is first forked are shared by it and its forks
+     * rather than copied, and the fork makes the replacement of a shared movement only when
+     * it first returns the movement, calling the function with the movement as first queued.
+     * Forking so takes time proportional to the movements added to this queue since it was
+     * first forked and to the shared movements that have left it, but not to the number
+     * queued. Once forked, this queue and the fork may be used on different threads, and the
+     * function is called on the thread using the fork. The fork gives out its own handles,
+     * and resetting this queue to a mark taken before it was first forked takes
+     * O(n log n) time, as the shared movements are then copied back.
+     *
+     * @param replacement function returning the movement to hold in place of each movement
+     * @return fork of this queue holding the replacements
+     */
+    public MovementQueue fork(UnaryOperator<Movement> replacement) {
+        if (sharing == null && size > 0) {
+            share();
+        }
+        UnaryOperator<Movement> copying = movement -> forkedMovement(replacement, movement);
+        MovementQueue fork = copyOf(heap, size, copying);
+        if (sharing != null) {
+            fork.sharing = new Sharing(sharing, copying);
+        }
+        return fork;
+    }
+
+    /*
+     * Returns the replacement of a movement for a fork, copied at the movement's time if it is
+     * the movement itself or occurs at another time.
+     */
+    private static Movement forkedMovement(UnaryOperator<Movement> replacement,
+                                           Movement movement) {
+        Movement forked = replacement.apply(movement);
+        if (forked == movement || forked.getTime() != movement.getTime()) {
+            forked = forked.withTime(movement.getTime());
+        }
+        return forked;
+    }
+
+    /* Moves every movement of the queue into the structures it shares with its forks */
+    private void share() {
+        sharing = new Sharing(new Shared(heap, size, byTime, byShip));
+        heap = new MovementHandle[INITIAL_CAPACITY];
+        size = 0;
+        byTime = newDirectionMaps();
+        byShip = new HashMap<>();
+        modCount++;
+        if (history != null) {
+            history.record(History.SHARED, null, 0, 0);
+        }
+    }
+
+    /*
+     * Moves every shared movement back into structures of the queue's own, in the same heap
+     * positions, undoing the queue's first fork. Each shared handle forwards to its copy.
+     */
+    private void unshare() {
+        Shared shared = sharing.shared;
+        sharing = null;
+        heap = new MovementHandle[shared.heap.length];
+        MovementHandle[] bySequence = new MovementHandle[shared.size];
+        for (int i = 0; i < shared.size; i++) {
+            MovementHandle handle = shared.heap[i];
+            MovementHandle copy = new MovementHandle(this, handle.movement, handle.sequence);
+            copy.index = i;
+            heap[i] = copy;
+            handle.forward = copy;
+            bySequence[i] = copy;
+        }
+        size = shared.size;
+        Arrays.sort(bySequence, (a, b) -> Long.compare(a.sequence, b.sequence));
+        for (MovementHandle handle : bySequence) {
+            link(handle);
+        }
+    }
+
+    /* Marks a shared handle as having left the queue, which stops sharing if it was the last */
+    private void removeShared(MovementHandle handle) {
+        sharing.removed.add(handle);
+        modCount++;
+        if (history != null) {
+            history.record(History.REMOVED_SHARED, handle, 0, 0);
+        }
+        if (sharing.removed.size() == sharing.shared.size) {
+            stopSharing();
+        }
+    }
+
+    /* Drops the queue's view of the shared movements, all of which have left the queue */
+    private void stopSharing() {
+        if (history != null) {
+            history.unshared(sharing);
+        }
+        sharing = null;
+    }
+
+    /* Returns the handle now holding the movement of a handle issued by this queue */
+    private static MovementHandle resolve(MovementHandle handle) {
+        while (handle != null && handle.forward != null) {
+            handle = handle.forward;
+        }
+        return handle;
+    }
+
+    /* Returns true if the handle is in the queue's own structures */
+    private boolean isOwn(MovementHandle handle) {
+        return handle.bucket != null
+                && handle.bucket.owner == byTime.get(handle.movement.getDirection());
+    }
+
+    /* Returns true if the handle is shared and its movement has not left the queue */
+    private boolean isShared(MovementHandle handle) {
+        return sharing != null && handle.bucket != null
+                && handle.bucket.owner == sharing.shared.byTime.get(
+                        handle.movement.getDirection())
+                && !sharing.removed.contains(handle);
+    }
+
+    /**
+     * Returns true if the movement of the given handle, issued by this queue, is still
+     * waiting in it.
+     *
+     * @param handle handle issued by this queue
+     * @return true if the movement is pending
+     */
+    boolean isPending(MovementHandle handle) {
+        MovementHandle current = resolve(handle);
+        return isOwn(current) || isShared(current);
+    }
+
+    /**
+     * Passes the ship of each ship movement in the queue to the given action, at least once
+     * for each ship. The ships of movements a fork shares (see {@link #fork(UnaryOperator)})
+     * are those of the movements as first queued, and may include ships whose shared
+     * movements have all left the queue. This takes time proportional to the number of ships
+     * rather than movements.
+     *
+     * @param action action to perform on each ship
+     */
+    public void forEachShip(Consumer<? super Ship> action) {
+        forEachShip(byShip, action);
+        if (sharing != null) {
+            forEachShip(sharing.shared.byShip, action);
+        }
+    }
+
+    /* Passes the ship of the first movement of each ship's lists to the action */
+    private static void forEachShip(Map<Long, TreeMap<Long, Bucket>> byShip,
+                                    Consumer<? super Ship> action) {
+        for (TreeMap<Long, Bucket> buckets : byShip.values()) {
+            if (!buckets.isEmpty()) {
+                action.accept(((ShipMovement) buckets.firstEntry().getValue().first.movement)
+                        .getShip());
+            }
+        }
+    }
+
+    /**
+     * Returns a mark of the queue's current movements, which the queue can later be reset to
+     * with {@link #reset(Mark)}. The first mark starts the history of the queue: from then on
+     * every movement added, removed or rescheduled is logged, and the handles and movements
+     * logged are kept, until the history is discarded. Marking takes constant time.
+     *
+     * @return mark of the current movements
+     */
+    public Mark mark() {
+        if (history == null) {
+            history = new History();
+        }
+        return new Mark(history, history.marks++, history.position(), nextSequence);
+    }
+
+    /**
+     * Resets the queue to hold the movements it held when the mark was taken, in the same
+     * order, by undoing the changes made since. The handles of those movements are pending
+     * again, the handle of each rescheduled movement refers to the movement it held before,
+     * and handles of movements added since are no longer pending. Marks taken after the
+     * given one can no longer be reset to. This takes O(k log n) time for k changes undone.
+     *
+     * @param mark mark taken of this queue
+     * @throws IllegalArgumentException if the mark was not taken of this queue's current
+     *                                  history, or has been discarded
+     */
+    public void reset(Mark mark) throws IllegalArgumentException {
+        checkMark(mark);
+        History kept = history;
+        history = null;
+        try {
+            for (long i = kept.position() - 1; i >= mark.position; i--) {
+                undo(kept, i);
+            }
+            nextSequence = mark.nextSequence;
+            modCount++;
+            kept.truncate(mark.position);
+        } finally {
+            history = kept;
+        }
+    }
+
+    /**
+     * Discards the history needed to reset the queue to marks taken before the given one.
+     *
+     * @param mark earliest mark that may still be reset to
+     * @throws IllegalArgumentException if the mark was not taken of this queue's current
+     *                                  history, or has been discarded
+     */
+    public void discardBefore(Mark mark) throws IllegalArgumentException {
+        checkMark(mark);
+        history.discarded = Math.max(history.discarded, mark.serial);
+        history.discardBefore(mark.position);
+    }
+
+    /**
+     * Stops keeping the history of the queue, so that no mark taken so far can be reset to.
+     */
+    public void discardHistory() {
+        history = null;
+    }
+
+    /* Throws an IllegalArgumentException if the queue cannot be reset to the mark */
+    private void checkMark(Mark mark) throws IllegalArgumentException {
+        if (mark.history != history || mark.serial < history.discarded
+                || mark.position > history.position()) {
+            throw new IllegalArgumentException("the queue can no longer be reset to the mark");
+        }
+    }
+
+    /*
+     * Undoes the change logged at the given position of the history. The heap positions
+     * changed are logged separately, so undoing them puts every handle back where it was.
+     */
+    private void undo(History kept, long position) {
+        int i = (int) (position - kept.offset);
+        MovementHandle handle = kept.handles[i];
+        switch (kept.kinds[i]) {
+            case History.SCHEDULED:
+                handle = resolve(handle);
+                unlink(handle);
+                handle.index = -1;
+                size--;
+                break;
+            case History.REMOVED:
+                link(resolve(handle));
+                size++;
+                break;
+            case History.RESCHEDULED:
+                handle = resolve(handle);
+                unlink(handle);
+                handle.movement = kept.rescheduled.remove(kept.rescheduled.size() - 1);
+                handle.sequence = kept.sequences[i];
+                link(handle);
+                break;
+            case History.SHARED:
+                unshare();
+                break;
+            case History.REMOVED_SHARED:
+                sharing.removed.remove(handle);
+                sharing.front.add(handle);
+                break;
+            case History.FORWARDED:
+                handle.forward = null;
+                break;
+            case History.UNSHARED:
+                sharing = kept.unshared.remove(kept.unshared.size() - 1);
+                break;
+            default:
+                handle = resolve(handle);
+                int index = (int) kept.values[i];
+                heap[index] = handle;
+                if (handle != null) {
+                    handle.index = index;
+                }
+                break;
+        }
+    }
+
+    /**
+     * Returns the queued movements whose time is within the given window, in the order they
+     * will be processed. The returned movements are a view of the queue rather than a copy:
+     * finding the first movement takes O(log n) time and each further movement O(1), and
+     * iterating after the queue has changed throws ConcurrentModificationException.
+     *
+     * @param from earliest time of the window, inclusive
+     * @param to   latest time of the window, inclusive
+     * @return movements from time {@code from} to time {@code to}
+     */
+    public Iterable<Movement> between(long from, long to) {
+        return () -> {
+            List<BucketIterator<Movement>> lists = new ArrayList<>();
+            for (MovementDirection direction : MovementDirection.values()) {
+                lists.add(new BucketIterator<>(window(byTime.get(direction), from, to), false,
+                        null));
+                if (sharing != null) {
+                    lists.add(new BucketIterator<>(window(sharing.shared.byTime.get(direction),
+                            from, to), false, sharing));
+                }
+            }
+            return new MergingIterator<>(lists);
+        };
+    }
+
+    /**
+     * Returns the queued movements in the given direction whose time is within the given
+     * window, in the order they will be processed. As with {@link #between(long, long)}, the
+     * movements are a view of the queue found in O(log n + k) time.
+     *
+     * @param from      earliest time of the window, inclusive
+     * @param to        latest time of the window, inclusive
+     * @param direction direction of the movements to return
+     * @return movements in the direction from time {@code from} to time {@code to}
+     */
+    public Iterable<Movement> between(long from, long to, MovementDirection direction) {
+        return () -> merge(window(byTime.get(direction), from, to),
+                sharing == null ? null : window(sharing.shared.byTime.get(direction), from, to),
+                false);
+    }
+
+    /**
+     * Returns the queued movements of the ship with the given IMO number whose time is within
+     * the given window, in the order they will be processed. As with
+     * {@link #between(long, long)}, the movements are a view of the queue found in
+     * O(log n + k) time.
+     *
+     * @param imoNumber IMO number of the ship
+     * @param from      earliest time of the window, inclusive
+     * @param to        latest time of the window, inclusive
+     * @return movements of the ship from time {@code from} to time {@code to}
+     */
+    public Iterable<ShipMovement> forShip(long imoNumber, long from, long to) {
+        return () -> merge(window(byShip.get(imoNumber), from, to),
+                sharing == null ? null : window(sharing.shared.byShip.get(imoNumber), from, to),
+                true);
+    }
+
+    /* Iterates over the own lists of a window, merged with the shared lists if there are any */
+    private <T extends Movement> Iterator<T> merge(NavigableMap<Long, Bucket> own,
+                                                   NavigableMap<Long, Bucket> shared,
+                                                   boolean forShip) {
+        BucketIterator<T> owned = new BucketIterator<>(own, forShip, null);
+        if (sharing == null) {
+            return owned;
+        }
+        List<BucketIterator<T>> lists = new ArrayList<>();
+        lists.add(owned);
+        lists.add(new BucketIterator<>(shared, forShip, sharing));
+        return new MergingIterator<>(lists);
+    }
+
+    /**
+     * Removes the given movement from the queue, if it is queued. The movement is found by
+     * identity, so this takes O(n) time; use {@link #cancel(MovementHandle)} where the
+     * movement's handle is known.
+     *
+     * @param o movement to remove
+     * @return true if the movement was removed
+     */
+    @Override
+    public boolean remove(Object o) {
+        MovementHandle handle = handleOf(o);
+        return handle != null && removeHandle(handle);
+    }
+
+    /**
+     * Returns true if the given movement is in the queue.
+     *
+     * @param o movement to look for
+     * @return true if the movement is queued
+     */
+    @Override
+    public boolean contains(Object o) {
+        return handleOf(o) != null;
+    }
+
+    /**
+     * Returns an iterator over the queued movements, in no particular order. The iterator
+     * supports removal.
+     *
+     * @return iterator over the queued movements
+     */
+    @Override
+    public Iterator<Movement> iterator() {
+        return new Iterator<>() {
+            /* next position of the heap to return */
+            private int cursor;
+
+            /* position of the last movement returned, or -1 if it may not be removed */
+            private int last = -1;
+
+            /* handles moved before the cursor by a removal, returned after the heap */
+            private MovementHandle[] skipped;
+
+            /* number of handles in skipped */
+            private int skippedCount;
+
+            /* the queue's modification count this iterator expects */
+            private int expectedModCount = modCount;
+
+            /* the skipped handle last returned, removed by its handle */
+            private MovementHandle lastSkipped;
+
+            /* the queue's view of the shared movements, returned after its own, or null */
+            private final Sharing view = sharing;
+
+            /* next position of the shared heap to look at */
+            private int sharedCursor;
+
+            /* the shared handle last returned, removed by its handle */
+            private MovementHandle lastShared;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size || skippedCount > 0 || nextShared() >= 0;
+            }
+
+            /* Returns the position of the next shared handle still queued, or -1 */
+            private int nextShared() {
+                if (view != null) {
+                    while (sharedCursor < view.shared.size) {
+                        if (!view.removed.contains(view.shared.heap[sharedCursor])) {
+                            return sharedCursor;
+                        }
+                        sharedCursor++;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            public Movement next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (cursor < size) {
+                    last = cursor;
+                    return heap[cursor++].movement;
+                }
+                if (skippedCount > 0) {
+                    last = -1;
+                    lastSkipped = skipped[--skippedCount];
+                    skipped[skippedCount] = null;
+                    return lastSkipped.movement;
+                }
+                int shared = nextShared();
+                if (shared >= 0) {
+                    last = -1;
+                    lastSkipped = null;
+                    lastShared = view.shared.heap[shared];
+                    sharedCursor++;
+                    return view.movementOf(lastShared);
+                }
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (last >= 0) {
+                    MovementHandle moved = removeAt(last);
+                    last = -1;
+                    if (moved == null) {
+                        cursor--;
+                    } else {
+                        // the last handle moved up before the cursor, so return it later
+                        if (skipped == null) {
+                            skipped = new MovementHandle[4];
+                        } else if (skippedCount == skipped.length) {
+                            MovementHandle[] grown = new MovementHandle[skippedCount * 2];
+                            System.arraycopy(skipped, 0, grown, 0, skippedCount);
+                            skipped = grown;
+                        }
+                        skipped[skippedCount++] = moved;
+                    }
+                } else if (lastSkipped != null) {
+                    removeAt(lastSkipped.index);
+                    lastSkipped = null;
+                } else if (lastShared != null) {
+                    removeShared(lastShared);
+                    lastShared = null;
+                } else {
+                    throw new IllegalStateException();
+                }
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    /* Returns the lists with times in the window, or null if there are none. */
+    private static NavigableMap<Long, Bucket> window(TreeMap<Long, Bucket> buckets, long from,
+                                                     long to) {
+        if (buckets == null || from > to) {
+            return null;
+        }
+        return buckets.subMap(from, true, to, true);
+    }
+
+    /*
+     * Adds the handle to the lists for its movement's time, after the handles with an earlier
+     * sequence. A handle just added or rescheduled has the latest sequence, so it goes last.
+     */
+    private void link(MovementHandle handle) {
+        Movement movement = handle.movement;
+        Long time = movement.getTime();
+        handle.bucket = bucketFor(byTime.get(movement.getDirection()), time);
+        MovementHandle before = handle.bucket.last;
+        while (before != null && before.sequence > handle.sequence) {
+            before = before.previous;
+        }
+        MovementHandle after = before == null ? handle.bucket.first : before.next;
+        handle.previous = before;
+        handle.next = after;
+        if (before == null) {
+            handle.bucket.first = handle;
+        } else {
+            before.next = handle;
+        }
+        if (after == null) {
+            handle.bucket.last = handle;
+        } else {
+            after.previous = handle;
+        }
+
+        if (movement instanceof ShipMovement) {
+            long imoNumber = ((ShipMovement) movement).getShip().getImoNumber();
+            // a ship's map is kept while it is empty, as ships tend to move again
+            handle.shipBucket = bucketFor(byShip.computeIfAbsent(imoNumber,
+                    i -> new TreeMap<>()), time);
+            before = handle.shipBucket.last;
+            while (before != null && before.sequence > handle.sequence) {
+                before = before.previousForShip;
+            }
+            after = before == null ? handle.shipBucket.first : before.nextForShip;
+            handle.previousForShip = before;
+            handle.nextForShip = after;
+            if (before == null) {
+                handle.shipBucket.first = handle;
+            } else {
+                before.nextForShip = handle;
+            }
+            if (after == null) {
+                handle.shipBucket.last = handle;
+            } else {
+                after.previousForShip = handle;
+            }
+        }
+    }
+
+    /* Removes the handle from the lists for its movement's time. */
+    private static void unlink(MovementHandle handle) {
+        Bucket bucket = handle.bucket;
+        MovementHandle before = handle.previous;
+        MovementHandle after = handle.next;
+        if (before == null) {
+            bucket.first = after;
+        } else {
+            before.next = after;
+        }
+        if (after == null) {
+            bucket.last = before;
+        } else {
+            after.previous = before;
+        }
+        if (bucket.first == null) {
+            bucket.owner.remove(bucket.time);
+        }
+        handle.previous = handle.next = null;
+        handle.bucket = null;
+
+        bucket = handle.shipBucket;
+        if (bucket != null) {
+            before = handle.previousForShip;
+            after = handle.nextForShip;
+            if (before == null) {
+                bucket.first = after;
+            } else {
+                before.nextForShip = after;
+            }
+            if (after == null) {
+                bucket.last = before;
+            } else {
+                after.previousForShip = before;
+            }
+            if (bucket.first == null) {
+                bucket.owner.remove(bucket.time);
+            }
+            handle.previousForShip = handle.nextForShip = null;
+            handle.shipBucket = null;
+        }
+    }
+
+    /* Returns the list for the given time in the map, adding an empty one if there is none. */
+    private static Bucket bucketFor(TreeMap<Long, Bucket> buckets, Long time) {
+        Bucket bucket = buckets.get(time);
+        if (bucket == null) {
+            bucket = new Bucket(time, buckets);
+            buckets.put(time, bucket);
+        }
+        return bucket;
+    }
+
+    /*
+     * Iterates over the handles in a range of lists, returning their movements. The lists
+     * followed are the ship lists if forShip is set, otherwise the direction lists. Shared
+     * lists are followed through the queue's view of them, skipping handles that have left.
+     */
+    private class BucketIterator<T extends Movement> implements Iterator<T> {
+        /* lists still to be visited, or null if there are none */
+        private final Iterator<Bucket> buckets;
+
+        /* whether to follow the ship links */
+        private final boolean forShip;
+
+        /* the queue's view of the lists if they are shared, otherwise null */
+        private final Sharing view;
+
+        /* the queue's modification count this iterator expects */
+        private final int expectedModCount = modCount;
+
+        /* handle of the next movement to return, or null if there are no more */
+        private MovementHandle nextHandle;
+
+        BucketIterator(NavigableMap<Long, Bucket> window, boolean forShip, Sharing view) {
+            this.buckets = window == null ? null : window.values().iterator();
+            this.forShip = forShip;
+            this.view = view;
+            advance(null);
+        }
+
+        /* Returns the handle of the next movement without moving past it. */
+        MovementHandle peek() {
+            return nextHandle;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextHandle != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            MovementHandle current = nextHandle;
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            advance(current);
+            return (T) (view == null ? current.movement : view.movementOf(current));
+        }
+
+        /* Moves to the handle after the given one, or to the first handle if it is null. */
+        private void advance(MovementHandle current) {
+            do {
+                nextHandle = current == null ? null
+                        : forShip ? current.nextForShip : current.next;
+                while (nextHandle == null && buckets != null && buckets.hasNext()) {
+                    nextHandle = buckets.next().first;
+                }
+                current = nextHandle;
+            } while (nextHandle != null && view != null && view.removed.contains(nextHandle));
+        }
+    }
+
+    /* Merges several ranges of lists into the order the movements are processed. */
+    private static class MergingIterator<T extends Movement> implements Iterator<T> {
+        /* one iterator for each range, such as each direction's */
+        private final List<BucketIterator<T>> lists;
+
+        MergingIterator(List<BucketIterator<T>> lists) {
+            this.lists = lists;
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (BucketIterator<T> list : lists) {
+                if (list.hasNext()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public T next() {
+            BucketIterator<T> earliest = null;
+            for (BucketIterator<T> list : lists) {
+                if (list.hasNext() && (earliest == null
+                        || compare(list.peek(), earliest.peek()) < 0)) {
+                    earliest = list;
+                }
+            }
+            if (earliest == null) {
+                throw new NoSuchElementException();
+            }
+            return earliest.next();
+        }
+    }
+
+    /* Throws if the given handle was not issued by this queue. */
+    private void checkOwner(MovementHandle handle) {
+        if (handle.queue != this) {
+            throw new IllegalArgumentException("handle does not belong to this queue: "
+                    + handle);
+        }
+    }
+
+    /* Returns the own or shared handle of the given movement, or null if it is not queued. */
+    private MovementHandle handleOf(Object o) {
+        if (o != null) {
+            for (int i = 0; i < size; i++) {
+                if (heap[i].movement == o) {
+                    return heap[i];
+                }
+            }
+            if (sharing != null) {
+                Shared shared = sharing.shared;
+                for (int i = 0; i < shared.size; i++) {
+                    MovementHandle handle = shared.heap[i];
+                    // a replacement not yet made cannot have been handed out
+                    Movement movement = sharing.replacement == null ? handle.movement
+                            : sharing.replaced.get(handle);
+                    if (movement == o && !sharing.removed.contains(handle)) {
+                        return handle;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Removes the handle at the given heap position. Returns the last handle of the heap if it
+     * was moved to a position before the given one to fill the gap, otherwise null.
+     */
+    private MovementHandle removeAt(int index) {
+        MovementHandle removed = heap[index];
+        if (history != null) {
+            history.record(History.REMOVED, removed, 0, 0);
+        }
+        removed.index = -1;
+        unlink(removed);
+        modCount++;
+        int last = --size;
+        MovementHandle moved = heap[last];
+        if (history != null) {
+            history.record(History.PLACED, moved, last, 0);
+        }
+        heap[last] = null;
+        if (last == index) {
+            return null;
+        }
+        siftDown(index, moved);
+        if (heap[index] == moved) {
+            siftUp(index, moved);
+            if (heap[index] != moved) {
+                return moved;
+            }
+        }
+        return null;
+    }
+
+    /* Places the handle at the given position, moving it up past any later parents. */
+    private void siftUp(int index, MovementHandle handle) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            MovementHandle above = heap[parent];
+            if (compare(handle, above) >= 0) {
+                break;
+            }
+            place(index, above);
+            index = parent;
+        }
+        place(index, handle);
+    }
+
+    /* Places the handle at the given position, moving it down past any earlier children. */
+    private void siftDown(int index, MovementHandle handle) {
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            MovementHandle below = heap[child];
+            int right = child + 1;
+            if (right < size && compare(heap[right], below) < 0) {
+                child = right;
+                below = heap[right];
+            }
+            if (compare(handle, below) <= 0) {
+                break;
+            }
+            place(index, below);
+            index = child;
+        }
+        place(index, handle);
+    }
+
+    /* Puts the handle at the given heap position, logging the handle it replaces */
+    private void place(int index, MovementHandle handle) {
+        if (history != null) {
+            history.record(History.PLACED, heap[index], index, 0);
+        }
+        heap[index] = handle;
+        handle.index = index;
+    }
+
+    /*
+     * Orders handles by the time of their list, which for a handle of this queue is the time
+     * of its movement, then by sequence.
+     */
+    private static int compare(MovementHandle a, MovementHandle b) {
+        int byTime = Long.compare(a.bucket.time, b.bucket.time);
+        return byTime != 0 ? byTime : Long.compare(a.sequence, b.sequence);
+    }
+
+    /**
+     * A mark of the movements in a queue, taken with {@link MovementQueue#mark()}, that the
+     * queue can be reset to with {@link MovementQueue#reset(Mark)}.
+     */
+    public static final class Mark {
+        /**
+         * The history the mark was taken in
+         */
+        private final History history;
+
+        /**
+         * Number of marks taken in the history before this one
+         */
+        private final long serial;
+
+        /**
+         * Number of changes logged in the history when the mark was taken
+         */
+        private final long position;
+
+        /**
+         * The queue's next sequence number when the mark was taken
+         */
+        private final long nextSequence;
+
+        /**
+         * Creates a mark at the given position of a history.
+         *
+         * @param history      history the mark is taken in
+         * @param serial       number of marks taken in the history before this one
+         * @param position     number of changes logged in the history
+         * @param nextSequence the queue's next sequence number
+         */
+        private Mark(History history, long serial, long position, long nextSequence) {
+            this.history = history;
+            this.serial = serial;
+            this.position = position;
+            this.nextSequence = nextSequence;
+        }
+    }
+
+    /**
+     * The changes made to a queue since its history was started, each logged with what is
+     * needed to undo it.
+     */
+    private static final class History {
+        /**
+         * Kind of change adding a movement
+         */
+        static final byte SCHEDULED = 0;
+
+        /**
+         * Kind of change removing a movement, by polling, cancelling or clearing
+         */
+        static final byte REMOVED = 1;
+
+        /**
+         * Kind of change moving a movement to a new time
+         */
+        static final byte RESCHEDULED = 2;
+
+        /**
+         * Kind of change putting a handle at a position of the heap
+         */
+        static final byte PLACED = 3;
+
+        /**
+         * Kind of change moving the queue's movements into structures shared with its forks
+         */
+        static final byte SHARED = 4;
+
+        /**
+         * Kind of change removing a shared movement
+         */
+        static final byte REMOVED_SHARED = 5;
+
+        /**
+         * Kind of change moving a shared handle's movement to a new handle of the queue
+         */
+        static final byte FORWARDED = 6;
+
+        /**
+         * Kind of change dropping the queue's view of the shared movements
+         */
+        static final byte UNSHARED = 7;
+
+        /**
+         * The kind of each change
+         */
+        private byte[] kinds = new byte[64];
+
+        /**
+         * The handle of the movement of each change, or for a heap position the handle that
+         * was there before, if any
+         */
+        private MovementHandle[] handles = new MovementHandle[64];
+
+        /**
+         * For each heap position, the position
+         */
+        private long[] values = new long[64];
+
+        /**
+         * For each rescheduling, the sequence of the handle before it
+         */
+        private long[] sequences = new long[64];
+
+        /**
+         * The views of shared movements dropped, in the order they were dropped
+         */
+        private final List<Sharing> unshared = new ArrayList<>();
+
+        /**
+         * The movements replaced by reschedulings, in the order they were replaced
+         */
+        private final List<Movement> rescheduled = new ArrayList<>();
+
+        /**
+         * Number of changes logged
+         */
+        private int size;
+
+        /**
+         * Number of changes made before the first one logged, which are no longer logged
+         */
+        private long offset;
+
+        /**
+         * Number of marks taken
+         */
+        private long marks;
+
+        /**
+         * Serial number of the earliest mark that may still be reset to
+         */
+        private long discarded;
+
+        /**
+         * Returns the number of changes made since the history was started.
+         *
+         * @return position of the next change
+         */
+        long position() {
+            return offset + size;
+        }
+
+        /**
+         * Logs a change.
+         *
+         * @param kind     kind of change
+         * @param handle   handle of the movement changed, or for a heap position the handle
+         *                 that was there before
+         * @param value    for a heap position, the position
+         * @param sequence for a rescheduling, the sequence of the handle before it
+         */
+        void record(byte kind, MovementHandle handle, long value, long sequence) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                handles = Arrays.copyOf(handles, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            kinds[size] = kind;
+            handles[size] = handle;
+            values[size] = value;
+            sequences[size++] = sequence;
+        }
+
+        /**
+         * Logs the queue's view of the shared movements being dropped.
+         *
+         * @param sharing view dropped
+         */
+        void unshared(Sharing sharing) {
+            unshared.add(sharing);
+            record(UNSHARED, null, 0, 0);
+        }
+
+        /**
+         * Logs a handle's movement being replaced by a copy at a new time.
+         *
+         * @param handle handle rescheduled, still holding the movement replaced
+         */
+        void rescheduled(MovementHandle handle) {
+            rescheduled.add(handle.movement);
+            record(RESCHEDULED, handle, 0, handle.sequence);
+        }
+
+        /**
+         * Forgets the changes made from the given position on, which have been undone.
+         *
+         * @param position number of changes to keep since the history was started
+         */
+        void truncate(long position) {
+            int kept = (int) (position - offset);
+            Arrays.fill(handles, kept, size, null);
+            size = kept;
+        }
+
+        /**
+         * Forgets the changes made before the given position, once they are at least half of
+         * those logged, so that the history takes space proportional to the changes made
+         * since the position.
+         *
+         * @param position earliest position that may still be undone to
+         */
+        void discardBefore(long position) {
+            int dropped = (int) (position - offset);
+            if (dropped == 0 || dropped < size - dropped) {
+                return;
+            }
+            int dropping = 0;
+            int droppingMovements = 0;
+            for (int i = 0; i < dropped; i++) {
+                if (kinds[i] == UNSHARED) {
+                    dropping++;
+                } else if (kinds[i] == RESCHEDULED) {
+                    droppingMovements++;
+                }
+            }
+            unshared.subList(0, dropping).clear();
+            rescheduled.subList(0, droppingMovements).clear();
+            int kept = size - dropped;
+            System.arraycopy(kinds, dropped, kinds, 0, kept);
+            System.arraycopy(handles, dropped, handles, 0, kept);
+            System.arraycopy(values, dropped, values, 0, kept);
+            System.arraycopy(sequences, dropped, sequences, 0, kept);
+            Arrays.fill(handles, kept, size, null);
+            size = kept;
+            offset = position;
+        }
+    }
+}
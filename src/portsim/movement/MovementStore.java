@@ -0,0 +1,999 @@
+package portsim.movement;
+
+import portsim.cargo.Cargo;
+import portsim.ship.Ship;
+import portsim.util.NoSuchCargoException;
+import portsim.util.NoSuchShipException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A queue of pending movements held outside the Java heap, for schedules too large to keep as
+ * {@link Movement} objects.
+ * <p>
+ * Each movement is packed into a 16 byte record in a direct buffer. The first long holds the
+ * movement's time, kind (ship or cargo) and direction. The second holds the IMO number of its
+ * ship for a ship movement, or for a cargo movement the start and length of its range of
+ * cargo IDs in a second direct buffer. A binary heap of record numbers, also held in a direct
+ * buffer, orders the records by time. Movements with the same time leave the store in the
+ * order they were added. The buffers are made of pages, which are shared with copies of the
+ * store until written (see {@link #copy()}).
+ * <p>
+ * No Movement object is kept for a stored movement. One is created when the movement is
+ * polled, by looking its ship or cargo up in the registries, so the ship and cargo of a stored
+ * movement must stay registered until it is polled.
+ * <p>
+ * The store can be marked with {@link #mark()} and later reset to the mark with
+ * {@link #reset(Mark)}. From its first mark the store logs the value each write to its
+ * buffers replaces, and resets by writing them back, so marking takes constant time and
+ * resetting takes time proportional to the writes undone.
+ * <p>
+ * This class is not thread-safe, but a store and its copies may be used on different threads.
+ */
+public class MovementStore {
+    /**
+     * Size of a movement record in bytes
+     */
+    public static final int RECORD_BYTES = 16;
+
+    /**
+     * Latest time a stored movement may have
+     */
+    public static final long MAX_TIME = Long.MAX_VALUE >>> 2;
+
+    /**
+     * Offset in a record of the time, shifted left by two, or'd with the kind and direction
+     */
+    private static final int TIME_AND_FLAGS = 0;
+
+    /**
+     * Offset in a record of the ship's IMO number, or of the start and count of the cargo IDs;
+     * for a free record, the next free record
+     */
+    private static final int PAYLOAD = 8;
+
+    /**
+     * Flag bit set for a record holding a CargoMovement, clear for a ShipMovement
+     */
+    private static final long CARGO = 2;
+
+    /**
+     * Flag bit holding the movement direction ordinal
+     */
+    private static final long DIRECTION = 1;
+
+    /**
+     * Size of a heap entry in bytes: the record number then its sequence number
+     */
+    private static final int ENTRY_BYTES = 8;
+
+    /**
+     * Number of records allocated initially
+     */
+    private static final int INITIAL_RECORDS = 64;
+
+    /**
+     * Movement directions, indexed by ordinal
+     */
+    private static final MovementDirection[] DIRECTIONS = MovementDirection.values();
+
+    /**
+     * Movement records
+     */
+    private Pages records;
+
+    /**
+     * Cargo IDs of the cargo movements, each movement's IDs stored contiguously
+     */
+    private Pages cargoIds;
+
+    /**
+     * Binary heap of entries ordered by the time of their record and then by sequence number.
+     * Sequence numbers are compared by their difference, so they may wrap around as long as
+     * fewer than 2^31 movements are added while one is waiting.
+     */
+    private Pages heap;
+
+    /**
+     * Number of movements in the store, the number of entries in the heap
+     */
+    private int size;
+
+    /**
+     * Number of records ever used; records below this are either in the heap or free
+     */
+    private int recordsUsed;
+
+    /**
+     * First free record, or -1 if there is none
+     */
+    private int freeRecord = -1;
+
+    /**
+     * Number of cargo ID slots ever used since the last compaction
+     */
+    private int cargoIdsUsed;
+
+    /**
+     * Number of cargo ID slots belonging to movements in the store
+     */
+    private int cargoIdsLive;
+
+    /**
+     * Sequence number given to the next movement added
+     */
+    private int nextSequence;
+
+    /**
+     * Writes made to the buffers since the store's first mark, or null if it keeps no history
+     */
+    private History history;
+
+    /**
+     * Creates an empty movement store.
+     */
+    public MovementStore() {
+        this(new Pages((long) INITIAL_RECORDS * RECORD_BYTES),
+                new Pages(INITIAL_RECORDS * 4L * Integer.BYTES),
+                new Pages((long) INITIAL_RECORDS * ENTRY_BYTES));
+    }
+
+    /**
+     * Creates an empty movement store with the given buffers.
+     *
+     * @param records  buffer of movement records
+     * @param cargoIds buffer of cargo IDs
+     * @param heap     buffer of heap entries
+     */
+    private MovementStore(Pages records, Pages cargoIds, Pages heap) {
+        this.records = records;
+        this.cargoIds = cargoIds;
+        this.heap = heap;
+    }
+
+    /**
+     * Returns a new store holding the same movements, which leave the copy in the same order
+     * as they would leave this store. The pages of the buffers are shared rather than copied,
+     * and whichever store first writes to a shared page copies it, so copying takes time
+     * proportional to the number of pages rather than to the number of movements, and each
+     * store then copies only the pages it changes. The store and the copy may be used on
+     * different threads.
+     *
+     * @return copy of this store
+     */
+    public MovementStore copy() {
+        MovementStore copy = new MovementStore(records.share(), cargoIds.share(), heap.share());
+        copy.size = size;
+        copy.recordsUsed = recordsUsed;
+        copy.freeRecord = freeRecord;
+        copy.cargoIdsUsed = cargoIdsUsed;
+        copy.cargoIdsLive = cargoIdsLive;
+        copy.nextSequence = nextSequence;
+        return copy;
+    }
+
+    /* Returns a direct buffer of the given size starting with the contents of the given one */
+    private static ByteBuffer copyOf(ByteBuffer buffer, long bytes) {
+        ByteBuffer copy = allocate(bytes);
+        copy.put(buffer.duplicate().clear());
+        return copy.clear();
+    }
+
+    /* Allocates a direct buffer of the given size in native byte order */
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("movement store is full");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Adds the given movement to the store. The movement object itself is not kept.
+     *
+     * @param movement ship or cargo movement to add
+     * @throws IllegalArgumentException if the movement is neither a ShipMovement nor a
+     *                                  CargoMovement, its ship or cargo is not registered, or
+     *                                  its time is after {@link #MAX_TIME}
+     */
+    public void add(Movement movement) throws IllegalArgumentException {
+        if (movement instanceof ShipMovement) {
+            Ship ship = ((ShipMovement) movement).getShip();
+            if (!Ship.shipExists(ship.getImoNumber())) {
+                throw new IllegalArgumentException("ship is not registered: " + ship);
+            }
+            addShipMovement(movement.getTime(), movement.getDirection(), ship.getImoNumber());
+        } else if (movement instanceof CargoMovement) {
+            List<Cargo> cargo = ((CargoMovement) movement).getCargoView();
+            int[] ids = new int[cargo.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = cargo.get(i).getId();
+                if (!Cargo.cargoExists(ids[i])) {
+                    throw new IllegalArgumentException("cargo is not registered: " + cargo.get(i));
+                }
+            }
+            addCargoMovement(movement.getTime(), movement.getDirection(), ids);
+        } else {
+            throw new IllegalArgumentException("cannot store a "
+                    + movement.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Adds a movement of the ship with the given IMO number to the store, without creating a
+     * ShipMovement.
+     *
+     * @param time      the time the movement should occur
+     * @param direction the direction of the movement
+     * @param imoNumber IMO number of the ship to move
+     * @throws IllegalArgumentException if time &lt; 0 or time &gt; {@link #MAX_TIME}
+     */
+    public void addShipMovement(long time, MovementDirection direction, long imoNumber)
+            throws IllegalArgumentException {
+        int record = newRecord(time, direction, 0);
+        putRecordLong(record * RECORD_BYTES + PAYLOAD, imoNumber);
+        push(record);
+    }
+
+    /**
+     * Adds a movement of the cargo with the given IDs to the store, without creating a
+     * CargoMovement.
+     *
+     * @param time      the time the movement should occur
+     * @param direction the direction of the movement
+     * @param ids       IDs of the cargo to move
+     * @throws IllegalArgumentException if time &lt; 0 or time &gt; {@link #MAX_TIME}
+     */
+    public void addCargoMovement(long time, MovementDirection direction, int[] ids)
+            throws IllegalArgumentException {
+        int record = newRecord(time, direction, CARGO);
+        int start = reserveCargoIds(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            putCargoId(start + i, ids[i]);
+        }
+        putRecordLong(record * RECORD_BYTES + PAYLOAD, range(start, ids.length));
+        push(record);
+    }
+
+    /* Packs the start and count of a range of cargo IDs into a record payload */
+    private static long range(int start, int count) {
+        return (long) start << 32 | count;
+    }
+
+    /* Takes a free record and fills in its time and flags */
+    private int newRecord(long time, MovementDirection direction, long kind) {
+        if (time < 0 || time > MAX_TIME) {
+            throw new IllegalArgumentException("Time must be between 0 and " + MAX_TIME
+                    + ": " + time);
+        }
+        int record;
+        if (freeRecord >= 0) {
+            record = freeRecord;
+            freeRecord = (int) records.getLong(record * RECORD_BYTES + PAYLOAD);
+        } else {
+            record = recordsUsed++;
+            records.ensure((long) recordsUsed * RECORD_BYTES);
+        }
+        putRecordLong(record * RECORD_BYTES + TIME_AND_FLAGS,
+                time << 2 | kind | direction.ordinal() * DIRECTION);
+        return record;
+    }
+
+    /* Writes a long to the records, logging the value it replaces while history is kept */
+    private void putRecordLong(int offset, long value) {
+        if (history != null) {
+            history.record(History.RECORDS, offset, records.getLong(offset));
+        }
+        records.putLong(offset, value);
+    }
+
+    /* Writes a cargo ID slot, logging the ID it replaces while history is kept */
+    private void putCargoId(int slot, int id) {
+        if (history != null) {
+            history.record(History.CARGO_IDS, slot, cargoIds.getInt(slot * Integer.BYTES));
+        }
+        cargoIds.putInt(slot * Integer.BYTES, id);
+    }
+
+    /* Writes a heap entry, logging the entry it replaces while history is kept */
+    private void putEntry(int index, int record, int sequence) {
+        if (history != null) {
+            history.record(History.HEAP, index, heap.getLong(index * ENTRY_BYTES));
+        }
+        heap.putInt(index * ENTRY_BYTES, record);
+        heap.putInt(index * ENTRY_BYTES + Integer.BYTES, sequence);
+    }
+
+    /* Copies the heap entry at one position to another, logging the entry it replaces */
+    private void moveEntry(int from, int to) {
+        if (history != null) {
+            history.record(History.HEAP, to, heap.getLong(to * ENTRY_BYTES));
+        }
+        heap.putLong(to * ENTRY_BYTES, heap.getLong(from * ENTRY_BYTES));
+    }
+
+    /* Returns the index of the first of count newly reserved cargo ID slots */
+    private int reserveCargoIds(int count) {
+        long required = (long) cargoIdsUsed + count;
+        if (required * Integer.BYTES > cargoIds.capacity() && cargoIdsLive < cargoIdsUsed / 2) {
+            compactCargoIds();
+            required = (long) cargoIdsUsed + count;
+        }
+        cargoIds.ensure(required * Integer.BYTES);
+        int start = cargoIdsUsed;
+        cargoIdsUsed += count;
+        cargoIdsLive += count;
+        return start;
+    }
+
+    /* Moves the cargo IDs of the stored movements to the front of the cargo ID buffer */
+    private void compactCargoIds() {
+        Pages compacted = new Pages(cargoIds.capacity());
+        int used = 0;
+        for (int i = 0; i < size; i++) {
+            int offset = heap.getInt(i * ENTRY_BYTES) * RECORD_BYTES;
+            if ((records.getLong(offset + TIME_AND_FLAGS) & CARGO) == 0) {
+                continue;
+            }
+            long payload = records.getLong(offset + PAYLOAD);
+            int start = (int) (payload >>> 32);
+            int count = (int) payload;
+            for (int j = 0; j < count; j++) {
+                compacted.putInt((used + j) * Integer.BYTES,
+                        cargoIds.getInt((start + j) * Integer.BYTES));
+            }
+            putRecordLong(offset + PAYLOAD, range(used, count));
+            used += count;
+        }
+        if (history != null) {
+            // the IDs are copied rather than overwritten, so the old buffer is kept instead
+            history.replaced(cargoIds);
+        }
+        cargoIds = compacted;
+        cargoIdsUsed = used;
+        cargoIdsLive = used;
+    }
+
+    /* Adds a record to the heap */
+    private void push(int record) {
+        heap.ensure((long) (size + 1) * ENTRY_BYTES);
+        int sequence = nextSequence++;
+        long time = timeOf(record);
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(time, sequence, parent)) {
+                break;
+            }
+            moveEntry(parent, index);
+            index = parent;
+        }
+        putEntry(index, record, sequence);
+    }
+
+    /* Returns the time of the given record */
+    private long timeOf(int record) {
+        return records.getLong(record * RECORD_BYTES + TIME_AND_FLAGS) >>> 2;
+    }
+
+    /* Returns true if a movement with the given time and sequence is due before an entry */
+    private boolean before(long time, int sequence, int index) {
+        long other = timeOf(heap.getInt(index * ENTRY_BYTES));
+        if (time != other) {
+            return time < other;
+        }
+        return sequence - heap.getInt(index * ENTRY_BYTES + Integer.BYTES) < 0;
+    }
+
+    /**
+     * Returns the number of movements in the store.
+     *
+     * @return number of movements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if there are no movements in the store.
+     *
+     * @return true if the store is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the time of the earliest movement in the store.
+     *
+     * @return time of the earliest movement, or Long.MAX_VALUE if the store is empty
+     */
+    public long nextTime() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        return timeOf(heap.getInt(0));
+    }
+
+    /**
+     * Removes the earliest movement from the store and returns it as a Movement object.
+     *
+     * @return earliest movement, or null if the store is empty
+     * @throws IllegalStateException if the movement's ship or cargo is no longer registered
+     */
+    public Movement poll() throws IllegalStateException {
+        if (size == 0) {
+            return null;
+        }
+        int record = heap.getInt(0);
+        size--;
+        if (size > 0) {
+            siftDown(heap.getInt(size * ENTRY_BYTES),
+                    heap.getInt(size * ENTRY_BYTES + Integer.BYTES));
+        }
+        Movement movement = materialise(record);
+        int offset = record * RECORD_BYTES;
+        if ((records.getLong(offset + TIME_AND_FLAGS) & CARGO) != 0) {
+            cargoIdsLive -= (int) records.getLong(offset + PAYLOAD);
+        }
+        putRecordLong(offset + PAYLOAD, freeRecord);
+        freeRecord = record;
+        if (size == 0) {
+            cargoIdsUsed = 0;
+            cargoIdsLive = 0;
+        }
+        return movement;
+    }
+
+    /* Places a heap entry for the given record and sequence, starting from the root */
+    private void siftDown(int record, int sequence) {
+        long time = timeOf(record);
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && earlier(child + 1, child)) {
+                child++;
+            }
+            if (before(time, sequence, child)) {
+                break;
+            }
+            moveEntry(child, index);
+            index = child;
+        }
+        putEntry(index, record, sequence);
+    }
+
+    /* Returns true if the first heap entry is due before the second */
+    private boolean earlier(int first, int second) {
+        return before(timeOf(heap.getInt(first * ENTRY_BYTES)),
+                heap.getInt(first * ENTRY_BYTES + Integer.BYTES), second);
+    }
+
+    /* Creates the Movement object held in the given record */
+    private Movement materialise(int record) {
+        int offset = record * RECORD_BYTES;
+        long timeAndFlags = records.getLong(offset + TIME_AND_FLAGS);
+        long payload = records.getLong(offset + PAYLOAD);
+        long time = timeAndFlags >>> 2;
+        MovementDirection direction = DIRECTIONS[(int) (timeAndFlags & DIRECTION)];
+        if ((timeAndFlags & CARGO) == 0) {
+            try {
+                return new ShipMovement(time, direction, Ship.getShipByImoNumber(payload));
+            } catch (NoSuchShipException e) {
+                throw new IllegalStateException("ship of stored movement is no longer "
+                        + "registered: " + payload, e);
+            }
+        }
+        int start = (int) (payload >>> 32);
+        int count = (int) payload;
+        List<Cargo> cargo = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = cargoIds.getInt((start + i) * Integer.BYTES);
+            try {
+                cargo.add(Cargo.getCargoById(id));
+            } catch (NoSuchCargoException e) {
+                throw new IllegalStateException("cargo of stored movement is no longer "
+                        + "registered: " + id, e);
+            }
+        }
+        return new CargoMovement(time, direction, cargo);
+    }
+
+    /**
+     * Creates a Movement object for every movement in the store and passes it to the given
+     * action, in no particular order. The store is not changed.
+     *
+     * @param action action to perform on each movement
+     * @throws IllegalStateException if a movement's ship or cargo is no longer registered
+     */
+    public void forEach(Consumer<? super Movement> action) throws IllegalStateException {
+        for (int i = 0; i < size; i++) {
+            action.accept(materialise(heap.getInt(i * ENTRY_BYTES)));
+        }
+    }
+
+    /**
+     * Passes the IMO number of the ship of each ship movement in the store to the given
+     * action, in no particular order, without creating Movement objects or looking the ships
+     * up.
+     *
+     * @param action action to perform on each IMO number
+     */
+    public void forEachShipImoNumber(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int offset = heap.getInt(i * ENTRY_BYTES) * RECORD_BYTES;
+            if ((records.getLong(offset + TIME_AND_FLAGS) & CARGO) == 0) {
+                action.accept(records.getLong(offset + PAYLOAD));
+            }
+        }
+    }
+
+    /**
+     * Removes every movement from the store. The memory allocated is kept for reuse.
+     */
+    public void clear() {
+        size = 0;
+        recordsUsed = 0;
+        freeRecord = -1;
+        cargoIdsUsed = 0;
+        cargoIdsLive = 0;
+    }
+
+    /**
+     * Returns a mark of the store's current movements, which the store can later be reset to
+     * with {@link #reset(Mark)}. The first mark starts the history of the store: from then on
+     * the value replaced by every write to its buffers is logged until the history is
+     * discarded. Marking takes constant time.
+     *
+     * @return mark of the current movements
+     */
+    public Mark mark() {
+        if (history == null) {
+            history = new History();
+        }
+        return new Mark(this, history.marks++, history.position());
+    }
+
+    /**
+     * Resets the store to hold the movements it held when the mark was taken, which leave it
+     * in the same order, by writing back the values replaced since. Marks taken after the
+     * given one can no longer be reset to. This takes time proportional to the writes undone,
+     * O(log n) for each movement added or polled since the mark.
+     *
+     * @param mark mark taken of this store
+     * @throws IllegalArgumentException if the mark was not taken of this store's current
+     *                                  history, or has been discarded
+     */
+    public void reset(Mark mark) throws IllegalArgumentException {
+        checkMark(mark);
+        for (long i = history.position() - 1; i >= mark.position; i--) {
+            undo((int) (i - history.offset));
+        }
+        history.truncate(mark.position);
+        size = mark.size;
+        recordsUsed = mark.recordsUsed;
+        freeRecord = mark.freeRecord;
+        cargoIdsUsed = mark.cargoIdsUsed;
+        cargoIdsLive = mark.cargoIdsLive;
+        nextSequence = mark.nextSequence;
+    }
+
+    /**
+     * Discards the history needed to reset the store to marks taken before the given one.
+     *
+     * @param mark earliest mark that may still be reset to
+     * @throws IllegalArgumentException if the mark was not taken of this store's current
+     *                                  history, or has been discarded
+     */
+    public void discardBefore(Mark mark) throws IllegalArgumentException {
+        checkMark(mark);
+        history.discarded = Math.max(history.discarded, mark.serial);
+        history.discardBefore(mark.position);
+    }
+
+    /**
+     * Stops keeping the history of the store, so that no mark taken so far can be reset to.
+     */
+    public void discardHistory() {
+        history = null;
+    }
+
+    /* Throws an IllegalArgumentException if the store cannot be reset to the mark */
+    private void checkMark(Mark mark) throws IllegalArgumentException {
+        if (mark.history != history || mark.serial < history.discarded
+                || mark.position > history.position()) {
+            throw new IllegalArgumentException("the store can no longer be reset to the mark");
+        }
+    }
+
+    /* Writes back the value replaced by the write logged at the given index of the history */
+    private void undo(int i) {
+        long location = history.locations[i];
+        int offset = (int) location;
+        long value = history.values[i];
+        switch ((int) (location >>> 32)) {
+            case History.RECORDS:
+                records.putLong(offset, value);
+                break;
+            case History.CARGO_IDS:
+                cargoIds.putInt(offset * Integer.BYTES, (int) value);
+                break;
+            case History.HEAP:
+                heap.putLong(offset * ENTRY_BYTES, value);
+                break;
+            default:
+                cargoIds = history.buffers.remove(history.buffers.size() - 1);
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of memory outside the Java heap allocated by this store.
+     *
+     * @return bytes allocated off-heap
+     */
+    public long getOffHeapBytes() {
+        return records.capacity() + cargoIds.capacity() + heap.capacity();
+    }
+
+    /**
+     * A buffer outside the Java heap made of pages, which a store shares with its copies. A
+     * shared page is copied before it is first written, so a store and its copies only copy
+     * the pages they change.
+     */
+    private static final class Pages {
+        /**
+         * Number of low bits of a byte offset that locate it within its page
+         */
+        private static final int PAGE_BITS = 16;
+
+        /**
+         * Size of a page in bytes
+         */
+        private static final int PAGE_BYTES = 1 << PAGE_BITS;
+
+        /**
+         * The pages, of which a buffer smaller than a page has only a smaller first one
+         */
+        private ByteBuffer[] pages;
+
+        /**
+         * Whether each page may be shared with another buffer, and so must be copied before
+         * it is written
+         */
+        private boolean[] shared;
+
+        /**
+         * Number of pages in use
+         */
+        private int count;
+
+        /**
+         * Allocates a buffer of at least the given size.
+         *
+         * @param bytes size of the buffer
+         */
+        Pages(long bytes) {
+            this(new ByteBuffer[] {allocate(Math.min(bytes, PAGE_BYTES))}, new boolean[1], 1);
+            ensure(bytes);
+        }
+
+        /**
+         * Creates a buffer of the given pages.
+         *
+         * @param pages  pages
+         * @param shared whether each page may be shared
+         * @param count  number of pages in use
+         */
+        private Pages(ByteBuffer[] pages, boolean[] shared, int count) {
+            this.pages = pages;
+            this.shared = shared;
+            this.count = count;
+        }
+
+        /**
+         * Returns the size of the buffer in bytes.
+         *
+         * @return capacity of the buffer
+         */
+        long capacity() {
+            return count == 1 ? pages[0].capacity() : (long) count * PAGE_BYTES;
+        }
+
+        /**
+         * Returns a buffer sharing this buffer's pages, which both then copy before writing.
+         * This takes time proportional to the number of pages.
+         *
+         * @return buffer with the same contents
+         */
+        Pages share() {
+            Arrays.fill(shared, 0, count, true);
+            return new Pages(pages.clone(), shared.clone(), count);
+        }
+
+        /**
+         * Grows the buffer to at least the given size, if it is smaller. A buffer smaller
+         * than a page doubles in size until it fills one; a larger one grows by pages.
+         *
+         * @param bytes size required
+         * @throws IllegalStateException if the size is too large for a buffer
+         */
+        void ensure(long bytes) throws IllegalStateException {
+            if (bytes <= capacity()) {
+                return;
+            }
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("movement store is full");
+            }
+            if (pages[0].capacity() < PAGE_BYTES) {
+                pages[0] = copyOf(pages[0], Math.min(Math.max(bytes,
+                        2L * pages[0].capacity()), PAGE_BYTES));
+                shared[0] = false;
+            }
+            int required = (int) ((bytes + PAGE_BYTES - 1) >>> PAGE_BITS);
+            if (required > pages.length) {
+                int length = Math.max(required, 2 * pages.length);
+                pages = Arrays.copyOf(pages, length);
+                shared = Arrays.copyOf(shared, length);
+            }
+            for (; count < required; count++) {
+                pages[count] = allocate(PAGE_BYTES);
+            }
+        }
+
+        /**
+         * Returns the long at the given byte offset.
+         *
+         * @param offset byte offset
+         * @return long read
+         */
+        long getLong(int offset) {
+            return pages[offset >>> PAGE_BITS].getLong(offset & (PAGE_BYTES - 1));
+        }
+
+        /**
+         * Returns the int at the given byte offset.
+         *
+         * @param offset byte offset
+         * @return int read
+         */
+        int getInt(int offset) {
+            return pages[offset >>> PAGE_BITS].getInt(offset & (PAGE_BYTES - 1));
+        }
+
+        /**
+         * Writes a long at the given byte offset, copying its page first if it is shared.
+         *
+         * @param offset byte offset
+         * @param value  long to write
+         */
+        void putLong(int offset, long value) {
+            writable(offset >>> PAGE_BITS).putLong(offset & (PAGE_BYTES - 1), value);
+        }
+
+        /**
+         * Writes an int at the given byte offset, copying its page first if it is shared.
+         *
+         * @param offset byte offset
+         * @param value  int to write
+         */
+        void putInt(int offset, int value) {
+            writable(offset >>> PAGE_BITS).putInt(offset & (PAGE_BYTES - 1), value);
+        }
+
+        /* Returns the given page, replacing it with a copy of its own first if it is shared */
+        private ByteBuffer writable(int page) {
+            if (shared[page]) {
+                pages[page] = copyOf(pages[page], pages[page].capacity());
+                shared[page] = false;
+            }
+            return pages[page];
+        }
+    }
+
+    /**
+     * A mark of the movements in a store, taken with {@link MovementStore#mark()}, that the
+     * store can be reset to with {@link MovementStore#reset(Mark)}.
+     */
+    public static final class Mark {
+        /**
+         * The history the mark was taken in
+         */
+        private final History history;
+
+        /**
+         * Number of marks taken in the history before this one
+         */
+        private final long serial;
+
+        /**
+         * Number of writes logged in the history when the mark was taken
+         */
+        private final long position;
+
+        /**
+         * The store's number of movements
+         */
+        private final int size;
+
+        /**
+         * The store's number of records ever used
+         */
+        private final int recordsUsed;
+
+        /**
+         * The store's first free record
+         */
+        private final int freeRecord;
+
+        /**
+         * The store's number of cargo ID slots used
+         */
+        private final int cargoIdsUsed;
+
+        /**
+         * The store's number of cargo ID slots belonging to movements
+         */
+        private final int cargoIdsLive;
+
+        /**
+         * The store's next sequence number
+         */
+        private final int nextSequence;
+
+        /**
+         * Creates a mark of the given store at the given position of its history.
+         *
+         * @param store    store the mark is taken of
+         * @param serial   number of marks taken in the store's history before this one
+         * @param position number of writes logged in the store's history
+         */
+        private Mark(MovementStore store, long serial, long position) {
+            this.history = store.history;
+            this.serial = serial;
+            this.position = position;
+            this.size = store.size;
+            this.recordsUsed = store.recordsUsed;
+            this.freeRecord = store.freeRecord;
+            this.cargoIdsUsed = store.cargoIdsUsed;
+            this.cargoIdsLive = store.cargoIdsLive;
+            this.nextSequence = store.nextSequence;
+        }
+    }
+
+    /**
+     * The writes made to a store's buffers since its history was started, each logged with
+     * the value it replaced.
+     */
+    private static final class History {
+        /**
+         * Buffer of a write to a record, whose location is a byte offset
+         */
+        static final int RECORDS = 0;
+
+        /**
+         * Buffer of a write to a cargo ID slot, whose location is a slot number
+         */
+        static final int CARGO_IDS = 1;
+
+        /**
+         * Buffer of a write to a heap entry, whose location is a heap position
+         */
+        static final int HEAP = 2;
+
+        /**
+         * Kind of change replacing the cargo ID buffer, which has no location
+         */
+        static final int BUFFER = 3;
+
+        /**
+         * The buffer of each write, shifted left by 32, or'd with its location
+         */
+        private long[] locations = new long[256];
+
+        /**
+         * The value each write replaced
+         */
+        private long[] values = new long[256];
+
+        /**
+         * The cargo ID buffers replaced, in the order they were replaced
+         */
+        private final List<Pages> buffers = new ArrayList<>();
+
+        /**
+         * Number of writes logged
+         */
+        private int size;
+
+        /**
+         * Number of writes made before the first one logged, which are no longer logged
+         */
+        private long offset;
+
+        /**
+         * Number of marks taken
+         */
+        private long marks;
+
+        /**
+         * Serial number of the earliest mark that may still be reset to
+         */
+        private long discarded;
+
+        /**
+         * Returns the number of writes made since the history was started.
+         *
+         * @return position of the next write
+         */
+        long position() {
+            return offset + size;
+        }
+
+        /**
+         * Logs a write to a buffer.
+         *
+         * @param buffer   buffer written
+         * @param location location written in the buffer
+         * @param value    value replaced
+         */
+        void record(int buffer, int location, long value) {
+            if (size == locations.length) {
+                locations = Arrays.copyOf(locations, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            locations[size] = (long) buffer << 32 | location;
+            values[size++] = value;
+        }
+
+        /**
+         * Logs the cargo ID buffer being replaced.
+         *
+         * @param cargoIds buffer replaced
+         */
+        void replaced(Pages cargoIds) {
+            buffers.add(cargoIds);
+            record(BUFFER, 0, 0);
+        }
+
+        /**
+         * Forgets the writes made from the given position on, which have been undone.
+         *
+         * @param position number of writes to keep since the history was started
+         */
+        void truncate(long position) {
+            size = (int) (position - offset);
+        }
+
+        /**
+         * Forgets the writes made before the given position, once they are at least half of
+         * those logged, so that the history takes space proportional to the writes made since
+         * the position.
+         *
+         * @param position earliest position that may still be undone to
+         */
+        void discardBefore(long position) {
+            int dropped = (int) (position - offset);
+            if (dropped == 0 || dropped < size - dropped) {
+                return;
+            }
+            int replaced = 0;
+            for (int i = 0; i < dropped; i++) {
+                if (locations[i] >>> 32 == BUFFER) {
+                    replaced++;
+                }
+            }
+            buffers.subList(0, replaced).clear();
+            System.arraycopy(locations, dropped, locations, 0, size - dropped);
+            System.arraycopy(values, dropped, values, 0, size - dropped);
+            size -= dropped;
+            offset = position;
+        }
+    }
+}
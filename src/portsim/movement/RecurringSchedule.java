@@ -0,0 +1,254 @@
+package portsim.movement;
+
+import portsim.ship.Ship;
+import portsim.util.BadEncodingException;
+import portsim.util.NoSuchShipException;
+
+/**
+ * A ship movement that recurs at a fixed period, such as the weekly call of a liner service.
+ * <p>
+ * The schedule's occurrences are at the times {@code offset + k * period} for k = 0, 1, 2...
+ * up to and including its end time. A port given a schedule creates a {@link ShipMovement}
+ * for each occurrence only when the occurrence is due (see
+ * {@link portsim.port.Port#addRecurringSchedule(RecurringSchedule)}), so a schedule takes the
+ * same space however many occurrences it has.
+ */
+public class RecurringSchedule {
+    /**
+     * The ship that moves at each occurrence
+     */
+    private final Ship ship;
+
+    /**
+     * The direction of each movement
+     */
+    private final MovementDirection direction;
+
+    /**
+     * The number of minutes between occurrences
+     */
+    private final long period;
+
+    /**
+     * The time of the first occurrence
+     */
+    private final long offset;
+
+    /**
+     * The latest time an occurrence may have
+     */
+    private final long endTime;
+
+    /**
+     * Creates a new recurring schedule for the given ship.
+     *
+     * @param ship      the ship that moves at each occurrence
+     * @param direction the direction of each movement
+     * @param period    the number of minutes between occurrences
+     * @param offset    the time of the first occurrence
+     * @param endTime   the latest time an occurrence may have
+     * @throws IllegalArgumentException if period &lt;= 0, offset &lt; 0 or endTime &lt; offset
+     */
+    public RecurringSchedule(Ship ship, MovementDirection direction, long period, long offset,
+                             long endTime) throws IllegalArgumentException {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be greater than 0: " + period);
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must be greater than"
+                    + " or equal to 0: " + offset);
+        }
+        if (endTime < offset) {
+            throw new IllegalArgumentException("End time must not be before the offset: "
+                    + endTime);
+        }
+        this.ship = ship;
+        this.direction = direction;
+        this.period = period;
+        this.offset = offset;
+        this.endTime = endTime;
+    }
+
+    /**
+     * Returns the ship that moves at each occurrence.
+     *
+     * @return schedule's ship
+     */
+    public Ship getShip() {
+        return ship;
+    }
+
+    /**
+     * Returns the direction of each movement.
+     *
+     * @return movement direction
+     */
+    public MovementDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns the number of minutes between occurrences.
+     *
+     * @return period in minutes
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * Returns the time of the first occurrence.
+     *
+     * @return phase offset in minutes
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the latest time an occurrence may have.
+     *
+     * @return end time in minutes
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the time of the first occurrence at or after the given time.
+     *
+     * @param time earliest time to consider
+     * @return time of the occurrence, or -1 if there are no more occurrences
+     */
+    public long nextOccurrence(long time) {
+        if (time <= offset) {
+            return offset;
+        }
+        long periods = (time - offset) / period;
+        if ((time - offset) % period != 0) {
+            periods++;
+        }
+        if (periods > (endTime - offset) / period) {
+            return -1;
+        }
+        return offset + periods * period;
+    }
+
+    /**
+     * Returns the number of occurrences at or after the given time.
+     *
+     * @param time earliest time to consider
+     * @return number of remaining occurrences
+     */
+    public long countOccurrences(long time) {
+        long next = nextOccurrence(time);
+        return next < 0 ? 0 : (endTime - next) / period + 1;
+    }
+
+    /**
+     * Creates the movement for the occurrence at the given time.
+     *
+     * @param time time of an occurrence of this schedule
+     * @return ship movement for the occurrence
+     * @throws IllegalArgumentException if no occurrence of this schedule is at the given time
+     */
+    public ShipMovement occurrenceAt(long time) throws IllegalArgumentException {
+        if (time < offset || time > endTime || (time - offset) % period != 0) {
+            throw new IllegalArgumentException("not an occurrence of " + this + ": " + time);
+        }
+        return new ShipMovement(time, direction, ship);
+    }
+
+    /**
+     * Returns the human-readable string representation of this schedule.
+     * <p>
+     * The format of the string to return is
+     * <pre>DIRECTION every period from offset to endTime involving the ship name</pre>
+     * For example:
+     * <pre>INBOUND every 10080 from 60 to 525600 involving the ship Voyager</pre>
+     *
+     * @return string representation of this schedule
+     */
+    @Override
+    public String toString() {
+        return String.format("%s every %d from %d to %d involving the ship %s",
+                direction, period, offset, endTime, ship.getName());
+    }
+
+    /**
+     * Returns the machine-readable string representation of this schedule. The format of the
+     * string to return is
+     * <p>
+     * RecurringSchedule:imoNumber:direction:period:offset:endTime For example:
+     * RecurringSchedule:1258691:INBOUND:10080:60:525600
+     *
+     * @return encoded string representation of this schedule
+     */
+    public String encode() {
+        return String.format("%s:%d:%s:%d:%d:%d", getClass().getSimpleName(),
+                ship.getImoNumber(), direction, period, offset, endTime);
+    }
+
+    /**
+     * Creates a recurring schedule from a string encoding. The format of the string should
+     * match the encoded representation of a schedule, as described in encode().
+     * <p>
+     * The encoded string is invalid if any of the following conditions are true: The number
+     * of colons (:) detected was more/fewer than expected. The imoNumber, period, offset or
+     * end time is not a long (i.e. cannot be parsed by Long.parseLong(String)). There is no
+     * ship that exists with the specified imoNumber. The direction is not one of the valid
+     * directions (See MovementDirection). The period, offset and end time are not valid for
+     * a schedule.
+     *
+     * @param string string containing the encoded schedule
+     * @return decoded schedule instance
+     * @throws BadEncodingException if the format of the given string is invalid according to
+     *                              the rules above
+     */
+    public static RecurringSchedule fromString(String string) throws BadEncodingException {
+        String[] pairs = string.split(":");
+        if (pairs.length != 6 || string.endsWith(":")) {
+            throw new BadEncodingException("The number of colons (:) detected was more/fewer than"
+                    + " expected");
+        }
+        if (!pairs[0].equals("RecurringSchedule")) {
+            throw new BadEncodingException("Not a class name of RecurringSchedule");
+        }
+
+        long imoNumber;
+        long period;
+        long offset;
+        long endTime;
+        try {
+            imoNumber = Long.parseLong(pairs[1]);
+            period = Long.parseLong(pairs[3]);
+            offset = Long.parseLong(pairs[4]);
+            endTime = Long.parseLong(pairs[5]);
+        } catch (NumberFormatException n) {
+            throw new BadEncodingException("The imoNumber, period, offset or end time is not "
+                    + "a long", n);
+        }
+
+        Ship ship;
+        try {
+            ship = Ship.getShipByImoNumber(imoNumber);
+        } catch (NoSuchShipException n) {
+            throw new BadEncodingException("There is no ship that exists with the specified "
+                    + "imoNumber", n);
+        }
+
+        MovementDirection direction;
+        try {
+            direction = MovementDirection.valueOf(pairs[2]);
+        } catch (IllegalArgumentException i) {
+            throw new BadEncodingException("The direction is not one of the valid directions",
+                    i);
+        }
+
+        try {
+            return new RecurringSchedule(ship, direction, period, offset, endTime);
+        } catch (IllegalArgumentException i) {
+            throw new BadEncodingException("The period, offset or end time is invalid", i);
+        }
+    }
+}
@@ -41,6 +41,19 @@ public class ShipMovement extends Movement {
         return ship;
     }
 
+    /**
+     * Returns a ship movement of the same ship in the same direction, to occur at the given
+     * time.
+     *
+     * @param time the time the returned movement should occur
+     * @return copy of this movement at the given time
+     * @throws IllegalArgumentException if time &lt; 0
+     */
+    @Override
+    public ShipMovement withTime(long time) throws IllegalArgumentException {
+        return new ShipMovement(time, getDirection(), ship);
+    }
+
     /**
      * Returns the human-readable string representation of this ShipMovement.
      * <p>
@@ -0,0 +1,1254 @@
+package portsim.network;
+
+import portsim.cargo.Cargo;
+import portsim.cargo.CargoLocation;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.Port;
+import portsim.port.PortCheckpoint;
+import portsim.port.Quay;
+import portsim.ship.Ship;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * A network of ports simulated together, each on its own thread, with ships sailing from one
+ * port to the next.
+ * <p>
+ * Each port may have a route to a next port with a transit time in minutes (see
+ * {@link #addRoute(Port, Port, long)}). When an OUTBOUND ship movement makes a ship leave a
+ * quay of a port with a route, the ship, along with the cargo it loaded, sails to the next
+ * port and arrives the transit time later. The network holds the ship while it is at sea, and
+ * adds an INBOUND ship movement for it to the next port at the minute it arrives, which puts
+ * the ship in the port's ship queue. Ships arriving at a port in the same minute are added in
+ * the order the ports they came from were added to the network, and then in the order they
+ * departed.
+ * <p>
+ * Ports are assigned to threads in the order they were added, and each port is only ever
+ * touched by one thread at a time. How the threads are kept in step is chosen with
+ * {@link #setSynchronisation(Synchronisation)}:
+ * <ul>
+ * <li>{@link Synchronisation#CONSERVATIVE}: no ship can arrive sooner than the shortest
+ * transit time (the lookahead) after it departs, so within a window no longer than the
+ * lookahead the ports cannot affect each other and are advanced in parallel. At the end of
+ * each window every thread waits at a barrier while the ships that departed are handed to
+ * their next ports.</li>
+ * <li>{@link Synchronisation#OPTIMISTIC}: each port runs ahead speculatively, up to the
+ * optimism window past the global virtual time (GVT), the time every port has reached for
+ * certain. Ports take a checkpoint every checkpoint interval (see
+ * {@link Port#checkpoint()}). A departing ship is handed to the next port at once if that
+ * port has yet to reach the minute it arrives. Otherwise the ship has turned up in the port's
+ * past (a straggler), and when the threads meet it rolls the port back to its last checkpoint
+ * before the arrival. The port is then
+ * replayed up to the minute before the arrival without sending any ships. Ships it sent later
+ * are recalled, which may roll back the ports they reached in turn. The GVT is then the
+ * earliest time of any port. Checkpoints, arrivals and departures no longer needed to roll
+ * back past it are discarded (fossil collection). The ports' statistics evaluators are only
+ * told about movements and ticks once they are at or before the GVT, so they never see
+ * events that are later rolled back.</li>
+ * </ul>
+ * Both produce the same results, which do not depend on the number of threads or on how the
+ * threads were scheduled. Optimistic synchronisation needs fewer meetings when the shortest
+ * transit time is short, at the cost of rolling back.
+ * <p>
+ * A ship should be scheduled at no more than one port of the network at a time, as ships are
+ * not thread safe. The berth allocators of the ports should not depend on the time taken to
+ * choose a quay when synchronisation is optimistic, so that replaying a port repeats what it
+ * did. Ports must not be changed by other threads while the network is running.
+ */
+public class PortNetwork {
+    /**
+     * Default number of minutes a port may run ahead of the GVT
+     */
+    public static final long DEFAULT_OPTIMISM_WINDOW = 120;
+
+    /**
+     * Default number of minutes between the checkpoints of a port
+     */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 10;
+
+    /**
+     * Order of ships arriving at a port: by arrival time, then the port they came from, then
+     * the order they departed
+     */
+    private static final Comparator<Transit> ARRIVAL_ORDER =
+            Comparator.<Transit>comparingLong(t -> t.arrival)
+                    .thenComparingInt(t -> t.source.index)
+                    .thenComparingLong(t -> t.sequence);
+
+    /**
+     * Greatest number of threads used to advance the ports
+     */
+    private final int threads;
+
+    /**
+     * The ports in the network, in the order they were added
+     */
+    private final List<Port> ports = new ArrayList<>();
+
+    /**
+     * Read-only view of the ports, shared by every caller of {@link #getPortsView()}
+     */
+    private final List<Port> portsView = Collections.unmodifiableList(ports);
+
+    /**
+     * The simulation state kept for each port, in the order the ports were added
+     */
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * How the ports are kept in step
+     */
+    private Synchronisation synchronisation = Synchronisation.CONSERVATIVE;
+
+    /**
+     * Number of minutes a port may run ahead of the GVT when synchronisation is optimistic
+     */
+    private long optimismWindow = DEFAULT_OPTIMISM_WINDOW;
+
+    /**
+     * Number of minutes between the checkpoints of a port when synchronisation is optimistic
+     */
+    private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * Number of times the threads have met to exchange ships
+     */
+    private long rounds;
+
+    /**
+     * Number of times a port has been rolled back
+     */
+    private long rollbacks;
+
+    /**
+     * Total number of minutes ports have been rolled back by
+     */
+    private long minutesRolledBack;
+
+    /**
+     * Whether the network is being run
+     */
+    private boolean running;
+
+    /**
+     * Creates a new, empty network advancing its ports on up to the given number of threads.
+     *
+     * @param threads greatest number of threads to use, including the calling thread
+     * @throws IllegalArgumentException if threads &lt; 1
+     */
+    public PortNetwork(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Adds a port to the network. The network becomes the port's departure listener (see
+     * {@link Port#setDepartureListener(portsim.port.DepartureListener)}), replacing any
+     * listener the port already had.
+     *
+     * @param port port to add
+     * @throws IllegalArgumentException if the port is already in the network
+     * @throws IllegalStateException    if the network is running
+     */
+    public synchronized void addPort(Port port)
+            throws IllegalArgumentException, IllegalStateException {
+        checkNotRunning();
+        if (nodeOf(port) != null) {
+            throw new IllegalArgumentException("port is already in the network: "
+                    + port.getName());
+        }
+        Node node = new Node(port, nodes.size());
+        ports.add(port);
+        nodes.add(node);
+        port.setDepartureListener((from, ship) -> depart(node, ship));
+    }
+
+    /**
+     * Sets the route of ships departing a port, replacing its previous route if it had one.
+     *
+     * @param from        port the ships depart from
+     * @param to          next port the ships sail to
+     * @param transitTime number of minutes the ships take to reach the next port
+     * @throws IllegalArgumentException if either port is not in the network, or transitTime
+     *                                  &lt; 1
+     * @throws IllegalStateException    if the network is running
+     */
+    public synchronized void addRoute(Port from, Port to, long transitTime)
+            throws IllegalArgumentException, IllegalStateException {
+        checkNotRunning();
+        Node source = nodeOf(from);
+        Node destination = nodeOf(to);
+        if (source == null || destination == null) {
+            throw new IllegalArgumentException("both ports must be in the network");
+        }
+        if (transitTime < 1) {
+            throw new IllegalArgumentException("transit time must be at least 1: "
+                    + transitTime);
+        }
+        source.route = new Route(destination, transitTime);
+    }
+
+    /**
+     * Removes the route of ships departing a port, so that they leave the network.
+     *
+     * @param from port the ships depart from
+     * @throws IllegalArgumentException if the port is not in the network
+     * @throws IllegalStateException    if the network is running
+     */
+    public synchronized void removeRoute(Port from)
+            throws IllegalArgumentException, IllegalStateException {
+        checkNotRunning();
+        Node source = nodeOf(from);
+        if (source == null) {
+            throw new IllegalArgumentException("port is not in the network: " + from.getName());
+        }
+        source.route = null;
+    }
+
+    /**
+     * Sets how the ports are kept in step. The default is
+     * {@link Synchronisation#CONSERVATIVE}.
+     *
+     * @param synchronisation synchronisation to use
+     * @throws NullPointerException  if synchronisation is null
+     * @throws IllegalStateException if the network is running
+     */
+    public synchronized void setSynchronisation(Synchronisation synchronisation)
+            throws IllegalStateException {
+        checkNotRunning();
+        if (synchronisation == null) {
+            throw new NullPointerException("synchronisation");
+        }
+        this.synchronisation = synchronisation;
+    }
+
+    /**
+     * Returns how the ports are kept in step.
+     *
+     * @return synchronisation used
+     */
+    public synchronized Synchronisation getSynchronisation() {
+        return synchronisation;
+    }
+
+    /**
+     * Sets the number of minutes a port may run ahead of the GVT when synchronisation is
+     * optimistic. The default is {@link #DEFAULT_OPTIMISM_WINDOW}.
+     *
+     * @param optimismWindow number of minutes
+     * @throws IllegalArgumentException if optimismWindow &lt; 1
+     * @throws IllegalStateException    if the network is running
+     */
+    public synchronized void setOptimismWindow(long optimismWindow)
+            throws IllegalArgumentException, IllegalStateException {
+        checkNotRunning();
+        if (optimismWindow < 1) {
+            throw new IllegalArgumentException("optimism window must be at least 1: "
+                    + optimismWindow);
+        }
+        this.optimismWindow = optimismWindow;
+    }
+
+    /**
+     * Returns the number of minutes a port may run ahead of the GVT when synchronisation is
+     * optimistic.
+     *
+     * @return optimism window in minutes
+     */
+    public synchronized long getOptimismWindow() {
+        return optimismWindow;
+    }
+
+    /**
+     * Sets the number of minutes between the checkpoints of a port when synchronisation is
+     * optimistic. Checkpoints are taken at times that are a multiple of the interval. Longer
+     * intervals take fewer checkpoints but replay more of a port when it is rolled back. The
+     * default is {@link #DEFAULT_CHECKPOINT_INTERVAL}.
+     *
+     * @param checkpointInterval number of minutes
+     * @throws IllegalArgumentException if checkpointInterval &lt; 1
+     * @throws IllegalStateException    if the network is running
+     */
+    public synchronized void setCheckpointInterval(long checkpointInterval)
+            throws IllegalArgumentException, IllegalStateException {
+        checkNotRunning();
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("checkpoint interval must be at least 1: "
+                    + checkpointInterval);
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Returns the number of minutes between the checkpoints of a port when synchronisation is
+     * optimistic.
+     *
+     * @return checkpoint interval in minutes
+     */
+    public synchronized long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Returns the ports in the network, in the order they were added. Adding or removing
+     * elements from the returned list is not permitted.
+     *
+     * @return read-only view of the ports
+     */
+    public List<Port> getPortsView() {
+        return portsView;
+    }
+
+    /**
+     * Returns the time of the port furthest behind, which is the time every port has reached.
+     *
+     * @return network time, or 0 if the network has no ports
+     */
+    public synchronized long getTime() {
+        if (ports.isEmpty()) {
+            return 0;
+        }
+        long time = Long.MAX_VALUE;
+        for (Port port : ports) {
+            time = Math.min(time, port.getTime());
+        }
+        return time;
+    }
+
+    /**
+     * Returns the shortest transit time of any route, which is the longest window in which
+     * the ports can be advanced independently.
+     *
+     * @return lookahead in minutes, or Long.MAX_VALUE if there are no routes
+     */
+    public synchronized long getLookahead() {
+        long lookahead = Long.MAX_VALUE;
+        for (Node node : nodes) {
+            if (node.route != null) {
+                lookahead = Math.min(lookahead, node.route.transitTime);
+            }
+        }
+        return lookahead;
+    }
+
+    /**
+     * Returns the number of ships that have arrived at a port from another port.
+     *
+     * @return number of ships delivered
+     */
+    public synchronized long getShipsDelivered() {
+        long delivered = 0;
+        for (Node node : nodes) {
+            delivered += node.arrived;
+        }
+        return delivered;
+    }
+
+    /**
+     * Returns the number of ships that have departed a port and are yet to arrive at the next.
+     *
+     * @return number of ships at sea
+     */
+    public synchronized int getShipsInTransit() {
+        int inTransit = 0;
+        for (Node node : nodes) {
+            inTransit += node.pending.size();
+        }
+        return inTransit;
+    }
+
+    /**
+     * Returns the number of times the threads have met to exchange ships.
+     *
+     * @return number of synchronisation rounds
+     */
+    public synchronized long getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Returns the number of times a port has been rolled back by optimistic synchronisation.
+     *
+     * @return number of rollbacks
+     */
+    public synchronized long getRollbacks() {
+        return rollbacks;
+    }
+
+    /**
+     * Returns the total number of minutes ports have been rolled back by.
+     *
+     * @return minutes of simulation undone
+     */
+    public synchronized long getMinutesRolledBack() {
+        return minutesRolledBack;
+    }
+
+    /**
+     * Advances every port in the network by the given number of minutes from the current
+     * network time (see {@link #getTime()}).
+     *
+     * @param minutes number of minutes to advance by
+     * @throws IllegalArgumentException if minutes &lt; 0
+     * @throws IllegalStateException    if the network is already running
+     */
+    public void run(long minutes) throws IllegalArgumentException, IllegalStateException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("minutes must be at least 0: " + minutes);
+        }
+        runUntil(getTime() + minutes);
+    }
+
+    /**
+     * Advances every port in the network that is behind the given time until it reaches that
+     * time. Ports already at or past the time are not advanced. A ship sailing to a port that
+     * was ahead when the run started arrives at the first minute after the port's time then
+     * if it would otherwise have arrived earlier.
+     * <p>
+     * If a port throws an exception, every thread stops when the threads next meet and the
+     * exception is rethrown. The ports are left at the times they had reached. When
+     * synchronisation is optimistic, they may include events not yet passed to their
+     * statistics evaluators.
+     *
+     * @param endTime time to advance the ports to
+     * @throws IllegalStateException if the network is already running, synchronisation is
+     *                               optimistic and a port has asynchronous evaluators, or the
+     *                               calling thread is interrupted while waiting for the other
+     *                               threads
+     */
+    public void runUntil(long endTime) throws IllegalStateException {
+        Run run;
+        synchronized (this) {
+            checkNotRunning();
+            if (ports.isEmpty()) {
+                return;
+            }
+            boolean optimistic = synchronisation == Synchronisation.OPTIMISTIC;
+            if (optimistic) {
+                for (Port port : ports) {
+                    if (port.isAsyncEvaluators()) {
+                        throw new IllegalStateException("optimistic synchronisation needs"
+                                + " synchronous evaluators: " + port.getName());
+                    }
+                }
+            }
+            run = new Run(endTime, optimistic);
+            running = true;
+        }
+        try {
+            run.execute();
+        } finally {
+            synchronized (this) {
+                running = false;
+            }
+        }
+    }
+
+    /*
+     * Records a ship leaving the port of the given node, unless the port is being replayed.
+     * When synchronisation is optimistic, the ship is handed to the next port straight away
+     * if the port has yet to reach the minute it arrives.
+     */
+    private void depart(Node node, Ship ship) {
+        Route route = node.route;
+        if (route == null || node.replaying) {
+            return;
+        }
+        long time = node.port.getTime();
+        Node destination = route.destination;
+        Transit transit = new Transit(ship, ship.getCargoOnBoard(), node, node.sent++, time,
+                destination, Math.max(time + route.transitTime, destination.floor));
+        node.outbox.add(transit);
+        if (running && synchronisation == Synchronisation.OPTIMISTIC) {
+            synchronized (destination) {
+                if (transit.arrival > destination.started) {
+                    transit.delivered = true;
+                    destination.inbox.add(transit);
+                }
+            }
+        }
+    }
+
+    /*
+     * Advances the port of the given node to the given time, adding each ship arriving from
+     * another port just before the minute it arrives. When synchronisation is optimistic,
+     * arrivals are kept for rolling back and checkpoints are taken.
+     */
+    private void advance(Node node, long end, boolean optimistic, long interval) {
+        Port port = node.port;
+        while (port.getTime() < end) {
+            long next = port.getTime() + 1;
+            if (optimistic && !node.replaying) {
+                synchronized (node) {
+                    node.pending.addAll(node.inbox);
+                    node.inbox.clear();
+                    node.started = next;
+                }
+            }
+            Transit transit;
+            while ((transit = node.pending.peek()) != null && transit.arrival <= next) {
+                node.pending.poll();
+                if (optimistic) {
+                    if (transit.injected) {
+                        // arriving again after a rollback, as it was when it departed
+                        transit.ship.restoreCargo(transit.cargo);
+                    }
+                    node.processed.add(transit);
+                } else {
+                    node.arrived++;
+                }
+                transit.injected = true;
+                port.addMovement(new ShipMovement(next, MovementDirection.INBOUND,
+                        transit.ship));
+            }
+            port.elapseOneMinute();
+            if (optimistic && next % interval == 0) {
+                node.checkpoints.add(port.checkpoint());
+            }
+        }
+    }
+
+    /* Returns the node of the given port by identity, or null if absent. */
+    private Node nodeOf(Port port) {
+        for (Node node : nodes) {
+            if (node.port == port) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /* Throws an IllegalStateException if the network is running. */
+    private void checkNotRunning() throws IllegalStateException {
+        if (running) {
+            throw new IllegalStateException("the network is running");
+        }
+    }
+
+    /* Returns true if the holder is the yard of the port or a ship the port holds. */
+    private static boolean holds(Port port, Object holder) {
+        if (holder == null) {
+            return false;
+        }
+        if (holder == port.getYard()) {
+            return true;
+        }
+        if (port.getShipQueue().getShipQueueView().contains(holder)) {
+            return true;
+        }
+        for (Quay quay : port.getQuaysView()) {
+            if (quay.getShip() == holder) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The route ships take from a port to the next port.
+     */
+    private static final class Route {
+        /**
+         * The next port
+         */
+        private final Node destination;
+
+        /**
+         * Number of minutes ships take to reach the next port
+         */
+        private final long transitTime;
+
+        /**
+         * Creates a new route.
+         *
+         * @param destination the next port
+         * @param transitTime number of minutes ships take to reach the next port
+         */
+        Route(Node destination, long transitTime) {
+            this.destination = destination;
+            this.transitTime = transitTime;
+        }
+    }
+
+    /**
+     * A ship that has departed a port and is sailing to the next port.
+     */
+    private static final class Transit {
+        /**
+         * The ship sailing
+         */
+        private final Ship ship;
+
+        /**
+         * The cargo onboard the ship when it departed
+         */
+        private final List<Cargo> cargo;
+
+        /**
+         * The port the ship departed from
+         */
+        private final Node source;
+
+        /**
+         * Order in which the ship departed from its port
+         */
+        private final long sequence;
+
+        /**
+         * Time the ship departed
+         */
+        private final long departure;
+
+        /**
+         * The port the ship is sailing to
+         */
+        private final Node destination;
+
+        /**
+         * Time the ship arrives at the next port
+         */
+        private long arrival;
+
+        /**
+         * Whether the ship has been added to the next port
+         */
+        private boolean injected;
+
+        /**
+         * Whether the departure has been undone by rolling back
+         */
+        private boolean cancelled;
+
+        /**
+         * Whether the ship has been handed to the next port
+         */
+        private boolean delivered;
+
+        /**
+         * Creates a new transit.
+         *
+         * @param ship        the ship sailing
+         * @param cargo       the cargo onboard when it departed
+         * @param source      the port the ship departed from
+         * @param sequence    order in which the ship departed from its port
+         * @param departure   time the ship departed
+         * @param destination the port the ship is sailing to
+         * @param arrival     time the ship arrives at the next port
+         */
+        Transit(Ship ship, List<Cargo> cargo, Node source, long sequence, long departure,
+                Node destination, long arrival) {
+            this.ship = ship;
+            this.cargo = cargo;
+            this.source = source;
+            this.sequence = sequence;
+            this.departure = departure;
+            this.destination = destination;
+            this.arrival = arrival;
+        }
+    }
+
+    /**
+     * The simulation state the network keeps for one port.
+     */
+    private static final class Node {
+        /**
+         * The port
+         */
+        private final Port port;
+
+        /**
+         * Position of the port in the network
+         */
+        private final int index;
+
+        /**
+         * The route leaving the port, or null if ships departing it leave the network
+         */
+        private Route route;
+
+        /**
+         * Ships that departed the port since the threads last met
+         */
+        private final List<Transit> outbox = new ArrayList<>();
+
+        /**
+         * Ships handed to the port by other threads since it last started a minute, guarded
+         * by the node
+         */
+        private final List<Transit> inbox = new ArrayList<>();
+
+        /**
+         * The last minute the port has started, guarded by the node; ships arriving later can
+         * still be handed to it without rolling it back
+         */
+        private long started;
+
+        /**
+         * Ships sailing to the port that have yet to arrive, in arrival order
+         */
+        private final PriorityQueue<Transit> pending = new PriorityQueue<>(ARRIVAL_ORDER);
+
+        /**
+         * Number of ships that have departed the port, used to order arrivals
+         */
+        private long sent;
+
+        /**
+         * Number of ships that have arrived at the port for certain
+         */
+        private long arrived;
+
+        /**
+         * Earliest time a ship can arrive at the port during the current run
+         */
+        private long floor;
+
+        /**
+         * Checkpoints of the port, oldest first, when synchronisation is optimistic
+         */
+        private final ArrayDeque<PortCheckpoint> checkpoints = new ArrayDeque<>();
+
+        /**
+         * Ships that have arrived since the oldest checkpoint, in arrival order
+         */
+        private final ArrayDeque<Transit> processed = new ArrayDeque<>();
+
+        /**
+         * Ships that have departed since the oldest checkpoint, in the order they departed
+         */
+        private final ArrayDeque<Transit> departed = new ArrayDeque<>();
+
+        /**
+         * Evaluator recording the events of the port until they are committed, or null
+         */
+        private EventLog log;
+
+        /**
+         * The port's evaluators, detached from the port while the log records its events
+         */
+        private List<StatisticsEvaluator> evaluators;
+
+        /**
+         * Whether the port is being replayed after a rollback, when departures are not sent
+         */
+        private boolean replaying;
+
+        /**
+         * Creates the state for a port.
+         *
+         * @param port  the port
+         * @param index position of the port in the network
+         */
+        Node(Port port, int index) {
+            this.port = port;
+            this.index = index;
+        }
+    }
+
+    /**
+     * A movement or tick processed by a port, waiting to be passed to its evaluators.
+     */
+    private static final class LoggedEvent {
+        /**
+         * Time of the port when the event happened
+         */
+        private final long time;
+
+        /**
+         * The movement processed, or null for a tick
+         */
+        private final Movement movement;
+
+        /**
+         * Creates a logged event.
+         *
+         * @param time     time of the port
+         * @param movement the movement processed, or null for a tick
+         */
+        LoggedEvent(long time, Movement movement) {
+            this.time = time;
+            this.movement = movement;
+        }
+    }
+
+    /**
+     * An evaluator standing in for a port's evaluators when synchronisation is optimistic. It
+     * records each event until the GVT passes it, then passes it on to the port's evaluators.
+     */
+    private static final class EventLog extends StatisticsEvaluator {
+        /**
+         * The port whose events are recorded
+         */
+        private final Port port;
+
+        /**
+         * Events not yet committed, oldest first
+         */
+        private final ArrayDeque<LoggedEvent> events = new ArrayDeque<>();
+
+        /**
+         * Time up to which events have been committed; events replayed up to this time are
+         * not recorded again
+         */
+        private long committed;
+
+        /**
+         * Creates a log of the given port's events.
+         *
+         * @param port port whose events are recorded
+         */
+        EventLog(Port port) {
+            this.port = port;
+            this.committed = port.getTime();
+        }
+
+        /**
+         * Records the processed movement.
+         *
+         * @param movement movement processed by the port
+         */
+        @Override
+        public void onProcessMovement(Movement movement) {
+            if (port.getTime() > committed) {
+                events.add(new LoggedEvent(port.getTime(), movement));
+            }
+        }
+
+        /**
+         * Records the tick.
+         */
+        @Override
+        public void elapseOneMinute() {
+            super.elapseOneMinute();
+            if (port.getTime() > committed) {
+                events.add(new LoggedEvent(port.getTime(), null));
+            }
+        }
+
+        /**
+         * Forgets the events after the given time, which have been rolled back.
+         *
+         * @param time time the port was rolled back to
+         */
+        void truncate(long time) {
+            while (!events.isEmpty() && events.peekLast().time > time) {
+                events.pollLast();
+            }
+        }
+
+        /**
+         * Passes the events up to the given time on to the evaluators, in order.
+         *
+         * @param time       time up to which events can no longer be rolled back
+         * @param evaluators evaluators to pass the events to
+         */
+        void commit(long time, List<StatisticsEvaluator> evaluators) {
+            while (!events.isEmpty() && events.peekFirst().time <= time) {
+                Movement movement = events.pollFirst().movement;
+                for (int i = 0; i < evaluators.size(); i++) {
+                    if (movement == null) {
+                        evaluators.get(i).elapseOneMinute();
+                    } else {
+                        evaluators.get(i).onProcessMovement(movement);
+                    }
+                }
+            }
+            committed = Math.max(committed, time);
+        }
+    }
+
+    /**
+     * One call to {@link #runUntil(long)}: the windows the ports are advanced in and the
+     * threads advancing them.
+     */
+    private final class Run {
+        /**
+         * Time the ports are being advanced to
+         */
+        private final long endTime;
+
+        /**
+         * Whether synchronisation is optimistic
+         */
+        private final boolean optimistic;
+
+        /**
+         * Longest window in which the ports can be advanced independently
+         */
+        private final long lookahead;
+
+        /**
+         * Number of minutes a port may run ahead of the GVT
+         */
+        private final long window;
+
+        /**
+         * Number of minutes between checkpoints
+         */
+        private final long interval;
+
+        /**
+         * Number of threads advancing the ports, including the calling thread
+         */
+        private final int workers;
+
+        /**
+         * Barrier the threads wait at between windows; its action exchanges the ships that
+         * departed and opens the next window
+         */
+        private final CyclicBarrier barrier;
+
+        /**
+         * End of the current window, read by the threads after each barrier
+         */
+        private long windowEnd;
+
+        /**
+         * Whether the last window has been run
+         */
+        private boolean done;
+
+        /**
+         * The first exception thrown by a port or a thread, or null
+         */
+        private Throwable failure;
+
+        /**
+         * Creates a run advancing the ports to the given time.
+         *
+         * @param endTime    time to advance the ports to
+         * @param optimistic whether synchronisation is optimistic
+         */
+        Run(long endTime, boolean optimistic) {
+            this.endTime = endTime;
+            this.optimistic = optimistic;
+            this.lookahead = getLookahead();
+            this.window = optimismWindow;
+            this.interval = checkpointInterval;
+            this.workers = Math.min(threads, ports.size());
+            this.barrier = new CyclicBarrier(workers, this::endWindow);
+            long start = getTime();
+            this.windowEnd = nextWindowEnd(start);
+            this.done = windowEnd <= start;
+        }
+
+        /**
+         * Runs every window, on the calling thread and workers - 1 new threads, and rethrows
+         * the first failure.
+         *
+         * @throws IllegalStateException if the calling thread is interrupted while waiting
+         */
+        void execute() throws IllegalStateException {
+            start();
+            try {
+                List<Thread> started = new ArrayList<>();
+                for (int i = 1; i < workers; i++) {
+                    int worker = i;
+                    Thread thread = new Thread(() -> work(worker), "portsim-network-" + i);
+                    thread.setDaemon(true);
+                    thread.start();
+                    started.add(thread);
+                }
+                work(0);
+                for (Thread thread : started) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted while running the network",
+                                e);
+                    }
+                }
+            } finally {
+                finish();
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new IllegalStateException("network run failed", failure);
+            }
+        }
+
+        /* Prepares the ports, taking the first checkpoints and logging events if optimistic. */
+        private void start() {
+            for (Node node : nodes) {
+                node.floor = node.port.getTime() + 1;
+                node.started = node.port.getTime();
+                if (optimistic) {
+                    node.checkpoints.add(node.port.checkpoint());
+                    node.evaluators = node.port.getEvaluators();
+                    for (StatisticsEvaluator evaluator : node.evaluators) {
+                        node.port.removeStatisticsEvaluator(evaluator);
+                    }
+                    node.log = new EventLog(node.port);
+                    node.port.addStatisticsEvaluator(node.log);
+                }
+            }
+        }
+
+        /* Commits every event, drops the rollback state and gives the ports their evaluators. */
+        private void finish() {
+            if (!optimistic) {
+                return;
+            }
+            for (Node node : nodes) {
+                if (failure == null) {
+                    node.log.commit(Long.MAX_VALUE, node.evaluators);
+                    node.arrived += node.processed.size();
+                }
+                node.checkpoints.clear();
+                node.port.discardCheckpoints();
+                node.processed.clear();
+                node.departed.clear();
+                node.port.removeStatisticsEvaluator(node.log);
+                for (StatisticsEvaluator evaluator : node.evaluators) {
+                    node.port.addStatisticsEvaluator(evaluator);
+                }
+                node.log = null;
+                node.evaluators = null;
+            }
+        }
+
+        /* Advances the worker's share of the ports through every window. */
+        private void work(int worker) {
+            while (!done) {
+                long end = windowEnd;
+                try {
+                    for (int i = worker; i < nodes.size(); i += workers) {
+                        advance(nodes.get(i), end, optimistic, interval);
+                    }
+                } catch (RuntimeException | Error e) {
+                    fail(e);
+                }
+                try {
+                    barrier.await();
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    fail(e);
+                    return;
+                }
+            }
+        }
+
+        /* Exchanges the ships that departed in the window and opens the next window. */
+        private void endWindow() {
+            synchronized (PortNetwork.this) {
+                rounds++;
+                long reached = windowEnd;
+                try {
+                    if (optimistic) {
+                        reached = endRound();
+                    } else {
+                        deliverAll();
+                    }
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+                if (failure != null || reached >= endTime) {
+                    done = true;
+                } else {
+                    windowEnd = nextWindowEnd(reached);
+                }
+            }
+        }
+
+        /* Returns the end of the window starting at the given time. */
+        private long nextWindowEnd(long start) {
+            long length = optimistic ? window : lookahead;
+            if (length >= endTime - start) {
+                return endTime;
+            }
+            return start + length;
+        }
+
+        /* Hands each departed ship to its next port, in port order then departure order. */
+        private void deliverAll() {
+            for (Node node : nodes) {
+                for (int i = 0; i < node.outbox.size(); i++) {
+                    Transit transit = node.outbox.get(i);
+                    Node destination = transit.destination;
+                    transit.arrival = Math.max(transit.arrival, destination.floor);
+                    transit.delivered = true;
+                    destination.pending.add(transit);
+                }
+                node.outbox.clear();
+            }
+        }
+
+        /*
+         * Hands each departed ship to its next port, rolling back ports that have passed its
+         * arrival, then collects fossils up to the new GVT, which is returned.
+         */
+        private long endRound() {
+            List<Transit> sent = new ArrayList<>();
+            for (Node node : nodes) {
+                node.pending.addAll(node.inbox);
+                node.inbox.clear();
+                node.departed.addAll(node.outbox);
+                sent.addAll(node.outbox);
+                node.outbox.clear();
+            }
+            for (Transit transit : sent) {
+                if (!transit.cancelled && !transit.delivered) {
+                    deliver(transit);
+                }
+            }
+
+            long gvt = getTime();
+            for (Node node : nodes) {
+                collectFossils(node, gvt);
+            }
+            return gvt;
+        }
+
+        /* Hands a departed ship to its next port, rolling the port back if it is a straggler. */
+        private void deliver(Transit transit) {
+            Node destination = transit.destination;
+            transit.arrival = Math.max(transit.arrival, destination.floor);
+            transit.delivered = true;
+            if (transit.arrival <= destination.port.getTime()) {
+                rollback(destination, transit.arrival - 1);
+            }
+            destination.pending.add(transit);
+        }
+
+        /* Undoes a departure, rolling back the next port if the ship has arrived there. */
+        private void cancel(Transit transit) {
+            transit.cancelled = true;
+            if (!transit.delivered) {
+                return;
+            }
+            Node destination = transit.destination;
+            if (transit.arrival <= destination.port.getTime()) {
+                rollback(destination, transit.arrival - 1);
+            }
+            destination.pending.remove(transit);
+        }
+
+        /*
+         * Rolls the port of the given node back to the given time: restores its last
+         * checkpoint at or before the time and replays it up to the time without sending
+         * ships, then cancels the ships it sent after the time.
+         */
+        private void rollback(Node node, long target) {
+            Port port = node.port;
+            long from = port.getTime();
+            if (from <= target) {
+                return;
+            }
+            while (node.checkpoints.peekLast().getTime() > target) {
+                node.checkpoints.pollLast();
+            }
+            PortCheckpoint checkpoint = node.checkpoints.peekLast();
+
+            List<Transit> cancelled = new ArrayList<>();
+            while (!node.departed.isEmpty() && node.departed.peekLast().departure > target) {
+                cancelled.add(node.departed.pollLast());
+            }
+
+            // ships that left before the target may be changed by the replay, so remember
+            // how the ports they reached have them now
+            List<Ship> ships = new ArrayList<>();
+            List<List<Cargo>> shipCargo = new ArrayList<>();
+            List<Cargo> cargo = new ArrayList<>();
+            List<CargoLocation> locations = new ArrayList<>();
+            List<Object> holders = new ArrayList<>();
+            Iterator<Transit> departures = node.departed.descendingIterator();
+            while (departures.hasNext()) {
+                Transit transit = departures.next();
+                if (transit.departure <= checkpoint.getTime()) {
+                    break;
+                }
+                if (transit.injected) {
+                    ships.add(transit.ship);
+                    shipCargo.add(transit.ship.getCargoOnBoard());
+                    for (Cargo carried : transit.cargo) {
+                        cargo.add(carried);
+                        locations.add(carried.getLocation());
+                        holders.add(carried.getHolder());
+                    }
+                }
+            }
+
+            while (!node.processed.isEmpty()
+                    && node.processed.peekLast().arrival > checkpoint.getTime()) {
+                node.pending.add(node.processed.pollLast());
+            }
+            port.restore(checkpoint);
+            node.log.truncate(checkpoint.getTime());
+            node.replaying = true;
+            try {
+                advance(node, target, true, interval);
+            } finally {
+                node.replaying = false;
+            }
+            node.started = target;
+
+            // the replay decides what this port holds; elsewhere, put things back
+            for (int i = ships.size() - 1; i >= 0; i--) {
+                if (!holds(port, ships.get(i))) {
+                    ships.get(i).restoreCargo(shipCargo.get(i));
+                }
+            }
+            for (int i = 0; i < cargo.size(); i++) {
+                if (!holds(port, cargo.get(i).getHolder())) {
+                    cargo.get(i).setLocation(locations.get(i), holders.get(i));
+                }
+            }
+
+            rollbacks++;
+            minutesRolledBack += from - target;
+            for (Transit transit : cancelled) {
+                cancel(transit);
+            }
+        }
+
+        /*
+         * Drops the checkpoints of the node that are not needed to roll back past the GVT, and
+         * the arrivals and departures before the oldest checkpoint left, and commits the
+         * port's events up to the GVT.
+         */
+        private void collectFossils(Node node, long gvt) {
+            while (node.checkpoints.size() > 1) {
+                PortCheckpoint oldest = node.checkpoints.pollFirst();
+                if (node.checkpoints.peekFirst().getTime() > gvt) {
+                    node.checkpoints.addFirst(oldest);
+                    break;
+                }
+            }
+            node.port.discardCheckpointsBefore(node.checkpoints.peekFirst());
+            long oldest = node.checkpoints.peekFirst().getTime();
+            while (!node.processed.isEmpty() && node.processed.peekFirst().arrival <= oldest) {
+                node.processed.pollFirst();
+                node.arrived++;
+            }
+            while (!node.departed.isEmpty() && node.departed.peekFirst().departure <= oldest) {
+                node.departed.pollFirst();
+            }
+            node.log.commit(gvt, node.evaluators);
+        }
+
+        /* Records the failure if it is the first. */
+        private synchronized void fail(Throwable e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package portsim.network;
+
+/**
+ * How the ports of a {@link PortNetwork} are kept from running ahead of ships that have yet
+ * to reach them.
+ */
+public enum Synchronisation {
+    /**
+     * Ports never run ahead of a ship that could still reach them: they are advanced in
+     * windows no longer than the shortest transit time, and wait for each other at the end of
+     * every window.
+     */
+    CONSERVATIVE,
+
+    /**
+     * Ports run ahead speculatively, up to the optimism window past the time every port has
+     * reached, and are rolled back to a checkpoint when a ship turns up in their past (Time
+     * Warp).
+     */
+    OPTIMISTIC
+}
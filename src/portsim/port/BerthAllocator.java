@@ -0,0 +1,41 @@
+package portsim.port;
+
+import portsim.ship.Ship;
+
+import java.util.List;
+
+/**
+ * A strategy for choosing the quay at which a ship leaving the ship queue docks.
+ * <p>
+ * A port asks its allocator for a quay each time it brings a ship in from the queue (see
+ * {@link Port#setBerthAllocator(BerthAllocator)}). The allocator may look at the port's quays,
+ * its time and its pending movements, but must not change the port.
+ */
+@FunctionalInterface
+public interface BerthAllocator {
+    /**
+     * Docks each ship at the first empty quay, in the order the quays were added, that the
+     * ship can dock at. This is the default allocator of a port.
+     */
+    BerthAllocator FIRST_FIT = (ship, port) -> {
+        List<Quay> quays = port.getQuaysView();
+        for (int i = 0; i < quays.size(); i++) {
+            Quay quay = quays.get(i);
+            if (quay.isEmpty() && ship.canDock(quay)) {
+                return quay;
+            }
+        }
+        return null;
+    };
+
+    /**
+     * Chooses an empty quay of the port that the ship can dock at (see
+     * {@link Ship#canDock(Quay)}), or none if the ship should wait.
+     *
+     * @param ship ship to dock
+     * @param port port the ship is docking in
+     * @return quay to dock the ship at, or null if it cannot dock at any empty quay or
+     * should wait for a later docking
+     */
+    Quay chooseQuay(Ship ship, Port port);
+}
@@ -0,0 +1,293 @@
+package portsim.port;
+
+import portsim.cargo.BulkCargo;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * A berth allocator that docks each ship at the quay it fits best, looking ahead at the ships
+ * known to be arriving so that a small ship does not take the only quay a later large ship
+ * could use.
+ * <p>
+ * The fit of a ship at a quay is the quay's spare capacity once the ship is docked: its
+ * maximum number of containers less the containers on board a container ship, or its maximum
+ * tonnage less the tonnage on board a bulk carrier. Less spare capacity is a better fit.
+ * <p>
+ * For each quay the ship could dock at, the allocator plays out the arrivals within its
+ * horizon: the ships waiting in the ship queue, then the INBOUND ship movements queued at the
+ * port (see {@link Port#getMovementsBetween(long, long, MovementDirection)}), in order. Each
+ * arriving ship takes the best fitting quay that is free at its arrival time. A quay is free
+ * from the time of the first queued OUTBOUND movement of the ship docked at it (see
+ * {@link Port#getShipMovements(long, long, long)}), or never within the horizon if that ship
+ * has no such movement. The quay chosen is the one that leaves the fewest arriving ships
+ * without a quay, then the best fitting, then the one with the least spare capacity over all
+ * the arrivals.
+ * <p>
+ * Because a ship fits every quay a larger ship fits, the best fitting quay is usually the
+ * right choice. The lookahead matters when only a large quay is empty now and a larger ship
+ * is due to arrive: if that ship would find no quay, but the smaller ship could wait for the
+ * next docking and take a quay that will have been freed, the allocator returns null so that
+ * the ship waits (see {@link Port#setBerthAllocator(BerthAllocator)}). A waiting ship keeps
+ * its place in the ship queue, so it is played out as docking at the next docking before any
+ * of the arrivals. A ship only waits if that leaves strictly fewer ships without a quay.
+ * <p>
+ * The search is limited to a budget of fit checks, each the test of one arriving ship against
+ * one quay, so that the quay chosen does not depend on the speed or load of the machine.
+ * Quays are tried best fitting first, and then waiting, for as long as the budget covers
+ * playing out every arrival; the best of those tried is chosen, or the best fitting quay if
+ * the budget does not cover trying even that. Quays are tried in parallel when there is
+ * enough work to be worth it, with the same result.
+ */
+public class BestFitBerthAllocator implements BerthAllocator {
+    /**
+     * Number of fit checks a search must need before quays are tried in parallel
+     */
+    private static final long PARALLEL_WORK = 1 << 14;
+
+    /**
+     * Number of minutes between the port's attempts to dock a ship from the ship queue
+     */
+    private static final long DOCKING_INTERVAL = 10;
+
+    /**
+     * Candidate standing for the ship waiting instead of docking now
+     */
+    private static final int WAIT = -1;
+
+    /**
+     * Number of minutes ahead to look for arriving ships
+     */
+    private final long horizon;
+
+    /**
+     * Greatest number of fit checks to make choosing one quay
+     */
+    private final long budget;
+
+    /**
+     * Creates a new best fit allocator.
+     *
+     * @param horizon number of minutes ahead to look for arriving ships; 0 to consider only
+     *                the ships waiting in the ship queue
+     * @param budget  greatest number of fit checks to make choosing one quay
+     * @throws IllegalArgumentException if horizon &lt; 0 or budget &lt;= 0
+     */
+    public BestFitBerthAllocator(long horizon, long budget)
+            throws IllegalArgumentException {
+        if (horizon < 0) {
+            throw new IllegalArgumentException("Horizon must be greater than"
+                    + " or equal to 0: " + horizon);
+        }
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be greater than 0: " + budget);
+        }
+        this.horizon = horizon;
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the number of minutes ahead this allocator looks for arriving ships.
+     *
+     * @return lookahead horizon in minutes
+     */
+    public long getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Returns the greatest number of fit checks this allocator makes choosing one quay.
+     *
+     * @return budget of fit checks
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Quay chooseQuay(Ship ship, Port port) {
+        List<Quay> quays = port.getQuaysView();
+        long now = port.getTime();
+        long end = now > Long.MAX_VALUE - horizon ? Long.MAX_VALUE : now + horizon;
+
+        int[] candidates = candidates(ship, quays);
+        if (candidates.length == 0) {
+            return null;
+        }
+
+        List<Ship> arriving = new ArrayList<>();
+        List<Long> arrivals = new ArrayList<>();
+        for (Ship waiting : port.getShipQueue().getShipQueueView()) {
+            arriving.add(waiting);
+            arrivals.add(now);
+        }
+        if (horizon > 0) {
+            for (Movement movement : port.getMovementsBetween(now + 1, end,
+                    MovementDirection.INBOUND)) {
+                if (movement instanceof ShipMovement) {
+                    arriving.add(((ShipMovement) movement).getShip());
+                    arrivals.add(movement.getTime());
+                }
+            }
+        }
+        if (arriving.isEmpty()) {
+            return quays.get(candidates[0]);
+        }
+
+        long[] departures = new long[arriving.size()];
+        for (int i = 0; i < departures.length; i++) {
+            departures[i] = departure(port, arriving.get(i), arrivals.get(i), end);
+        }
+        long[] freeAt = new long[quays.size()];
+        for (int i = 0; i < freeAt.length; i++) {
+            Quay quay = quays.get(i);
+            freeAt[i] = quay.isEmpty() ? now : departure(port, quay.getShip(), now, end);
+        }
+        long shipDeparture = departure(port, ship, now, end);
+
+        // the last option is for the ship to wait; only those the budget covers are tried
+        long checks = (long) (arriving.size() + 1) * quays.size();
+        int options = (int) Math.min(candidates.length + 1, budget / checks);
+        if (options == 0) {
+            return quays.get(candidates[0]);
+        }
+        long[][] scores = new long[options][];
+        if (options * checks >= PARALLEL_WORK) {
+            IntStream.range(0, options).parallel().forEach(i ->
+                    scores[i] = score(ship, i < candidates.length ? candidates[i] : WAIT, now,
+                            shipDeparture, quays, freeAt, arriving, arrivals, departures));
+        } else {
+            for (int i = 0; i < options; i++) {
+                scores[i] = score(ship, i < candidates.length ? candidates[i] : WAIT, now,
+                        shipDeparture, quays, freeAt, arriving, arrivals, departures);
+            }
+        }
+
+        int best = 0;
+        for (int i = 1; i < options; i++) {
+            if (Arrays.compare(scores[i], scores[best]) < 0) {
+                best = i;
+            }
+        }
+        return best < candidates.length ? quays.get(candidates[best]) : null;
+    }
+
+    /*
+     * Returns the positions of the empty quays the ship can dock at, best fitting first, and
+     * in the order the quays were added among those that fit equally well.
+     */
+    private static int[] candidates(Ship ship, List<Quay> quays) {
+        List<long[]> fitting = new ArrayList<>();
+        for (int i = 0; i < quays.size(); i++) {
+            Quay quay = quays.get(i);
+            if (quay.isEmpty() && ship.canDock(quay)) {
+                fitting.add(new long[] {slack(ship, quay), i});
+            }
+        }
+        fitting.sort(Arrays::compare);
+        int[] candidates = new int[fitting.size()];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = (int) fitting.get(i)[1];
+        }
+        return candidates;
+    }
+
+    /*
+     * Plays out the arrivals with the ship docked at the candidate quay, or waiting for the
+     * next docking if the candidate is WAIT. Returns the number of arriving ships left without
+     * a quay, 1 if the ship waited, the spare capacity of the candidate and the total spare
+     * capacity of the quays the other ships took. Makes at most (arrivals + 1) * quays fit
+     * checks.
+     */
+    private static long[] score(Ship ship, int candidate, long now, long shipDeparture,
+                                List<Quay> quays, long[] freeAt, List<Ship> arriving,
+                                List<Long> arrivals, long[] departures) {
+        long[] free = freeAt.clone();
+        long unplaced = 0;
+        long totalSlack = 0;
+        if (candidate == WAIT) {
+            // the ship keeps its place in the queue and docks at the next docking
+            int quay = bestFree(ship, now + DOCKING_INTERVAL, quays, free);
+            if (quay < 0) {
+                unplaced++;
+            } else {
+                free[quay] = shipDeparture;
+            }
+        } else {
+            free[candidate] = shipDeparture;
+        }
+        for (int i = 0; i < arriving.size(); i++) {
+            Ship next = arriving.get(i);
+            int quay = bestFree(next, arrivals.get(i), quays, free);
+            if (quay < 0) {
+                unplaced++;
+            } else {
+                free[quay] = departures[i];
+                totalSlack += slack(next, quays.get(quay));
+            }
+        }
+        if (candidate == WAIT) {
+            return new long[] {unplaced, 1, 0, totalSlack};
+        }
+        return new long[] {unplaced, 0, slack(ship, quays.get(candidate)), totalSlack};
+    }
+
+    /*
+     * Returns the position of the best fitting quay for the ship among those free at the given
+     * time, or -1 if the ship can dock at none of them.
+     */
+    private static int bestFree(Ship ship, long time, List<Quay> quays, long[] free) {
+        int best = -1;
+        long bestSlack = Long.MAX_VALUE;
+        for (int q = 0; q < free.length; q++) {
+            if (free[q] <= time) {
+                Quay quay = quays.get(q);
+                if (ship.canDock(quay)) {
+                    long slack = slack(ship, quay);
+                    if (slack < bestSlack) {
+                        bestSlack = slack;
+                        best = q;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Returns the time of the ship's first queued OUTBOUND movement from the given time to
+     * end, or Long.MAX_VALUE if it has none.
+     */
+    private static long departure(Port port, Ship ship, long from, long end) {
+        for (ShipMovement movement : port.getShipMovements(ship.getImoNumber(), from, end)) {
+            if (movement.getDirection() == MovementDirection.OUTBOUND) {
+                return movement.getTime();
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /* Returns the spare capacity of the quay once the ship is docked at it. */
+    private static long slack(Ship ship, Quay quay) {
+        if (ship instanceof ContainerShip && quay instanceof ContainerQuay) {
+            return ((ContainerQuay) quay).getMaxContainers()
+                    - ((ContainerShip) ship).getCargoView().size();
+        }
+        if (ship instanceof BulkCarrier && quay instanceof BulkQuay) {
+            BulkCargo cargo = ((BulkCarrier) ship).getCargo();
+            return ((BulkQuay) quay).getMaxTonnage() - (cargo == null ? 0 : cargo.getTonnage());
+        }
+        return 0;
+    }
+}
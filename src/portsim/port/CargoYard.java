@@ -0,0 +1,974 @@
+package portsim.port;
+
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.CargoLocation;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * The warehouses of a port, holding the cargo stored at the port.
+ * <p>
+ * Cargo is kept in the order it was stored. Storing and removing a piece of cargo take
+ * constant time. A piece of cargo is held at most once, so storing cargo that is already in
+ * the yard has no effect.
+ * <p>
+ * The yard keeps running counts of the cargo it holds by class and type, and the total
+ * tonnage of its bulk cargo. These are updated as cargo is stored or removed, so they can be
+ * read at any time without scanning the yard.
+ * <p>
+ * Containers are also indexed by destination code, and bulk cargo by destination code and
+ * tonnage, so that a departing ship can be loaded without scanning the yard (see
+ * {@link #takeContainers(int, int, Collection)} and {@link #takeBulkCargo(int, int)}).
+ * Cargo without a destination is stored but never taken this way.
+ * <p>
+ * Cargo stored in the yard has the yard recorded as its location (see
+ * {@link Cargo#getLocation()}) until it is removed or taken.
+ * <p>
+ * So that its port can be checkpointed cheaply (see {@link Port#checkpoint()}), the yard can
+ * keep a history of the cargo stored in it, from which it can be reset to its contents at an
+ * earlier time. While the history is kept, storing and removing cargo also update it.
+ * <p>
+ * So that its port can be forked cheaply (see {@link Port#fork()}), the yard can also be
+ * forked. The cargo held when a yard is forked is then shared, unchanged, by the yard and its
+ * fork, and each of them keeps only the cargo stored in it or removed from it since. Reading
+ * and taking cargo look at both. Once a yard has made more changes than there is cargo
+ * shared, it copies its contents and stops sharing them, so that it does not slow down as
+ * its changes grow. A fork does not record itself as the location of its cargo.
+ */
+public class CargoYard {
+    /**
+     * The cargo stored in the yard, in the order it was stored, excluding any shared cargo
+     */
+    private Set<Cargo> cargo = new LinkedHashSet<>();
+
+    /**
+     * Read-only view of the stored cargo
+     */
+    private final Collection<Cargo> cargoView = new CargoView();
+
+    /**
+     * Containers stored, indexed by destination code, in the order they were stored,
+     * excluding any shared containers
+     */
+    private List<Set<Container>> containersByDestination = new ArrayList<>();
+
+    /**
+     * Bulk cargo stored, indexed by destination code and then by tonnage, in the order it was
+     * stored, excluding any shared bulk cargo
+     */
+    private List<TreeMap<Integer, Set<BulkCargo>>> bulkCargoByDestination = new ArrayList<>();
+
+    /**
+     * Number of containers stored, indexed by container type ordinal
+     */
+    private final int[] containersByType = new int[ContainerType.values().length];
+
+    /**
+     * Number of bulk cargo lots stored, indexed by bulk cargo type ordinal
+     */
+    private final int[] bulkCargoByType = new int[BulkCargoType.values().length];
+
+    /**
+     * Tonnage of bulk cargo stored, indexed by bulk cargo type ordinal
+     */
+    private final long[] tonnageByType = new long[BulkCargoType.values().length];
+
+    /**
+     * Number of containers stored
+     */
+    private int containers;
+
+    /**
+     * Number of bulk cargo lots stored
+     */
+    private int bulkCargo;
+
+    /**
+     * Total tonnage of bulk cargo stored
+     */
+    private long tonnage;
+
+    /**
+     * History of the cargo stored, or null if no history is kept
+     */
+    private History history;
+
+    /**
+     * Cargo shared with forks of the yard, or null if the yard shares no cargo
+     */
+    private Shared shared;
+
+    /**
+     * Shared cargo that has been removed from the yard, or null if the yard shares no cargo
+     */
+    private Set<Cargo> removedShared;
+
+    /**
+     * For each destination code, the shared containers bound there that have not yet been
+     * passed over by {@link #takeContainers(int, int, Collection)}, or null if the yard shares
+     * no cargo
+     */
+    private List<Iterator<Container>> sharedCursors;
+
+    /**
+     * Whether the yard records itself as the location of the cargo stored in it
+     */
+    private final boolean tracksCargo;
+
+    /**
+     * Creates an empty yard.
+     */
+    public CargoYard() {
+        this(true);
+    }
+
+    /**
+     * Creates an empty yard.
+     *
+     * @param tracksCargo whether the yard records itself as the location of its cargo
+     */
+    private CargoYard(boolean tracksCargo) {
+        this.tracksCargo = tracksCargo;
+    }
+
+    /**
+     * Stores the given cargo in the yard.
+     *
+     * @param cargo cargo to store
+     * @return true if the cargo was stored, false if it was already in the yard
+     */
+    public boolean store(Cargo cargo) {
+        if (isShared(cargo) || !this.cargo.add(cargo)) {
+            return false;
+        }
+        if (history != null) {
+            history.add(cargo);
+        }
+        admit(cargo);
+        stopSharingIfChanged();
+        return true;
+    }
+
+    /* Records the yard as the location of the added cargo, then indexes and counts it */
+    private void admit(Cargo cargo) {
+        if (tracksCargo) {
+            cargo.setLocation(CargoLocation.YARD, this);
+        }
+        addToIndexes(cargo);
+        count(cargo, 1);
+    }
+
+    /* Adds the cargo to the yard's own indexes by destination */
+    private void addToIndexes(Cargo cargo) {
+        int destination = cargo.getDestinationCode();
+        if (destination >= 0 && cargo instanceof Container) {
+            index(containersByDestination, destination, LinkedHashSet::new)
+                    .add((Container) cargo);
+        } else if (destination >= 0 && cargo instanceof BulkCargo) {
+            BulkCargo bulk = (BulkCargo) cargo;
+            index(bulkCargoByDestination, destination, TreeMap::new)
+                    .computeIfAbsent(bulk.getTonnage(), t -> new LinkedHashSet<>()).add(bulk);
+        }
+    }
+
+    /* Returns the entry of the index for the given code, creating it if necessary */
+    private static <T> T index(List<T> index, int code, Supplier<T> create) {
+        while (index.size() <= code) {
+            index.add(null);
+        }
+        T entry = index.get(code);
+        if (entry == null) {
+            entry = create.get();
+            index.set(code, entry);
+        }
+        return entry;
+    }
+
+    /* Returns the entry of the index for the given code, or null if there is none */
+    private static <T> T lookup(List<T> index, int code) {
+        return code >= 0 && code < index.size() ? index.get(code) : null;
+    }
+
+    /**
+     * Stores every piece of the given cargo in the yard, in order. This takes time
+     * proportional to the number of pieces given.
+     *
+     * @param batch cargo to store
+     * @return number of pieces stored, excluding any already in the yard
+     */
+    public int storeAll(List<? extends Cargo> batch) {
+        int stored = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (store(batch.get(i))) {
+                stored++;
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Removes the given cargo from the yard.
+     *
+     * @param cargo cargo to remove
+     * @return true if the cargo was removed, false if it was not in the yard
+     */
+    public boolean remove(Cargo cargo) {
+        if (this.cargo.remove(cargo)) {
+            removeFromIndexes(cargo);
+        } else if (!isShared(cargo) || !removedShared.add(cargo)) {
+            return false;
+        }
+        if (history != null) {
+            history.remove(cargo);
+        }
+        if (tracksCargo && cargo.getHolder() == this) {
+            cargo.setLocation(CargoLocation.NONE, null);
+        }
+        count(cargo, -1);
+        stopSharingIfChanged();
+        return true;
+    }
+
+    /* Removes the cargo from the yard's own indexes by destination */
+    private void removeFromIndexes(Cargo cargo) {
+        int destination = cargo.getDestinationCode();
+        if (destination >= 0 && cargo instanceof Container) {
+            containersByDestination.get(destination).remove(cargo);
+        } else if (destination >= 0 && cargo instanceof BulkCargo) {
+            TreeMap<Integer, Set<BulkCargo>> byTonnage = bulkCargoByDestination.get(destination);
+            Set<BulkCargo> lots = byTonnage.get(((BulkCargo) cargo).getTonnage());
+            lots.remove(cargo);
+            if (lots.isEmpty()) {
+                byTonnage.remove(((BulkCargo) cargo).getTonnage());
+            }
+        }
+    }
+
+    /* Returns true if the cargo is shared with forks of the yard and is still in the yard */
+    private boolean isShared(Cargo cargo) {
+        return shared != null && shared.cargo.contains(cargo) && !removedShared.contains(cargo);
+    }
+
+    /* Marks taken cargo as having no location, and records and counts its removal */
+    private void release(Cargo cargo) {
+        if (history != null) {
+            history.remove(cargo);
+        }
+        if (tracksCargo) {
+            cargo.setLocation(CargoLocation.NONE, null);
+        }
+        count(cargo, -1);
+    }
+
+    /**
+     * Removes all cargo from the yard. Cargo still recorded as being in this yard is marked as
+     * having no location. This takes time proportional to the amount of cargo stored.
+     */
+    public void clear() {
+        for (Cargo stored : cargoView) {
+            if (history != null) {
+                history.remove(stored);
+            }
+            if (tracksCargo && stored.getHolder() == this) {
+                stored.setLocation(CargoLocation.NONE, null);
+            }
+        }
+        cargo.clear();
+        shared = null;
+        removedShared = null;
+        sharedCursors = null;
+        containersByDestination.clear();
+        bulkCargoByDestination.clear();
+        Arrays.fill(containersByType, 0);
+        Arrays.fill(bulkCargoByType, 0);
+        Arrays.fill(tonnageByType, 0);
+        containers = 0;
+        bulkCargo = 0;
+        tonnage = 0;
+    }
+
+    /**
+     * Removes up to the given number of containers bound for the given destination from the
+     * yard and adds them to the given collection, oldest first. This takes time proportional
+     * to the number of containers taken, plus, while the yard shares cargo with its forks,
+     * the number of shared containers for the destination passed over because they had been
+     * removed from the yard, each of which is passed over only once.
+     *
+     * @param destination destination code of the containers to take
+     * @param max         maximum number of containers to take
+     * @param into        collection to add the containers to
+     * @return number of containers taken
+     */
+    public int takeContainers(int destination, int max, Collection<? super Container> into) {
+        if (max <= 0) {
+            return 0;
+        }
+        int taken = shared == null ? 0 : takeSharedContainers(destination, max, into);
+        Set<Container> bound = lookup(containersByDestination, destination);
+        if (bound != null) {
+            Iterator<Container> iterator = bound.iterator();
+            while (taken < max && iterator.hasNext()) {
+                Container container = iterator.next();
+                iterator.remove();
+                this.cargo.remove(container);
+                release(container);
+                into.add(container);
+                taken++;
+            }
+        }
+        stopSharingIfChanged();
+        return taken;
+    }
+
+    /*
+     * Takes up to max shared containers bound for the destination, oldest first. The cursor
+     * of the destination only moves past containers that are no longer in the yard, so each
+     * shared container is passed over at most once.
+     */
+    private int takeSharedContainers(int destination, int max,
+                                     Collection<? super Container> into) {
+        Set<Container> bound = lookup(shared.containersByDestination, destination);
+        if (bound == null) {
+            return 0;
+        }
+        Iterator<Container> cursor = index(sharedCursors, destination, bound::iterator);
+        int taken = 0;
+        while (taken < max && cursor.hasNext()) {
+            Container container = cursor.next();
+            if (removedShared.add(container)) {
+                release(container);
+                into.add(container);
+                taken++;
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Removes and returns the heaviest lot of bulk cargo bound for the given destination that
+     * weighs no more than the given tonnage. Of several such lots of equal tonnage, the one
+     * stored first is taken. This takes time logarithmic in the number of distinct tonnages
+     * stored for the destination, plus, while the yard shares cargo with its forks, the
+     * number of shared lots bound for the destination that have been removed from the yard.
+     *
+     * @param destination destination code of the bulk cargo to take
+     * @param maxTonnage  greatest tonnage that may be taken
+     * @return the lot taken, or null if no stored lot fits
+     */
+    public BulkCargo takeBulkCargo(int destination, int maxTonnage) {
+        BulkCargo sharedFit = shared == null ? null : sharedBulkCargo(destination, maxTonnage);
+        TreeMap<Integer, Set<BulkCargo>> byTonnage = lookup(bulkCargoByDestination, destination);
+        Map.Entry<Integer, Set<BulkCargo>> fit =
+                byTonnage == null ? null : byTonnage.floorEntry(maxTonnage);
+        BulkCargo lot;
+        if (sharedFit != null && (fit == null || sharedFit.getTonnage() >= fit.getKey())) {
+            // shared lots were stored before any of the yard's own
+            removedShared.add(sharedFit);
+            lot = sharedFit;
+        } else if (fit != null) {
+            Iterator<BulkCargo> iterator = fit.getValue().iterator();
+            lot = iterator.next();
+            iterator.remove();
+            if (fit.getValue().isEmpty()) {
+                byTonnage.remove(fit.getKey());
+            }
+            this.cargo.remove(lot);
+        } else {
+            return null;
+        }
+        release(lot);
+        stopSharingIfChanged();
+        return lot;
+    }
+
+    /* Returns the heaviest shared lot still in the yard for the destination that fits */
+    private BulkCargo sharedBulkCargo(int destination, int maxTonnage) {
+        TreeMap<Integer, Set<BulkCargo>> byTonnage =
+                lookup(shared.bulkCargoByDestination, destination);
+        if (byTonnage == null) {
+            return null;
+        }
+        for (Set<BulkCargo> lots : byTonnage.headMap(maxTonnage, true).descendingMap()
+                .values()) {
+            for (BulkCargo lot : lots) {
+                if (!removedShared.contains(lot)) {
+                    return lot;
+                }
+            }
+        }
+        return null;
+    }
+
+    /* Adds delta to the statistics of the given cargo's class and type, if it has a type */
+    private void count(Cargo cargo, int delta) {
+        if (cargo instanceof Container) {
+            ContainerType type = ((Container) cargo).getType();
+            containers += delta;
+            if (type != null) {
+                containersByType[type.ordinal()] += delta;
+            }
+        } else if (cargo instanceof BulkCargo) {
+            BulkCargo bulk = (BulkCargo) cargo;
+            bulkCargo += delta;
+            if (bulk.getType() != null) {
+                bulkCargoByType[bulk.getType().ordinal()] += delta;
+                tonnageByType[bulk.getType().ordinal()] += (long) delta * bulk.getTonnage();
+            }
+            tonnage += (long) delta * bulk.getTonnage();
+        }
+    }
+
+    /**
+     * Returns true if the given cargo is stored in the yard.
+     *
+     * @param cargo cargo to look for
+     * @return true if the cargo is in the yard
+     */
+    public boolean contains(Cargo cargo) {
+        return this.cargo.contains(cargo) || isShared(cargo);
+    }
+
+    /**
+     * Returns the number of pieces of cargo stored in the yard.
+     *
+     * @return number of pieces of cargo
+     */
+    public int size() {
+        return shared == null ? cargo.size()
+                : shared.cargo.size() - removedShared.size() + cargo.size();
+    }
+
+    /**
+     * Returns true if no cargo is stored in the yard.
+     *
+     * @return true if the yard is empty
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a read-only view of the cargo stored in the yard, in the order it was stored.
+     * The view reflects later changes to the yard.
+     *
+     * @return read-only view of the stored cargo
+     */
+    public Collection<Cargo> getCargoView() {
+        return cargoView;
+    }
+
+    /**
+     * Returns the number of containers stored in the yard.
+     *
+     * @return number of containers
+     */
+    public int getContainerCount() {
+        return containers;
+    }
+
+    /**
+     * Returns the number of containers of the given type stored in the yard.
+     *
+     * @param type container type to count
+     * @return number of containers of the type
+     */
+    public int getContainerCount(ContainerType type) {
+        return containersByType[type.ordinal()];
+    }
+
+    /**
+     * Returns the number of bulk cargo lots stored in the yard.
+     *
+     * @return number of bulk cargo lots
+     */
+    public int getBulkCargoCount() {
+        return bulkCargo;
+    }
+
+    /**
+     * Returns the number of bulk cargo lots of the given type stored in the yard.
+     *
+     * @param type bulk cargo type to count
+     * @return number of bulk cargo lots of the type
+     */
+    public int getBulkCargoCount(BulkCargoType type) {
+        return bulkCargoByType[type.ordinal()];
+    }
+
+    /**
+     * Returns the total tonnage of bulk cargo stored in the yard.
+     *
+     * @return total tonnage
+     */
+    public long getTonnage() {
+        return tonnage;
+    }
+
+    /**
+     * Returns the tonnage of bulk cargo of the given type stored in the yard.
+     *
+     * @param type bulk cargo type to weigh
+     * @return tonnage of the type
+     */
+    public long getTonnage(BulkCargoType type) {
+        return tonnageByType[type.ordinal()];
+    }
+
+    /**
+     * Returns a fork of this yard: a new yard holding the same cargo in the same order, from
+     * which cargo can be stored and taken without changing this yard, and the other way
+     * round. The fork does not record itself as the location of its cargo, and keeps no
+     * history.
+     * <p>
+     * The cargo held is shared by the two yards rather than copied, so this takes time
+     * proportional to the changes made to this yard since it was last forked, not to the
+     * amount of cargo stored. A yard and its forks may be used on different threads.
+     *
+     * @return fork of this yard
+     */
+    CargoYard fork() {
+        if (shared == null) {
+            shared = new Shared(cargo, containersByDestination, bulkCargoByDestination);
+            removedShared = new HashSet<>();
+            sharedCursors = new ArrayList<>();
+            cargo = new LinkedHashSet<>();
+            containersByDestination = new ArrayList<>();
+            bulkCargoByDestination = new ArrayList<>();
+        }
+        CargoYard fork = new CargoYard(false);
+        fork.shared = shared;
+        fork.removedShared = new HashSet<>(removedShared);
+        fork.sharedCursors = new ArrayList<>();
+        for (Cargo stored : cargo) {
+            fork.cargo.add(stored);
+            fork.addToIndexes(stored);
+        }
+        System.arraycopy(containersByType, 0, fork.containersByType, 0,
+                containersByType.length);
+        System.arraycopy(bulkCargoByType, 0, fork.bulkCargoByType, 0, bulkCargoByType.length);
+        System.arraycopy(tonnageByType, 0, fork.tonnageByType, 0, tonnageByType.length);
+        fork.containers = containers;
+        fork.bulkCargo = bulkCargo;
+        fork.tonnage = tonnage;
+        return fork;
+    }
+
+    /*
+     * Copies the shared cargo still in the yard into the yard's own, once the yard has stored
+     * or removed more cargo than it shares. Copying takes time proportional to the cargo
+     * stored, so spread over those changes it adds constant time to each.
+     */
+    private void stopSharingIfChanged() {
+        if (shared == null || cargo.size() + removedShared.size() <= shared.cargo.size()) {
+            return;
+        }
+        Set<Cargo> held = new LinkedHashSet<>();
+        for (Cargo stored : cargoView) {
+            held.add(stored);
+        }
+        shared = null;
+        removedShared = null;
+        sharedCursors = null;
+        cargo = held;
+        containersByDestination = new ArrayList<>();
+        bulkCargoByDestination = new ArrayList<>();
+        for (Cargo stored : held) {
+            addToIndexes(stored);
+        }
+    }
+
+    /**
+     * Returns a mark of the yard's current contents, which the yard can later be reset to
+     * with {@link #reset(Mark)}. The first mark starts the history of the yard, which takes
+     * time proportional to the amount of cargo stored; later marks take constant time.
+     *
+     * @return mark of the current contents
+     */
+    Mark mark() {
+        if (history == null) {
+            history = new History(cargoView.toArray(new Cargo[0]));
+        }
+        return new Mark(history, history.marks++, history.position());
+    }
+
+    /**
+     * Resets the yard to hold the cargo it held when the mark was taken, in the order it was
+     * stored. Cargo that was in the yard then has the yard recorded as its location again,
+     * and other cargo still recorded as being in the yard is marked as having no location.
+     * Marks taken after the given one can no longer be reset to. This takes time proportional
+     * to the amount of cargo stored and removed while the history has been kept.
+     *
+     * @param mark mark taken of this yard
+     * @throws IllegalArgumentException if the mark was not taken of this yard's current
+     *                                  history, or has been discarded
+     */
+    void reset(Mark mark) throws IllegalArgumentException {
+        checkMark(mark);
+        History kept = history;
+        history = null;
+        try {
+            if (kept.storedOnlySince(mark.position)) {
+                // cargo stored since the mark is held last, so it can just be removed
+                for (long i = kept.position() - 1; i >= mark.position; i--) {
+                    remove(kept.change(i));
+                }
+            } else {
+                clear();
+                kept.replayInto(mark.position, cargo);
+                for (Cargo stored : cargo) {
+                    admit(stored);
+                }
+            }
+            kept.truncate(mark.position);
+        } finally {
+            history = kept;
+        }
+    }
+
+    /**
+     * Discards the history needed to reset the yard to marks taken before the given one.
+     *
+     * @param mark earliest mark that may still be reset to
+     * @throws IllegalArgumentException if the mark was not taken of this yard's current
+     *                                  history, or has been discarded
+     */
+    void discardBefore(Mark mark) throws IllegalArgumentException {
+        checkMark(mark);
+        history.discarded = Math.max(history.discarded, mark.serial);
+        history.discardBefore(mark.position);
+    }
+
+    /**
+     * Stops keeping the history of the yard, so that no mark taken so far can be reset to.
+     */
+    void discardHistory() {
+        history = null;
+    }
+
+    /* Throws an IllegalArgumentException if the yard cannot be reset to the mark */
+    private void checkMark(Mark mark) throws IllegalArgumentException {
+        if (mark.history != history || mark.serial < history.discarded
+                || mark.position > history.position()) {
+            throw new IllegalArgumentException("the yard can no longer be reset to the mark");
+        }
+    }
+
+    /**
+     * Read-only view of the cargo stored in a yard, in the order it was stored: the shared
+     * cargo still in the yard, then the yard's own.
+     */
+    private final class CargoView extends AbstractCollection<Cargo> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Iterator<Cargo> iterator() {
+            Iterator<Cargo> own = Collections.unmodifiableSet(cargo).iterator();
+            if (shared == null) {
+                return own;
+            }
+            Iterator<Cargo> sharedCargo = shared.cargo.iterator();
+            Set<Cargo> removed = removedShared;
+            return new Iterator<>() {
+                /**
+                 * The next piece of cargo to return, or null if there is none
+                 */
+                private Cargo next = advance();
+
+                /* Returns the next shared cargo not removed, or the next of the yard's own */
+                private Cargo advance() {
+                    while (sharedCargo.hasNext()) {
+                        Cargo candidate = sharedCargo.next();
+                        if (!removed.contains(candidate)) {
+                            return candidate;
+                        }
+                    }
+                    return own.hasNext() ? own.next() : null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Cargo next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Cargo current = next;
+                    next = advance();
+                    return current;
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return CargoYard.this.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Cargo && CargoYard.this.contains((Cargo) o);
+        }
+    }
+
+    /**
+     * The cargo a yard held when it was forked, shared by the yard and its forks. The cargo
+     * and its indexes are never changed once shared.
+     */
+    private static final class Shared {
+        /**
+         * The cargo held, in the order it was stored
+         */
+        private final Set<Cargo> cargo;
+
+        /**
+         * Containers held, indexed by destination code, in the order they were stored
+         */
+        private final List<Set<Container>> containersByDestination;
+
+        /**
+         * Bulk cargo held, indexed by destination code and then by tonnage, in the order it
+         * was stored
+         */
+        private final List<TreeMap<Integer, Set<BulkCargo>>> bulkCargoByDestination;
+
+        /**
+         * Shares the given cargo and indexes.
+         *
+         * @param cargo                   cargo held, in the order it was stored
+         * @param containersByDestination containers held, by destination code
+         * @param bulkCargoByDestination  bulk cargo held, by destination code and tonnage
+         */
+        Shared(Set<Cargo> cargo, List<Set<Container>> containersByDestination,
+               List<TreeMap<Integer, Set<BulkCargo>>> bulkCargoByDestination) {
+            this.cargo = cargo;
+            this.containersByDestination = containersByDestination;
+            this.bulkCargoByDestination = bulkCargoByDestination;
+        }
+    }
+
+    /**
+     * A point in the history of a yard that the yard can be reset to.
+     */
+    static final class Mark {
+        /**
+         * The history the mark was taken of
+         */
+        private final History history;
+
+        /**
+         * Number of marks taken of the history before this one
+         */
+        private final long serial;
+
+        /**
+         * Number of changes recorded in the history before the mark was taken
+         */
+        private final long position;
+
+        /**
+         * Creates a mark.
+         *
+         * @param history  the history the mark was taken of
+         * @param serial   number of marks taken before this one
+         * @param position number of changes recorded before the mark
+         */
+        private Mark(History history, long serial, long position) {
+            this.history = history;
+            this.serial = serial;
+            this.position = position;
+        }
+    }
+
+    /**
+     * The cargo a yard held at some point (the base), in the order it was stored, and every
+     * piece of cargo stored in or removed from the yard since, in order. Replaying the changes
+     * in order on the base gives the yard's contents at any later point, in order, as cargo
+     * stored is always held after the cargo already in the yard.
+     */
+    private static final class History {
+        /**
+         * The cargo held at the start of the changes, in the order it was stored
+         */
+        private Cargo[] base;
+
+        /**
+         * The cargo of each change
+         */
+        private Cargo[] changes = new Cargo[64];
+
+        /**
+         * Whether each change stored its cargo rather than removed it
+         */
+        private boolean[] stored = new boolean[64];
+
+        /**
+         * Number of changes recorded
+         */
+        private int size;
+
+        /**
+         * Number of changes made before the base, which are no longer recorded
+         */
+        private long offset;
+
+        /**
+         * Number of marks taken
+         */
+        private long marks;
+
+        /**
+         * Serial number of the earliest mark that may still be reset to
+         */
+        private long discarded;
+
+        /**
+         * Starts a history of a yard holding the given cargo.
+         *
+         * @param base the cargo held, in the order it was stored
+         */
+        History(Cargo[] base) {
+            this.base = base;
+        }
+
+        /**
+         * Returns the number of changes made since the history was started.
+         *
+         * @return position of the next change
+         */
+        long position() {
+            return offset + size;
+        }
+
+        /**
+         * Records a piece of cargo being stored.
+         *
+         * @param cargo cargo stored
+         */
+        void add(Cargo cargo) {
+            record(cargo, true);
+        }
+
+        /**
+         * Records a piece of cargo being removed.
+         *
+         * @param cargo cargo removed
+         */
+        void remove(Cargo cargo) {
+            record(cargo, false);
+        }
+
+        /* Appends a change */
+        private void record(Cargo cargo, boolean store) {
+            if (size == changes.length) {
+                changes = Arrays.copyOf(changes, size * 2);
+                stored = Arrays.copyOf(stored, size * 2);
+            }
+            changes[size] = cargo;
+            stored[size++] = store;
+        }
+
+        /**
+         * Forgets the changes made from the given position on.
+         *
+         * @param position number of changes to keep since the history was started
+         */
+        void truncate(long position) {
+            int kept = (int) (position - offset);
+            Arrays.fill(changes, kept, size, null);
+            size = kept;
+        }
+
+        /**
+         * Returns the cargo of the change at the given position.
+         *
+         * @param position number of changes since the history was started before the change
+         * @return cargo stored or removed
+         */
+        Cargo change(long position) {
+            return changes[(int) (position - offset)];
+        }
+
+        /**
+         * Returns true if every change from the given position on stored cargo.
+         *
+         * @param position number of changes since the history was started
+         * @return true if no cargo has been removed since the position
+         */
+        boolean storedOnlySince(long position) {
+            for (int i = (int) (position - offset); i < size; i++) {
+                if (!stored[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Adds the cargo held after the changes before the given position to the given empty
+         * set, in order.
+         *
+         * @param position number of changes since the history was started
+         * @param held     set to add the cargo to
+         */
+        void replayInto(long position, Set<Cargo> held) {
+            held.addAll(Arrays.asList(base));
+            int end = (int) (position - offset);
+            for (int i = 0; i < end; i++) {
+                if (stored[i]) {
+                    held.add(changes[i]);
+                } else {
+                    held.remove(changes[i]);
+                }
+            }
+        }
+
+        /**
+         * Folds the changes before the given position into the base, once there are at least
+         * as many of them as pieces of cargo in the base, so that the history takes space
+         * proportional to the cargo held and the changes made since the position.
+         *
+         * @param position earliest position that may still be replayed to
+         */
+        void discardBefore(long position) {
+            int folded = (int) (position - offset);
+            if (folded == 0 || folded < base.length) {
+                return;
+            }
+            Set<Cargo> held = new LinkedHashSet<>();
+            replayInto(position, held);
+            base = held.toArray(new Cargo[0]);
+            System.arraycopy(changes, folded, changes, 0, size - folded);
+            System.arraycopy(stored, folded, stored, 0, size - folded);
+            Arrays.fill(changes, size - folded, size, null);
+            size -= folded;
+            offset = position;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package portsim.port;
+
+import portsim.ship.Ship;
+
+/**
+ * Receives a callback whenever a ship leaves a quay of a port.
+ * <p>
+ * The listener is called on the thread running the port, during the OUTBOUND ship movement
+ * that made the ship leave, after the ship has loaded its cargo and left the quay (see
+ * {@link Port#setDepartureListener(DepartureListener)}).
+ */
+@FunctionalInterface
+public interface DepartureListener {
+    /**
+     * Called when a ship has left a quay of the port.
+     *
+     * @param port port the ship departed from; its time is the time of departure
+     * @param ship ship that departed, with the cargo it loaded on board
+     */
+    void shipDeparted(Port port, Ship ship);
+}
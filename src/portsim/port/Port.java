@@ -2,6 +2,8 @@ package portsim.port;
 
 import portsim.cargo.Cargo;
 import portsim.evaluators.*;
+import portsim.metrics.TickPhase;
+import portsim.metrics.TickProbe;
 import portsim.movement.*;
 import portsim.ship.*;
 import portsim.util.*;
@@ -30,7 +32,12 @@ public class Port {
      * The cargo currently stored at the port at warehouses. Cargo unloaded from trucks /
      * ships
      */
-    private List<Cargo> storedCargo;
+    private CargoYard storedCargo;
+
+    /**
+     * Read-only view of the quays, shared by every caller of {@link #getQuaysView()}
+     */
+    private List<Quay> quaysView;
 
     /**
      * The number of minutes since simulation started
@@ -43,10 +50,29 @@ public class Port {
     private ShipQueue shipQueue;
 
     /**
-     * a PriorityQueue should be initialised to store movements ordered by the time of the
-     * movement
+     * movements waiting to be processed, ordered by the time of the movement
+     */
+    private MovementQueue priorityQueue;
+
+    /**
+     * Movements waiting to be processed that are held outside the Java heap
+     */
+    private MovementStore movementStore;
+
+    /**
+     * Recurring schedules with occurrences still to come, in the order they were added
+     */
+    private List<RecurringSchedule> recurringSchedules;
+
+    /**
+     * The next occurrence of each recurring schedule, ordered by time
+     */
+    private PriorityQueue<ScheduledOccurrence> scheduledOccurrences;
+
+    /**
+     * Number of recurring schedules ever added, used to order occurrences at the same time
      */
-    private PriorityQueue<Movement> priorityQueue;
+    private long schedulesAdded;
 
     /**
      * The list of statistics evaluators
@@ -54,13 +80,71 @@ public class Port {
     private List<StatisticsEvaluator> evaluators;
 
     /**
-     * compare time of movements
+     * Pipeline delivering events to the evaluators on their own threads, or null if the
+     * evaluators are called synchronously
+     */
+    private EvaluatorPipeline evaluatorPipeline;
+
+    /**
+     * Probe notified of the phases of each tick, or null if the port is not instrumented
+     */
+    private TickProbe tickProbe;
+
+    /**
+     * Strategy choosing the quay each ship from the ship queue docks at
+     */
+    private BerthAllocator berthAllocator = BerthAllocator.FIRST_FIT;
+
+    /**
+     * Listener notified when a ship leaves a quay, or null
+     */
+    private DepartureListener departureListener;
+
+    /**
+     * This fork's copy of each ship it has met, by IMO number, or null if this port is not a
+     * fork
      */
-    private static Comparator<Movement> timeCompare = new Comparator<Movement>() {
-        public int compare(Movement m1, Movement m2) {
-            return Long.compare(m1.getTime(), m2.getTime());
+    private Map<Long, Ship> forkedShips;
+
+    /**
+     * The next occurrence of a recurring schedule.
+     */
+    private static class ScheduledOccurrence {
+        /**
+         * The recurring schedule
+         */
+        private final RecurringSchedule schedule;
+
+        /**
+         * Order in which the schedule was added to the port
+         */
+        private final long sequence;
+
+        /**
+         * Time of the schedule's next occurrence
+         */
+        private long time;
+
+        /**
+         * Creates the next occurrence of a schedule.
+         *
+         * @param schedule recurring schedule
+         * @param sequence order in which the schedule was added
+         * @param time     time of the schedule's next occurrence
+         */
+        ScheduledOccurrence(RecurringSchedule schedule, long sequence, long time) {
+            this.schedule = schedule;
+            this.sequence = sequence;
+            this.time = time;
         }
-    };
+    }
+
+    /**
+     * compare time of scheduled occurrences, then the order their schedules were added
+     */
+    private static Comparator<ScheduledOccurrence> occurrenceCompare =
+            Comparator.<ScheduledOccurrence>comparingLong(o -> o.time)
+                    .thenComparingLong(o -> o.sequence);
 
     /**
      * Creates a new port with the given name.
@@ -70,7 +154,7 @@ public class Port {
      * The list of quays in the port, stored cargo (warehouses) and statistics evaluators
      * should be initialised as empty lists.
      * <p>
-     * An empty ShipQueue should be initialised, and a PriorityQueue should be initialised to
+     * An empty ShipQueue should be initialised, and a MovementQueue should be initialised to
      * store movements ordered by the time of the movement (see {@link Movement#getTime()}).
      *
      * @param name name of the port
@@ -79,10 +163,14 @@ public class Port {
     public Port(String name) {
         this.name = name;
         this.quays = new ArrayList<>();
-        this.storedCargo = new ArrayList<>();
+        this.storedCargo = new CargoYard();
+        this.quaysView = Collections.unmodifiableList(this.quays);
         time = 0;
         shipQueue = new ShipQueue();
-        priorityQueue = new PriorityQueue<>(timeCompare);
+        priorityQueue = new MovementQueue();
+        movementStore = new MovementStore();
+        recurringSchedules = new ArrayList<>();
+        scheduledOccurrences = new PriorityQueue<>(occurrenceCompare);
         evaluators = new ArrayList<>();
     }
 
@@ -90,7 +178,7 @@ public class Port {
      * Creates a new port with the given name, time elapsed, ship queue, quays and stored
      * cargo. The list of statistics evaluators should be initialised as an empty list.
      * <p>
-     * An empty ShipQueue should be initialised, and a PriorityQueue should be initialised to
+     * An empty ShipQueue should be initialised, and a MovementQueue should be initialised to
      * store movements ordered by the time of the movement (see Movement.getTime()).
      *
      * @param name        name of the port
@@ -109,8 +197,13 @@ public class Port {
         this.time = time;
         this.shipQueue = shipQueue;
         this.quays = quays;
-        this.storedCargo = storedCargo;
-        priorityQueue = new PriorityQueue<>(timeCompare);
+        this.storedCargo = new CargoYard();
+        this.storedCargo.storeAll(storedCargo);
+        this.quaysView = Collections.unmodifiableList(quays);
+        priorityQueue = new MovementQueue();
+        movementStore = new MovementStore();
+        recurringSchedules = new ArrayList<>();
+        scheduledOccurrences = new PriorityQueue<>(occurrenceCompare);
         evaluators = new ArrayList<>();
     }
 
@@ -139,6 +232,19 @@ public class Port {
         return new ArrayList<>(this.quays);
     }
 
+    /**
+     * Returns a read-only view of the quays associated with this port, in the order they were
+     * added.
+     * <p>
+     * Unlike {@link #getQuays()}, no copy is made: the view reflects quays added later and
+     * throws UnsupportedOperationException if modified.
+     *
+     * @return read-only view of all quays
+     */
+    public List<Quay> getQuaysView() {
+        return quaysView;
+    }
+
     /**
      * Returns the cargo stored in warehouses at this port.
      * <p>
@@ -148,7 +254,29 @@ public class Port {
      * @ass1
      */
     public List<Cargo> getCargo() {
-        return new ArrayList<>(this.storedCargo);
+        return new ArrayList<>(this.storedCargo.getCargoView());
+    }
+
+    /**
+     * Returns a read-only view of the cargo stored in warehouses at this port.
+     * <p>
+     * Unlike {@link #getCargo()}, no copy is made: the view reflects cargo stored or removed
+     * later and throws UnsupportedOperationException if modified. It must not be iterated
+     * while the port is being advanced on another thread.
+     *
+     * @return read-only view of port cargo
+     */
+    public Collection<Cargo> getCargoView() {
+        return storedCargo.getCargoView();
+    }
+
+    /**
+     * Returns the warehouses of this port, which also keep statistics of the cargo stored.
+     *
+     * @return the port's cargo yard
+     */
+    public CargoYard getYard() {
+        return storedCargo;
     }
 
     /**
@@ -162,21 +290,66 @@ public class Port {
     }
 
     /**
-     * Adds a movement to the PriorityQueue of movements. If the given movement's action time
-     * is less than the current number of minutes elapsed than an IllegalArgumentException
-     * should be thrown.
+     * Adds a movement to the queue of movements. If the given movement's action time is less
+     * than the current number of minutes elapsed than an IllegalArgumentException should be
+     * thrown.
      *
      * @param movement movement to add
      * @throws IllegalArgumentException If the given movement's action time is less than the
      *                                  current number of minutes elapsed
      */
     public void addMovement(Movement movement) throws IllegalArgumentException {
+        scheduleMovement(movement);
+    }
+
+    /**
+     * Adds a movement to the queue of movements, as in {@link #addMovement(Movement)}, and
+     * returns a handle that can later be passed to {@link #cancelMovement(MovementHandle)} or
+     * {@link #rescheduleMovement(MovementHandle, long)}.
+     *
+     * @param movement movement to add
+     * @return handle for the queued movement
+     * @throws IllegalArgumentException If the given movement's action time is less than the
+     *                                  current number of minutes elapsed
+     */
+    public MovementHandle scheduleMovement(Movement movement) throws IllegalArgumentException {
         if (movement.getTime() < time) {
             throw new IllegalArgumentException("the given movement's action time is less than the"
                     + " current number of minutes elapsed");
-        } else {
-            priorityQueue.add(movement);
         }
+        return priorityQueue.schedule(movement);
+    }
+
+    /**
+     * Removes a movement that is waiting to be processed, so that it is never processed.
+     *
+     * @param handle handle returned when the movement was scheduled
+     * @return true if the movement was cancelled, false if it had already been processed or
+     *     cancelled
+     * @throws IllegalArgumentException if the handle was not issued by this port
+     */
+    public boolean cancelMovement(MovementHandle handle) throws IllegalArgumentException {
+        return priorityQueue.cancel(handle);
+    }
+
+    /**
+     * Moves a movement that is waiting to be processed to a new time. The movement is
+     * processed after any other movements already waiting for the new time.
+     *
+     * @param handle  handle returned when the movement was scheduled
+     * @param newTime the new time the movement should occur
+     * @return true if the movement was rescheduled, false if it had already been processed or
+     *     cancelled
+     * @throws IllegalArgumentException if the handle was not issued by this port, or newTime
+     *                                  is less than the current number of minutes elapsed
+     */
+    public boolean rescheduleMovement(MovementHandle handle, long newTime)
+            throws IllegalArgumentException {
+        if (newTime < time) {
+            throw new IllegalArgumentException("the new time is less than the current number of"
+                    + " minutes elapsed: " + newTime);
+        }
+        return priorityQueue.reschedule(handle, newTime);
     }
 
     /**
@@ -186,17 +359,29 @@ public class Port {
      * <p>
      * If the movement direction is INBOUND then the ship should be added to the ship queue. If
      * the movement direction is OUTBOUND then any cargo stored in the port whose destination
-     * is the ship's origin port should be added to the ship according to Ship.canLoad(Cargo).
-     * Next, the ship should be removed from the quay it is currently docked in (if any). If
-     * the movement is a CargoMovement: If the movement direction is INBOUND then all of the
-     * cargo that is being moved should be added to the port's stored cargo. If the movement
-     * direction is OUTBOUND then all cargo with the given IDs should be removed from the
-     * port's stored cargo. Finally, the movement should be forwarded onto each statistics
-     * evaluator stored by the port by calling StatisticsEvaluator.onProcessMovement(Movement).
+     * is the ship's origin port should be added to the ship and removed from the port's stored
+     * cargo, using Ship.loadCargoFrom(CargoYard); a container ship takes as many such
+     * containers as it has room for, and an empty bulk carrier takes the heaviest lot within
+     * its tonnage capacity. Next, the ship should be removed from the quay it is currently
+     * docked in (if any). If the movement is a CargoMovement: If the movement direction is
+     * INBOUND then all of the cargo that is being moved should be added to the port's stored
+     * cargo. If the movement direction is OUTBOUND then all cargo with the given IDs should be
+     * removed from the port's stored cargo. Finally, the movement should be forwarded onto
+     * each statistics evaluator stored by the port by calling
+     * StatisticsEvaluator.onProcessMovement(Movement). If asynchronous evaluators are enabled,
+     * the movement is published to the evaluator pipeline instead (see
+     * {@link #enableAsyncEvaluators(int)}).
      *
      * @param movement movement to execute
      */
     public void processMovement(Movement movement) {
+        if (forkedShips != null && movement instanceof ShipMovement) {
+            // a fork moves its own copy of the ship
+            Ship ship = ((ShipMovement) movement).getShip();
+            if (forkedShip(ship) != ship) {
+                movement = copyMovement(movement);
+            }
+        }
         // cargo movement
         if (movement instanceof ShipMovement) {
             Ship ship = ((ShipMovement) movement).getShip();
@@ -204,35 +389,50 @@ public class Port {
                 shipQueue.add(ship);
             } else {
 
-                // load cargo
-                for (Cargo cargo : storedCargo) {
-                    if (cargo.getDestination().equals(ship.getOriginFlag())
-                            && ship.canLoad(cargo)) {
-                        ship.loadCargo(cargo);
-                    }
+                // load cargo bound for the ship's origin, removing it from the yard
+                ship.loadCargoFrom(storedCargo);
 
-                    // ship departure
-                    for (Quay quay : quays) {
-                        if (!quay.isEmpty() && quay.getShip().equals(ship)) {
-                            quay.shipDeparts();
-                        }
+                // ship departure
+                boolean departed = false;
+                for (int i = 0; i < quays.size(); i++) {
+                    Quay quay = quays.get(i);
+                    if (!quay.isEmpty() && quay.getShip().equals(ship)) {
+                        quay.shipDeparts();
+                        departed = true;
                     }
                 }
+                DepartureListener listener = departureListener;
+                if (departed && listener != null) {
+                    listener.shipDeparted(this, ship);
+                }
             }
         } else {
             // ship movement
-            List<Cargo> cargos = ((CargoMovement) movement).getCargo();
-            for (Cargo cargo : cargos) {
+            List<Cargo> cargos = ((CargoMovement) movement).getCargoView();
+            for (int i = 0; i < cargos.size(); i++) {
+                Cargo cargo = cargos.get(i);
                 if (movement.getDirection().equals(MovementDirection.INBOUND)) {
-                    storedCargo.add(cargo);
+                    storedCargo.store(cargo);
                 } else {
                     storedCargo.remove(cargo);
                 }
             }
         }
 
-        for (StatisticsEvaluator eval : evaluators) {
-            eval.onProcessMovement(movement);
+        TickProbe probe = tickProbe;
+        if (evaluatorPipeline != null) {
+            evaluatorPipeline.publishMovement(movement);
+        } else if (probe != null) {
+            for (int i = 0; i < evaluators.size(); i++) {
+                StatisticsEvaluator eval = evaluators.get(i);
+                long start = System.nanoTime();
+                eval.onProcessMovement(movement);
+                probe.evaluatorCalled(eval, false, System.nanoTime() - start);
+            }
+        } else {
+            for (int i = 0; i < evaluators.size(); i++) {
+                evaluators.get(i).onProcessMovement(movement);
+            }
         }
     }
 
@@ -245,9 +445,126 @@ public class Port {
     public void addStatisticsEvaluator(StatisticsEvaluator eval) {
         if (!evaluators.contains(eval)) {
             evaluators.add(eval);
+            if (evaluatorPipeline != null) {
+                evaluatorPipeline.addEvaluator(eval);
+            }
+        }
+    }
+
+    /**
+     * Removes the given statistics evaluator from the port's list of evaluators, so that it
+     * is no longer notified of movements and ticks.
+     *
+     * @param eval statistics evaluator to remove
+     * @return true if the evaluator was removed, false if the port did not have it
+     * @throws IllegalStateException if asynchronous evaluators are enabled
+     */
+    public boolean removeStatisticsEvaluator(StatisticsEvaluator eval)
+            throws IllegalStateException {
+        if (evaluatorPipeline != null) {
+            throw new IllegalStateException("evaluators cannot be removed while asynchronous"
+                    + " evaluators are enabled");
+        }
+        return evaluators.remove(eval);
+    }
+
+    /**
+     * Switches the port's statistics evaluators to asynchronous mode. Processed movements and
+     * ticks are published into a ring buffer with the given number of slots, and each
+     * evaluator consumes them on its own thread, so the time taken by a tick no longer depends
+     * on the evaluators attached to the port.
+     * <p>
+     * If asynchronous evaluators are already enabled, no action is taken.
+     *
+     * @param capacity number of slots in the ring buffer, must be a power of two
+     * @throws IllegalArgumentException if capacity is not a positive power of two
+     */
+    public void enableAsyncEvaluators(int capacity) throws IllegalArgumentException {
+        if (evaluatorPipeline != null) {
+            return;
+        }
+        EvaluatorPipeline pipeline = new EvaluatorPipeline(capacity);
+        pipeline.setTickProbe(tickProbe);
+        for (StatisticsEvaluator eval : evaluators) {
+            pipeline.addEvaluator(eval);
+        }
+        evaluatorPipeline = pipeline;
+    }
+
+    /**
+     * Switches the port's statistics evaluators back to being called synchronously. Any events
+     * still waiting in the pipeline are consumed before this method returns.
+     *
+     * @throws IllegalStateException if an evaluator threw an exception while consuming an
+     *                               event asynchronously; the evaluators are synchronous again
+     */
+    public void disableAsyncEvaluators() throws IllegalStateException {
+        if (evaluatorPipeline != null) {
+            EvaluatorPipeline pipeline = evaluatorPipeline;
+            evaluatorPipeline = null;
+            pipeline.shutdown();
+        }
+    }
+
+    /**
+     * Returns whether the port's statistics evaluators are run asynchronously.
+     *
+     * @return true if asynchronous evaluators are enabled else false
+     */
+    public boolean isAsyncEvaluators() {
+        return evaluatorPipeline != null;
+    }
+
+    /**
+     * Sets the probe to be notified of the time spent in each phase of every tick and in every
+     * call into a statistics evaluator. Passing null removes the probe, after which the port
+     * does no instrumentation work at all.
+     *
+     * @param probe probe to notify, or null to disable instrumentation
+     */
+    public void setTickProbe(TickProbe probe) {
+        this.tickProbe = probe;
+        if (evaluatorPipeline != null) {
+            evaluatorPipeline.setTickProbe(probe);
+        }
+    }
+
+    /**
+     * Returns the probe notified of the phases of each tick.
+     *
+     * @return tick probe, or null if the port is not instrumented
+     */
+    public TickProbe getTickProbe() {
+        return tickProbe;
+    }
+
+    /**
+     * Blocks until every statistics evaluator has consumed all movements and ticks processed
+     * by the port so far. Reads from the evaluators should be preceded by a call to this method
+     * when asynchronous evaluators are enabled. Returns immediately otherwise.
+     *
+     * @throws IllegalStateException if an evaluator threw an exception while consuming an
+     *                               event asynchronously
+     */
+    public void awaitEvaluators() throws IllegalStateException {
+        if (evaluatorPipeline != null) {
+            evaluatorPipeline.barrier();
         }
     }
 
+    /**
+     * Returns true if every statistics evaluator has consumed all movements and ticks
+     * processed by the port so far, so that the evaluators can be read without calling
+     * {@link #awaitEvaluators()} until the port next processes a movement or tick. Always true
+     * when asynchronous evaluators are disabled. This does not wait, and must be called on the
+     * thread running the simulation.
+     *
+     * @return true if the evaluators are up to date with the port
+     */
+    public boolean isEvaluatorsIdle() {
+        return evaluatorPipeline == null || evaluatorPipeline.getBacklog() == 0;
+    }
+
     /**
      * Returns the time since simulation started.
      *
@@ -271,10 +588,428 @@ public class Port {
      *
      * @return movements queue
      */
-    public PriorityQueue<Movement> getMovements() {
+    public MovementQueue getMovements() {
         return priorityQueue;
     }
 
+    /**
+     * Returns the queued movements whose time is within the given window, in the order they
+     * will be processed. The movements are a view of the queue returned by
+     * {@link #getMovements()}, found in O(log n + k) time; movements held in the movement
+     * store are not included.
+     *
+     * @param from earliest time of the window, inclusive
+     * @param to   latest time of the window, inclusive
+     * @return queued movements from time {@code from} to time {@code to}
+     * @see MovementQueue#between(long, long)
+     */
+    public Iterable<Movement> getMovementsBetween(long from, long to) {
+        return priorityQueue.between(from, to);
+    }
+
+    /**
+     * Returns the queued movements in the given direction whose time is within the given
+     * window, in the order they will be processed.
+     *
+     * @param from      earliest time of the window, inclusive
+     * @param to        latest time of the window, inclusive
+     * @param direction direction of the movements to return
+     * @return queued movements in the direction from time {@code from} to time {@code to}
+     * @see MovementQueue#between(long, long, MovementDirection)
+     */
+    public Iterable<Movement> getMovementsBetween(long from, long to,
+                                                  MovementDirection direction) {
+        return priorityQueue.between(from, to, direction);
+    }
+
+    /**
+     * Returns the queued movements of the ship with the given IMO number whose time is within
+     * the given window, in the order they will be processed.
+     *
+     * @param imoNumber IMO number of the ship
+     * @param from      earliest time of the window, inclusive
+     * @param to        latest time of the window, inclusive
+     * @return queued movements of the ship from time {@code from} to time {@code to}
+     * @see MovementQueue#forShip(long, long, long)
+     */
+    public Iterable<ShipMovement> getShipMovements(long imoNumber, long from, long to) {
+        return priorityQueue.forShip(imoNumber, from, to);
+    }
+
+    /**
+     * Returns the store of movements waiting to be processed that are held outside the Java
+     * heap. Movements added to the store are processed in time order together with those in
+     * the queue returned by {@link #getMovements()}; of two movements due at the same time,
+     * the one in the queue is processed first.
+     * <p>
+     * The store suits large schedules, e.g. a year of liner calls, whose movements would
+     * otherwise each be kept as an object until due.
+     *
+     * @return off-heap movement store
+     */
+    public MovementStore getMovementStore() {
+        return movementStore;
+    }
+
+    /**
+     * Adds a recurring schedule to the port. Each occurrence of the schedule after the current
+     * time is processed as a ship movement when it becomes due: the movement is created and
+     * added to the queue of movements at the start of the movement phase of the minute it is
+     * due, and processed in that same minute. Of several schedules with an occurrence at the
+     * same time, the one added first is expanded first.
+     *
+     * @param schedule schedule to add
+     * @throws IllegalArgumentException if the schedule has no occurrences after the current
+     *                                  time
+     */
+    public void addRecurringSchedule(RecurringSchedule schedule)
+            throws IllegalArgumentException {
+        long next = schedule.nextOccurrence(time + 1);
+        if (next < 0) {
+            throw new IllegalArgumentException("the given schedule has no occurrences after the"
+                    + " current number of minutes elapsed");
+        }
+        recurringSchedules.add(schedule);
+        scheduledOccurrences.add(new ScheduledOccurrence(schedule, schedulesAdded++, next));
+    }
+
+    /**
+     * Removes a recurring schedule from the port, cancelling its remaining occurrences.
+     *
+     * @param schedule schedule to remove
+     * @return true if the schedule was removed, false if the port did not have it
+     */
+    public boolean removeRecurringSchedule(RecurringSchedule schedule) {
+        if (!recurringSchedules.remove(schedule)) {
+            return false;
+        }
+        scheduledOccurrences.removeIf(occurrence -> occurrence.schedule == schedule);
+        return true;
+    }
+
+    /**
+     * Returns the recurring schedules of this port that have occurrences still to come, in the
+     * order they were added. Schedules are dropped once their last occurrence is processed.
+     * <p>
+     * Adding or removing elements from the returned list should not affect the original list.
+     *
+     * @return recurring schedules
+     */
+    public List<RecurringSchedule> getRecurringSchedules() {
+        return new ArrayList<>(recurringSchedules);
+    }
+
+    /**
+     * Returns the number of recurring schedules of this port that have occurrences still to
+     * come.
+     *
+     * @return number of recurring schedules
+     */
+    public int getRecurringScheduleCount() {
+        return recurringSchedules.size();
+    }
+
+    /**
+     * Returns the number of movements waiting to be processed, both in the queue returned by
+     * {@link #getMovements()} and in the movement store.
+     *
+     * @return number of pending movements
+     */
+    public int getPendingMovementCount() {
+        return priorityQueue.size() + movementStore.size();
+    }
+
+    /**
+     * Sets the strategy choosing the quay at which each ship from the ship queue docks. The
+     * default is {@link BerthAllocator#FIRST_FIT}.
+     *
+     * <p>
+     * If the allocator chooses no quay although the ship could dock at one of the empty
+     * quays, the ship goes back to its place in the ship queue to wait for a later docking.
+     * Otherwise a ship that cannot dock at any empty quay leaves the queue, as before.
+     *
+     * @param berthAllocator berth allocation strategy
+     * @throws NullPointerException if berthAllocator is null
+     */
+    public void setBerthAllocator(BerthAllocator berthAllocator) {
+        this.berthAllocator = Objects.requireNonNull(berthAllocator, "berthAllocator");
+    }
+
+    /**
+     * Sets the listener to be notified each time an OUTBOUND ship movement makes a ship leave
+     * one of this port's quays. Ships that are not docked when their OUTBOUND movement is
+     * processed do not depart and are not reported.
+     *
+     * @param listener listener to notify, or null to stop reporting departures
+     */
+    public void setDepartureListener(DepartureListener listener) {
+        this.departureListener = listener;
+    }
+
+    /**
+     * Returns the listener notified when a ship leaves one of this port's quays.
+     *
+     * @return departure listener, or null if departures are not reported
+     */
+    public DepartureListener getDepartureListener() {
+        return departureListener;
+    }
+
+    /**
+     * Returns the strategy choosing the quay at which each ship from the ship queue docks.
+     *
+     * @return berth allocation strategy
+     */
+    public BerthAllocator getBerthAllocator() {
+        return berthAllocator;
+    }
+
+    /**
+     * Records the current state of the port so that it can later be returned to with
+     * {@link #restore(PortCheckpoint)} (see {@link PortCheckpoint} for what is recorded).
+     * This takes time proportional to the number of ships and queued INBOUND ship movements,
+     * without copying any of them.
+     * <p>
+     * The first checkpoint starts histories of the cargo stored in the yard and of the
+     * movement queue and store (see {@link MovementQueue#mark()} and
+     * {@link MovementStore#mark()}), from which they are restored, so that later checkpoints
+     * do not depend on the amount of cargo stored or the number of movements pending. The
+     * histories are kept until {@link #discardCheckpoints()} is called, and
+     * {@link #discardCheckpointsBefore(PortCheckpoint)} lets the port forget the part of them
+     * only older checkpoints need.
+     *
+     * @return checkpoint of the port's current state
+     */
+    public PortCheckpoint checkpoint() {
+        Ship[] dockedShips = new Ship[quays.size()];
+        List<Ship> ships = new ArrayList<>();
+        for (int i = 0; i < dockedShips.length; i++) {
+            dockedShips[i] = quays.get(i).getShip();
+            if (dockedShips[i] != null) {
+                ships.add(dockedShips[i]);
+            }
+        }
+        ships.addAll(shipQueue.getShipQueueView());
+        for (Movement movement : priorityQueue.between(time + 1, Long.MAX_VALUE,
+                MovementDirection.INBOUND)) {
+            if (movement instanceof ShipMovement) {
+                ships.add(((ShipMovement) movement).getShip());
+            }
+        }
+        List<List<Cargo>> shipCargo = new ArrayList<>(ships.size());
+        for (int i = 0; i < ships.size(); i++) {
+            shipCargo.add(ships.get(i).getCargoOnBoard());
+        }
+
+        int occurrences = scheduledOccurrences.size();
+        RecurringSchedule[] schedules = new RecurringSchedule[occurrences];
+        long[] sequences = new long[occurrences];
+        long[] times = new long[occurrences];
+        int i = 0;
+        for (ScheduledOccurrence occurrence : scheduledOccurrences) {
+            schedules[i] = occurrence.schedule;
+            sequences[i] = occurrence.sequence;
+            times[i++] = occurrence.time;
+        }
+
+        return new PortCheckpoint(this, time, new ArrayList<>(quays), dockedShips,
+                shipQueue.getShipQueue(), storedCargo.mark(),
+                ships.toArray(new Ship[0]), shipCargo, priorityQueue.mark(),
+                movementStore.mark(), new ArrayList<>(recurringSchedules), schedules,
+                sequences, times, schedulesAdded);
+    }
+
+    /**
+     * Returns the port to the state recorded by the given checkpoint. The cargo onboard the
+     * ships recorded in the checkpoint is put back as it was, and cargo is marked as being in
+     * the yard or on a ship as recorded. Ships that arrived after the checkpoint was taken are
+     * not changed.
+     * <p>
+     * Statistics evaluators, the tick probe, the berth allocator and the departure listener
+     * are not changed. The movement queue and store are reset in place by undoing the changes
+     * made since the checkpoint, so handles of the movements pending then are pending again,
+     * a movement rescheduled since is moved back to its time, and the restore takes time
+     * proportional to the changes undone rather than to the number of movements pending.
+     * <p>
+     * Checkpoints taken after the given one can no longer be restored.
+     *
+     * @param checkpoint checkpoint taken of this port
+     * @throws IllegalArgumentException if the checkpoint was taken of another port, or has
+     *                                  been discarded
+     */
+    public void restore(PortCheckpoint checkpoint) throws IllegalArgumentException {
+        if (checkpoint.port != this) {
+            throw new IllegalArgumentException("checkpoint was taken of another port: "
+                    + checkpoint.port.getName());
+        }
+        priorityQueue.reset(checkpoint.movements);
+        movementStore.reset(checkpoint.movementStore);
+        storedCargo.reset(checkpoint.yard);
+        for (int i = 0; i < checkpoint.ships.length; i++) {
+            checkpoint.ships[i].restoreCargo(checkpoint.shipCargo.get(i));
+        }
+
+        shipQueue.clear();
+        for (Ship ship : checkpoint.queuedShips) {
+            shipQueue.add(ship);
+        }
+        quays.clear();
+        quays.addAll(checkpoint.quays);
+        for (int i = 0; i < quays.size(); i++) {
+            Quay quay = quays.get(i);
+            quay.shipDeparts();
+            if (checkpoint.dockedShips[i] != null) {
+                quay.shipArrives(checkpoint.dockedShips[i]);
+            }
+        }
+
+        recurringSchedules = new ArrayList<>(checkpoint.recurringSchedules);
+        scheduledOccurrences.clear();
+        for (int i = 0; i < checkpoint.occurrenceSchedules.length; i++) {
+            scheduledOccurrences.add(new ScheduledOccurrence(checkpoint.occurrenceSchedules[i],
+                    checkpoint.occurrenceSequences[i], checkpoint.occurrenceTimes[i]));
+        }
+        schedulesAdded = checkpoint.schedulesAdded;
+        time = checkpoint.time;
+    }
+
+    /**
+     * Lets the port forget the history needed to restore checkpoints taken before the given
+     * one, which can no longer be restored.
+     *
+     * @param checkpoint earliest checkpoint that may still be restored
+     * @throws IllegalArgumentException if the checkpoint was taken of another port, or has
+     *                                  been discarded
+     */
+    public void discardCheckpointsBefore(PortCheckpoint checkpoint)
+            throws IllegalArgumentException {
+        if (checkpoint.port != this) {
+            throw new IllegalArgumentException("checkpoint was taken of another port: "
+                    + checkpoint.port.getName());
+        }
+        storedCargo.discardBefore(checkpoint.yard);
+        priorityQueue.discardBefore(checkpoint.movements);
+        movementStore.discardBefore(checkpoint.movementStore);
+    }
+
+    /**
+     * Stops keeping the history needed to restore checkpoints, so that no checkpoint taken so
+     * far can be restored.
+     */
+    public void discardCheckpoints() {
+        storedCargo.discardHistory();
+        priorityQueue.discardHistory();
+        movementStore.discardHistory();
+    }
+
+    /**
+     * Returns a fork of this port: a new port in the same state, which can be advanced and
+     * changed without changing this port, and the other way round, e.g. to see what would
+     * happen if a ship were delayed. Forks may be advanced on other threads while this port
+     * and its other forks are advanced, but this method must be called on the thread
+     * advancing this port.
+     * <p>
+     * The fork has the same name, time, quays, ship queue, stored cargo, pending movements,
+     * recurring schedules and berth allocator as this port, and a copy of each statistics
+     * evaluator (see {@link StatisticsEvaluator#copyFor(Port)}), which it calls
+     * synchronously. It has no tick probe or departure listener.
+     * <p>
+     * Each ship docked, queued, due to move or with a recurring schedule is copied (see
+     * {@link Ship#copy()}), and the fork moves the copies in place of the ships: its
+     * movements are copies referring to the copied ships, and a ship movement it processes
+     * is applied to its copy of the ship. A ship the fork meets later, in a movement added to
+     * it, is copied when it is first moved. Cargo is shared, as only its location can change,
+     * and the fork leaves the locations recorded by this port (see {@link Cargo#getLocation()})
+     * as they are. Ship copies are not registered, so the ship registry, and so
+     * {@link #encode()}, still describes this port's ships.
+     * <p>
+     * The stored cargo, pending movements and movement store are shared copy-on-write rather
+     * than copied (see {@link CargoYard#fork()}, {@link MovementStore#copy()} and
+     * {@link MovementQueue#fork(java.util.function.UnaryOperator)}), and the fork copies each
+     * pending movement only when it first returns it. Forking so takes time proportional to
+     * the number of quays, the ships copied and the cargo onboard them, but not to the amount
+     * of cargo stored or the number of movements pending, other than a scan of the movement
+     * store for the ships it moves. Handles issued by this port cannot be used with the fork.
+     *
+     * @return fork of this port
+     * @throws UnsupportedOperationException if a statistics evaluator of this port cannot be
+     *                                       copied
+     */
+    public Port fork() throws UnsupportedOperationException {
+        awaitEvaluators();
+        Port fork = new Port(name);
+        for (StatisticsEvaluator eval : evaluators) {
+            fork.evaluators.add(eval.copyFor(fork));
+        }
+        fork.time = time;
+        fork.forkedShips = new HashMap<>();
+        for (int i = 0; i < quays.size(); i++) {
+            Quay quay = quays.get(i);
+            Quay copy = quay instanceof BulkQuay
+                    ? new BulkQuay(quay.getId(), ((BulkQuay) quay).getMaxTonnage())
+                    : new ContainerQuay(quay.getId(), ((ContainerQuay) quay).getMaxContainers());
+            if (!quay.isEmpty()) {
+                copy.shipArrives(fork.forkedShip(stateOf(quay.getShip())));
+            }
+            fork.quays.add(copy);
+        }
+        for (Ship ship : shipQueue.getShipQueueView()) {
+            fork.shipQueue.add(fork.forkedShip(stateOf(ship)));
+        }
+        // the ships of pending movements are copied now, as this port may move them later
+        priorityQueue.forEachShip(ship -> fork.forkedShip(stateOf(ship)));
+        movementStore.forEachShipImoNumber(imoNumber -> {
+            if (!fork.forkedShips.containsKey(imoNumber) && Ship.shipExists(imoNumber)) {
+                try {
+                    fork.forkedShip(stateOf(Ship.getShipByImoNumber(imoNumber)));
+                } catch (NoSuchShipException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        fork.storedCargo = storedCargo.fork();
+        fork.priorityQueue = priorityQueue.fork(fork::copyMovement);
+        fork.movementStore = movementStore.copy();
+        fork.recurringSchedules = new ArrayList<>(recurringSchedules);
+        for (ScheduledOccurrence occurrence : scheduledOccurrences) {
+            fork.forkedShip(stateOf(occurrence.schedule.getShip()));
+            fork.scheduledOccurrences.add(new ScheduledOccurrence(occurrence.schedule,
+                    occurrence.sequence, occurrence.time));
+        }
+        fork.schedulesAdded = schedulesAdded;
+        fork.berthAllocator = berthAllocator;
+        return fork;
+    }
+
+    /*
+     * Returns this fork's copy of the ship with the given ship's IMO number, which is the
+     * ship itself if it is a copy made by this fork. If the fork has not met the ship before,
+     * the given ship is copied.
+     */
+    private Ship forkedShip(Ship ship) {
+        Ship copy = forkedShips.get(ship.getImoNumber());
+        if (copy == null) {
+            copy = ship.copy();
+            forkedShips.put(ship.getImoNumber(), copy);
+        }
+        return copy;
+    }
+
+    /* Returns the state of the given ship as seen by this port, its copy if this is a fork */
+    private Ship stateOf(Ship ship) {
+        return forkedShips == null ? ship : forkedShip(ship);
+    }
+
+    /* Returns a copy of the movement made for this fork, moving this fork's copy of a ship */
+    private Movement copyMovement(Movement movement) {
+        if (movement instanceof ShipMovement) {
+            return new ShipMovement(movement.getTime(), movement.getDirection(),
+                    forkedShip(((ShipMovement) movement).getShip()));
+        }
+        return new CargoMovement(movement.getTime(), movement.getDirection(),
+                ((CargoMovement) movement).getCargoView());
+    }
+
     /**
      * Returns the list of evaluators at the port. Adding or removing elements from the
      * returned list should not affect the original list.
@@ -290,71 +1025,154 @@ public class Port {
      * actions should be completed by the port in order:
      * <p>
      * Advance the simulation time by 1 If the time is a multiple of 10, attempt to bring a
-     * ship from the ship queue to any empty quay that matches the requirements from
-     * Ship.canDock(Quay). The ship should only be docked to one quay. If the time is a
-     * multiple of 5, all quays must unload the cargo from ships docked (if any) and add it to
-     * warehouses at the port (the Port's list of stored cargo) All movements stored in the
-     * queue whose action time is equal to the current time should be processed by
-     * processMovement(Movement) Call StatisticsEvaluator.elapseOneMinute() on all statistics
-     * evaluators
+     * ship from the ship queue to an empty quay that matches the requirements from
+     * Ship.canDock(Quay), chosen by the port's berth allocator (see
+     * {@link #setBerthAllocator(BerthAllocator)}). The ship should only be docked to one quay.
+     * If the time is a multiple of 5, all quays must unload the cargo from ships docked (if
+     * any) and add it to warehouses at the port (the Port's list of stored cargo) All
+     * movements stored in the queue or the movement store whose action time is equal to the
+     * current time should be removed and processed by processMovement(Movement), in time order
+     * across both. Call StatisticsEvaluator.elapseOneMinute() on all statistics evaluators (or
+     * publish the tick to the evaluator pipeline if asynchronous evaluators are enabled).
      */
     public void elapseOneMinute() {
+        TickProbe probe = tickProbe;
         time++;
+        if (probe != null) {
+            probe.tickStarted(time);
+        }
         if (time % 10 == 0) {
-            if (shipQueue.getShipQueue().size() > 0) {
-                Ship ship = shipQueue.poll();
-                Boolean shipDocked = false;
+            if (probe != null) {
+                probe.phaseStarted(TickPhase.DOCKING);
+            }
+            dockNextShip();
+            if (probe != null) {
+                probe.phaseEnded(TickPhase.DOCKING);
+            }
+        } else if (time % 5 == 0) {
+            if (probe != null) {
+                probe.phaseStarted(TickPhase.UNLOADING);
+            }
+            unloadDockedShips();
+            if (probe != null) {
+                probe.phaseEnded(TickPhase.UNLOADING);
+            }
+        }
 
-                // check ship is arrived or not
-                for (Quay quay : quays) {
-                    if (!quay.isEmpty() && quay.getShip().equals(ship)) {
-                        shipDocked = true;
-                    }
-                }
+        if (probe != null) {
+            probe.phaseStarted(TickPhase.MOVEMENTS);
+        }
+        expandRecurringSchedules();
+        int dispatched = 0;
+        while (true) {
+            long queuedTime = priorityQueue.nextTime();
+            long storedTime = movementStore.nextTime();
+            Movement movement;
+            if (queuedTime <= time && queuedTime <= storedTime) {
+                movement = priorityQueue.poll();
+            } else if (storedTime <= time) {
+                movement = movementStore.poll();
+            } else {
+                break;
+            }
+            if (movement.getTime() == time) {
+                processMovement(movement);
+                dispatched++;
+            }
+        }
+        if (probe != null) {
+            probe.phaseEnded(TickPhase.MOVEMENTS);
+            probe.phaseStarted(TickPhase.EVALUATORS);
+        }
 
-                // dock ship
-                if (!shipDocked) {
-                    for (Quay quay : quays) {
-                        if (quay.isEmpty() && ship.canDock(quay)) {
-                            quay.shipArrives(ship);
-                        }
-                    }
-                }
+        if (evaluatorPipeline != null) {
+            evaluatorPipeline.publishTick();
+        } else if (probe != null) {
+            for (int i = 0; i < evaluators.size(); i++) {
+                StatisticsEvaluator evl = evaluators.get(i);
+                long start = System.nanoTime();
+                evl.elapseOneMinute();
+                probe.evaluatorCalled(evl, true, System.nanoTime() - start);
             }
-        } else if (time % 5 == 0) {
+        } else {
+            for (int i = 0; i < evaluators.size(); i++) {
+                evaluators.get(i).elapseOneMinute();
+            }
+        }
+        if (probe != null) {
+            probe.phaseEnded(TickPhase.EVALUATORS);
+            probe.tickEnded(time, dispatched, shipQueue.size(), storedCargo.size());
+        }
+    }
+
+    /**
+     * Adds a movement to the queue for every recurring schedule occurrence due now, and
+     * advances those schedules to their next occurrence.
+     */
+    private void expandRecurringSchedules() {
+        while (!scheduledOccurrences.isEmpty() && scheduledOccurrences.peek().time <= time) {
+            ScheduledOccurrence occurrence = scheduledOccurrences.poll();
+            priorityQueue.add(occurrence.schedule.occurrenceAt(occurrence.time));
+            occurrence.time = occurrence.schedule.nextOccurrence(occurrence.time + 1);
+            if (occurrence.time >= 0) {
+                scheduledOccurrences.add(occurrence);
+            } else {
+                recurringSchedules.remove(occurrence.schedule);
+            }
+        }
+    }
+
+    /**
+     * Attempts to bring the next ship from the ship queue to an empty quay that matches the
+     * requirements from Ship.canDock(Quay), chosen by the port's berth allocator.
+     */
+    private void dockNextShip() {
+        if (shipQueue.size() > 0) {
+            Ship ship = shipQueue.peek();
+            int position = shipQueue.getShipQueueView().indexOf(ship);
+            shipQueue.poll();
+            Boolean shipDocked = false;
+
+            // check ship is arrived or not
             for (Quay quay : quays) {
-                if (!quay.isEmpty()) {
-                    if (quay.getShip() instanceof BulkCarrier) {
-                        if (((BulkCarrier) quay.getShip()).getCargo() != null) {
-                            try {
-                                storedCargo.add(((BulkCarrier) quay.getShip()).getCargo());
-                                ((BulkCarrier) quay.getShip()).unloadCargo();
-                            } catch (NoSuchCargoException n) {
-                                n.printStackTrace();
-                            }
-                        }
-                    } else {
-                        if (((ContainerShip) quay.getShip()).getCargo().size() != 0) {
-                            try {
-                                for (Cargo cargo : ((ContainerShip) quay.getShip()).getCargo()) {
-                                    storedCargo.add(cargo);
-                                }
-                                ((ContainerShip) quay.getShip()).unloadCargo();
-                            } catch (NoSuchCargoException n) {
-                                n.printStackTrace();
-                            }
-                        }
-                    }
+                if (!quay.isEmpty() && quay.getShip().equals(ship)) {
+                    shipDocked = true;
+                }
+            }
+
+            // dock ship at one quay
+            if (!shipDocked) {
+                Quay quay = berthAllocator.chooseQuay(ship, this);
+                if (quay != null) {
+                    quay.shipArrives(ship);
+                } else if (hasQuayFor(ship)) {
+                    // the allocator chose to keep the ship waiting, in its place in the queue
+                    shipQueue.add(position, ship);
                 }
             }
         }
-        for (Movement movement : priorityQueue) {
-            if (movement.getTime() == time) {
-                processMovement(movement);
+    }
+
+    /* Returns true if the ship can dock at any of the port's empty quays. */
+    private boolean hasQuayFor(Ship ship) {
+        for (Quay quay : quays) {
+            if (quay.isEmpty() && ship.canDock(quay)) {
+                return true;
             }
         }
-        for (StatisticsEvaluator evl : evaluators) {
-            evl.elapseOneMinute();
+        return false;
+    }
+
+    /**
+     * Unloads the cargo from every ship docked at a quay and adds it to the port's stored
+     * cargo.
+     */
+    private void unloadDockedShips() {
+        for (int i = 0; i < quays.size(); i++) {
+            Quay quay = quays.get(i);
+            if (!quay.isEmpty()) {
+                quay.getShip().unloadCargoInto(storedCargo);
+            }
         }
     }
 
@@ -379,7 +1197,10 @@ public class Port {
      * the total amount of stored cargo in the Port If present (numCargo > 0): cargoID is each
      * cargo's ID in the stored cargo list of Port numMovements is the number of movements in
      * the list of movements in Port If present (numMovements > 0): EncodedMovement is the
-     * encoded representation of each individual Movement in the aforementioned list
+     * encoded representation of each individual Movement in the aforementioned list If the
+     * port has recurring schedules, a RecurringSchedules:numSchedules line follows the
+     * movements, then the encoded representation of each schedule (see
+     * RecurringSchedule.encode()); the line is left out if there are none
      * numEvaluators is the number of statistics evaluators in the Port evaluators list If
      * present (numEvaluators > 0): EvaluatorSimpleName is the name given by
      * Class.getSimpleName() for each evaluator in the aforementioned list separated by a comma
@@ -391,62 +1212,58 @@ public class Port {
      * @return encoded string representation of this Port
      */
     public String encode() {
-        String allCargos = "";
-        if (Cargo.getCargoRegistry().size() > 0) {
-            for (Cargo cargo : Cargo.getCargoRegistry().values()) {
-                allCargos += cargo.encode();
-                allCargos += System.lineSeparator();
-            }
+        String newline = System.lineSeparator();
+        StringBuilder encoded = new StringBuilder();
+        encoded.append(name).append(newline).append(time).append(newline);
+
+        Map<Integer, Cargo> cargoRegistry = Cargo.getCargoRegistry();
+        encoded.append(cargoRegistry.size()).append(newline);
+        for (Cargo cargo : cargoRegistry.values()) {
+            encoded.append(cargo.encode()).append(newline);
         }
 
-        String allShips = "";
-        if (Ship.getShipRegistry().size() > 0) {
-            for (Ship ship : Ship.getShipRegistry().values()) {
-                allShips += ship.encode();
-                allShips += System.lineSeparator();
-            }
+        Map<Long, Ship> shipRegistry = Ship.getShipRegistry();
+        encoded.append(shipRegistry.size()).append(newline);
+        for (Ship ship : shipRegistry.values()) {
+            encoded.append(ship.encode()).append(newline);
         }
 
-        String allQuays = "";
-        if (quays.size() > 0) {
-            for (Quay quay : quays) {
-                allQuays += quay.encode();
-                allQuays += System.lineSeparator();
-            }
+        encoded.append(quays.size()).append(newline);
+        for (Quay quay : quays) {
+            encoded.append(quay.encode()).append(newline);
         }
 
-        String storedCargos = "StoredCargo:" + storedCargo.size() + ":";
-        if (storedCargo.size() > 0) {
-            for (Cargo cargo : storedCargo) {
-                storedCargos += cargo.getId();
-                storedCargos += ",";
-            }
-            storedCargos = storedCargos.substring(0, storedCargos.length() - 1);
+        encoded.append(shipQueue.encode()).append(newline);
+
+        encoded.append("StoredCargo:").append(storedCargo.size()).append(":");
+        String separator = "";
+        for (Cargo cargo : storedCargo.getCargoView()) {
+            encoded.append(separator).append(cargo.getId());
+            separator = ",";
         }
+        encoded.append(newline);
 
-        String movements = "";
-        if (priorityQueue.size() > 0) {
-            for (Movement movement : priorityQueue) {
-                movements += movement.encode();
-                movements += System.lineSeparator();
-            }
+        encoded.append("Movements:").append(getPendingMovementCount()).append(newline);
+        for (Movement movement : priorityQueue) {
+            encoded.append(movement.encode()).append(newline);
         }
+        movementStore.forEach(movement -> encoded.append(movement.encode()).append(newline));
 
-        String allEvaluators = "Evaluators:" + evaluators.size() + ":";
-        if (evaluators.size() > 0) {
-            for (StatisticsEvaluator evaluator : evaluators) {
-                allEvaluators += evaluator.getClass().getSimpleName();
-                allEvaluators += ",";
+        if (!recurringSchedules.isEmpty()) {
+            encoded.append("RecurringSchedules:").append(recurringSchedules.size())
+                    .append(newline);
+            for (RecurringSchedule schedule : recurringSchedules) {
+                encoded.append(schedule.encode()).append(newline);
             }
-            allEvaluators = allEvaluators.substring(0, allEvaluators.length() - 1);
         }
 
-        return "" + name + System.lineSeparator() + time + System.lineSeparator()
-                + Cargo.getCargoRegistry().size() + System.lineSeparator() + allCargos
-                + Ship.getShipRegistry().size() + System.lineSeparator() + allShips + quays.size()
-                + System.lineSeparator() + allQuays + shipQueue.encode() + System.lineSeparator()
-                + storedCargos + System.lineSeparator() + "Movements:" + priorityQueue.size()
-                + System.lineSeparator() + movements + allEvaluators;
+        encoded.append("Evaluators:").append(evaluators.size()).append(":");
+        separator = "";
+        for (StatisticsEvaluator evaluator : evaluators) {
+            encoded.append(separator).append(evaluator.getClass().getSimpleName());
+            separator = ",";
+        }
+        return encoded.toString();
     }
 
     /**
@@ -483,8 +1300,11 @@ public class Port {
      * encoded storedCargo The number of movements is not an integer (i.e. cannot be parsed by
      * Integer.parseInt(String)). The number of movements to be read in does not match the
      * number specified above. (ie. too many / few encoded movements following the number) An
-     * encoded movement line throws a BadEncodingException The evaluators do not follow the
-     * encoded movements The number of evaluators is not an integer (i.e. cannot be parsed by
+     * encoded movement line throws a BadEncodingException The number of recurring schedules
+     * (if present) is not an integer, does not match the schedules following it, or an
+     * encoded schedule line throws a BadEncodingException or has no occurrences after the
+     * port's time. The evaluators do not follow the encoded movements or recurring
+     * schedules. The number of evaluators is not an integer (i.e. cannot be parsed by
      * Integer.parseInt(String)). The number of evaluators to be read in does not match the
      * number specified above. (ie. too many / few encoded evaluators following the number) An
      * encoded evaluator name does not match any of the possible evaluator classes If any of
@@ -614,8 +1434,27 @@ public class Port {
                 }
             }
 
-            // Evaluators line
+            // optional recurring schedules lines
             content = read.readLine();
+            if (content != null && content.startsWith("RecurringSchedules")) {
+                int numSchedules = decodeRecurringSchedules(content);
+                for (int index = 0; index < numSchedules; index++) {
+                    content = read.readLine();
+                    if (content == null || !content.startsWith("RecurringSchedule:")) {
+                        throw new BadEncodingException("The number of recurring schedules "
+                                + "does not match");
+                    }
+                    try {
+                        port.addRecurringSchedule(RecurringSchedule.fromString(content));
+                    } catch (IllegalArgumentException i) {
+                        throw new BadEncodingException("A recurring schedule has no "
+                                + "occurrences after the port's time", i);
+                    }
+                }
+                content = read.readLine();
+            }
+
+            // Evaluators line
             lineNum++;
             decodeEvaluators(content, port);
         } catch (IOException i) {
@@ -818,6 +1657,26 @@ public class Port {
         return numMovements;
     }
 
+    /**
+     * decode the number of recurring schedules from reader
+     *
+     * @param content the content of read line
+     * @return the number of recurring schedules in the port
+     * @throws BadEncodingException if the number of recurring schedules is not an integer
+     */
+    private static int decodeRecurringSchedules(String content) throws BadEncodingException {
+        String[] pairs = content.split(":");
+        if (pairs.length != 2 || !pairs[0].equals("RecurringSchedules")) {
+            throw new BadEncodingException("The recurring schedules line is invalid");
+        }
+        try {
+            return Integer.parseInt(pairs[1]);
+        } catch (NumberFormatException n) {
+            throw new BadEncodingException("The number of recurring schedules is not an "
+                    + "integer", n);
+        }
+    }
+
     /**
      * decode the list of evaluators from reader
      *
@@ -0,0 +1,160 @@
+package portsim.port;
+
+import portsim.cargo.Cargo;
+import portsim.movement.MovementQueue;
+import portsim.movement.MovementStore;
+import portsim.movement.RecurringSchedule;
+import portsim.ship.Ship;
+
+import java.util.List;
+
+/**
+ * The state of a port at one time, taken with {@link Port#checkpoint()} so that the port can
+ * later be returned to it with {@link Port#restore(PortCheckpoint)}.
+ * <p>
+ * A checkpoint holds the port's time, its quays and the ships docked at them, its ship queue,
+ * marks in the histories of its yard, movement queue and movement store, its recurring
+ * schedules, and the cargo onboard every ship the port holds or has a queued INBOUND ship
+ * movement for. It does not hold the state of the port's statistics evaluators.
+ * <p>
+ * Ships, cargo and movements are shared with the port rather than copied, so a checkpoint
+ * only costs the lists that refer to them. A checkpoint can be restored any number of times
+ * until a checkpoint taken before it is restored or it is discarded (see
+ * {@link Port#discardCheckpointsBefore(PortCheckpoint)}).
+ */
+public final class PortCheckpoint {
+    /**
+     * The port the checkpoint was taken of
+     */
+    final Port port;
+
+    /**
+     * The port's time
+     */
+    final long time;
+
+    /**
+     * The port's quays, in the order they were added
+     */
+    final List<Quay> quays;
+
+    /**
+     * The ship docked at each quay, or null if the quay was empty
+     */
+    final Ship[] dockedShips;
+
+    /**
+     * The ships in the ship queue, in the order they were added
+     */
+    final List<Ship> queuedShips;
+
+    /**
+     * Mark of the cargo stored in the yard
+     */
+    final CargoYard.Mark yard;
+
+    /**
+     * The ships whose cargo was recorded
+     */
+    final Ship[] ships;
+
+    /**
+     * The cargo onboard each ship in ships
+     */
+    final List<List<Cargo>> shipCargo;
+
+    /**
+     * Mark of the movements in the movement queue
+     */
+    final MovementQueue.Mark movements;
+
+    /**
+     * Mark of the movements in the movement store
+     */
+    final MovementStore.Mark movementStore;
+
+    /**
+     * Recurring schedules with occurrences still to come, in the order they were added
+     */
+    final List<RecurringSchedule> recurringSchedules;
+
+    /**
+     * The schedule of each pending occurrence
+     */
+    final RecurringSchedule[] occurrenceSchedules;
+
+    /**
+     * The order in which the schedule of each pending occurrence was added
+     */
+    final long[] occurrenceSequences;
+
+    /**
+     * The time of each pending occurrence
+     */
+    final long[] occurrenceTimes;
+
+    /**
+     * Number of recurring schedules ever added to the port
+     */
+    final long schedulesAdded;
+
+    /**
+     * Creates a checkpoint from state already copied or marked from the port.
+     *
+     * @param port                port the checkpoint was taken of
+     * @param time                the port's time
+     * @param quays               the port's quays
+     * @param dockedShips         the ship docked at each quay
+     * @param queuedShips         the ships in the ship queue
+     * @param yard                mark of the cargo in the yard
+     * @param ships               the ships whose cargo was recorded
+     * @param shipCargo           the cargo onboard each ship
+     * @param movements           mark of the movement queue
+     * @param movementStore       mark of the movement store
+     * @param recurringSchedules  the recurring schedules
+     * @param occurrenceSchedules the schedule of each pending occurrence
+     * @param occurrenceSequences the order each occurrence's schedule was added
+     * @param occurrenceTimes     the time of each pending occurrence
+     * @param schedulesAdded      number of recurring schedules ever added
+     */
+    PortCheckpoint(Port port, long time, List<Quay> quays, Ship[] dockedShips,
+                   List<Ship> queuedShips, CargoYard.Mark yard, Ship[] ships,
+                   List<List<Cargo>> shipCargo, MovementQueue.Mark movements,
+                   MovementStore.Mark movementStore, List<RecurringSchedule> recurringSchedules,
+                   RecurringSchedule[] occurrenceSchedules, long[] occurrenceSequences,
+                   long[] occurrenceTimes, long schedulesAdded) {
+        this.port = port;
+        this.time = time;
+        this.quays = quays;
+        this.dockedShips = dockedShips;
+        this.queuedShips = queuedShips;
+        this.yard = yard;
+        this.ships = ships;
+        this.shipCargo = shipCargo;
+        this.movements = movements;
+        this.movementStore = movementStore;
+        this.recurringSchedules = recurringSchedules;
+        this.occurrenceSchedules = occurrenceSchedules;
+        this.occurrenceSequences = occurrenceSequences;
+        this.occurrenceTimes = occurrenceTimes;
+        this.schedulesAdded = schedulesAdded;
+    }
+
+    /**
+     * Returns the port this checkpoint was taken of.
+     *
+     * @return port
+     */
+    public Port getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the time of the port when this checkpoint was taken.
+     *
+     * @return time in minutes
+     */
+    public long getTime() {
+        return time;
+    }
+}
@@ -14,11 +14,17 @@ public class ShipQueue {
      */
     private List<Ship> shipQueue;
 
+    /**
+     * Read-only view of the queue, shared by every caller of {@link #getShipQueueView()}
+     */
+    private List<Ship> shipQueueView;
+
     /**
      * Constructs a new ShipQueue with an initially empty queue of ships.
      */
     public ShipQueue() {
         shipQueue = new ArrayList<>();
+        shipQueueView = Collections.unmodifiableList(shipQueue);
     }
 
     /**
@@ -95,6 +101,33 @@ public class ShipQueue {
         shipQueue.add(ship);
     }
 
+    /**
+     * Adds the specified ship to the queue at the given position, in the order returned by
+     * {@link #getShipQueue()}, as if it had been added before the ships after it.
+     *
+     * @param position index to add the ship at
+     * @param ship     ship to be added to queue
+     */
+    void add(int position, Ship ship) {
+        shipQueue.add(position, ship);
+    }
+
+    /**
+     * Removes every ship from the queue.
+     */
+    public void clear() {
+        shipQueue.clear();
+    }
+
+    /**
+     * Returns the number of ships currently waiting in this ShipQueue.
+     *
+     * @return number of ships in queue
+     */
+    public int size() {
+        return shipQueue.size();
+    }
+
     /**
      * Returns a list containing all the ships currently stored in this ShipQueue. The order of
      * the ships in the returned list should be the order in which the ships were added to the
@@ -108,6 +141,19 @@ public class ShipQueue {
         return new ArrayList<>(shipQueue);
     }
 
+    /**
+     * Returns a read-only view of the ships currently stored in this ShipQueue, in the order
+     * in which they were added.
+     * <p>
+     * Unlike {@link #getShipQueue()}, no copy is made: the view reflects ships added or polled
+     * later and throws UnsupportedOperationException if modified.
+     *
+     * @return read-only view of the ships in the queue
+     */
+    public List<Ship> getShipQueueView() {
+        return shipQueueView;
+    }
+
     /**
      * Returns true if and only if this ship queue is equal to the other given ship queue. For
      * two ship queue to be equal, they must have the same ships in the queue.
@@ -3,6 +3,8 @@ package portsim.ship;
 import portsim.cargo.*;
 import portsim.port.*;
 import portsim.util.NoSuchCargoException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -46,6 +48,26 @@ public class BulkCarrier extends Ship {
         this.cargo = null;
     }
 
+    /**
+     * Creates a copy of the given bulk carrier carrying the same lot of bulk cargo (see
+     * {@link Ship#copy()}).
+     *
+     * @param original bulk carrier to copy
+     */
+    protected BulkCarrier(BulkCarrier original) {
+        super(original);
+        this.tonnageCapacity = original.tonnageCapacity;
+        this.cargo = original.cargo;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkCarrier copy() {
+        return new BulkCarrier(this);
+    }
+
     /**
      * Check if this ship can dock with the specified quay.
      * <p>
@@ -96,7 +118,7 @@ public class BulkCarrier extends Ship {
         if (((BulkCargo) cargo).getTonnage() > tonnageCapacity) {
             return false;
         }
-        return cargo.getDestination().equals(this.getOriginFlag());
+        return cargo.getDestinationCode() == this.getOriginCode();
     }
 
     /**
@@ -109,6 +131,9 @@ public class BulkCarrier extends Ship {
      */
     public void loadCargo(Cargo cargo) {
         this.cargo = (BulkCargo) cargo;
+        if (tracksCargo()) {
+            cargo.setLocation(CargoLocation.SHIP, this);
+        }
     }
 
     /**
@@ -125,10 +150,70 @@ public class BulkCarrier extends Ship {
             throw new NoSuchCargoException("Cargo has already been unloaded");
         }
         BulkCargo unload = cargo;
+        if (tracksCargo()) {
+            unload.setLocation(CargoLocation.NONE, null);
+        }
         cargo = null;
         return unload;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int unloadCargoInto(CargoYard yard) {
+        if (cargo == null) {
+            return 0;
+        }
+        int unloaded = yard.store(cargo) ? 1 : 0;
+        cargo = null;
+        return unloaded;
+    }
+
+    /**
+     * Loads this ship, if it is empty, with the heaviest lot of bulk cargo bound for its origin
+     * country that is within its tonnage capacity. The lot loaded is removed from the yard.
+     *
+     * @param yard yard to take the bulk cargo from
+     * @return 1 if a lot was loaded, 0 if the ship was not empty or no stored lot fits
+     */
+    @Override
+    public int loadCargoFrom(CargoYard yard) {
+        if (cargo != null) {
+            return 0;
+        }
+        cargo = yard.takeBulkCargo(getOriginCode(), tonnageCapacity);
+        if (cargo == null) {
+            return 0;
+        }
+        if (tracksCargo()) {
+            cargo.setLocation(CargoLocation.SHIP, this);
+        }
+        return 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Cargo> getCargoOnBoard() {
+        return cargo == null ? new ArrayList<>() : new ArrayList<>(List.of(cargo));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void restoreCargo(List<? extends Cargo> cargo) {
+        if (this.cargo != null && tracksCargo() && this.cargo.getHolder() == this) {
+            this.cargo.setLocation(CargoLocation.NONE, null);
+        }
+        this.cargo = null;
+        if (!cargo.isEmpty()) {
+            loadCargo(cargo.get(0));
+        }
+    }
+
     /**
      * Returns the current cargo onboard this vessel.
      *
@@ -19,7 +19,12 @@ public class ContainerShip extends Ship {
     /**
      * The containers currently on the ship
      */
-    private List<Container> containers;
+    private final List<Container> containers;
+
+    /**
+     * Read-only view of the containers, shared by every caller of {@link #getCargoView()}
+     */
+    private final List<Container> containersView;
 
     /**
      * Creates a new container ship with the given IMO number, name and origin port, nautical
@@ -44,6 +49,28 @@ public class ContainerShip extends Ship {
         }
         this.containerCapacity = capacity;
         this.containers = new ArrayList<>();
+        this.containersView = Collections.unmodifiableList(containers);
+    }
+
+    /**
+     * Creates a copy of the given container ship carrying the same containers (see
+     * {@link Ship#copy()}).
+     *
+     * @param original container ship to copy
+     */
+    protected ContainerShip(ContainerShip original) {
+        super(original);
+        this.containerCapacity = original.containerCapacity;
+        this.containers = new ArrayList<>(original.containers);
+        this.containersView = Collections.unmodifiableList(containers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ContainerShip copy() {
+        return new ContainerShip(this);
     }
 
     /**
@@ -93,7 +120,7 @@ public class ContainerShip extends Ship {
         if (this.containers.size() == containerCapacity) {
             return false;
         }
-        return cargo.getDestination().equals(this.getOriginFlag());
+        return cargo.getDestinationCode() == this.getOriginCode();
     }
 
     /**
@@ -106,6 +133,9 @@ public class ContainerShip extends Ship {
      */
     public void loadCargo(Cargo cargo) {
         this.containers.add((Container) cargo);
+        if (tracksCargo()) {
+            cargo.setLocation(CargoLocation.SHIP, this);
+        }
     }
 
     /**
@@ -123,10 +153,70 @@ public class ContainerShip extends Ship {
             throw new NoSuchCargoException("Cargo has already been unloaded");
         }
         List<Container> unload = new ArrayList<>(containers);
-        containers = new ArrayList<>();
+        if (tracksCargo()) {
+            for (Container container : unload) {
+                container.setLocation(CargoLocation.NONE, null);
+            }
+        }
+        containers.clear();
         return unload;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int unloadCargoInto(CargoYard yard) {
+        int unloaded = yard.storeAll(containers);
+        containers.clear();
+        return unloaded;
+    }
+
+    /**
+     * Loads this ship with containers bound for its origin country taken from the given yard,
+     * oldest first, until the ship is full or there are no more such containers. The
+     * containers loaded are removed from the yard.
+     *
+     * @param yard yard to take the containers from
+     * @return number of containers loaded
+     */
+    @Override
+    public int loadCargoFrom(CargoYard yard) {
+        int loaded = yard.takeContainers(getOriginCode(),
+                containerCapacity - containers.size(), containers);
+        if (tracksCargo()) {
+            for (int i = containers.size() - loaded; i < containers.size(); i++) {
+                containers.get(i).setLocation(CargoLocation.SHIP, this);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Cargo> getCargoOnBoard() {
+        return new ArrayList<>(containers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void restoreCargo(List<? extends Cargo> cargo) {
+        for (int i = 0; i < containers.size(); i++) {
+            Container container = containers.get(i);
+            if (tracksCargo() && container.getHolder() == this) {
+                container.setLocation(CargoLocation.NONE, null);
+            }
+        }
+        containers.clear();
+        for (int i = 0; i < cargo.size(); i++) {
+            loadCargo(cargo.get(i));
+        }
+    }
+
     /**
      * Returns the current cargo onboard this vessel.
      * <p>
@@ -139,6 +229,18 @@ public class ContainerShip extends Ship {
         return new ArrayList<>(containers);
     }
 
+    /**
+     * Returns a read-only view of the cargo onboard this vessel.
+     * <p>
+     * Unlike {@link #getCargo()}, no copy is made: the view reflects cargo loaded or unloaded
+     * later and throws UnsupportedOperationException if modified.
+     *
+     * @return read-only view of the containers on the vessel
+     */
+    public List<Container> getCargoView() {
+        return containersView;
+    }
+
     /**
      * Returns the human-readable string representation of this ContainerShip.
      * <p>
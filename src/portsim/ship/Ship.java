@@ -1,6 +1,8 @@
 package portsim.ship;
 
 import portsim.cargo.*;
+import portsim.port.CargoYard;
+import portsim.port.Port;
 import portsim.port.Quay;
 import portsim.util.*;
 import java.util.*;
@@ -28,16 +30,31 @@ public abstract class Ship {
      */
     private String originFlag;
 
+    /**
+     * Code of the port of origin in the {@link CountryDictionary}
+     */
+    private int originCode;
+
     /**
      * Maritime flag designated for use on this ship
      */
     private NauticalFlag flag;
 
+    /**
+     * Whether the ship records itself as the location of the cargo it carries
+     */
+    private boolean tracksCargo;
+
     /**
      * Database of all ships currently active in the simulation
      */
     private static Map<Long, Ship> shipRegistry = new HashMap<>();
 
+    /**
+     * Secondary indexes over the ships in the registry
+     */
+    private static final ShipIndex shipIndex = new ShipIndex();
+
     /**
      * Creates a new ship with the given
      * <a href="https://en.wikipedia.org/wiki/IMO_number">IMO number</a>,
@@ -67,14 +84,56 @@ public abstract class Ship {
         this.imoNumber = imoNumber;
         this.name = name;
         this.originFlag = originFlag;
+        this.originCode = CountryDictionary.code(originFlag);
         this.flag = flag;
+        this.tracksCargo = true;
         if (shipRegistry.get(imoNumber) != null) {
             throw new IllegalArgumentException("a ship already exists with the given imoNumber");
         } else {
             shipRegistry.put(imoNumber, this);
+            shipIndex.add(this);
         }
     }
 
+    /**
+     * Creates a copy of the given ship with the same IMO number, name, origin port flag and
+     * nautical flag, for a fork of a port (see {@link Port#fork()}). The copy is not added to
+     * the ship registry, and does not record itself as the location of the cargo it carries.
+     *
+     * @param original ship to copy
+     */
+    protected Ship(Ship original) {
+        this.imoNumber = original.imoNumber;
+        this.name = original.name;
+        this.originFlag = original.originFlag;
+        this.originCode = original.originCode;
+        this.flag = original.flag;
+        this.tracksCargo = false;
+    }
+
+    /**
+     * Returns a copy of this ship carrying the same cargo, in the same order. The copy is equal
+     * to this ship but is not added to the ship registry, so the registry still returns this
+     * ship for its IMO number.
+     * <p>
+     * Cargo loaded onto or unloaded from the copy does not change this ship, and the copy
+     * leaves the location recorded for its cargo (see {@link Cargo#getLocation()}) as it is.
+     * This takes time proportional to the amount of cargo onboard, without copying the cargo.
+     *
+     * @return copy of this ship
+     */
+    public abstract Ship copy();
+
+    /**
+     * Returns whether this ship records itself as the location of the cargo it carries. Ships
+     * made by {@link #copy()} do not.
+     *
+     * @return true if cargo loaded onto this ship is recorded as being on it
+     */
+    protected boolean tracksCargo() {
+        return tracksCargo;
+    }
+
     /**
      * Check if this ship can dock with the specified quay according to the conditions
      * determined by the ships type.
@@ -105,6 +164,44 @@ public abstract class Ship {
      */
     public abstract void loadCargo(Cargo cargo);
 
+    /**
+     * Moves all cargo onboard this ship into the given yard, leaving the ship empty. This
+     * takes time proportional to the amount of cargo onboard and makes no copies of it.
+     *
+     * @param yard yard to store the cargo in
+     * @return number of pieces of cargo moved into the yard, 0 if the ship had no cargo
+     */
+    public abstract int unloadCargoInto(CargoYard yard);
+
+    /**
+     * Loads this ship with cargo taken from the given yard, as much as the ship can carry of
+     * the cargo bound for its origin country. The cargo loaded is removed from the yard. This
+     * takes time proportional to the amount of cargo loaded, using the yard's indexes rather
+     * than checking every piece of cargo with {@link #canLoad(Cargo)}.
+     *
+     * @param yard yard to take the cargo from
+     * @return number of pieces of cargo loaded
+     */
+    public abstract int loadCargoFrom(CargoYard yard);
+
+    /**
+     * Returns the cargo onboard this ship, in the order it was loaded. Adding or removing
+     * elements from the returned list does not affect the ship.
+     *
+     * @return cargo onboard, empty if the ship has none
+     */
+    public abstract List<Cargo> getCargoOnBoard();
+
+    /**
+     * Replaces the cargo onboard this ship with the given cargo, as earlier returned by
+     * {@link #getCargoOnBoard()}, to return the ship to an earlier state. No checks are made
+     * with {@link #canLoad(Cargo)}. Cargo taken off that is still recorded as being on this
+     * ship is marked as having no location, and the given cargo is marked as on this ship.
+     *
+     * @param cargo cargo to have onboard, in the order it was loaded
+     */
+    public abstract void restoreCargo(List<? extends Cargo> cargo);
+
     /**
      * Returns this ship's name.
      *
@@ -135,6 +232,16 @@ public abstract class Ship {
         return this.originFlag;
     }
 
+    /**
+     * Returns the code of this ship's port of origin in the {@link CountryDictionary}. Cargo
+     * is bound for this ship's origin if and only if its destination code equals this code.
+     *
+     * @return origin code
+     */
+    public int getOriginCode() {
+        return originCode;
+    }
+
     /**
      * Returns the nautical flag the ship is flying.
      *
@@ -178,6 +285,33 @@ public abstract class Ship {
      */
     public static void resetShipRegistry() {
         Ship.shipRegistry = new HashMap<>();
+        shipIndex.clear();
+    }
+
+    /**
+     * Empties the ship registry and returns the ships it held, in the order they were
+     * created, so that they can be put back by {@link #restoreShipRegistry(List)}.
+     *
+     * @return ships that were registered
+     */
+    public static List<Ship> takeShipRegistry() {
+        List<Ship> ships = shipIndex.getShips();
+        resetShipRegistry();
+        return ships;
+    }
+
+    /**
+     * Replaces the contents of the ship registry with the ships taken by
+     * {@link #takeShipRegistry()}. Ships registered since they were taken are forgotten.
+     *
+     * @param ships ships returned by takeShipRegistry()
+     */
+    public static void restoreShipRegistry(List<Ship> ships) {
+        resetShipRegistry();
+        for (Ship ship : ships) {
+            shipRegistry.put(ship.imoNumber, ship);
+            shipIndex.add(ship);
+        }
     }
 
     /**
@@ -216,6 +350,17 @@ public abstract class Ship {
         return new HashMap<>(shipRegistry);
     }
 
+    /**
+     * Returns the secondary indexes over the ships in the registry, used to find ships by
+     * name prefix, flag, origin or type without copying the registry. The index is live: it
+     * includes every ship created since the registry was last reset.
+     *
+     * @return index of registered ships
+     */
+    public static ShipIndex getShipIndex() {
+        return shipIndex;
+    }
+
     /**
      * Returns true if and only if this ship is equal to the other given ship. For two ships to
      * be equal, they must have the same name, flag, origin port, and IMO number.
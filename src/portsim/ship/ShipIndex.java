@@ -0,0 +1,307 @@
+package portsim.ship;
+
+import portsim.util.CountryDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary indexes over the ships in the ship registry, for finding ships by name prefix,
+ * nautical flag, port of origin and type without looking at every ship.
+ * <p>
+ * Ship names are kept in a trie of their lower case characters, in which every node counts
+ * the ships below it, so the ships whose names start with a given prefix are found in time
+ * proportional to the prefix length and are listed in name order. Ships are also listed by
+ * flag, by origin and by type. A {@link ShipQuery} is answered from whichever of these is
+ * smallest for the criteria it sets, checking the other criteria ship by ship.
+ * <p>
+ * The index is maintained by the registry itself: each ship is added when it is created, and
+ * the index is cleared by {@link Ship#resetShipRegistry()} (see {@link Ship#getShipIndex()}).
+ */
+public final class ShipIndex {
+    /**
+     * Children of a trie node with none
+     */
+    private static final char[] NO_KEYS = new char[0];
+
+    /**
+     * Child nodes of a trie node with none
+     */
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * Every indexed ship, in the order they were added
+     */
+    private final List<Ship> ships = new ArrayList<>();
+
+    /**
+     * Root of the name trie, for the empty prefix
+     */
+    private Node root = new Node();
+
+    /**
+     * Ships with each nautical flag, in the order they were added
+     */
+    private final Map<NauticalFlag, List<Ship>> byFlag = new EnumMap<>(NauticalFlag.class);
+
+    /**
+     * Ships with each origin, indexed by the origin's code in the {@link CountryDictionary}
+     */
+    private final List<List<Ship>> byOrigin = new ArrayList<>();
+
+    /**
+     * Ships of each class, in the order they were added
+     */
+    private final Map<Class<?>, List<Ship>> byType = new HashMap<>();
+
+    /**
+     * A node of the name trie
+     */
+    private static final class Node {
+        /**
+         * Character leading to each child, in ascending order
+         */
+        private char[] keys = NO_KEYS;
+
+        /**
+         * Child for each character in keys
+         */
+        private Node[] children = NO_CHILDREN;
+
+        /**
+         * Number of children in use
+         */
+        private int childCount;
+
+        /**
+         * Ships whose name ends at this node, in the order they were added
+         */
+        private List<Ship> ships;
+
+        /**
+         * Number of ships whose name ends at this node or below it
+         */
+        private int count;
+
+        /* Returns the child for the given character, or null if there is none. */
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        /* Returns the child for the given character, adding it if there is none. */
+        private Node addChild(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, index, keys, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            Node child = new Node();
+            keys[index] = key;
+            children[index] = child;
+            childCount++;
+            return child;
+        }
+    }
+
+    /**
+     * Creates a new empty index.
+     */
+    ShipIndex() {
+    }
+
+    /**
+     * Adds a ship to every index.
+     *
+     * @param ship ship to add
+     */
+    void add(Ship ship) {
+        ships.add(ship);
+
+        Node node = root;
+        node.count++;
+        String name = ship.getName() == null ? "" : ship.getName();
+        for (int i = 0; i < name.length(); i++) {
+            node = node.addChild(Character.toLowerCase(name.charAt(i)));
+            node.count++;
+        }
+        if (node.ships == null) {
+            node.ships = new ArrayList<>(1);
+        }
+        node.ships.add(ship);
+
+        if (ship.getFlag() != null) {
+            byFlag.computeIfAbsent(ship.getFlag(), f -> new ArrayList<>()).add(ship);
+        }
+        int origin = ship.getOriginCode();
+        if (origin != CountryDictionary.NONE) {
+            while (byOrigin.size() <= origin) {
+                byOrigin.add(null);
+            }
+            if (byOrigin.get(origin) == null) {
+                byOrigin.set(origin, new ArrayList<>());
+            }
+            byOrigin.get(origin).add(ship);
+        }
+        byType.computeIfAbsent(ship.getClass(), c -> new ArrayList<>()).add(ship);
+    }
+
+    /**
+     * Returns every indexed ship, in the order they were added.
+     *
+     * @return list of indexed ships
+     */
+    List<Ship> getShips() {
+        return new ArrayList<>(ships);
+    }
+
+    /**
+     * Removes every ship from the index.
+     */
+    void clear() {
+        ships.clear();
+        root = new Node();
+        byFlag.clear();
+        byOrigin.clear();
+        byType.clear();
+    }
+
+    /**
+     * Returns the number of ships in the index.
+     *
+     * @return number of indexed ships
+     */
+    public int size() {
+        return ships.size();
+    }
+
+    /**
+     * Returns up to the given number of ships that match the query.
+     * <p>
+     * If the query sets a name prefix and that is its most selective criterion, the ships are
+     * returned in order of their names; otherwise they are returned in the order they were
+     * created. Only as many ships are examined as are needed to fill the limit from the
+     * smallest index the query can use.
+     *
+     * @param query criteria of the ships to find
+     * @param limit maximum number of ships to return
+     * @return matching ships
+     * @throws IllegalArgumentException if limit &lt; 0
+     */
+    public List<Ship> find(ShipQuery query, int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must be greater than"
+                    + " or equal to 0: " + limit);
+        }
+        List<Ship> found = new ArrayList<>(Math.min(limit, 16));
+        if (limit == 0) {
+            return found;
+        }
+        Node prefixNode = prefixNode(query);
+        if (query.getNamePrefix() != null && prefixNode == null) {
+            return found;
+        }
+        List<Ship> candidates = candidates(query);
+        if (prefixNode != null && (candidates == null || prefixNode.count <= candidates.size())) {
+            collect(prefixNode, query, limit, found);
+        } else {
+            for (int i = 0; i < candidates.size() && found.size() < limit; i++) {
+                Ship ship = candidates.get(i);
+                if (query.matches(ship)) {
+                    found.add(ship);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the number of ships that match the query. A query setting no criteria other
+     * than a name prefix is counted in time proportional to the prefix length; other queries
+     * examine every ship in the smallest index they can use.
+     *
+     * @param query criteria of the ships to count
+     * @return number of matching ships
+     */
+    public int count(ShipQuery query) {
+        if (query.getFlag() == null && query.getOriginFlag() == null
+                && query.getType() == null) {
+            Node prefixNode = query.getNamePrefix() == null ? root : prefixNode(query);
+            return prefixNode == null ? 0 : prefixNode.count;
+        }
+        return find(query, Integer.MAX_VALUE).size();
+    }
+
+    /*
+     * Returns the trie node for the query's name prefix, or null if the query sets no prefix
+     * or no name starts with it.
+     */
+    private Node prefixNode(ShipQuery query) {
+        String prefix = query.getNamePrefix();
+        if (prefix == null) {
+            return null;
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(Character.toLowerCase(prefix.charAt(i)));
+        }
+        return node;
+    }
+
+    /*
+     * Returns the smallest list of ships meeting one of the query's flag, origin and type
+     * criteria. Ships of a type's subclasses are not listed under the type, so a type with no
+     * ships of its own is not used. If no list can be used, returns null when the query has a
+     * name prefix for the trie to answer, otherwise every ship.
+     */
+    private List<Ship> candidates(ShipQuery query) {
+        List<Ship> smallest = null;
+        if (query.getFlag() != null) {
+            smallest = byFlag.getOrDefault(query.getFlag(), List.of());
+        }
+        if (query.getOriginFlag() != null) {
+            int origin = CountryDictionary.lookup(query.getOriginFlag());
+            List<Ship> byThisOrigin = origin >= 0 && origin < byOrigin.size()
+                    && byOrigin.get(origin) != null ? byOrigin.get(origin) : List.of();
+            if (smallest == null || byThisOrigin.size() < smallest.size()) {
+                smallest = byThisOrigin;
+            }
+        }
+        if (query.getType() != null) {
+            List<Ship> byThisType = byType.get(query.getType());
+            if (byThisType != null && (smallest == null || byThisType.size() < smallest.size())) {
+                smallest = byThisType;
+            }
+        }
+        if (smallest == null && query.getNamePrefix() == null) {
+            smallest = ships;
+        }
+        return smallest;
+    }
+
+    /* Adds matching ships at or below the node to found, in name order, up to the limit. */
+    private static void collect(Node node, ShipQuery query, int limit, List<Ship> found) {
+        if (node.ships != null) {
+            for (int i = 0; i < node.ships.size() && found.size() < limit; i++) {
+                Ship ship = node.ships.get(i);
+                if (query.matches(ship)) {
+                    found.add(ship);
+                }
+            }
+        }
+        for (int i = 0; i < node.childCount && found.size() < limit; i++) {
+            collect(node.children[i], query, limit, found);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package portsim.ship;
+
+/**
+ * Criteria for finding ships in a {@link ShipIndex}.
+ * <p>
+ * A new query matches every ship. Each criterion that is set narrows the query, and a ship
+ * matches only if it meets all of them. Setting a criterion to null removes it.
+ */
+public class ShipQuery {
+    /**
+     * Start of the name of matching ships, compared ignoring case
+     */
+    private String namePrefix;
+
+    /**
+     * Nautical flag of matching ships
+     */
+    private NauticalFlag flag;
+
+    /**
+     * Port of origin of matching ships
+     */
+    private String originFlag;
+
+    /**
+     * Type of matching ships
+     */
+    private Class<? extends Ship> type;
+
+    /**
+     * Creates a new query that matches every ship.
+     */
+    public ShipQuery() {
+    }
+
+    /**
+     * Returns the start of the name of matching ships.
+     *
+     * @return name prefix, or null if any name matches
+     */
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    /**
+     * Sets the start of the name of matching ships. Names are compared ignoring case, so the
+     * prefix "ever" matches a ship named "Evergreen".
+     *
+     * @param namePrefix name prefix, or null to match any name
+     */
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    /**
+     * Returns the nautical flag of matching ships.
+     *
+     * @return flag, or null if any flag matches
+     */
+    public NauticalFlag getFlag() {
+        return flag;
+    }
+
+    /**
+     * Sets the nautical flag of matching ships.
+     *
+     * @param flag flag, or null to match any flag
+     */
+    public void setFlag(NauticalFlag flag) {
+        this.flag = flag;
+    }
+
+    /**
+     * Returns the port of origin of matching ships.
+     *
+     * @return origin, or null if any origin matches
+     */
+    public String getOriginFlag() {
+        return originFlag;
+    }
+
+    /**
+     * Sets the port of origin of matching ships.
+     *
+     * @param originFlag origin, or null to match any origin
+     */
+    public void setOriginFlag(String originFlag) {
+        this.originFlag = originFlag;
+    }
+
+    /**
+     * Returns the type of matching ships.
+     *
+     * @return ship type, or null if any type matches
+     */
+    public Class<? extends Ship> getType() {
+        return type;
+    }
+
+    /**
+     * Sets the type of matching ships. Subclasses of the type also match.
+     *
+     * @param type ship type, such as ContainerShip.class, or null to match any type
+     */
+    public void setType(Class<? extends Ship> type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns true if the given ship meets every criterion of this query.
+     *
+     * @param ship ship to check
+     * @return true if the ship matches
+     */
+    public boolean matches(Ship ship) {
+        if (flag != null && ship.getFlag() != flag) {
+            return false;
+        }
+        if (originFlag != null && !originFlag.equals(ship.getOriginFlag())) {
+            return false;
+        }
+        if (type != null && !type.isInstance(ship)) {
+            return false;
+        }
+        return namePrefix == null || hasPrefix(ship.getName(), namePrefix);
+    }
+
+    /**
+     * Returns the human-readable string representation of this query, listing the criteria
+     * that are set. For example:
+     * <pre>ShipQuery[namePrefix=Ever, flag=BRAVO]</pre>
+     *
+     * @return string representation of this query
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ShipQuery[");
+        String separator = "";
+        if (namePrefix != null) {
+            builder.append("namePrefix=").append(namePrefix);
+            separator = ", ";
+        }
+        if (flag != null) {
+            builder.append(separator).append("flag=").append(flag);
+            separator = ", ";
+        }
+        if (originFlag != null) {
+            builder.append(separator).append("originFlag=").append(originFlag);
+            separator = ", ";
+        }
+        if (type != null) {
+            builder.append(separator).append("type=").append(type.getSimpleName());
+        }
+        return builder.append("]").toString();
+    }
+
+    /* Returns true if the name starts with the prefix, comparing characters in lower case. */
+    static boolean hasPrefix(String name, String prefix) {
+        if (name == null) {
+            name = "";
+        }
+        if (name.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(name.charAt(i))
+                    != Character.toLowerCase(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,142 @@
+package portsim.sweep;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The values to try for each parameter of a {@link ParameterSweep}. Every combination of one
+ * value of each parameter is a {@link SweepVariant}.
+ * <p>
+ * Each parameter is tried only at {@link SweepVariant#AS_BASE} (or an arrival rate of 1),
+ * unless other values are set.
+ */
+public class ParameterGrid {
+    /**
+     * Numbers of container quays to try
+     */
+    private int[] containerQuays = {SweepVariant.AS_BASE};
+
+    /**
+     * Container quay capacities to try
+     */
+    private int[] containerCapacities = {SweepVariant.AS_BASE};
+
+    /**
+     * Numbers of bulk quays to try
+     */
+    private int[] bulkQuays = {SweepVariant.AS_BASE};
+
+    /**
+     * Bulk quay capacities to try
+     */
+    private int[] bulkCapacities = {SweepVariant.AS_BASE};
+
+    /**
+     * Arrival rates to try
+     */
+    private double[] arrivalRates = {1};
+
+    /**
+     * Creates a grid holding only the base port.
+     */
+    public ParameterGrid() {}
+
+    /**
+     * Sets the numbers of container quays to try.
+     *
+     * @param containerQuays numbers of container quays, or AS_BASE
+     * @throws IllegalArgumentException if no values are given
+     */
+    public void setContainerQuays(int... containerQuays) throws IllegalArgumentException {
+        this.containerQuays = requireValues(containerQuays, "containerQuays");
+    }
+
+    /**
+     * Sets the maximum numbers of containers of each container quay to try.
+     *
+     * @param containerCapacities container quay capacities, or AS_BASE
+     * @throws IllegalArgumentException if no values are given
+     */
+    public void setContainerCapacities(int... containerCapacities)
+            throws IllegalArgumentException {
+        this.containerCapacities = requireValues(containerCapacities, "containerCapacities");
+    }
+
+    /**
+     * Sets the numbers of bulk quays to try.
+     *
+     * @param bulkQuays numbers of bulk quays, or AS_BASE
+     * @throws IllegalArgumentException if no values are given
+     */
+    public void setBulkQuays(int... bulkQuays) throws IllegalArgumentException {
+        this.bulkQuays = requireValues(bulkQuays, "bulkQuays");
+    }
+
+    /**
+     * Sets the maximum tonnages of each bulk quay to try.
+     *
+     * @param bulkCapacities bulk quay capacities, or AS_BASE
+     * @throws IllegalArgumentException if no values are given
+     */
+    public void setBulkCapacities(int... bulkCapacities) throws IllegalArgumentException {
+        this.bulkCapacities = requireValues(bulkCapacities, "bulkCapacities");
+    }
+
+    /**
+     * Sets the arrival rates to try (see {@link SweepVariant#getArrivalRate()}).
+     *
+     * @param arrivalRates arrival rates
+     * @throws IllegalArgumentException if no values are given
+     */
+    public void setArrivalRates(double... arrivalRates) throws IllegalArgumentException {
+        if (arrivalRates.length == 0) {
+            throw new IllegalArgumentException("no values given for arrivalRates");
+        }
+        this.arrivalRates = arrivalRates.clone();
+    }
+
+    /**
+     * Returns the number of variants in the grid, the product of the number of values of each
+     * parameter.
+     *
+     * @return number of variants
+     */
+    public int size() {
+        return containerQuays.length * containerCapacities.length * bulkQuays.length
+                * bulkCapacities.length * arrivalRates.length;
+    }
+
+    /**
+     * Returns every variant in the grid. The variants are ordered by number of container
+     * quays, then container quay capacity, number of bulk quays, bulk quay capacity and
+     * arrival rate, each in the order its values were given.
+     *
+     * @return variants of the grid
+     * @throws IllegalArgumentException if a value is not valid for a {@link SweepVariant}
+     */
+    public List<SweepVariant> getVariants() throws IllegalArgumentException {
+        List<SweepVariant> variants = new ArrayList<>(size());
+        for (int containerQuayCount : containerQuays) {
+            for (int containerCapacity : containerCapacities) {
+                for (int bulkQuayCount : bulkQuays) {
+                    for (int bulkCapacity : bulkCapacities) {
+                        for (double arrivalRate : arrivalRates) {
+                            variants.add(new SweepVariant(containerQuayCount,
+                                    containerCapacity, bulkQuayCount, bulkCapacity,
+                                    arrivalRate));
+                        }
+                    }
+                }
+            }
+        }
+        return variants;
+    }
+
+    /* Returns a copy of the given values, or throws if there are none */
+    private static int[] requireValues(int[] values, String name) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("no values given for " + name);
+        }
+        return values.clone();
+    }
+}
@@ -0,0 +1,441 @@
+package portsim.sweep;
+
+import portsim.HeadlessLauncher;
+import portsim.cargo.Cargo;
+import portsim.cargo.CargoColumns;
+import portsim.evaluators.EvaluatorReport;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.ship.Ship;
+import portsim.util.BadEncodingException;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Simulates many variants of one saved port in parallel, for capacity planning.
+ * <p>
+ * A sweep takes a base save, in the format read by {@link Port#initialisePort(Reader)}, and a
+ * {@link ParameterGrid}. Every variant of the grid is loaded from the base save and has its
+ * quays and arrival rate changed (see {@link SweepVariant#apply(Port)}), and the variants are
+ * then simulated independently of each other on a {@link ForkJoinPool}. The results are
+ * gathered into a {@link SweepTable} as each run finishes.
+ * <p>
+ * Each run measures, in this order:
+ * <ul>
+ * <li>{@code minutes}: the number of minutes simulated</li>
+ * <li>{@code wallTimeMs}: the wall clock time of the run in milliseconds</li>
+ * <li>{@code queuedShips}, {@code dockedShips}, {@code pendingMovements} and
+ * {@code storedCargo}: the ships in the ship queue and at the quays, the movements still to
+ * be processed and the cargo in the yard at the end of the run</li>
+ * <li>the statistics of each of the port's evaluators (see
+ * {@link EvaluatorReport#tabulate(StatisticsEvaluator)}), named
+ * {@code EvaluatorSimpleName.statistic}</li>
+ * </ul>
+ * Apart from the wall clock time, the results do not depend on the parallelism or on the
+ * order in which runs finish.
+ * <p>
+ * Every variant loads the same ships and cargo, which could not all be in the ship and cargo
+ * registries at once. The registries are therefore taken aside for the sweep (see
+ * {@link Cargo#takeCargoRegistry()} and {@link Ship#takeShipRegistry()}), reset before each
+ * variant is loaded, and restored once every variant has been loaded, so that ports loaded
+ * before the sweep keep their ships and cargo. The variants' ships and cargo are never
+ * registered: the locations of their cargo are not recorded (see
+ * {@link Cargo#getLocation()}), and their ports cannot be encoded. Every variant is loaded
+ * before the first run starts, as loading changes the registries, so a sweep needs memory for
+ * every variant at once. Only one sweep runs at a time, and nothing else should use the
+ * registries while the variants are loaded. The base save should not use a movement store,
+ * whose movements refer to registered ships and cargo.
+ */
+public class ParameterSweep {
+    /**
+     * Held for the whole of each sweep, as loading variants replaces the global registries
+     */
+    private static final Object SWEEPING = new Object();
+
+    /**
+     * Contents of the base save
+     */
+    private final String save;
+
+    /**
+     * Number of variants simulated at once
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of minutes to simulate each variant for, or a negative number to simulate until
+     * there are no pending movements
+     */
+    private long minutes = -1;
+
+    /**
+     * Creates a sweep of the port saved in the contents of the given reader. The reader is
+     * read to the end but is not closed.
+     *
+     * @param reader reader holding the base save
+     * @throws IOException if an IOException is encountered when reading from the reader
+     */
+    public ParameterSweep(Reader reader) throws IOException {
+        StringWriter contents = new StringWriter();
+        reader.transferTo(contents);
+        this.save = contents.toString();
+    }
+
+    /**
+     * Sets the number of variants simulated at once. By default, this is the number of
+     * available processors.
+     *
+     * @param parallelism number of variants simulated at once
+     * @throws IllegalArgumentException if parallelism &lt; 1
+     */
+    public void setParallelism(int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: "
+                    + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of variants simulated at once.
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of minutes to simulate each variant for. If negative, each variant is
+     * simulated until it has no pending movements or recurring schedules, which is the
+     * default.
+     *
+     * @param minutes number of minutes to simulate each variant for
+     */
+    public void setMinutes(long minutes) {
+        this.minutes = minutes;
+    }
+
+    /**
+     * Returns the number of minutes each variant is simulated for.
+     *
+     * @return number of minutes, or a negative number if each variant is simulated until it
+     *     has no pending movements
+     */
+    public long getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * Simulates every variant of the given grid and returns their results. Each result is
+     * passed to the given listener as soon as its run finishes, from the thread that ran it,
+     * one result at a time.
+     * <p>
+     * A variant that cannot be applied to the base port, or whose run throws a runtime
+     * exception, has a failed result; the other variants are still simulated. If another
+     * sweep is running, this waits for it to finish first.
+     *
+     * @param grid     parameters to try
+     * @param listener told about each result as its run finishes, or null
+     * @return table holding the result of every variant
+     * @throws BadEncodingException     if the base save is not a valid port
+     * @throws IllegalArgumentException if a value of the grid is not valid for a
+     *                                  {@link SweepVariant}
+     */
+    public SweepTable run(ParameterGrid grid, Consumer<SweepResult> listener)
+            throws BadEncodingException, IllegalArgumentException {
+        List<SweepVariant> variants = grid.getVariants();
+        Port[] ports = new Port[variants.size()];
+        RuntimeException[] failures = new RuntimeException[variants.size()];
+        SweepTable table = new SweepTable(variants.size(), listener);
+        synchronized (SWEEPING) {
+            CargoColumns cargo = Cargo.takeCargoRegistry();
+            List<Ship> ships = Ship.takeShipRegistry();
+            try {
+                for (int i = 0; i < variants.size(); i++) {
+                    Cargo.resetCargoRegistry();
+                    Ship.resetShipRegistry();
+                    Port base = Port.initialisePort(new StringReader(save));
+                    try {
+                        ports[i] = variants.get(i).apply(base);
+                    } catch (IllegalArgumentException e) {
+                        failures[i] = e;
+                    }
+                }
+            } catch (IOException e) {
+                // not thrown when reading from a string
+                throw new UncheckedIOException(e);
+            } finally {
+                Cargo.restoreCargoRegistry(cargo);
+                Ship.restoreShipRegistry(ships);
+            }
+            if (variants.isEmpty()) {
+                return table;
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new SweepTask(variants, ports, failures, table, 0,
+                        variants.size()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return table;
+    }
+
+    /* Simulates one variant and adds its result to the table */
+    private void simulate(int index, SweepVariant variant, Port port,
+                          RuntimeException failure, SweepTable table) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        if (failure == null) {
+            try {
+                long start = System.nanoTime();
+                long elapsed = HeadlessLauncher.run(port, minutes);
+                values.put("minutes", elapsed);
+                values.put("wallTimeMs", (System.nanoTime() - start) / 1000000);
+                measure(port, values);
+            } catch (RuntimeException e) {
+                failure = e;
+                values.clear();
+            }
+        }
+        table.add(new SweepResult(index, variant, values, failure));
+    }
+
+    /* Records the state of the port and the statistics of its evaluators */
+    private static void measure(Port port, Map<String, Long> values) {
+        long docked = 0;
+        for (Quay quay : port.getQuaysView()) {
+            if (!quay.isEmpty()) {
+                docked++;
+            }
+        }
+        values.put("queuedShips", (long) port.getShipQueue().size());
+        values.put("dockedShips", docked);
+        values.put("pendingMovements", (long) port.getPendingMovementCount());
+        values.put("storedCargo", (long) port.getYard().size());
+        for (StatisticsEvaluator evaluator : port.getEvaluators()) {
+            String prefix = evaluator.getClass().getSimpleName() + ".";
+            for (Map.Entry<String, Integer> statistic
+                    : EvaluatorReport.tabulate(evaluator).entrySet()) {
+                values.put(prefix + statistic.getKey(), (long) statistic.getValue());
+            }
+        }
+    }
+
+    /**
+     * Simulates the variants in a range, splitting the range in half until each task holds
+     * one variant, so that idle threads can steal the halves still to run.
+     */
+    private class SweepTask extends RecursiveAction {
+        /**
+         * Serialization version of the task, which is never serialized
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Variants of the sweep
+         */
+        private final List<SweepVariant> variants;
+
+        /**
+         * Port of each variant, cleared once it has been simulated
+         */
+        private final Port[] ports;
+
+        /**
+         * Exception thrown when applying each variant, or null
+         */
+        private final RuntimeException[] failures;
+
+        /**
+         * Table the results are added to
+         */
+        private final SweepTable table;
+
+        /**
+         * First variant of the range
+         */
+        private final int from;
+
+        /**
+         * Variant after the last of the range
+         */
+        private final int to;
+
+        /**
+         * Creates a task simulating the variants from (inclusive) to (exclusive).
+         *
+         * @param variants variants of the sweep
+         * @param ports    port of each variant
+         * @param failures exception thrown when applying each variant
+         * @param table    table to add the results to
+         * @param from     first variant of the range
+         * @param to       variant after the last of the range
+         */
+        SweepTask(List<SweepVariant> variants, Port[] ports, RuntimeException[] failures,
+                  SweepTable table, int from, int to) {
+            this.variants = variants;
+            this.ports = ports;
+            this.failures = failures;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Simulates the variant of the range if it holds one, or else splits the range in half
+         * and simulates both halves.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                Port port = ports[from];
+                ports[from] = null;
+                simulate(from, variants.get(from), port, failures[from], table);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(variants, ports, failures, table, from, middle),
+                    new SweepTask(variants, ports, failures, table, middle, to));
+        }
+    }
+
+    /**
+     * Runs a parameter sweep from the command line, printing each result as its run finishes
+     * and then the table of every result.
+     * <p>
+     * Usage: {@code port_file [minutes] [--threads n] [--container-quays values]
+     * [--container-capacity values] [--bulk-quays values] [--bulk-capacity values]
+     * [--arrival-rate values] [--output csv_file]}
+     * <p>
+     * Where
+     * <ul>
+     * <li>{@code port_file} is the path to the file containing the base port</li>
+     * <li>{@code minutes} is the number of simulated minutes to run each variant for; if
+     * omitted, each variant runs until it has no pending movements left</li>
+     * <li>{@code --threads} is the number of variants to simulate at once</li>
+     * <li>each parameter takes a comma separated list of the values to try, where
+     * {@code base} leaves the number or capacity of quays as in the base port</li>
+     * <li>{@code --output} is the file to write the table to as comma-separated values; if
+     * omitted, the table is printed</li>
+     * </ul>
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        String usage = "Usage: port_file [minutes] [--threads n] [--container-quays values] "
+                + "[--container-capacity values] [--bulk-quays values] "
+                + "[--bulk-capacity values] [--arrival-rate values] [--output csv_file]";
+        if (args.length < 1) {
+            System.err.println(usage);
+            System.exit(1);
+        }
+        ParameterGrid grid = new ParameterGrid();
+        long minutes = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (!args[i].startsWith("--")) {
+                    minutes = Long.parseLong(args[i]);
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("no value given for " + args[i]);
+                }
+                String value = args[++i];
+                switch (args[i - 1]) {
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--container-quays":
+                        grid.setContainerQuays(parseValues(value));
+                        break;
+                    case "--container-capacity":
+                        grid.setContainerCapacities(parseValues(value));
+                        break;
+                    case "--bulk-quays":
+                        grid.setBulkQuays(parseValues(value));
+                        break;
+                    case "--bulk-capacity":
+                        grid.setBulkCapacities(parseValues(value));
+                        break;
+                    case "--arrival-rate":
+                        String[] rates = value.split(",");
+                        double[] arrivalRates = new double[rates.length];
+                        for (int r = 0; r < rates.length; r++) {
+                            arrivalRates[r] = Double.parseDouble(rates[r]);
+                        }
+                        grid.setArrivalRates(arrivalRates);
+                        break;
+                    case "--output":
+                        output = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i - 1]);
+                }
+            }
+            grid.getVariants();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid argument: " + e.getMessage());
+            System.err.println(usage);
+            System.exit(1);
+        }
+
+        SweepTable table;
+        try (Reader reader = new FileReader(args[0])) {
+            ParameterSweep sweep = new ParameterSweep(reader);
+            sweep.setParallelism(threads);
+            sweep.setMinutes(minutes);
+            table = sweep.run(grid, System.out::println);
+        } catch (BadEncodingException | IOException | IllegalArgumentException e) {
+            System.err.println("Error loading from file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+
+        try {
+            if (output == null) {
+                System.out.println();
+                table.write(new OutputStreamWriter(System.out));
+            } else {
+                try (Writer writer = new BufferedWriter(new FileWriter(output))) {
+                    table.write(writer);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing the table. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /* Parses a comma separated list of numbers, where base stands for AS_BASE */
+    private static int[] parseValues(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = parts[i].equals("base") ? SweepVariant.AS_BASE
+                    : Integer.parseInt(parts[i]);
+        }
+        return values;
+    }
+}
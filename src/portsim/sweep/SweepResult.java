@@ -0,0 +1,107 @@
+package portsim.sweep;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The outcome of simulating one variant of a {@link ParameterSweep}: the values measured at
+ * the end of the run, or the exception that ended it.
+ */
+public final class SweepResult {
+    /**
+     * Position of the variant in the sweep
+     */
+    private final int index;
+
+    /**
+     * The variant that was simulated
+     */
+    private final SweepVariant variant;
+
+    /**
+     * Value of each column, in the order they were measured
+     */
+    private final Map<String, Long> values;
+
+    /**
+     * Exception that ended the run, or null if it completed
+     */
+    private final Throwable failure;
+
+    /**
+     * Creates a result.
+     *
+     * @param index   position of the variant in the sweep
+     * @param variant variant that was simulated
+     * @param values  value of each column, empty if the run failed
+     * @param failure exception that ended the run, or null if it completed
+     */
+    SweepResult(int index, SweepVariant variant, Map<String, Long> values, Throwable failure) {
+        this.index = index;
+        this.variant = variant;
+        this.values = Collections.unmodifiableMap(values);
+        this.failure = failure;
+    }
+
+    /**
+     * Returns the position of the variant in the sweep.
+     *
+     * @return index of the variant
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the variant that was simulated.
+     *
+     * @return variant
+     */
+    public SweepVariant getVariant() {
+        return variant;
+    }
+
+    /**
+     * Returns a read-only mapping from the name of each column to its value, in the order the
+     * values were measured (see {@link ParameterSweep}). The mapping is empty if the run
+     * failed.
+     *
+     * @return values of the run
+     */
+    public Map<String, Long> getValues() {
+        return values;
+    }
+
+    /**
+     * Returns the exception that ended the run.
+     *
+     * @return exception, or null if the run completed
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the human-readable string representation of this result.
+     * <p>
+     * The format of the string to return is
+     * <pre>#index variant: name=value name=value ...</pre>
+     * or, if the run failed,
+     * <pre>#index variant: failed: exception</pre>
+     * where variant is as in {@link SweepVariant#toString()}.
+     *
+     * @return string representation of this result
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        string.append('#').append(index).append(' ').append(variant).append(':');
+        if (failure != null) {
+            return string.append(" failed: ").append(failure).toString();
+        }
+        for (Map.Entry<String, Long> value : values.entrySet()) {
+            string.append(' ').append(value.getKey()).append('=').append(value.getValue());
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package portsim.sweep;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The results of a {@link ParameterSweep}, gathered into one table as runs finish.
+ * <p>
+ * Each row is one variant. The columns are the parameters of the variant (see
+ * {@link SweepVariant#getParameters()}), followed by every value measured by any run, in the
+ * order they were first measured by the variants in sweep order. Runs that did not measure a
+ * value, such as runs that failed, leave its cell empty.
+ * <p>
+ * Results can be added from any thread. Each result is passed to the table's listener, if it
+ * has one, as it is added, one result at a time.
+ */
+public class SweepTable {
+    /**
+     * Results added so far, at the index of their variant
+     */
+    private final SweepResult[] results;
+
+    /**
+     * Number of results added so far
+     */
+    private int size;
+
+    /**
+     * Told about each result as it is added, or null
+     */
+    private final Consumer<SweepResult> listener;
+
+    /**
+     * Creates an empty table for a sweep of the given number of variants.
+     *
+     * @param variants number of variants in the sweep
+     * @param listener told about each result as it is added, or null
+     */
+    SweepTable(int variants, Consumer<SweepResult> listener) {
+        this.results = new SweepResult[variants];
+        this.listener = listener;
+    }
+
+    /**
+     * Adds the result of a run and passes it to the listener.
+     *
+     * @param result result to add
+     * @throws IllegalArgumentException if a result for the same variant was already added
+     */
+    synchronized void add(SweepResult result) throws IllegalArgumentException {
+        if (results[result.getIndex()] != null) {
+            throw new IllegalArgumentException("variant " + result.getIndex()
+                    + " already has a result");
+        }
+        results[result.getIndex()] = result;
+        size++;
+        if (listener != null) {
+            listener.accept(result);
+        }
+    }
+
+    /**
+     * Returns the number of results added so far.
+     *
+     * @return number of results
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the results added so far, in sweep order.
+     *
+     * @return results of the sweep
+     */
+    public synchronized List<SweepResult> getResults() {
+        List<SweepResult> added = new ArrayList<>(size);
+        for (SweepResult result : results) {
+            if (result != null) {
+                added.add(result);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Returns the names of the columns of the table.
+     *
+     * @return column names
+     */
+    public synchronized List<String> getColumns() {
+        Set<String> columns = new LinkedHashSet<>();
+        for (SweepResult result : results) {
+            if (result != null) {
+                columns.addAll(result.getVariant().getParameters().keySet());
+                columns.addAll(result.getValues().keySet());
+            }
+        }
+        if (size > 0) {
+            columns.add("failure");
+        }
+        return new ArrayList<>(columns);
+    }
+
+    /**
+     * Writes the table as comma-separated values: a line of column names, then a line for
+     * each result in sweep order. The last column holds the exception that ended each failed
+     * run. Cells holding a comma, a double quote or a line break are quoted.
+     *
+     * @param writer writer to write the table to
+     * @throws IOException if an IOException is encountered when writing to the writer
+     */
+    public synchronized void write(Writer writer) throws IOException {
+        String newline = System.lineSeparator();
+        List<String> columns = getColumns();
+        writeRow(writer, columns);
+        writer.write(newline);
+        for (SweepResult result : getResults()) {
+            Map<String, String> parameters = result.getVariant().getParameters();
+            List<String> cells = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                if (parameters.containsKey(column)) {
+                    cells.add(parameters.get(column));
+                } else if (result.getValues().containsKey(column)) {
+                    cells.add(Long.toString(result.getValues().get(column)));
+                } else if (column.equals("failure") && result.getFailure() != null) {
+                    cells.add(result.getFailure().toString());
+                } else {
+                    cells.add("");
+                }
+            }
+            writeRow(writer, cells);
+            writer.write(newline);
+        }
+        writer.flush();
+    }
+
+    /* Writes the given cells separated by commas, quoting those that need it */
+    private static void writeRow(Writer writer, List<String> cells) throws IOException {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String cell = cells.get(i);
+            if (cell.contains(",") || cell.contains("\"") || cell.contains("\n")
+                    || cell.contains("\r")) {
+                writer.write('"' + cell.replace("\"", "\"\"") + '"');
+            } else {
+                writer.write(cell);
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package portsim.sweep;
+
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.RecurringSchedule;
+import portsim.movement.ShipMovement;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One point of a {@link ParameterGrid}: the berths and arrival rate of a port to simulate in a
+ * parameter sweep, as changes to a base port.
+ * <p>
+ * The number of container quays and bulk quays, and the capacity of each (the maximum number
+ * of containers of a {@link ContainerQuay} or the maximum tonnage of a {@link BulkQuay}), can
+ * each be set, or left as in the base port with {@link #AS_BASE}. The arrival rate scales how
+ * quickly ships arrive: a rate of 2 brings every INBOUND ship movement twice as close to the
+ * port's time, while ships still stay as long as before they depart.
+ */
+public final class SweepVariant {
+    /**
+     * Value of a parameter left as in the base port
+     */
+    public static final int AS_BASE = -1;
+
+    /**
+     * Number of container quays, or AS_BASE
+     */
+    private final int containerQuays;
+
+    /**
+     * Maximum number of containers of each container quay, or AS_BASE
+     */
+    private final int containerCapacity;
+
+    /**
+     * Number of bulk quays, or AS_BASE
+     */
+    private final int bulkQuays;
+
+    /**
+     * Maximum tonnage of each bulk quay, or AS_BASE
+     */
+    private final int bulkCapacity;
+
+    /**
+     * Factor by which ships arrive more often than in the base port
+     */
+    private final double arrivalRate;
+
+    /**
+     * Creates a variant.
+     *
+     * @param containerQuays    number of container quays, or AS_BASE
+     * @param containerCapacity maximum number of containers of each container quay, or
+     *                          AS_BASE
+     * @param bulkQuays         number of bulk quays, or AS_BASE
+     * @param bulkCapacity      maximum tonnage of each bulk quay, or AS_BASE
+     * @param arrivalRate       factor by which ships arrive more often than in the base port
+     * @throws IllegalArgumentException if a number of quays or capacity is negative and not
+     *                                  AS_BASE, or arrivalRate is not positive
+     */
+    public SweepVariant(int containerQuays, int containerCapacity, int bulkQuays,
+                        int bulkCapacity, double arrivalRate) throws IllegalArgumentException {
+        requireParameter(containerQuays, "containerQuays");
+        requireParameter(containerCapacity, "containerCapacity");
+        requireParameter(bulkQuays, "bulkQuays");
+        requireParameter(bulkCapacity, "bulkCapacity");
+        if (!(arrivalRate > 0) || Double.isInfinite(arrivalRate)) {
+            throw new IllegalArgumentException("arrivalRate must be positive: " + arrivalRate);
+        }
+        this.containerQuays = containerQuays;
+        this.containerCapacity = containerCapacity;
+        this.bulkQuays = bulkQuays;
+        this.bulkCapacity = bulkCapacity;
+        this.arrivalRate = arrivalRate;
+    }
+
+    /**
+     * Returns the number of container quays.
+     *
+     * @return number of container quays, or AS_BASE
+     */
+    public int getContainerQuays() {
+        return containerQuays;
+    }
+
+    /**
+     * Returns the maximum number of containers of each container quay.
+     *
+     * @return container capacity, or AS_BASE
+     */
+    public int getContainerCapacity() {
+        return containerCapacity;
+    }
+
+    /**
+     * Returns the number of bulk quays.
+     *
+     * @return number of bulk quays, or AS_BASE
+     */
+    public int getBulkQuays() {
+        return bulkQuays;
+    }
+
+    /**
+     * Returns the maximum tonnage of each bulk quay.
+     *
+     * @return bulk capacity, or AS_BASE
+     */
+    public int getBulkCapacity() {
+        return bulkCapacity;
+    }
+
+    /**
+     * Returns the factor by which ships arrive more often than in the base port.
+     *
+     * @return arrival rate
+     */
+    public double getArrivalRate() {
+        return arrivalRate;
+    }
+
+    /**
+     * Returns the parameters of this variant by name, in the order they are given to the
+     * constructor. Parameters left as in the base port have the value {@code base}.
+     *
+     * @return mapping from the name of each parameter to its value
+     */
+    public Map<String, String> getParameters() {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("containerQuays", describe(containerQuays));
+        parameters.put("containerCapacity", describe(containerCapacity));
+        parameters.put("bulkQuays", describe(bulkQuays));
+        parameters.put("bulkCapacity", describe(bulkCapacity));
+        parameters.put("arrivalRate", Double.toString(arrivalRate));
+        return parameters;
+    }
+
+    /**
+     * Returns a port with this variant applied to the given base port. The base port should
+     * not be used afterwards, as the returned port may share its ships, cargo and movements or
+     * be the base port itself.
+     * <p>
+     * If the number or capacity of the container quays is set, the base port's container
+     * quays are replaced: the first quays keep the ID of, and the ship docked at, the base
+     * port's container quays in order, and any further quays are added after the base port's
+     * quays with new IDs. Unless set, the capacity of each quay is that of the base quay it
+     * replaces, or of the base port's last container quay for quays added. Ships docked at
+     * base quays beyond the number of quays set go back to the end of the ship queue. Bulk
+     * quays are handled in the same way. The port's statistics evaluators are kept.
+     * <p>
+     * If the arrival rate is not 1, the time of each INBOUND ship movement is brought closer
+     * to (or, for rates below 1, further from) the port's time by the arrival rate, rounded to
+     * the nearest minute. Each OUTBOUND ship movement is moved by as much as the last INBOUND
+     * movement of the same ship before it, so that ships stay as long as in the base port.
+     * Cargo movements and recurring schedules are left as they are.
+     *
+     * @param base port to apply this variant to
+     * @return port with this variant applied
+     * @throws IllegalArgumentException if the capacity of a kind of quay is left as in the base
+     *                                  port, but the base port has none of that kind and this
+     *                                  variant adds some
+     */
+    public Port apply(Port base) throws IllegalArgumentException {
+        Port port = base;
+        if (containerQuays != AS_BASE || containerCapacity != AS_BASE
+                || bulkQuays != AS_BASE || bulkCapacity != AS_BASE) {
+            port = rebuild(base);
+        }
+        if (arrivalRate != 1) {
+            rescheduleArrivals(port);
+        }
+        return port;
+    }
+
+    /*
+     * Returns a copy of the given port with its quays replaced, taking the ship queue, stored
+     * cargo, movements, recurring schedules and evaluators of the given port
+     */
+    private Port rebuild(Port base) {
+        List<Quay> baseQuays = base.getQuays();
+        int nextId = 0;
+        List<Quay> baseContainerQuays = new ArrayList<>();
+        List<Quay> baseBulkQuays = new ArrayList<>();
+        for (Quay quay : baseQuays) {
+            nextId = Math.max(nextId, quay.getId() + 1);
+            (quay instanceof BulkQuay ? baseBulkQuays : baseContainerQuays).add(quay);
+        }
+        boolean replaceContainer = containerQuays != AS_BASE || containerCapacity != AS_BASE;
+        boolean replaceBulk = bulkQuays != AS_BASE || bulkCapacity != AS_BASE;
+        int containerCount = containerQuays == AS_BASE ? baseContainerQuays.size()
+                : containerQuays;
+        int bulkCount = bulkQuays == AS_BASE ? baseBulkQuays.size() : bulkQuays;
+
+        List<Quay> quays = new ArrayList<>();
+        List<Ship> displaced = new ArrayList<>();
+        int containerIndex = 0;
+        int bulkIndex = 0;
+        for (Quay quay : baseQuays) {
+            boolean bulk = quay instanceof BulkQuay;
+            int index = bulk ? bulkIndex++ : containerIndex++;
+            if (!(bulk ? replaceBulk : replaceContainer)) {
+                quays.add(quay);
+            } else if (index < (bulk ? bulkCount : containerCount)) {
+                Quay replacement = bulk
+                        ? new BulkQuay(quay.getId(), capacity(bulkCapacity, quay))
+                        : new ContainerQuay(quay.getId(), capacity(containerCapacity, quay));
+                if (!quay.isEmpty()) {
+                    replacement.shipArrives(quay.getShip());
+                }
+                quays.add(replacement);
+            } else if (!quay.isEmpty()) {
+                displaced.add(quay.getShip());
+            }
+        }
+        for (int i = containerIndex; replaceContainer && i < containerCount; i++) {
+            quays.add(new ContainerQuay(nextId++, capacity(containerCapacity,
+                    last(baseContainerQuays, "container"))));
+        }
+        for (int i = bulkIndex; replaceBulk && i < bulkCount; i++) {
+            quays.add(new BulkQuay(nextId++, capacity(bulkCapacity,
+                    last(baseBulkQuays, "bulk"))));
+        }
+
+        Port port = new Port(base.getName(), base.getTime(), base.getShipQueue(), quays,
+                base.getCargo());
+        for (Ship ship : displaced) {
+            port.getShipQueue().add(ship);
+        }
+        Movement movement;
+        while ((movement = base.getMovements().poll()) != null) {
+            port.addMovement(movement);
+        }
+        for (RecurringSchedule schedule : base.getRecurringSchedules()) {
+            port.addRecurringSchedule(schedule);
+        }
+        port.setBerthAllocator(base.getBerthAllocator());
+        for (StatisticsEvaluator evaluator : base.getEvaluators()) {
+            port.addStatisticsEvaluator(evaluator instanceof QuayOccupancyEvaluator
+                    ? new QuayOccupancyEvaluator(port) : evaluator);
+        }
+        return port;
+    }
+
+    /* Moves the port's ship movements as set by the arrival rate */
+    private void rescheduleArrivals(Port port) {
+        List<Movement> movements = new ArrayList<>();
+        Movement movement;
+        while ((movement = port.getMovements().poll()) != null) {
+            movements.add(movement);
+        }
+        // movements are polled in time order, so a ship's arrival is seen before its departure
+        Map<Ship, Long> shifts = new HashMap<>();
+        for (Movement polled : movements) {
+            if (!(polled instanceof ShipMovement)) {
+                port.addMovement(polled);
+                continue;
+            }
+            Ship ship = ((ShipMovement) polled).getShip();
+            long time = polled.getTime();
+            if (polled.getDirection() == MovementDirection.INBOUND) {
+                long moved = port.getTime()
+                        + Math.round((time - port.getTime()) / arrivalRate);
+                shifts.put(ship, moved - time);
+                time = moved;
+            } else {
+                time += shifts.getOrDefault(ship, 0L);
+            }
+            port.addMovement(new ShipMovement(time, polled.getDirection(), ship));
+        }
+    }
+
+    /* Returns the set capacity, or that of the given base quay if the capacity is AS_BASE */
+    private static int capacity(int capacity, Quay base) {
+        if (capacity != AS_BASE) {
+            return capacity;
+        }
+        return base instanceof BulkQuay ? ((BulkQuay) base).getMaxTonnage()
+                : ((ContainerQuay) base).getMaxContainers();
+    }
+
+    /* Returns the last of the given quays, or throws if there are none to take a capacity from */
+    private static Quay last(List<Quay> quays, String kind) {
+        if (quays.isEmpty()) {
+            throw new IllegalArgumentException("the base port has no " + kind
+                    + " quays to take a capacity from");
+        }
+        return quays.get(quays.size() - 1);
+    }
+
+    /* Returns the value of a parameter, or base for AS_BASE */
+    private static String describe(int value) {
+        return value == AS_BASE ? "base" : Integer.toString(value);
+    }
+
+    /* Throws if a parameter is negative and not AS_BASE */
+    private static void requireParameter(int value, String name) {
+        if (value < 0 && value != AS_BASE) {
+            throw new IllegalArgumentException(name + " must be non-negative: " + value);
+        }
+    }
+
+    /**
+     * Returns the human-readable string representation of this variant.
+     * <p>
+     * The format of the string to return is
+     * <pre>name=value name=value ...</pre>
+     * with each parameter as in {@link #getParameters()}.
+     *
+     * @return string representation of this variant
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        for (Map.Entry<String, String> parameter : getParameters().entrySet()) {
+            if (string.length() > 0) {
+                string.append(' ');
+            }
+            string.append(parameter.getKey()).append('=').append(parameter.getValue());
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,119 @@
+package portsim.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global dictionary of the countries used as cargo destinations and ship origins.
+ * <p>
+ * Each distinct country name is interned to a small integer code the first time it is seen.
+ * Codes are allocated densely from 0 in the order names are first interned and never change
+ * for the lifetime of the JVM, so two names are equal if and only if their codes are equal.
+ * This lets matching use integer comparisons and lets statistics be kept in arrays indexed by
+ * code.
+ * <p>
+ * The dictionary may be used from any thread. Looking up a name that has already been interned
+ * does not lock or allocate.
+ */
+public final class CountryDictionary {
+    /**
+     * Code given to a null country name
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Code of each interned name
+     */
+    private static final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+
+    /**
+     * Interned names, indexed by code; only the first {@link #size} entries are in use
+     */
+    private static volatile String[] names = new String[64];
+
+    /**
+     * Number of names interned
+     */
+    private static volatile int size;
+
+    /**
+     * Not instantiable
+     */
+    private CountryDictionary() {}
+
+    /**
+     * Returns the code of the given country name, interning it if it has not been seen before.
+     *
+     * @param name country name
+     * @return code of the name, or {@link #NONE} if the name is null
+     */
+    public static int code(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Integer code = codes.get(name);
+        if (code != null) {
+            return code;
+        }
+        return intern(name);
+    }
+
+    /* Allocates the next code to the given name unless another thread already has */
+    private static synchronized int intern(String name) {
+        Integer code = codes.get(name);
+        if (code != null) {
+            return code;
+        }
+        int next = size;
+        String[] current = names;
+        if (next == current.length) {
+            current = Arrays.copyOf(current, next * 2);
+            names = current;
+        }
+        current[next] = name;
+        size = next + 1;
+        codes.put(name, next);
+        return next;
+    }
+
+    /**
+     * Returns the code of the given country name without interning it.
+     *
+     * @param name country name
+     * @return code of the name, or {@link #NONE} if the name is null or has not been interned
+     */
+    public static int lookup(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Integer code = codes.get(name);
+        return code == null ? NONE : code;
+    }
+
+    /**
+     * Returns the country name with the given code.
+     *
+     * @param code code of the name
+     * @return country name, or null if the code is {@link #NONE}
+     * @throws IllegalArgumentException if no name has been given the code
+     */
+    public static String name(int code) throws IllegalArgumentException {
+        if (code == NONE) {
+            return null;
+        }
+        int interned = size;
+        if (code < 0 || code >= interned) {
+            throw new IllegalArgumentException("no country has the code " + code);
+        }
+        return names[code];
+    }
+
+    /**
+     * Returns the number of country names interned so far. Every code is less than this.
+     *
+     * @return number of names interned
+     */
+    public static int size() {
+        return size;
+    }
+}
@@ -0,0 +1,87 @@
+package portsim;
+
+import org.junit.*;
+import portsim.cargo.Cargo;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.movement.MovementDirection;
+import portsim.movement.RecurringSchedule;
+import portsim.movement.ShipMovement;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import static org.junit.Assert.*;
+
+public class HeadlessLauncherTest {
+
+    Port port;
+    ContainerShip ship;
+    ShipFlagEvaluator flagEvaluator;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        port = new Port("Brisbane");
+        port.addQuay(new ContainerQuay(0, 100));
+        ship = new ContainerShip(1234567, "Evergreen", "Australia", NauticalFlag.NOVEMBER, 10);
+        flagEvaluator = new ShipFlagEvaluator();
+        port.addStatisticsEvaluator(flagEvaluator);
+        port.addMovement(new ShipMovement(10, MovementDirection.INBOUND, ship));
+        port.addMovement(new ShipMovement(25, MovementDirection.OUTBOUND, ship));
+    }
+
+    @After
+    public void tearDown() {
+        port.disableAsyncEvaluators();
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void fixedMinutesTest() {
+        assertEquals(15, HeadlessLauncher.run(port, 15));
+        assertEquals(15, port.getTime());
+        // the outbound movement is still to come
+        assertEquals(1, port.getPendingMovementCount());
+        assertEquals(0, HeadlessLauncher.run(port, 0));
+        assertEquals(15, port.getTime());
+        // a fixed run carries on after the last movement
+        assertEquals(100, HeadlessLauncher.run(port, 100));
+        assertEquals(115, port.getTime());
+        assertEquals(0, port.getPendingMovementCount());
+    }
+
+    @Test
+    public void untilIdleTest() {
+        assertEquals(25, HeadlessLauncher.run(port, -1));
+        assertEquals(25, port.getTime());
+        assertEquals(0, port.getPendingMovementCount());
+        // nothing is left to run
+        assertEquals(0, HeadlessLauncher.run(port, -1));
+        assertEquals(25, port.getTime());
+    }
+
+    @Test
+    public void untilIdleWithRecurringScheduleTest() {
+        ContainerShip liner = new ContainerShip(7654321, "Liner", "Japan",
+                NauticalFlag.WHISKEY, 10);
+        port.addRecurringSchedule(new RecurringSchedule(liner, MovementDirection.INBOUND, 60,
+                30, 150));
+        // the schedule keeps the run going after the last queued movement
+        assertEquals(150, HeadlessLauncher.run(port, -1));
+        assertEquals(0, port.getRecurringScheduleCount());
+        assertEquals(0, port.getPendingMovementCount());
+    }
+
+    @Test
+    public void awaitsEvaluatorsTest() {
+        port.enableAsyncEvaluators(16);
+        assertEquals(25, HeadlessLauncher.run(port, -1));
+        // the evaluators have caught up with the port when the run returns
+        assertEquals(port.getTime(), flagEvaluator.getTime());
+        assertEquals(1, flagEvaluator.getFlagStatistics("Australia"));
+    }
+}
@@ -0,0 +1,277 @@
+package portsim.cargo;
+
+import org.junit.*;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.port.BulkQuay;
+import portsim.port.CargoYard;
+import portsim.port.Port;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+import portsim.util.CountryDictionary;
+import portsim.util.NoSuchCargoException;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CargoColumnsTest {
+
+    private CargoColumns columns;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        columns = Cargo.getCargoColumns();
+    }
+
+    @After
+    public void tearDown() {
+        columns.setKernels(CargoColumns.Kernels.UNROLLED);
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void rowsTest() {
+        Container container = new Container(10, "Australia", ContainerType.REEFER);
+        BulkCargo bulk = new BulkCargo(20, "Japan", 150, BulkCargoType.OIL);
+
+        assertEquals(2, columns.size());
+        assertEquals(0, columns.rowOf(10));
+        assertEquals(1, columns.rowOf(20));
+        assertEquals(-1, columns.rowOf(30));
+
+        assertSame(container, columns.getCargo(0));
+        assertEquals(CargoColumns.CONTAINER, columns.getKind(0));
+        assertEquals(ContainerType.REEFER.ordinal(), columns.getType(0));
+        assertEquals(0, columns.getTonnage(0));
+        assertEquals(CountryDictionary.code("Australia"), columns.getDestinationCode(0));
+
+        assertSame(bulk, columns.getCargo(1));
+        assertEquals(20, columns.getId(1));
+        assertEquals(CargoColumns.BULK_CARGO, columns.getKind(1));
+        assertEquals(BulkCargoType.OIL.ordinal(), columns.getType(1));
+        assertEquals(150, columns.getTonnage(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rowOutOfRangeTest() {
+        new Container(1, "Australia", ContainerType.STANDARD);
+        columns.getId(1);
+    }
+
+    @Test
+    public void registryTest() throws NoSuchCargoException {
+        for (int i = 0; i < 1000; i++) {
+            new Container(i * 7, "Australia", ContainerType.STANDARD);
+        }
+        assertEquals(1000, columns.size());
+        assertEquals(1000, Cargo.getCargoRegistry().size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(Cargo.cargoExists(i * 7));
+            assertEquals(i * 7, Cargo.getCargoById(i * 7).getId());
+        }
+        assertFalse(Cargo.cargoExists(1));
+
+        Cargo.resetCargoRegistry();
+        assertEquals(0, columns.size());
+        assertFalse(Cargo.cargoExists(0));
+        new Container(0, "Australia", ContainerType.STANDARD);
+        assertTrue(Cargo.cargoExists(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateIdTest() {
+        new Container(5, "Australia", ContainerType.STANDARD);
+        new BulkCargo(5, "Japan", 10, BulkCargoType.GRAIN);
+    }
+
+    @Test
+    public void recordTest() {
+        new Container(1, "Australia", ContainerType.OPEN_TOP);
+        new BulkCargo(2, "Japan", 75, BulkCargoType.MINERALS);
+
+        CargoColumns.Record record = columns.record();
+        assertEquals(-1, record.getRow());
+        long tonnage = 0;
+        for (int row = 0; row < columns.size(); row++) {
+            tonnage += record.moveTo(row).getTonnage();
+        }
+        assertEquals(75, tonnage);
+        assertEquals(1, record.getRow());
+        assertEquals(2, record.getId());
+        assertEquals(CargoColumns.BULK_CARGO, record.getKind());
+        assertEquals(BulkCargoType.MINERALS.ordinal(), record.getType());
+        assertEquals(CountryDictionary.code("Japan"), record.getDestinationCode());
+        assertEquals(Cargo.getCargoRegistry().get(2), record.getCargo());
+    }
+
+    @Test
+    public void aggregationTest() {
+        for (CargoColumns.Kernels kernels : CargoColumns.Kernels.values()) {
+            Cargo.resetCargoRegistry();
+            columns.setKernels(kernels);
+            checkAggregations();
+        }
+    }
+
+    @Test
+    public void kernelsAgreeTest() {
+        Random random = new Random(7);
+        String[] destinations = {"Australia", "Japan", "Chile", null};
+        for (int i = 0; i < 1003; i++) {
+            String destination = destinations[random.nextInt(destinations.length)];
+            if (random.nextBoolean()) {
+                new Container(i, destination,
+                        ContainerType.values()[random.nextInt(ContainerType.values().length)]);
+            } else {
+                new BulkCargo(i, destination, random.nextInt(1000),
+                        BulkCargoType.values()[random.nextInt(BulkCargoType.values().length)]);
+            }
+        }
+        columns.setKernels(CargoColumns.Kernels.SCALAR);
+        int[] containers = columns.countByType(CargoColumns.CONTAINER);
+        int[] bulk = columns.countByType(CargoColumns.BULK_CARGO);
+        long[] tonnageByType = columns.tonnageByType();
+        int[] byDestination = columns.countByDestination();
+        long[] tonnageByDestination = columns.tonnageByDestination();
+        long total = columns.totalTonnage();
+
+        columns.setKernels(CargoColumns.Kernels.UNROLLED);
+        assertArrayEquals(containers, columns.countByType(CargoColumns.CONTAINER));
+        assertArrayEquals(bulk, columns.countByType(CargoColumns.BULK_CARGO));
+        assertArrayEquals(tonnageByType, columns.tonnageByType());
+        assertArrayEquals(byDestination, columns.countByDestination());
+        assertArrayEquals(tonnageByDestination, columns.tonnageByDestination());
+        assertEquals(total, columns.totalTonnage());
+    }
+
+    private void checkAggregations() {
+        new Container(1, "Australia", ContainerType.REEFER);
+        new Container(2, "Australia", ContainerType.REEFER);
+        new Container(3, "Japan", ContainerType.TANKER);
+        new BulkCargo(4, "Australia", 100, BulkCargoType.OIL);
+        new BulkCargo(5, "Japan", 40, BulkCargoType.OIL);
+        new BulkCargo(6, "Japan", 5, BulkCargoType.GRAIN);
+
+        int[] containers = columns.countByType(CargoColumns.CONTAINER);
+        assertEquals(2, containers[ContainerType.REEFER.ordinal()]);
+        assertEquals(1, containers[ContainerType.TANKER.ordinal()]);
+        assertEquals(0, containers[ContainerType.STANDARD.ordinal()]);
+
+        int[] bulk = columns.countByType(CargoColumns.BULK_CARGO);
+        assertEquals(2, bulk[BulkCargoType.OIL.ordinal()]);
+        assertEquals(1, bulk[BulkCargoType.GRAIN.ordinal()]);
+
+        long[] tonnageByType = columns.tonnageByType();
+        assertEquals(140, tonnageByType[BulkCargoType.OIL.ordinal()]);
+        assertEquals(5, tonnageByType[BulkCargoType.GRAIN.ordinal()]);
+        assertEquals(145, columns.totalTonnage());
+
+        int australia = CountryDictionary.code("Australia");
+        int japan = CountryDictionary.code("Japan");
+        int[] byDestination = columns.countByDestination();
+        assertEquals(3, byDestination[australia]);
+        assertEquals(3, byDestination[japan]);
+        long[] tonnageByDestination = columns.tonnageByDestination();
+        assertEquals(100, tonnageByDestination[australia]);
+        assertEquals(45, tonnageByDestination[japan]);
+    }
+
+    @Test
+    public void locationTest() throws NoSuchCargoException {
+        Container container = new Container(1, "Japan", ContainerType.REEFER);
+        ContainerShip ship = new ContainerShip(1234567, "Evergreen", "Japan",
+                NauticalFlag.NOVEMBER, 10);
+        CargoYard yard = new CargoYard();
+        assertEquals(CargoLocation.NONE, container.getLocation());
+        assertNull(container.getHolder());
+
+        yard.store(container);
+        assertEquals(CargoLocation.YARD, container.getLocation());
+        assertSame(yard, container.getHolder());
+
+        assertEquals(1, ship.loadCargoFrom(yard));
+        assertEquals(CargoLocation.SHIP, container.getLocation());
+        assertSame(ship, container.getHolder());
+
+        ship.unloadCargoInto(yard);
+        assertSame(yard, container.getHolder());
+        yard.remove(container);
+        assertEquals(CargoLocation.NONE, container.getLocation());
+
+        ship.loadCargo(container);
+        assertSame(ship, columns.getHolder(columns.rowOf(1)));
+        ship.unloadCargo();
+        assertEquals(CargoLocation.NONE, columns.getLocation(columns.rowOf(1)));
+    }
+
+    @Test
+    public void portLocationTest() {
+        Port port = new Port("Brisbane");
+        BulkQuay quay = new BulkQuay(1, 1000);
+        port.addQuay(quay);
+        BulkCarrier carrier = new BulkCarrier(1234567, "Voyager", "Japan",
+                NauticalFlag.NOVEMBER, 500);
+        BulkCargo coal = new BulkCargo(1, "Japan", 300, BulkCargoType.COAL);
+        BulkCargo oil = new BulkCargo(2, "Japan", 200, BulkCargoType.OIL);
+        carrier.loadCargo(coal);
+        quay.shipArrives(carrier);
+        port.addMovement(new CargoMovement(1, MovementDirection.INBOUND, List.of(oil)));
+        port.elapseOneMinute();
+
+        assertEquals(List.of(coal), columns.select(CargoPredicate.atQuay(quay)));
+        assertEquals(List.of(oil),
+                columns.select(CargoPredicate.location(CargoLocation.YARD)));
+
+        port.addMovement(new CargoMovement(2, MovementDirection.OUTBOUND, List.of(oil)));
+        port.elapseOneMinute();
+        assertEquals(CargoLocation.NONE, oil.getLocation());
+    }
+
+    @Test
+    public void selectTest() {
+        CargoYard yard = new CargoYard();
+        Container reeferForJapan = new Container(1, "Japan", ContainerType.REEFER);
+        Container reeferForChina = new Container(2, "China", ContainerType.REEFER);
+        Container openTopForJapan = new Container(3, "Japan", ContainerType.OPEN_TOP);
+        BulkCargo light = new BulkCargo(4, "Japan", 100, BulkCargoType.GRAIN);
+        BulkCargo heavy = new BulkCargo(5, "Japan", 900, BulkCargoType.GRAIN);
+        yard.store(reeferForJapan);
+        yard.store(light);
+
+        CargoPredicate reeferJapan = CargoPredicate.destination("Japan")
+                .and(CargoPredicate.containerType(ContainerType.REEFER));
+        assertEquals(List.of(reeferForJapan), columns.select(reeferJapan));
+        assertEquals(List.of(reeferForJapan, reeferForChina),
+                columns.select(CargoPredicate.containerType(ContainerType.REEFER)));
+        assertEquals(List.of(heavy), columns.select(CargoPredicate.tonnageBetween(500, 1000)));
+        assertEquals(List.of(light, heavy),
+                columns.select(CargoPredicate.bulkCargoType(BulkCargoType.GRAIN)));
+        assertEquals(List.of(reeferForJapan, light),
+                columns.select(CargoPredicate.heldBy(yard)));
+        assertEquals(List.of(reeferForChina, openTopForJapan, heavy), columns.select(
+                CargoPredicate.location(CargoLocation.YARD).negate()));
+        assertEquals(2, columns.count(CargoPredicate.containers()
+                .and(CargoPredicate.destination("Japan"))));
+        assertEquals(3, columns.count(CargoPredicate.bulkCargo()
+                .or(CargoPredicate.destination("China"))));
+        assertEquals(0, columns.count(CargoPredicate.destination("Atlantis")));
+        assertEquals(5, columns.count(CargoPredicate.any()));
+    }
+
+    @Test
+    public void resetCargoNotLocatedTest() {
+        Container stale = new Container(1, "Japan", ContainerType.REEFER);
+        Cargo.resetCargoRegistry();
+        Container fresh = new Container(2, "Japan", ContainerType.REEFER);
+        new CargoYard().store(stale);
+        assertEquals(CargoLocation.NONE, stale.getLocation());
+        assertEquals(CargoLocation.NONE, fresh.getLocation());
+    }
+}
@@ -0,0 +1,173 @@
+package portsim.evaluators;
+
+import org.junit.*;
+import portsim.cargo.*;
+import portsim.movement.*;
+import portsim.port.*;
+import portsim.ship.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+
+public class EvaluatorPipelineTest {
+
+    Port port;
+    ShipFlagEvaluator flagEvaluator;
+    ShipThroughputEvaluator throughputEvaluator;
+    CargoDecompositionEvaluator cargoEvaluator;
+    BulkCarrier bulkCarrier;
+    ContainerShip containerShip;
+    Container container;
+
+    @Before
+    public void setUp() throws Exception {
+        port = new Port("a");
+        flagEvaluator = new ShipFlagEvaluator();
+        throughputEvaluator = new ShipThroughputEvaluator();
+        cargoEvaluator = new CargoDecompositionEvaluator();
+        bulkCarrier = new BulkCarrier(1258691, "Perfect", "US",
+                NauticalFlag.WHISKEY, 100);
+        containerShip = new ContainerShip(1234567, "Perfect", "China",
+                NauticalFlag.NOVEMBER, 100);
+        container = new Container(1, "US", ContainerType.TANKER);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        port.disableAsyncEvaluators();
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityNotPowerOfTwoTest() {
+        new EvaluatorPipeline(1000);
+    }
+
+    @Test
+    public void enableTest() {
+        assertFalse(port.isAsyncEvaluators());
+        port.enableAsyncEvaluators(16);
+        assertTrue(port.isAsyncEvaluators());
+        port.disableAsyncEvaluators();
+        assertFalse(port.isAsyncEvaluators());
+    }
+
+    // same results as synchronous evaluators once the barrier has been passed
+    @Test
+    public void barrierTest() {
+        port.addStatisticsEvaluator(flagEvaluator);
+        port.enableAsyncEvaluators(8);
+        port.addStatisticsEvaluator(throughputEvaluator);
+        port.addStatisticsEvaluator(cargoEvaluator);
+
+        List<Cargo> cargo = new ArrayList<>();
+        cargo.add(container);
+        // many more events than slots in the ring buffer
+        for (int time = 1; time <= 200; time++) {
+            port.elapseOneMinute();
+            port.processMovement(new ShipMovement(time, MovementDirection.INBOUND,
+                    time % 2 == 0 ? bulkCarrier : containerShip));
+        }
+        port.processMovement(new CargoMovement(200, MovementDirection.INBOUND, cargo));
+        port.processMovement(new ShipMovement(200, MovementDirection.OUTBOUND, bulkCarrier));
+        port.awaitEvaluators();
+
+        assertEquals(100, flagEvaluator.getFlagStatistics("US"));
+        assertEquals(100, flagEvaluator.getFlagStatistics("China"));
+        assertEquals(200, throughputEvaluator.getTime());
+        assertEquals(1, throughputEvaluator.getThroughputPerHour());
+        assertEquals(Integer.valueOf(1),
+                cargoEvaluator.getContainerDistribution().get(ContainerType.TANKER));
+    }
+
+    // events published before an evaluator is added are not delivered to it
+    @Test
+    public void addEvaluatorLaterTest() {
+        port.enableAsyncEvaluators(16);
+        port.processMovement(new ShipMovement(0, MovementDirection.INBOUND, bulkCarrier));
+        port.addStatisticsEvaluator(flagEvaluator);
+        port.processMovement(new ShipMovement(0, MovementDirection.INBOUND, containerShip));
+        port.awaitEvaluators();
+        assertEquals(0, flagEvaluator.getFlagStatistics("US"));
+        assertEquals(1, flagEvaluator.getFlagStatistics("China"));
+    }
+
+    // disabling drains the pipeline and returns to synchronous evaluation
+    @Test
+    public void disableTest() {
+        port.addStatisticsEvaluator(flagEvaluator);
+        port.enableAsyncEvaluators(16);
+        port.processMovement(new ShipMovement(0, MovementDirection.INBOUND, bulkCarrier));
+        port.disableAsyncEvaluators();
+        assertEquals(1, flagEvaluator.getFlagStatistics("US"));
+        port.processMovement(new ShipMovement(0, MovementDirection.INBOUND, bulkCarrier));
+        assertEquals(2, flagEvaluator.getFlagStatistics("US"));
+    }
+
+    // an evaluator's exception is thrown from the barrier and on shutdown, as when synchronous
+    @Test
+    public void failingEvaluatorTest() {
+        IllegalArgumentException thrown = new IllegalArgumentException("bad movement");
+        EvaluatorPipeline pipeline = new EvaluatorPipeline(16);
+        pipeline.addEvaluator(flagEvaluator);
+        pipeline.addEvaluator(new StatisticsEvaluator() {
+            @Override
+            public void onProcessMovement(Movement movement) {
+                throw thrown;
+            }
+        });
+        pipeline.publishTick();
+        pipeline.barrier();
+        pipeline.publishMovement(new ShipMovement(0, MovementDirection.INBOUND, bulkCarrier));
+        pipeline.publishMovement(new ShipMovement(0, MovementDirection.INBOUND, bulkCarrier));
+        try {
+            pipeline.barrier();
+            fail("the evaluator's exception should be thrown from the barrier");
+        } catch (IllegalStateException expected) {
+            assertSame(thrown, expected.getCause());
+        }
+        // the other evaluators have consumed every event
+        assertEquals(2, flagEvaluator.getFlagStatistics("US"));
+        try {
+            pipeline.shutdown();
+            fail("the evaluator's exception should be thrown on shutdown");
+        } catch (IllegalStateException expected) {
+            assertSame(thrown, expected.getCause());
+        }
+    }
+
+    // evaluators read the ship as it was when its movement was published
+    @Test
+    public void shipCopiedOnPublishTest() throws Exception {
+        CountDownLatch unloaded = new CountDownLatch(1);
+        List<Integer> seen = new ArrayList<>();
+        EvaluatorPipeline pipeline = new EvaluatorPipeline(16);
+        pipeline.addEvaluator(new StatisticsEvaluator() {
+            @Override
+            public void onProcessMovement(Movement movement) {
+                try {
+                    unloaded.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ContainerShip ship = (ContainerShip) ((ShipMovement) movement).getShip();
+                int count = 0;
+                for (Container cargo : ship.getCargoView()) {
+                    count++;
+                }
+                seen.add(count);
+            }
+        });
+        containerShip.loadCargo(container);
+        containerShip.loadCargo(new Container(2, "US", ContainerType.STANDARD));
+        pipeline.publishMovement(new ShipMovement(0, MovementDirection.INBOUND, containerShip));
+        containerShip.unloadCargo();
+        containerShip.loadCargo(new Container(3, "US", ContainerType.STANDARD));
+        unloaded.countDown();
+        pipeline.shutdown();
+
+        assertEquals(List.of(2), seen);
+    }
+}
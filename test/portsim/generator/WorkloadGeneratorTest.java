@@ -0,0 +1,71 @@
+package portsim.generator;
+
+import org.junit.*;
+import portsim.HeadlessLauncher;
+import portsim.cargo.Cargo;
+import portsim.port.Port;
+import portsim.ship.Ship;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class WorkloadGeneratorTest {
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    /* A small port with the given seed, with ships queued and docked cargo */
+    private static String generate(long seed) throws IOException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setPortName("Test Port");
+        generator.setSeed(seed);
+        generator.setCargoCount(500);
+        generator.setShipCount(40);
+        generator.setQuayCount(5);
+        generator.setMovementCount(200);
+        generator.setQueuedShips(4);
+        generator.setHorizon(24 * 60);
+        StringWriter writer = new StringWriter();
+        generator.generate(writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void sameSeedTest() throws Exception {
+        String first = generate(42);
+        String second = generate(42);
+        assertArrayEquals(first.getBytes(StandardCharsets.UTF_8),
+                second.getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(first, generate(43));
+    }
+
+    @Test
+    public void loadsTest() throws Exception {
+        Port port = Port.initialisePort(new StringReader(generate(42)));
+        assertEquals("Test Port", port.getName());
+        assertEquals(0, port.getTime());
+        assertEquals(5, port.getQuays().size());
+        assertEquals(500, Cargo.getCargoRegistry().size());
+        assertEquals(40, Ship.getShipRegistry().size());
+        assertEquals(4, port.getShipQueue().getShipQueue().size());
+        // every ship not queued arrives and every ship leaves, and cargo moves make up the rest
+        assertEquals(200, port.getPendingMovementCount());
+
+        // the generated port can be simulated to the end
+        HeadlessLauncher.run(port, -1);
+        assertEquals(0, port.getPendingMovementCount());
+    }
+}
@@ -0,0 +1,148 @@
+package portsim.metrics;
+
+import org.junit.*;
+import portsim.cargo.*;
+import portsim.evaluators.*;
+import portsim.movement.*;
+import portsim.port.*;
+import portsim.ship.*;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class AllocationProbeTest {
+
+    // Mean bytes allocated per tick over a day by a port with docked ships, queued ships,
+    // stored cargo and every evaluator attached. Only processing a movement may allocate, for
+    // the entries of the yard's indexes and the boxed counts kept by the evaluators. A budget
+    // of 1 byte per tick allows for a rare deoptimisation re-allocating objects the JIT had
+    // eliminated, but fails if anything is allocated on every tick.
+    static final double DOCKING_BUDGET = 1;
+    static final double UNLOADING_BUDGET = 1;
+    static final double MOVEMENTS_BUDGET = 128;
+    static final double EVALUATORS_BUDGET = 1;
+    static final double TICK_BUDGET = 128;
+
+    AllocationProbe probe;
+    Port port;
+    Object sink;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(AllocationProbe.isSupported());
+        probe = new AllocationProbe();
+        port = new Port("Budget");
+        for (int i = 0; i < 4; i++) {
+            port.addQuay(new ContainerQuay(i, 100));
+            port.addQuay(new BulkQuay(i + 4, 1000));
+        }
+        for (int i = 0; i < 8; i++) {
+            ContainerShip ship = new ContainerShip(1000000 + i, "Ship" + i, "Australia",
+                    NauticalFlag.NOVEMBER, 10);
+            ship.loadCargo(new Container(i, "Australia", ContainerType.STANDARD));
+            port.getShipQueue().add(ship);
+        }
+        for (int i = 8; i < 40; i++) {
+            new BulkCargo(i, "Australia", 10, BulkCargoType.COAL);
+        }
+        port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+        port.addStatisticsEvaluator(new QuayOccupancyEvaluator(port));
+        port.addStatisticsEvaluator(new ShipFlagEvaluator());
+        port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void attributesAllocationToPhase() {
+        probe.tickStarted(1);
+        probe.phaseStarted(TickPhase.MOVEMENTS);
+        sink = new byte[1 << 20];
+        probe.phaseEnded(TickPhase.MOVEMENTS);
+        probe.tickEnded(1, 0, 0, 0);
+        assertTrue(probe.getLastTickBytes(TickPhase.MOVEMENTS) >= 1 << 20);
+        assertTrue(probe.getLastTickBytes(TickPhase.MOVEMENTS) < 2 << 20);
+        assertEquals(0, probe.getLastTickBytes(TickPhase.DOCKING));
+        assertTrue(probe.getLastTickBytes() >= probe.getLastTickBytes(TickPhase.MOVEMENTS));
+        assertEquals(1, probe.getTicks());
+    }
+
+    @Test
+    public void unattributedAllocation() {
+        probe.tickStarted(1);
+        sink = new byte[1 << 20];
+        probe.phaseStarted(TickPhase.EVALUATORS);
+        probe.phaseEnded(TickPhase.EVALUATORS);
+        probe.tickEnded(1, 0, 0, 0);
+        assertTrue(probe.getLastUnattributedBytes() >= 1 << 20);
+        assertTrue(probe.getLastTickBytes(TickPhase.EVALUATORS) < 1024);
+    }
+
+    @Test
+    public void accumulatesAndResets() {
+        for (int tick = 1; tick <= 3; tick++) {
+            probe.tickStarted(tick);
+            probe.phaseStarted(TickPhase.DOCKING);
+            sink = new byte[tick << 16];
+            probe.phaseEnded(TickPhase.DOCKING);
+            probe.tickEnded(tick, 0, 0, 0);
+        }
+        assertEquals(3, probe.getTicks());
+        assertTrue(probe.getTotalBytes(TickPhase.DOCKING) >= 6 << 16);
+        assertTrue(probe.getMaxTickBytes(TickPhase.DOCKING) >= 3 << 16);
+        assertTrue(probe.getMaxTickBytes() >= probe.getMaxTickBytes(TickPhase.DOCKING));
+        assertEquals(probe.getTotalBytes() / 3.0, probe.getMeanTickBytes(), 1e-9);
+        probe.reset();
+        assertEquals(0, probe.getTicks());
+        assertEquals(0, probe.getTotalBytes());
+        assertEquals(0, probe.getTotalBytes(TickPhase.DOCKING));
+        assertEquals(0, probe.getMaxTickBytes());
+    }
+
+    @Test
+    public void recordsIntoRegistry() {
+        MetricsRegistry registry = new MetricsRegistry();
+        AllocationProbe recording = new AllocationProbe(registry);
+        recording.tickStarted(1);
+        recording.phaseStarted(TickPhase.UNLOADING);
+        sink = new byte[1 << 20];
+        recording.phaseEnded(TickPhase.UNLOADING);
+        recording.tickEnded(1, 0, 0, 0);
+        assertEquals(recording.getTotalBytes(), registry.counter("alloc.tick").get());
+        assertEquals(recording.getTotalBytes(TickPhase.UNLOADING),
+                registry.counter("alloc.phase.unloading").get());
+    }
+
+    @Test
+    public void tickWithinBudget() throws Exception {
+        // a day of docking, unloading and cargo movements before measuring
+        runDay(0);
+        port.setTickProbe(probe);
+        runDay(24 * 60);
+        assertTrue(probe.describe(), meanTickBytes(TickPhase.DOCKING) <= DOCKING_BUDGET);
+        assertTrue(probe.describe(), meanTickBytes(TickPhase.UNLOADING) <= UNLOADING_BUDGET);
+        assertTrue(probe.describe(), meanTickBytes(TickPhase.MOVEMENTS) <= MOVEMENTS_BUDGET);
+        assertTrue(probe.describe(), meanTickBytes(TickPhase.EVALUATORS) <= EVALUATORS_BUDGET);
+        assertTrue(probe.describe(), probe.getMeanTickBytes() <= TICK_BUDGET);
+    }
+
+    /* Returns the mean bytes allocated per tick in the given phase */
+    private double meanTickBytes(TickPhase phase) {
+        return (double) probe.getTotalBytes(phase) / probe.getTicks();
+    }
+
+    /* Schedules cargo in and out of the port every few minutes of the day after start */
+    private void runDay(long start) throws Exception {
+        for (long minute = start + 1; minute <= start + 24 * 60; minute += 7) {
+            List<Cargo> cargo = List.of(Cargo.getCargoById(8 + (int) (minute % 32)));
+            port.addMovement(new CargoMovement(minute, MovementDirection.INBOUND, cargo));
+            port.addMovement(new CargoMovement(minute + 3, MovementDirection.OUTBOUND, cargo));
+        }
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            port.elapseOneMinute();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package portsim.metrics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void emptyTest() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotal());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getPercentile(0));
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void percentileTest() {
+        for (long nanos : new long[] {1, 2, 3, 4, 1000}) {
+            histogram.record(nanos);
+        }
+        assertEquals(5, histogram.getCount());
+        assertEquals(1010, histogram.getTotal());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(202, histogram.getMean(), 0);
+        // each percentile is the upper bound of the bucket its rank falls in
+        assertEquals(1, histogram.getPercentile(0));
+        assertEquals(1, histogram.getPercentile(20));
+        assertEquals(3, histogram.getPercentile(21));
+        assertEquals(3, histogram.getPercentile(60));
+        assertEquals(7, histogram.getPercentile(80));
+        // but never more than the largest duration recorded
+        assertEquals(1000, histogram.getPercentile(81));
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void bucketBoundaryTest() {
+        // 1023 is the last duration of the bucket [512, 1023], 1024 the first of the next
+        histogram.record(1023);
+        histogram.record(1024);
+        histogram.record(2047);
+        histogram.record(2048);
+        assertEquals(1023, histogram.getPercentile(25));
+        assertEquals(2047, histogram.getPercentile(50));
+        assertEquals(2047, histogram.getPercentile(75));
+        assertEquals(2048, histogram.getPercentile(100));
+
+        LatencyHistogram small = new LatencyHistogram();
+        small.record(0);
+        small.record(1);
+        // zero and one share the first bucket
+        assertEquals(1, small.getPercentile(50));
+        assertEquals(1, small.getPercentile(100));
+    }
+
+    @Test
+    public void extremesTest() {
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getTotal());
+        assertEquals(0, histogram.getPercentile(100));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(1, histogram.getPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePercentileTest() {
+        histogram.getPercentile(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void largePercentileTest() {
+        histogram.getPercentile(100.5);
+    }
+
+    @Test
+    public void toStringTest() {
+        histogram.record(100);
+        histogram.record(300);
+        assertEquals("count=2 mean=200ns p50=127ns p99=300ns max=300ns", histogram.toString());
+    }
+}
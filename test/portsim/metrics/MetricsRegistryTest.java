@@ -0,0 +1,52 @@
+package portsim.metrics;
+
+import org.junit.*;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    MetricsRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    public void sameInstanceTest() {
+        Counter counter = registry.counter("ticks");
+        assertSame(counter, registry.counter("ticks"));
+        assertNotSame(counter, registry.counter("other"));
+        assertSame(registry.gauge("depth"), registry.gauge("depth"));
+        assertSame(registry.histogram("latency"), registry.histogram("latency"));
+    }
+
+    @Test
+    public void viewsAreCopiesTest() {
+        registry.counter("b");
+        registry.counter("a");
+        Map<String, Counter> counters = registry.getCounters();
+        assertEquals(List.of("a", "b"), List.copyOf(counters.keySet()));
+        counters.clear();
+        assertEquals(2, registry.getCounters().size());
+        registry.getGauges().put("gauge", new Gauge());
+        assertTrue(registry.getGauges().isEmpty());
+        registry.getHistograms().put("histogram", new LatencyHistogram());
+        assertTrue(registry.getHistograms().isEmpty());
+    }
+
+    @Test
+    public void reportTest() {
+        assertEquals("", registry.report());
+        registry.counter("movements.dispatched").add(42);
+        registry.gauge("queue.depth").set(3);
+        registry.histogram("tick.duration").record(100);
+        String newline = System.lineSeparator();
+        assertEquals("movements.dispatched = 42" + newline
+                + "queue.depth = 3" + newline
+                + "tick.duration = count=1 mean=100ns p50=100ns p99=100ns max=100ns",
+                registry.report());
+    }
+}
@@ -0,0 +1,105 @@
+package portsim.metrics;
+
+import org.junit.*;
+import portsim.cargo.*;
+import portsim.evaluators.*;
+import portsim.movement.*;
+import portsim.port.*;
+import portsim.ship.*;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+public class PortInstrumentationTest {
+
+    Port port;
+    MetricsRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        port = new Port("Brisbane");
+        port.addQuay(new ContainerQuay(0, 100));
+        ContainerShip ship = new ContainerShip(1234567, "Evergreen", "Australia",
+                NauticalFlag.NOVEMBER, 10);
+        ship.loadCargo(new Container(1, "Australia", ContainerType.STANDARD));
+        port.addMovement(new ShipMovement(3, MovementDirection.INBOUND, ship));
+        port.addMovement(new ShipMovement(8, MovementDirection.OUTBOUND, ship));
+        port.addStatisticsEvaluator(new ShipFlagEvaluator());
+        registry = new MetricsRegistry();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void recordsEveryPhaseTest() {
+        port.setTickProbe(new PortInstrumentation(registry));
+        for (int i = 0; i < 10; i++) {
+            port.elapseOneMinute();
+        }
+        for (TickPhase phase : TickPhase.values()) {
+            assertTrue(phase.name(), registry.histogram("tick.phase."
+                    + phase.name().toLowerCase()).getCount() > 0);
+        }
+        // ships dock every ten minutes and cargo is unloaded in the other fifth minutes
+        assertEquals(1, registry.histogram("tick.phase.docking").getCount());
+        assertEquals(1, registry.histogram("tick.phase.unloading").getCount());
+        assertEquals(10, registry.histogram("tick.phase.movements").getCount());
+        assertEquals(10, registry.histogram("tick.phase.evaluators").getCount());
+        assertEquals(10, registry.histogram("tick.duration").getCount());
+        assertEquals(10, registry.counter("tick.count").get());
+        assertEquals(2, registry.counter("movements.dispatched").get());
+        // the evaluator is timed on every tick and on both processed movements
+        assertEquals(12, registry.histogram("evaluator.ShipFlagEvaluator").getCount());
+    }
+
+    @Test
+    public void phasesWithinTickTest() {
+        List<String> calls = new ArrayList<>();
+        Set<TickPhase> seen = EnumSet.noneOf(TickPhase.class);
+        port.setTickProbe(new CompositeTickProbe(new PortInstrumentation(registry),
+                new TickProbe() {
+                    @Override
+                    public void tickStarted(long time) {
+                        calls.add("start " + time);
+                    }
+
+                    @Override
+                    public void phaseStarted(TickPhase phase) {
+                        calls.add("begin " + phase);
+                    }
+
+                    @Override
+                    public void phaseEnded(TickPhase phase) {
+                        calls.add("end " + phase);
+                        seen.add(phase);
+                    }
+
+                    @Override
+                    public void evaluatorCalled(StatisticsEvaluator evaluator, boolean tick,
+                                                long nanos) {
+                    }
+
+                    @Override
+                    public void tickEnded(long time, int movementsDispatched, int queueDepth,
+                                          int yardSize) {
+                        calls.add("end " + time);
+                    }
+                }));
+        for (int i = 0; i < 10; i++) {
+            port.elapseOneMinute();
+        }
+        assertEquals(EnumSet.allOf(TickPhase.class), seen);
+        assertEquals(List.of("start 5", "begin UNLOADING", "end UNLOADING",
+                "begin MOVEMENTS", "end MOVEMENTS", "begin EVALUATORS", "end EVALUATORS",
+                "end 5"), calls.subList(calls.indexOf("start 5"), calls.indexOf("end 5") + 1));
+        assertEquals(List.of("start 10", "begin DOCKING", "end DOCKING",
+                "begin MOVEMENTS", "end MOVEMENTS", "begin EVALUATORS", "end EVALUATORS",
+                "end 10"), calls.subList(calls.indexOf("start 10"), calls.size()));
+    }
+}
@@ -0,0 +1,95 @@
+package portsim.metrics;
+
+import org.junit.*;
+import portsim.cargo.*;
+import portsim.evaluators.*;
+import portsim.movement.*;
+import portsim.port.*;
+import portsim.ship.*;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+
+public class PortSnapshotTest {
+
+    Port port;
+    ShipFlagEvaluator flagEvaluator;
+    BulkCarrier carrier;
+    CountDownLatch released;
+
+    @Before
+    public void setUp() throws Exception {
+        port = new Port("Brisbane");
+        port.addQuay(new BulkQuay(0, 1000));
+        flagEvaluator = new ShipFlagEvaluator();
+        carrier = new BulkCarrier(1000001, "Carrier", "Japan", NauticalFlag.NOVEMBER, 100);
+        released = new CountDownLatch(1);
+        port.addStatisticsEvaluator(flagEvaluator);
+        // holds up its consumer thread until released
+        port.addStatisticsEvaluator(new StatisticsEvaluator() {
+            @Override
+            public void onProcessMovement(Movement movement) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        released.countDown();
+        port.disableAsyncEvaluators();
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void synchronousTest() {
+        released.countDown();
+        port.processMovement(new ShipMovement(0, MovementDirection.INBOUND, carrier));
+        PortSnapshot snapshot = new PortSnapshot(port, 0, null);
+        assertEquals(1, snapshot.getQuayCount());
+        assertEquals(EvaluatorReport.describe(flagEvaluator),
+                snapshot.getEvaluatorOutputs().get("ShipFlagEvaluator"));
+    }
+
+    @Test
+    public void doesNotWaitTest() {
+        port.enableAsyncEvaluators(16);
+        PortSnapshot idle = new PortSnapshot(port, 0, null);
+        assertTrue(idle.getEvaluatorOutputs().containsKey("ShipFlagEvaluator"));
+
+        port.processMovement(new ShipMovement(0, MovementDirection.INBOUND, carrier));
+        port.elapseOneMinute();
+        assertFalse(port.isEvaluatorsIdle());
+        // the evaluators are held up, so the outputs of the earlier snapshot are kept
+        PortSnapshot busy = new PortSnapshot(port, 0, idle);
+        assertEquals(1, busy.getTime());
+        assertSame(idle.getEvaluatorOutputs(), busy.getEvaluatorOutputs());
+        assertTrue(new PortSnapshot(port, 0, null).getEvaluatorOutputs().isEmpty());
+
+        released.countDown();
+        port.awaitEvaluators();
+        assertTrue(port.isEvaluatorsIdle());
+        PortSnapshot caughtUp = new PortSnapshot(port, 0, busy);
+        assertEquals(EvaluatorReport.describe(flagEvaluator),
+                caughtUp.getEvaluatorOutputs().get("ShipFlagEvaluator"));
+        assertNotEquals(idle.getEvaluatorOutputs(), caughtUp.getEvaluatorOutputs());
+    }
+
+    @Test
+    public void monitorDoesNotWaitTest() {
+        port.enableAsyncEvaluators(16);
+        PortMonitor monitor = new PortMonitor(port);
+        port.setTickProbe(monitor);
+        port.processMovement(new ShipMovement(0, MovementDirection.INBOUND, carrier));
+        // would never finish if the monitor waited for the held up evaluator
+        for (int i = 0; i < 5; i++) {
+            port.elapseOneMinute();
+        }
+        assertEquals(5, monitor.getSnapshot().getTime());
+        assertFalse(monitor.isAwaitEvaluators());
+    }
+}
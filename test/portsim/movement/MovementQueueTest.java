@@ -0,0 +1,521 @@
+package portsim.movement;
+
+import org.junit.*;
+import portsim.cargo.Cargo;
+import portsim.port.Port;
+import portsim.ship.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+
+public class MovementQueueTest {
+
+    MovementQueue queue;
+    BulkCarrier ship;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        queue = new MovementQueue();
+        ship = new BulkCarrier(1234567, "Voyager", "Australia", NauticalFlag.NOVEMBER, 100);
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void orderTest() {
+        ShipMovement late = new ShipMovement(20, MovementDirection.INBOUND, ship);
+        ShipMovement first = new ShipMovement(10, MovementDirection.INBOUND, ship);
+        ShipMovement second = new ShipMovement(10, MovementDirection.OUTBOUND, ship);
+        queue.add(late);
+        queue.add(first);
+        queue.add(second);
+        assertEquals(3, queue.size());
+        assertEquals(10, queue.nextTime());
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertSame(late, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(Long.MAX_VALUE, queue.nextTime());
+    }
+
+    @Test
+    public void cancelTest() {
+        MovementHandle a = queue.schedule(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        MovementHandle b = queue.schedule(new ShipMovement(3, MovementDirection.INBOUND, ship));
+        assertTrue(a.isPending());
+        assertTrue(queue.cancel(b));
+        assertFalse(b.isPending());
+        assertFalse(queue.cancel(b));
+        assertEquals(1, queue.size());
+        assertSame(a.getMovement(), queue.poll());
+        assertFalse(a.isPending());
+        assertFalse(queue.cancel(a));
+    }
+
+    @Test
+    public void rescheduleTest() {
+        MovementHandle a = queue.schedule(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        MovementHandle b = queue.schedule(new ShipMovement(8, MovementDirection.INBOUND, ship));
+        MovementHandle c = queue.schedule(new ShipMovement(8, MovementDirection.INBOUND, ship));
+
+        assertTrue(queue.reschedule(a, 8));
+        assertEquals(8, a.getMovement().getTime());
+        // a rescheduled movement goes after those already waiting for the same time
+        assertSame(b.getMovement(), queue.poll());
+        assertSame(c.getMovement(), queue.poll());
+        assertSame(a.getMovement(), queue.poll());
+        assertFalse(queue.reschedule(a, 1));
+    }
+
+    @Test
+    public void rescheduleLeavesOtherQueuesTest() {
+        Movement movement = new ShipMovement(5, MovementDirection.INBOUND, ship);
+        MovementQueue other = new MovementQueue();
+        other.offer(movement);
+        other.offer(new ShipMovement(7, MovementDirection.INBOUND, ship));
+        MovementHandle handle = queue.schedule(movement);
+        MovementQueue.Mark mark = queue.mark();
+
+        // the handle moves to a copy at the new time, and the movement itself is unchanged
+        assertTrue(queue.reschedule(handle, 100));
+        assertEquals(100, handle.getMovement().getTime());
+        assertNotSame(movement, handle.getMovement());
+        assertEquals(5, movement.getTime());
+        assertSame(movement, other.peek());
+        assertEquals(5, other.nextTime());
+
+        queue.reset(mark);
+        assertSame(movement, handle.getMovement());
+        assertEquals(5, queue.nextTime());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void foreignHandleTest() {
+        MovementHandle handle = new MovementQueue().schedule(
+                new ShipMovement(5, MovementDirection.INBOUND, ship));
+        queue.cancel(handle);
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(42);
+        List<MovementHandle> pending = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int operation = random.nextInt(4);
+            if (operation < 2 || pending.isEmpty()) {
+                pending.add(queue.schedule(new ShipMovement(random.nextInt(500),
+                        MovementDirection.INBOUND, ship)));
+            } else if (operation == 2) {
+                assertTrue(queue.cancel(pending.remove(random.nextInt(pending.size()))));
+            } else {
+                MovementHandle handle = pending.get(random.nextInt(pending.size()));
+                assertTrue(queue.reschedule(handle, random.nextInt(500)));
+            }
+        }
+        assertEquals(pending.size(), queue.size());
+        long previous = -1;
+        while (!queue.isEmpty()) {
+            Movement movement = queue.poll();
+            assertTrue(movement.getTime() >= previous);
+            previous = movement.getTime();
+        }
+        for (MovementHandle handle : pending) {
+            assertFalse(handle.isPending());
+        }
+    }
+
+    @Test
+    public void iteratorRemoveTest() {
+        List<MovementHandle> handles = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            handles.add(queue.schedule(new ShipMovement(50 - i, MovementDirection.INBOUND,
+                    ship)));
+        }
+        int seen = 0;
+        for (Iterator<Movement> iterator = queue.iterator(); iterator.hasNext(); ) {
+            Movement movement = iterator.next();
+            seen++;
+            if (movement.getTime() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(50, seen);
+        assertEquals(25, queue.size());
+        for (MovementHandle handle : handles) {
+            assertEquals(handle.getMovement().getTime() % 2 != 0, handle.isPending());
+        }
+    }
+
+    @Test
+    public void betweenTest() {
+        ContainerShip other = new ContainerShip(7654321, "Maersk", "Japan",
+                NauticalFlag.HOTEL, 10);
+        Movement a = new ShipMovement(30, MovementDirection.INBOUND, ship);
+        Movement b = new ShipMovement(10, MovementDirection.OUTBOUND, other);
+        Movement c = new ShipMovement(10, MovementDirection.INBOUND, ship);
+        Movement d = new ShipMovement(50, MovementDirection.OUTBOUND, ship);
+        Movement e = new CargoMovement(20, MovementDirection.INBOUND, List.of());
+        for (Movement movement : List.of(a, b, c, d, e)) {
+            queue.add(movement);
+        }
+
+        assertEquals(List.of(b, c, e, a), toList(queue.between(10, 49)));
+        assertEquals(List.of(c, e), toList(queue.between(0, 20, MovementDirection.INBOUND)));
+        assertEquals(List.of(b, d), toList(queue.between(0, 100, MovementDirection.OUTBOUND)));
+        assertEquals(List.of(c, a, d), toList(queue.forShip(1234567, 0, 100)));
+        assertEquals(List.of(b), toList(queue.forShip(7654321, 0, 100)));
+        assertEquals(List.of(), toList(queue.forShip(1111111, 0, 100)));
+        assertEquals(List.of(), toList(queue.between(40, 30)));
+    }
+
+    @Test
+    public void betweenFollowsChangesTest() {
+        MovementHandle a = queue.schedule(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        MovementHandle b = queue.schedule(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        MovementHandle c = queue.schedule(new ShipMovement(9, MovementDirection.INBOUND, ship));
+        queue.reschedule(a, 9);
+        queue.cancel(c);
+        assertEquals(List.of(b.getMovement(), a.getMovement()), toList(queue.between(0, 10)));
+        assertEquals(List.of(a.getMovement()), toList(queue.forShip(1234567, 6, 10)));
+        queue.poll();
+        assertEquals(List.of(a.getMovement()), toList(queue.between(0, 10)));
+        queue.clear();
+        assertEquals(List.of(), toList(queue.between(0, 10)));
+        assertEquals(List.of(), toList(queue.forShip(1234567, 0, 10)));
+    }
+
+    @Test
+    public void betweenMatchesPollOrderTest() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            queue.add(new ShipMovement(random.nextInt(100), random.nextBoolean()
+                    ? MovementDirection.INBOUND : MovementDirection.OUTBOUND, ship));
+        }
+        List<Movement> window = toList(queue.between(0, 100));
+        for (Movement movement : window) {
+            assertSame(movement, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void betweenConcurrentModificationTest() {
+        queue.add(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        queue.add(new ShipMovement(6, MovementDirection.INBOUND, ship));
+        for (Movement movement : queue.between(0, 10)) {
+            queue.add(new ShipMovement(7, MovementDirection.INBOUND, ship));
+        }
+    }
+
+    @Test
+    public void portTest() {
+        Port port = new Port("Brisbane");
+        MovementHandle handle = port.scheduleMovement(
+                new ShipMovement(5, MovementDirection.INBOUND, ship));
+        port.elapseOneMinute();
+        assertTrue(port.rescheduleMovement(handle, 2));
+        port.elapseOneMinute();
+        assertEquals(List.of(ship), port.getShipQueue().getShipQueue());
+        assertFalse(port.cancelMovement(handle));
+
+        MovementHandle cancelled = port.scheduleMovement(
+                new ShipMovement(3, MovementDirection.INBOUND, ship));
+        assertTrue(port.cancelMovement(cancelled));
+        port.elapseOneMinute();
+        assertEquals(1, port.getShipQueue().getShipQueue().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rescheduleIntoPastTest() {
+        Port port = new Port("Brisbane");
+        MovementHandle handle = port.scheduleMovement(
+                new ShipMovement(5, MovementDirection.INBOUND, ship));
+        port.elapseOneMinute();
+        port.rescheduleMovement(handle, 0);
+    }
+
+    /* The queued movements in the order they leave the queue, with their times */
+    private static List<String> drain(MovementQueue queue) {
+        List<String> order = new ArrayList<>();
+        for (Movement movement : queue.between(0, Long.MAX_VALUE)) {
+            order.add(System.identityHashCode(movement) + "@" + movement.getTime());
+        }
+        return order;
+    }
+
+    @Test
+    public void markResetTest() {
+        Random random = new Random(7);
+        List<MovementHandle> pending = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            pending.add(queue.schedule(new ShipMovement(random.nextInt(100),
+                    MovementDirection.values()[i % 2], ship)));
+        }
+        List<MovementHandle> all = new ArrayList<>(pending);
+        MovementQueue.Mark mark = queue.mark();
+        List<String> marked = drain(queue);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 500; i++) {
+                int operation = random.nextInt(4);
+                if (operation == 0 || pending.isEmpty()) {
+                    MovementHandle handle = queue.schedule(new ShipMovement(
+                            random.nextInt(100), MovementDirection.INBOUND, ship));
+                    pending.add(handle);
+                    all.add(handle);
+                } else if (operation == 1) {
+                    assertTrue(queue.cancel(pending.remove(random.nextInt(pending.size()))));
+                } else if (operation == 2) {
+                    MovementHandle handle = pending.get(random.nextInt(pending.size()));
+                    assertTrue(queue.reschedule(handle, random.nextInt(100)));
+                } else {
+                    Movement polled = queue.poll();
+                    pending.removeIf(handle -> handle.getMovement() == polled);
+                }
+            }
+            queue.reset(mark);
+            assertEquals(marked, drain(queue));
+            assertEquals(200, queue.size());
+            pending.clear();
+            for (int i = 0; i < all.size(); i++) {
+                // handles pending at the mark are pending again, later ones are not
+                assertEquals(i < 200, all.get(i).isPending());
+                if (i < 200) {
+                    pending.add(all.get(i));
+                }
+            }
+        }
+        // movements added after a reset go after those already queued for their time
+        Movement added = new ShipMovement(50, MovementDirection.INBOUND, ship);
+        queue.add(added);
+        Movement last = null;
+        for (Movement movement : queue.between(50, 50, MovementDirection.INBOUND)) {
+            last = movement;
+        }
+        assertSame(added, last);
+    }
+
+    @Test
+    public void resetAfterClearTest() {
+        MovementHandle a = queue.schedule(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        MovementHandle b = queue.schedule(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        MovementQueue.Mark mark = queue.mark();
+        queue.clear();
+        queue.add(new ShipMovement(1, MovementDirection.INBOUND, ship));
+        queue.reset(mark);
+        assertTrue(a.isPending());
+        assertSame(a.getMovement(), queue.poll());
+        assertSame(b.getMovement(), queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void discardMarkTest() {
+        MovementQueue.Mark first = queue.mark();
+        queue.add(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        MovementQueue.Mark second = queue.mark();
+        for (int i = 0; i < 10; i++) {
+            queue.add(new ShipMovement(i, MovementDirection.OUTBOUND, ship));
+        }
+        queue.discardBefore(second);
+        queue.reset(second);
+        assertEquals(1, queue.size());
+        try {
+            queue.reset(first);
+            fail("the first mark should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+        queue.discardHistory();
+        try {
+            queue.reset(second);
+            fail("every mark should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new MovementQueue().reset(queue.mark());
+            fail("a mark of another queue should not be reset to");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /* The movements as their time, direction and ship, in the order given */
+    private static List<String> describe(Iterable<? extends Movement> movements) {
+        List<String> described = new ArrayList<>();
+        for (Movement movement : movements) {
+            described.add(movement.getTime() + " " + movement.getDirection() + " "
+                    + ((ShipMovement) movement).getShip().getImoNumber());
+        }
+        return described;
+    }
+
+    /* A copy of a ship movement, as made by a fork */
+    private static Movement copyOf(Movement movement) {
+        return new ShipMovement(movement.getTime(), movement.getDirection(),
+                ((ShipMovement) movement).getShip());
+    }
+
+    @Test
+    public void forkTest() {
+        Random random = new Random(11);
+        List<Ship> ships = new ArrayList<>();
+        for (int s = 0; s < 4; s++) {
+            ships.add(new BulkCarrier(1000001 + s, "Ship " + s, "Australia",
+                    NauticalFlag.NOVEMBER, 100));
+        }
+        MovementQueue unforked = new MovementQueue();
+        List<MovementHandle> handles = new ArrayList<>();
+        List<MovementHandle> unforkedHandles = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Movement movement = new ShipMovement(random.nextInt(100),
+                    MovementDirection.values()[i % 2], ships.get(i % 4));
+            handles.add(queue.schedule(movement));
+            unforkedHandles.add(unforked.schedule(copyOf(movement)));
+        }
+        MovementQueue expected = queue.copy();
+        MovementQueue fork = queue.fork(MovementQueueTest::copyOf);
+        assertEquals(describe(expected.between(0, Long.MAX_VALUE)),
+                describe(fork.between(0, Long.MAX_VALUE)));
+        assertNotSame(queue.peek(), fork.peek());
+        assertEquals(queue.peek().getTime(), fork.nextTime());
+
+        // the fork changes without changing the queue
+        for (int i = 0; i < 300; i++) {
+            if (random.nextBoolean()) {
+                assertEquals(describe(List.of(expected.poll())),
+                        describe(List.of(fork.poll())));
+            } else {
+                Movement movement = new ShipMovement(random.nextInt(100),
+                        MovementDirection.INBOUND, ships.get(random.nextInt(4)));
+                expected.add(movement);
+                fork.add(copyOf(movement));
+            }
+        }
+        Movement removed = fork.between(50, 60, MovementDirection.OUTBOUND).iterator().next();
+        assertTrue(fork.contains(removed));
+        assertTrue(fork.remove(removed));
+        assertFalse(fork.contains(removed));
+        assertTrue(expected.remove(
+                expected.between(50, 60, MovementDirection.OUTBOUND).iterator().next()));
+        assertEquals(expected.size(), fork.size());
+        assertEquals(describe(expected.forShip(1000002, 0, Long.MAX_VALUE)),
+                describe(fork.forShip(1000002, 0, Long.MAX_VALUE)));
+        assertEquals(describe(expected.between(0, Long.MAX_VALUE)),
+                describe(fork.between(0, Long.MAX_VALUE)));
+        assertEquals(describe(unforked.between(0, Long.MAX_VALUE)),
+                describe(queue.between(0, Long.MAX_VALUE)));
+
+        // the queue's handles still cancel and reschedule its shared movements
+        for (int i = 0; i < 200; i += 3) {
+            assertTrue(queue.cancel(handles.get(i)));
+            assertFalse(handles.get(i).isPending());
+            assertTrue(unforked.cancel(unforkedHandles.get(i)));
+        }
+        for (int i = 1; i < 200; i += 3) {
+            long time = random.nextInt(100);
+            assertTrue(queue.reschedule(handles.get(i), time));
+            assertTrue(unforked.reschedule(unforkedHandles.get(i), time));
+            assertTrue(handles.get(i).isPending());
+        }
+        assertFalse(queue.cancel(handles.get(0)));
+        assertEquals(describe(unforked.between(0, Long.MAX_VALUE)),
+                describe(queue.between(0, Long.MAX_VALUE)));
+
+        // a fork of the fork starts where the fork is, and neither changes the other
+        MovementQueue second = fork.fork(MovementQueueTest::copyOf);
+        List<String> forked = describe(fork.between(0, Long.MAX_VALUE));
+        assertEquals(forked, describe(second.between(0, Long.MAX_VALUE)));
+        second.clear();
+        assertTrue(second.isEmpty());
+        assertEquals(forked, describe(fork.between(0, Long.MAX_VALUE)));
+
+        List<String> order = new ArrayList<>();
+        while (!unforked.isEmpty()) {
+            order.add(describe(List.of(unforked.poll())).get(0));
+        }
+        List<String> polled = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            polled.add(describe(List.of(queue.poll())).get(0));
+        }
+        assertEquals(order, polled);
+        assertEquals(forked, describe(fork.between(0, Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void forkWithIdentityTest() {
+        Movement first = new ShipMovement(10, MovementDirection.INBOUND, ship);
+        MovementHandle handle = queue.schedule(first);
+        queue.schedule(new ShipMovement(30, MovementDirection.INBOUND, ship));
+        MovementQueue fork = queue.fork(UnaryOperator.identity());
+
+        // the fork holds copies, so rescheduling in the queue leaves the fork's movement alone
+        assertTrue(queue.reschedule(handle, 50));
+        assertEquals(10, first.getTime());
+        assertNotSame(first, fork.peek());
+        assertEquals(10, fork.peek().getTime());
+        assertEquals(30, queue.poll().getTime());
+        assertEquals(50, queue.poll().getTime());
+        assertEquals(10, fork.poll().getTime());
+        assertEquals(30, fork.poll().getTime());
+
+        // as does a fork of a queue holding movements of its own
+        queue.add(first);
+        MovementQueue second = queue.fork(UnaryOperator.identity());
+        assertNotSame(first, second.peek());
+        assertEquals(10, second.peek().getTime());
+    }
+
+    @Test
+    public void forkResetTest() {
+        Random random = new Random(5);
+        List<MovementHandle> handles = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            handles.add(queue.schedule(new ShipMovement(random.nextInt(50),
+                    MovementDirection.values()[i % 2], ship)));
+        }
+        MovementQueue.Mark mark = queue.mark();
+        List<Movement> heapOrder = toList(queue);
+        List<String> marked = drain(queue);
+        MovementQueue fork = queue.fork(MovementQueueTest::copyOf);
+        List<String> forked = describe(fork.between(0, Long.MAX_VALUE));
+        for (int i = 0; i < 100; i += 2) {
+            queue.reschedule(handles.get(i), random.nextInt(50));
+        }
+        for (int i = 1; i < 100; i += 4) {
+            queue.cancel(handles.get(i));
+        }
+        queue.poll();
+        queue.add(new ShipMovement(3, MovementDirection.INBOUND, ship));
+        queue.reset(mark);
+
+        // the movements are back in the same order and places, with their handles pending
+        assertEquals(marked, drain(queue));
+        assertEquals(heapOrder, toList(queue));
+        for (MovementHandle handle : handles) {
+            assertTrue(handle.isPending());
+        }
+        assertTrue(queue.cancel(handles.get(1)));
+        assertFalse(handles.get(1).isPending());
+        assertEquals(99, queue.size());
+        assertEquals(forked, describe(fork.between(0, Long.MAX_VALUE)));
+        assertEquals(100, fork.size());
+    }
+
+    private static <T> List<T> toList(Iterable<? extends T> movements) {
+        List<T> list = new ArrayList<>();
+        for (T movement : movements) {
+            list.add(movement);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,268 @@
+package portsim.movement;
+
+import org.junit.*;
+import portsim.cargo.*;
+import portsim.port.Port;
+import portsim.ship.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MovementStoreTest {
+
+    MovementStore store;
+    ContainerShip ship;
+    Container container1;
+    Container container2;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        store = new MovementStore();
+        ship = new ContainerShip(1234567, "Evergreen", "Australia", NauticalFlag.NOVEMBER, 10);
+        container1 = new Container(1, "Australia", ContainerType.STANDARD);
+        container2 = new Container(2, "Australia", ContainerType.REEFER);
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void materialiseTest() {
+        store.add(new ShipMovement(10, MovementDirection.INBOUND, ship));
+        store.addCargoMovement(5, MovementDirection.OUTBOUND, new int[] {2, 1});
+        assertEquals(2, store.size());
+        assertEquals(5, store.nextTime());
+
+        Movement cargo = store.poll();
+        assertTrue(cargo instanceof CargoMovement);
+        assertEquals(5, cargo.getTime());
+        assertEquals(MovementDirection.OUTBOUND, cargo.getDirection());
+        assertEquals(List.of(container2, container1), ((CargoMovement) cargo).getCargo());
+
+        Movement shipMovement = store.poll();
+        assertTrue(shipMovement instanceof ShipMovement);
+        assertEquals(10, shipMovement.getTime());
+        assertEquals(MovementDirection.INBOUND, shipMovement.getDirection());
+        assertSame(ship, ((ShipMovement) shipMovement).getShip());
+
+        assertTrue(store.isEmpty());
+        assertEquals(Long.MAX_VALUE, store.nextTime());
+        assertNull(store.poll());
+    }
+
+    @Test
+    public void orderTest() {
+        for (int i = 0; i < 10; i++) {
+            new BulkCarrier(1000000 + i, "Ship", "Australia", NauticalFlag.NOVEMBER, 100);
+        }
+        List<long[]> added = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            long time = (i * 37) % 100;
+            store.addShipMovement(time, MovementDirection.INBOUND, 1000000 + i % 10);
+            added.add(new long[] {time, 1000000 + i % 10});
+        }
+        // a stable sort keeps movements with the same time in the order added
+        added.sort((a, b) -> Long.compare(a[0], b[0]));
+        for (long[] expected : added) {
+            assertEquals(expected[0], store.nextTime());
+            ShipMovement movement = (ShipMovement) store.poll();
+            assertEquals(expected[0], movement.getTime());
+            assertEquals(expected[1], movement.getShip().getImoNumber());
+        }
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void sameTimeInOrderAddedTest() {
+        ContainerShip other = new ContainerShip(7654321, "Maersk", "Japan",
+                NauticalFlag.HOTEL, 10);
+        for (int i = 0; i < 100; i++) {
+            store.add(new ShipMovement(3, MovementDirection.INBOUND, i % 2 == 0 ? ship : other));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertSame(i % 2 == 0 ? ship : other, ((ShipMovement) store.poll()).getShip());
+        }
+    }
+
+    @Test
+    public void reuseTest() {
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                store.addCargoMovement(round * 100 + i, MovementDirection.INBOUND,
+                        new int[] {1, 2});
+            }
+            for (int i = 0; i < 90; i++) {
+                assertEquals(2, ((CargoMovement) store.poll()).getCargo().size());
+            }
+        }
+        assertEquals(500, store.size());
+        long bytes = store.getOffHeapBytes();
+        List<Movement> remaining = new ArrayList<>();
+        store.forEach(remaining::add);
+        assertEquals(500, remaining.size());
+        assertEquals(500, store.size());
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertEquals(bytes, store.getOffHeapBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTimeTest() {
+        store.addShipMovement(-1, MovementDirection.INBOUND, ship.getImoNumber());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unregisteredShipTest() {
+        Ship.resetShipRegistry();
+        store.add(new ShipMovement(1, MovementDirection.INBOUND, ship));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shipRemovedTest() {
+        store.add(new ShipMovement(1, MovementDirection.INBOUND, ship));
+        Ship.resetShipRegistry();
+        store.poll();
+    }
+
+    /* Polls every movement from the store, as strings */
+    private static List<String> drain(MovementStore store) {
+        List<String> movements = new ArrayList<>();
+        while (!store.isEmpty()) {
+            movements.add(store.poll().toString());
+        }
+        return movements;
+    }
+
+    @Test
+    public void markResetTest() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100; i++) {
+            store.addCargoMovement(random.nextInt(50), MovementDirection.INBOUND,
+                    new int[] {1, 2});
+            store.add(new ShipMovement(random.nextInt(50), MovementDirection.OUTBOUND, ship));
+        }
+        MovementStore.Mark mark = store.mark();
+        MovementStore copy = store.copy();
+        List<String> marked = drain(copy);
+        for (int round = 0; round < 3; round++) {
+            // enough adds and polls to reuse records and compact the cargo IDs
+            for (int i = 0; i < 1000; i++) {
+                if (random.nextBoolean()) {
+                    store.addCargoMovement(random.nextInt(100), MovementDirection.OUTBOUND,
+                            new int[] {2, 1, 2});
+                } else {
+                    store.poll();
+                }
+            }
+            store.clear();
+            store.addCargoMovement(0, MovementDirection.INBOUND, new int[] {1});
+            store.reset(mark);
+            assertEquals(200, store.size());
+            assertEquals(marked, drain(store.copy()));
+        }
+        assertEquals(marked, drain(store));
+        store.reset(mark);
+        assertEquals(marked, drain(store));
+    }
+
+    @Test
+    public void discardMarkTest() {
+        MovementStore.Mark first = store.mark();
+        store.add(new ShipMovement(5, MovementDirection.INBOUND, ship));
+        MovementStore.Mark second = store.mark();
+        for (int i = 0; i < 10; i++) {
+            store.addCargoMovement(i, MovementDirection.INBOUND, new int[] {1});
+        }
+        store.discardBefore(second);
+        store.reset(second);
+        assertEquals(1, store.size());
+        try {
+            store.reset(first);
+            fail("the first mark should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+        store.discardHistory();
+        try {
+            store.reset(second);
+            fail("every mark should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /* Adds movements enough to fill several pages of the store's buffers */
+    private static void fill(MovementStore store, ContainerShip ship) {
+        Random random = new Random(9);
+        for (int i = 0; i < 10000; i++) {
+            store.addCargoMovement(random.nextInt(1000), MovementDirection.INBOUND,
+                    new int[] {1, 2});
+            store.add(new ShipMovement(random.nextInt(1000), MovementDirection.OUTBOUND, ship));
+        }
+    }
+
+    @Test
+    public void copyIsIndependentTest() {
+        fill(store, ship);
+        MovementStore copy = store.copy();
+        MovementStore unchanged = new MovementStore();
+        fill(unchanged, ship);
+        MovementStore polled = new MovementStore();
+        fill(polled, ship);
+
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(polled.poll().toString(), copy.poll().toString());
+            store.addCargoMovement(i, MovementDirection.OUTBOUND, new int[] {2});
+            unchanged.addCargoMovement(i, MovementDirection.OUTBOUND, new int[] {2});
+        }
+        MovementStore second = copy.copy();
+        assertEquals(drain(polled), drain(copy));
+        assertEquals(drain(unchanged), drain(store));
+        assertEquals(15000, second.size());
+    }
+
+    @Test
+    public void forEachShipImoNumberTest() {
+        ContainerShip other = new ContainerShip(7654321, "Maersk", "Japan",
+                NauticalFlag.HOTEL, 10);
+        store.add(new ShipMovement(3, MovementDirection.INBOUND, ship));
+        store.addCargoMovement(1, MovementDirection.INBOUND, new int[] {1});
+        store.add(new ShipMovement(2, MovementDirection.OUTBOUND, other));
+        List<Long> imoNumbers = new ArrayList<>();
+        store.forEachShipImoNumber(imoNumbers::add);
+        imoNumbers.sort(null);
+        assertEquals(List.of(1234567L, 7654321L), imoNumbers);
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    public void portTest() throws Exception {
+        Port port = new Port("Brisbane");
+        port.getMovementStore().addCargoMovement(2, MovementDirection.INBOUND, new int[] {1});
+        port.addMovement(new CargoMovement(2, MovementDirection.INBOUND, List.of(container2)));
+        port.getMovementStore().addCargoMovement(4, MovementDirection.INBOUND, new int[] {2});
+        assertEquals(3, port.getPendingMovementCount());
+
+        port.elapseOneMinute();
+        assertTrue(port.getCargo().isEmpty());
+        port.elapseOneMinute();
+        // the queued movement is processed before the stored one
+        assertEquals(List.of(container2, container1), port.getCargo());
+        assertEquals(1, port.getPendingMovementCount());
+
+        String encoded = port.encode();
+        assertTrue(encoded.contains("Movements:1" + System.lineSeparator()
+                + "CargoMovement:4:INBOUND:1:2" + System.lineSeparator()));
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        Port loaded = Port.initialisePort(new StringReader(encoded));
+        assertEquals(1, loaded.getPendingMovementCount());
+    }
+}
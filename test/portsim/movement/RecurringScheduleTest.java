@@ -0,0 +1,164 @@
+package portsim.movement;
+
+import org.junit.*;
+import portsim.cargo.Cargo;
+import portsim.port.BulkQuay;
+import portsim.port.Port;
+import portsim.port.ShipQueue;
+import portsim.ship.*;
+import portsim.util.BadEncodingException;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecurringScheduleTest {
+
+    BulkCarrier ship;
+    RecurringSchedule weekly;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        ship = new BulkCarrier(1234567, "Voyager", "Australia", NauticalFlag.NOVEMBER, 100);
+        weekly = new RecurringSchedule(ship, MovementDirection.INBOUND, 100, 30, 530);
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void occurrencesTest() {
+        assertEquals(30, weekly.nextOccurrence(0));
+        assertEquals(30, weekly.nextOccurrence(30));
+        assertEquals(130, weekly.nextOccurrence(31));
+        assertEquals(530, weekly.nextOccurrence(431));
+        assertEquals(-1, weekly.nextOccurrence(531));
+        assertEquals(6, weekly.countOccurrences(0));
+        assertEquals(1, weekly.countOccurrences(500));
+        assertEquals(0, weekly.countOccurrences(531));
+
+        ShipMovement movement = weekly.occurrenceAt(230);
+        assertEquals(230, movement.getTime());
+        assertEquals(MovementDirection.INBOUND, movement.getDirection());
+        assertSame(ship, movement.getShip());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notAnOccurrenceTest() {
+        weekly.occurrenceAt(231);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroPeriodTest() {
+        new RecurringSchedule(ship, MovementDirection.INBOUND, 0, 0, 10);
+    }
+
+    @Test
+    public void encodeTest() throws BadEncodingException {
+        assertEquals("RecurringSchedule:1234567:INBOUND:100:30:530", weekly.encode());
+        RecurringSchedule decoded = RecurringSchedule.fromString(weekly.encode());
+        assertSame(ship, decoded.getShip());
+        assertEquals(MovementDirection.INBOUND, decoded.getDirection());
+        assertEquals(100, decoded.getPeriod());
+        assertEquals(30, decoded.getOffset());
+        assertEquals(530, decoded.getEndTime());
+    }
+
+    @Test(expected = BadEncodingException.class)
+    public void encodeUnknownShipTest() throws BadEncodingException {
+        RecurringSchedule.fromString("RecurringSchedule:7654321:INBOUND:100:30:530");
+    }
+
+    @Test(expected = BadEncodingException.class)
+    public void encodeBadPeriodTest() throws BadEncodingException {
+        RecurringSchedule.fromString("RecurringSchedule:1234567:INBOUND:-5:30:530");
+    }
+
+    @Test
+    public void portExpandsLazilyTest() {
+        Port port = new Port("Brisbane");
+        port.addQuay(new BulkQuay(1, 1000));
+        port.addRecurringSchedule(weekly);
+        RecurringSchedule outbound = new RecurringSchedule(ship, MovementDirection.OUTBOUND,
+                100, 90, 600);
+        port.addRecurringSchedule(outbound);
+        assertEquals(List.of(weekly, outbound), port.getRecurringSchedules());
+
+        for (int minute = 1; minute <= 29; minute++) {
+            port.elapseOneMinute();
+        }
+        // nothing is expanded before it is due
+        assertEquals(0, port.getPendingMovementCount());
+        assertTrue(port.getShipQueue().getShipQueue().isEmpty());
+
+        port.elapseOneMinute();
+        assertEquals(0, port.getPendingMovementCount());
+        assertEquals(List.of(ship), port.getShipQueue().getShipQueue());
+
+        while (port.getTime() < 530) {
+            port.elapseOneMinute();
+        }
+        assertEquals(List.of(outbound), port.getRecurringSchedules());
+        while (port.getTime() < 590) {
+            port.elapseOneMinute();
+        }
+        assertEquals(0, port.getRecurringScheduleCount());
+    }
+
+    @Test
+    public void removeTest() {
+        Port port = new Port("Brisbane");
+        port.addRecurringSchedule(weekly);
+        assertTrue(port.removeRecurringSchedule(weekly));
+        assertFalse(port.removeRecurringSchedule(weekly));
+        for (int minute = 1; minute <= 30; minute++) {
+            port.elapseOneMinute();
+        }
+        assertTrue(port.getShipQueue().getShipQueue().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expiredScheduleTest() {
+        Port port = new Port("Brisbane", 600, new ShipQueue(), new ArrayList<>(),
+                new ArrayList<>());
+        port.addRecurringSchedule(weekly);
+    }
+
+    @Test
+    public void saveTest() throws Exception {
+        Port port = new Port("Brisbane");
+        port.addRecurringSchedule(weekly);
+        for (int minute = 1; minute <= 30; minute++) {
+            port.elapseOneMinute();
+        }
+        String encoded = port.encode();
+        assertTrue(encoded.contains("Movements:0" + System.lineSeparator()
+                + "RecurringSchedules:1" + System.lineSeparator()
+                + "RecurringSchedule:1234567:INBOUND:100:30:530" + System.lineSeparator()
+                + "Evaluators:0:"));
+
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        Port loaded = Port.initialisePort(new StringReader(encoded));
+        assertEquals(1, loaded.getRecurringScheduleCount());
+        assertEquals(encoded, loaded.encode());
+        while (loaded.getTime() < 130) {
+            loaded.elapseOneMinute();
+        }
+        // the occurrence at 30 was processed before saving and is not repeated
+        assertEquals(1, loaded.getShipQueue().getShipQueue().size());
+    }
+
+    @Test
+    public void saveWithoutSchedulesTest() {
+        Port port = new Port("Brisbane");
+        assertFalse(port.encode().contains("RecurringSchedules"));
+    }
+}
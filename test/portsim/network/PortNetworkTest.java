@@ -0,0 +1,307 @@
+package portsim.network;
+
+import org.junit.*;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.ShipQueue;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PortNetworkTest {
+
+    static final String[] COUNTRIES = {"Australia", "Japan", "China", "Singapore"};
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void deliveryTest() {
+        Port brisbane = new Port("Brisbane");
+        Port tokyo = new Port("Tokyo");
+        BulkQuay brisbaneQuay = new BulkQuay(1, 1000);
+        BulkQuay tokyoQuay = new BulkQuay(2, 1000);
+        brisbane.addQuay(brisbaneQuay);
+        tokyo.addQuay(tokyoQuay);
+        BulkCarrier carrier = new BulkCarrier(1000001, "Voyager", "Japan",
+                NauticalFlag.NOVEMBER, 1000);
+        brisbane.getShipQueue().add(carrier);
+        brisbane.addMovement(new ShipMovement(50, MovementDirection.OUTBOUND, carrier));
+
+        PortNetwork network = new PortNetwork(2);
+        network.addPort(brisbane);
+        network.addPort(tokyo);
+        network.addRoute(brisbane, tokyo, 30);
+        assertEquals(30, network.getLookahead());
+
+        network.run(60);
+        assertEquals(60, network.getTime());
+        assertTrue(brisbaneQuay.isEmpty());
+        // at sea until 80, then docks at 90
+        assertEquals(0, network.getShipsDelivered());
+        assertEquals(1, network.getShipsInTransit());
+        assertEquals(0, tokyo.getMovements().size());
+        network.runUntil(85);
+        assertEquals(1, network.getShipsDelivered());
+        assertEquals(0, network.getShipsInTransit());
+        assertEquals(carrier, tokyo.getShipQueue().peek());
+        network.runUntil(90);
+        assertSame(carrier, tokyoQuay.getShip());
+        assertEquals(90, brisbane.getTime());
+        assertEquals(90, tokyo.getTime());
+    }
+
+    @Test
+    public void noRouteTest() {
+        Port brisbane = new Port("Brisbane");
+        BulkQuay quay = new BulkQuay(1, 1000);
+        brisbane.addQuay(quay);
+        BulkCarrier carrier = new BulkCarrier(1000001, "Voyager", "Japan",
+                NauticalFlag.NOVEMBER, 1000);
+        brisbane.getShipQueue().add(carrier);
+        brisbane.addMovement(new ShipMovement(20, MovementDirection.OUTBOUND, carrier));
+
+        PortNetwork network = new PortNetwork(4);
+        network.addPort(brisbane);
+        assertEquals(Long.MAX_VALUE, network.getLookahead());
+        network.run(100);
+        assertEquals(100, brisbane.getTime());
+        assertTrue(quay.isEmpty());
+        assertEquals(0, network.getShipsDelivered());
+    }
+
+    @Test
+    public void portAheadTest() {
+        Port brisbane = new Port("Brisbane");
+        Port tokyo = new Port("Tokyo", 100, new ShipQueue(), new ArrayList<>(),
+                new ArrayList<>());
+        brisbane.addQuay(new BulkQuay(1, 1000));
+        BulkCarrier carrier = new BulkCarrier(1000001, "Voyager", "Japan",
+                NauticalFlag.NOVEMBER, 1000);
+        brisbane.getShipQueue().add(carrier);
+        brisbane.addMovement(new ShipMovement(20, MovementDirection.OUTBOUND, carrier));
+
+        PortNetwork network = new PortNetwork(2);
+        network.addPort(brisbane);
+        network.addPort(tokyo);
+        network.addRoute(brisbane, tokyo, 5);
+        network.runUntil(50);
+        assertEquals(50, brisbane.getTime());
+        assertEquals(100, tokyo.getTime());
+        assertEquals(50, network.getTime());
+        // would have arrived at 25, so arrives as soon as Tokyo moves on
+        network.runUntil(101);
+        assertEquals(carrier, tokyo.getShipQueue().peek());
+    }
+
+    @Test
+    public void deterministicTest() {
+        String single = runRing(new PortNetwork(1));
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        String parallel = runRing(new PortNetwork(4));
+        assertEquals(single, parallel);
+    }
+
+    @Test
+    public void optimisticTest() {
+        String conservative = runRing(new PortNetwork(1));
+        for (int threads : new int[] {1, 4}) {
+            Cargo.resetCargoRegistry();
+            Ship.resetShipRegistry();
+            PortNetwork network = new PortNetwork(threads);
+            network.setSynchronisation(Synchronisation.OPTIMISTIC);
+            network.setOptimismWindow(200);
+            network.setCheckpointInterval(7);
+            assertEquals(conservative, runRing(network));
+            assertTrue(network.getRollbacks() > 0);
+            assertTrue(network.getMinutesRolledBack() > 0);
+            assertTrue(network.getRounds() < 600 / 7);
+        }
+    }
+
+    @Test
+    public void optimisticEvaluatorsRestoredTest() {
+        Port brisbane = new Port("Brisbane");
+        StatisticsEvaluator evaluator = new Recorder(new StringBuilder());
+        brisbane.addStatisticsEvaluator(evaluator);
+        PortNetwork network = new PortNetwork(1);
+        network.setSynchronisation(Synchronisation.OPTIMISTIC);
+        network.addPort(brisbane);
+        network.run(30);
+        assertEquals(List.of(evaluator), brisbane.getEvaluators());
+        assertEquals(30, evaluator.getTime());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void optimisticAsyncEvaluatorsTest() {
+        Port brisbane = new Port("Brisbane");
+        brisbane.enableAsyncEvaluators(16);
+        try {
+            PortNetwork network = new PortNetwork(1);
+            network.setSynchronisation(Synchronisation.OPTIMISTIC);
+            network.addPort(brisbane);
+            network.run(10);
+        } finally {
+            brisbane.disableAsyncEvaluators();
+        }
+    }
+
+    /*
+     * Runs a ring of ports whose ships carry containers from one port to the next, where
+     * some are sent on to the port after, and returns the encoding of every port at the end
+     * followed by every event their evaluators saw.
+     */
+    private String runRing(PortNetwork network) {
+        List<Port> ports = new ArrayList<>();
+        List<StringBuilder> events = new ArrayList<>();
+        int cargoId = 1;
+        for (int p = 0; p < COUNTRIES.length; p++) {
+            Port port = new Port("Port " + p);
+            for (int q = 0; q < 30; q++) {
+                port.addQuay(new ContainerQuay(p * 100 + q, 100));
+            }
+            for (int s = 0; s < 20; s++) {
+                ContainerShip ship = new ContainerShip(1000000 + p * 100 + s, "Ship " + s,
+                        COUNTRIES[(p + 1) % COUNTRIES.length], NauticalFlag.NOVEMBER, 10);
+                port.getShipQueue().add(ship);
+                port.addMovement(new ShipMovement(15 + s * 12, MovementDirection.OUTBOUND,
+                        ship));
+            }
+            for (int c = 0; c < 60; c++) {
+                port.getYard().store(new Container(cargoId++,
+                        COUNTRIES[(p + 1) % COUNTRIES.length], ContainerType.STANDARD));
+            }
+            events.add(new StringBuilder());
+            port.addStatisticsEvaluator(new Recorder(events.get(p)));
+            network.addPort(port);
+            ports.add(port);
+        }
+        // the ships of the previous port move on once they have docked
+        for (int p = 0; p < ports.size(); p++) {
+            Port previous = ports.get((p + ports.size() - 1) % ports.size());
+            for (Ship ship : previous.getShipQueue().getShipQueueView()) {
+                ports.get(p).addMovement(new ShipMovement(300 + (ship.getImoNumber() % 100) * 12,
+                        MovementDirection.OUTBOUND, ship));
+            }
+        }
+        for (int p = 0; p < ports.size(); p++) {
+            network.addRoute(ports.get(p), ports.get((p + 1) % ports.size()), 7 + p);
+        }
+        network.run(300);
+        network.run(300);
+        assertTrue(network.getShipsDelivered() > 0);
+
+        StringBuilder encoded = new StringBuilder();
+        for (Port port : ports) {
+            encoded.append(port.encode()).append('\n');
+        }
+        for (StringBuilder portEvents : events) {
+            encoded.append(portEvents);
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Evaluator recording each movement and tick it sees.
+     */
+    private static class Recorder extends StatisticsEvaluator {
+        final StringBuilder events;
+
+        Recorder(StringBuilder events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onProcessMovement(Movement movement) {
+            events.append(getTime()).append(' ').append(movement).append('\n');
+        }
+    }
+
+    @Test
+    public void failureTest() {
+        Port brisbane = new Port("Brisbane");
+        Port tokyo = new Port("Tokyo");
+        tokyo.addStatisticsEvaluator(new StatisticsEvaluator() {
+            @Override
+            public void onProcessMovement(Movement movement) {
+            }
+
+            @Override
+            public void elapseOneMinute() {
+                super.elapseOneMinute();
+                if (getTime() == 12) {
+                    throw new IllegalStateException("evaluator failed");
+                }
+            }
+        });
+        PortNetwork network = new PortNetwork(2);
+        network.addPort(brisbane);
+        network.addPort(tokyo);
+        network.addRoute(brisbane, tokyo, 10);
+        try {
+            network.run(100);
+            fail("the evaluator's exception should be rethrown");
+        } catch (IllegalStateException expected) {
+            assertEquals("evaluator failed", expected.getMessage());
+        }
+        // both ports stop at the end of the failing window
+        assertEquals(20, brisbane.getTime());
+        assertEquals(12, tokyo.getTime());
+        // the network can run again
+        network.removeRoute(brisbane);
+        assertEquals(Long.MAX_VALUE, network.getLookahead());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicatePortTest() {
+        Port brisbane = new Port("Brisbane");
+        PortNetwork network = new PortNetwork(1);
+        network.addPort(brisbane);
+        network.addPort(brisbane);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPortRouteTest() {
+        PortNetwork network = new PortNetwork(1);
+        Port brisbane = new Port("Brisbane");
+        network.addPort(brisbane);
+        network.addRoute(brisbane, new Port("Tokyo"), 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroTransitTest() {
+        PortNetwork network = new PortNetwork(1);
+        Port brisbane = new Port("Brisbane");
+        network.addPort(brisbane);
+        network.addRoute(brisbane, brisbane, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroThreadsTest() {
+        new PortNetwork(0);
+    }
+}
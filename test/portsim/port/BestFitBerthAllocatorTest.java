@@ -0,0 +1,140 @@
+package portsim.port;
+
+import org.junit.*;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BestFitBerthAllocatorTest {
+
+    Port port;
+    BulkQuay large;
+    BulkQuay small;
+    BulkCarrier light;
+    BulkCarrier heavy;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        port = new Port("Brisbane");
+        large = new BulkQuay(1, 1000);
+        small = new BulkQuay(2, 100);
+        port.addQuay(large);
+        port.addQuay(small);
+        light = carrier(1000001, 50);
+        heavy = carrier(1000002, 500);
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    private BulkCarrier carrier(long imoNumber, int tonnage) {
+        BulkCarrier carrier = new BulkCarrier(imoNumber, "Carrier " + imoNumber, "Australia",
+                NauticalFlag.NOVEMBER, 1000);
+        carrier.loadCargo(new BulkCargo((int) imoNumber, "Australia", tonnage,
+                BulkCargoType.COAL));
+        return carrier;
+    }
+
+    @Test
+    public void bestFitTest() {
+        assertSame(large, BerthAllocator.FIRST_FIT.chooseQuay(light, port));
+        assertSame(small, new BestFitBerthAllocator(0, 1_000_000_000L)
+                .chooseQuay(light, port));
+        // only the large quay fits
+        assertSame(large, new BestFitBerthAllocator(0, 1_000_000_000L)
+                .chooseQuay(heavy, port));
+    }
+
+    @Test
+    public void lookaheadTest() {
+        BulkCarrier docked = carrier(1000003, 80);
+        small.shipArrives(docked);
+        port.addMovement(new ShipMovement(5, MovementDirection.OUTBOUND, docked));
+        port.addMovement(new ShipMovement(3, MovementDirection.INBOUND, heavy));
+
+        // without looking ahead the light ship takes the only empty quay
+        assertSame(large, new BestFitBerthAllocator(0, 1_000_000_000L)
+                .chooseQuay(light, port));
+        // the heavy ship would find no quay, but the light ship can wait for the small one
+        assertNull(new BestFitBerthAllocator(20, 1_000_000_000L).chooseQuay(light, port));
+        // the small quay is not free in time for the next docking
+        assertSame(large, new BestFitBerthAllocator(2, 1_000_000_000L)
+                .chooseQuay(light, port));
+    }
+
+    @Test
+    public void dockOnceTest() {
+        port.getShipQueue().add(light);
+        for (int i = 0; i < 10; i++) {
+            port.elapseOneMinute();
+        }
+        assertSame(light, large.getShip());
+        assertTrue(small.isEmpty());
+    }
+
+    @Test
+    public void waitingShipRequeuedTest() {
+        port.setBerthAllocator((ship, p) -> null);
+        port.getShipQueue().add(light);
+        port.getShipQueue().add(heavy);
+        for (int i = 0; i < 10; i++) {
+            port.elapseOneMinute();
+        }
+        assertTrue(large.isEmpty());
+        assertTrue(small.isEmpty());
+        // the waiting ship keeps its place in the queue
+        assertEquals(List.of(light, heavy), port.getShipQueue().getShipQueue());
+
+        port.setBerthAllocator(new BestFitBerthAllocator(0, 1_000_000_000L));
+        for (int i = 0; i < 10; i++) {
+            port.elapseOneMinute();
+        }
+        assertSame(light, small.getShip());
+        assertEquals(List.of(heavy), port.getShipQueue().getShipQueue());
+    }
+
+    @Test
+    public void budgetTest() {
+        BulkCarrier docked = carrier(1000003, 80);
+        small.shipArrives(docked);
+        port.addMovement(new ShipMovement(5, MovementDirection.OUTBOUND, docked));
+        port.addMovement(new ShipMovement(3, MovementDirection.INBOUND, heavy));
+
+        // playing out one arrival at both quays takes 4 fit checks, for each of the large quay
+        // and waiting
+        assertNull(new BestFitBerthAllocator(20, 8).chooseQuay(light, port));
+        // waiting is not tried, so the best fitting quay tried is chosen
+        assertSame(large, new BestFitBerthAllocator(20, 7).chooseQuay(light, port));
+        // nothing is tried, so the best fitting quay is chosen
+        assertSame(large, new BestFitBerthAllocator(20, 3).chooseQuay(light, port));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeHorizonTest() {
+        new BestFitBerthAllocator(-1, 1_000_000_000L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroBudgetTest() {
+        new BestFitBerthAllocator(10, 0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullAllocatorTest() {
+        port.setBerthAllocator(null);
+    }
+}
@@ -0,0 +1,396 @@
+package portsim.port;
+
+import org.junit.*;
+import portsim.cargo.*;
+import portsim.ship.*;
+import portsim.util.CountryDictionary;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class CargoYardTest {
+
+    static final int AUSTRALIA = CountryDictionary.code("Australia");
+
+    CargoYard yard;
+    Container standard;
+    Container reefer;
+    BulkCargo coal;
+    BulkCargo oil;
+
+    @Before
+    public void setUp() throws Exception {
+        yard = new CargoYard();
+        standard = new Container(1, "Australia", ContainerType.STANDARD);
+        reefer = new Container(2, "Japan", ContainerType.REEFER);
+        coal = new BulkCargo(3, "Australia", 100, BulkCargoType.COAL);
+        oil = new BulkCargo(4, "China", 250, BulkCargoType.OIL);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void storeAndRemoveTest() {
+        assertTrue(yard.isEmpty());
+        assertTrue(yard.store(standard));
+        assertTrue(yard.store(coal));
+        assertTrue(yard.contains(standard));
+        assertEquals(2, yard.size());
+
+        // cargo is held once only
+        assertFalse(yard.store(standard));
+        assertEquals(2, yard.size());
+
+        assertTrue(yard.remove(standard));
+        assertFalse(yard.remove(standard));
+        assertFalse(yard.contains(standard));
+        assertEquals(1, yard.size());
+    }
+
+    @Test
+    public void nullFieldsTest() {
+        // the baseline accepted cargo without a destination or type
+        Container untyped = new Container(5, null, ContainerType.STANDARD);
+        BulkCargo unknown = new BulkCargo(6, "Japan", 5, null);
+        assertTrue(yard.store(untyped));
+        assertTrue(yard.store(unknown));
+        assertTrue(yard.contains(untyped));
+        assertTrue(yard.contains(unknown));
+        assertFalse(yard.store(untyped));
+
+        Cargo.resetCargoRegistry();
+        Container same = new Container(5, null, ContainerType.STANDARD);
+        BulkCargo sameBulk = new BulkCargo(6, "Japan", 5, null);
+        assertEquals(untyped, same);
+        assertEquals(untyped.hashCode(), same.hashCode());
+        assertEquals(unknown, sameBulk);
+        assertEquals(unknown.hashCode(), sameBulk.hashCode());
+        assertNotEquals(untyped, standard);
+        assertNotEquals(unknown, new BulkCargo(7, "Japan", 5, BulkCargoType.COAL));
+    }
+
+    @Test
+    public void orderTest() {
+        yard.store(oil);
+        yard.store(standard);
+        yard.store(coal);
+        yard.remove(standard);
+        yard.store(reefer);
+        assertEquals(List.of(oil, coal, reefer), new ArrayList<>(yard.getCargoView()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void viewReadOnlyTest() {
+        yard.getCargoView().add(standard);
+    }
+
+    @Test
+    public void statisticsTest() {
+        assertEquals(4, yard.storeAll(List.of(standard, reefer, coal, oil)));
+        assertEquals(0, yard.storeAll(List.of(standard, coal)));
+        assertEquals(2, yard.getContainerCount());
+        assertEquals(1, yard.getContainerCount(ContainerType.REEFER));
+        assertEquals(0, yard.getContainerCount(ContainerType.TANKER));
+        assertEquals(2, yard.getBulkCargoCount());
+        assertEquals(1, yard.getBulkCargoCount(BulkCargoType.OIL));
+        assertEquals(350, yard.getTonnage());
+        assertEquals(100, yard.getTonnage(BulkCargoType.COAL));
+
+        yard.remove(oil);
+        yard.remove(reefer);
+        assertEquals(1, yard.getContainerCount());
+        assertEquals(0, yard.getContainerCount(ContainerType.REEFER));
+        assertEquals(1, yard.getBulkCargoCount());
+        assertEquals(100, yard.getTonnage());
+        assertEquals(0, yard.getTonnage(BulkCargoType.OIL));
+    }
+
+    @Test
+    public void unloadContainerShipTest() {
+        ContainerShip ship = new ContainerShip(1234567, "Evergreen", "Australia",
+                NauticalFlag.NOVEMBER, 10);
+        ship.loadCargo(standard);
+        ship.loadCargo(reefer);
+        assertEquals(2, ship.unloadCargoInto(yard));
+        assertEquals(0, ship.getCargo().size());
+        assertEquals(List.of(standard, reefer), new ArrayList<>(yard.getCargoView()));
+        assertEquals(0, ship.unloadCargoInto(yard));
+    }
+
+    @Test
+    public void unloadBulkCarrierTest() {
+        BulkCarrier ship = new BulkCarrier(1234567, "Evergreen", "Australia",
+                NauticalFlag.NOVEMBER, 500);
+        ship.loadCargo(oil);
+        assertEquals(1, ship.unloadCargoInto(yard));
+        assertNull(ship.getCargo());
+        assertEquals(250, yard.getTonnage(BulkCargoType.OIL));
+        assertEquals(0, ship.unloadCargoInto(yard));
+    }
+
+    @Test
+    public void takeContainersTest() {
+        Container second = new Container(5, "Australia", ContainerType.TANKER);
+        Container third = new Container(6, "Australia", ContainerType.STANDARD);
+        yard.storeAll(List.of(standard, reefer, coal, second, third));
+        List<Container> taken = new ArrayList<>();
+        assertEquals(2, yard.takeContainers(AUSTRALIA, 2, taken));
+        assertEquals(List.of(standard, second), taken);
+        assertFalse(yard.contains(standard));
+        assertEquals(3, yard.size());
+        assertEquals(2, yard.getContainerCount());
+        assertEquals(0, yard.getContainerCount(ContainerType.TANKER));
+
+        assertEquals(1, yard.takeContainers(AUSTRALIA, 5, taken));
+        assertEquals(0, yard.takeContainers(AUSTRALIA, 5, taken));
+        assertEquals(0, yard.takeContainers(CountryDictionary.lookup("Nowhere"), 5, taken));
+        assertEquals(List.of(reefer, coal), new ArrayList<>(yard.getCargoView()));
+    }
+
+    @Test
+    public void takeBulkCargoTest() {
+        BulkCargo heavy = new BulkCargo(5, "Australia", 400, BulkCargoType.OIL);
+        BulkCargo light = new BulkCargo(6, "Australia", 50, BulkCargoType.GRAIN);
+        BulkCargo same = new BulkCargo(7, "Australia", 100, BulkCargoType.MINERALS);
+        yard.storeAll(List.of(heavy, coal, light, same, oil));
+
+        // heaviest lot that fits, oldest first among equal tonnage
+        assertEquals(coal, yard.takeBulkCargo(AUSTRALIA, 399));
+        assertEquals(same, yard.takeBulkCargo(AUSTRALIA, 399));
+        assertEquals(light, yard.takeBulkCargo(AUSTRALIA, 399));
+        assertNull(yard.takeBulkCargo(AUSTRALIA, 399));
+        assertNull(yard.takeBulkCargo(CountryDictionary.lookup("Nowhere"), 1000));
+        assertEquals(heavy, yard.takeBulkCargo(AUSTRALIA, 1000));
+        assertEquals(List.of(oil), new ArrayList<>(yard.getCargoView()));
+        assertEquals(250, yard.getTonnage());
+    }
+
+    @Test
+    public void removeUpdatesIndexesTest() {
+        yard.storeAll(List.of(standard, coal));
+        yard.remove(standard);
+        yard.remove(coal);
+        assertEquals(0, yard.takeContainers(AUSTRALIA, 5, new ArrayList<>()));
+        assertNull(yard.takeBulkCargo(AUSTRALIA, 1000));
+    }
+
+    @Test
+    public void loadContainerShipTest() {
+        ContainerShip ship = new ContainerShip(1234567, "Evergreen", "Australia",
+                NauticalFlag.NOVEMBER, 2);
+        Container second = new Container(5, "Australia", ContainerType.TANKER);
+        Container third = new Container(6, "Australia", ContainerType.STANDARD);
+        yard.storeAll(List.of(standard, reefer, second, third, coal));
+        assertEquals(2, ship.loadCargoFrom(yard));
+        assertEquals(List.of(standard, second), ship.getCargo());
+        assertEquals(0, ship.loadCargoFrom(yard));
+        assertTrue(yard.contains(third));
+    }
+
+    @Test
+    public void loadBulkCarrierTest() {
+        BulkCarrier ship = new BulkCarrier(1234567, "Evergreen", "Australia",
+                NauticalFlag.NOVEMBER, 150);
+        yard.storeAll(List.of(standard, coal));
+        assertEquals(1, ship.loadCargoFrom(yard));
+        assertEquals(coal, ship.getCargo());
+        assertFalse(yard.contains(coal));
+        yard.store(new BulkCargo(5, "Australia", 10, BulkCargoType.GRAIN));
+        assertEquals(0, ship.loadCargoFrom(yard));
+    }
+
+    @Test
+    public void resetTest() {
+        yard.storeAll(List.of(oil, standard, coal));
+        CargoYard.Mark mark = yard.mark();
+        yard.remove(standard);
+        yard.store(reefer);
+        yard.takeBulkCargo(AUSTRALIA, 1000);
+        yard.store(standard);
+        assertEquals(List.of(oil, reefer, standard), new ArrayList<>(yard.getCargoView()));
+
+        yard.reset(mark);
+        assertEquals(List.of(oil, standard, coal), new ArrayList<>(yard.getCargoView()));
+        assertEquals(CargoLocation.YARD, coal.getLocation());
+        assertEquals(CargoLocation.NONE, reefer.getLocation());
+        assertEquals(1, yard.getContainerCount());
+        assertEquals(coal, yard.takeBulkCargo(AUSTRALIA, 1000));
+    }
+
+    @Test
+    public void resetStoresOnlyTest() {
+        yard.store(oil);
+        CargoYard.Mark mark = yard.mark();
+        yard.store(standard);
+        yard.store(coal);
+        yard.reset(mark);
+        assertEquals(List.of(oil), new ArrayList<>(yard.getCargoView()));
+        assertEquals(CargoLocation.NONE, standard.getLocation());
+        assertEquals(0, yard.takeContainers(AUSTRALIA, 5, new ArrayList<>()));
+    }
+
+    @Test
+    public void resetDiscardsLaterMarksTest() {
+        CargoYard.Mark first = yard.mark();
+        yard.store(standard);
+        CargoYard.Mark second = yard.mark();
+        yard.store(coal);
+        yard.reset(first);
+        assertTrue(yard.isEmpty());
+        try {
+            yard.reset(second);
+            fail("the second mark should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void discardBeforeTest() {
+        yard.store(standard);
+        CargoYard.Mark first = yard.mark();
+        yard.remove(standard);
+        yard.store(coal);
+        yard.store(oil);
+        CargoYard.Mark second = yard.mark();
+        yard.remove(coal);
+        yard.discardBefore(second);
+        yard.reset(second);
+        assertEquals(List.of(coal, oil), new ArrayList<>(yard.getCargoView()));
+        try {
+            yard.reset(first);
+            fail("the first mark should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+        yard.discardHistory();
+        try {
+            yard.reset(second);
+            fail("the history should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void forkTest() {
+        yard.storeAll(List.of(oil, standard, coal));
+        CargoYard fork = yard.fork();
+        assertEquals(List.of(oil, standard, coal), new ArrayList<>(fork.getCargoView()));
+        assertEquals(1, fork.getContainerCount());
+        assertEquals(350, fork.getTonnage());
+
+        // each yard changes without changing the other
+        fork.remove(standard);
+        fork.store(reefer);
+        yard.remove(oil);
+        assertEquals(List.of(oil, coal, reefer), new ArrayList<>(fork.getCargoView()));
+        assertEquals(List.of(standard, coal), new ArrayList<>(yard.getCargoView()));
+        assertFalse(fork.contains(standard));
+        assertTrue(yard.contains(standard));
+        assertEquals(3, fork.size());
+        assertEquals(2, yard.size());
+        assertEquals(350, fork.getTonnage());
+        assertEquals(100, yard.getTonnage());
+
+        // cargo stored again is held last
+        fork.store(standard);
+        assertEquals(List.of(oil, coal, reefer, standard), new ArrayList<>(fork.getCargoView()));
+        assertFalse(fork.store(coal));
+
+        // the fork leaves the cargo's location as the yard recorded it
+        assertEquals(CargoLocation.YARD, standard.getLocation());
+        assertSame(yard, standard.getHolder());
+        assertEquals(CargoLocation.NONE, reefer.getLocation());
+    }
+
+    @Test
+    public void forkTakeTest() {
+        Container second = new Container(5, "Australia", ContainerType.TANKER);
+        Container third = new Container(6, "Australia", ContainerType.STANDARD);
+        BulkCargo grain = new BulkCargo(7, "Australia", 100, BulkCargoType.GRAIN);
+        BulkCargo ore = new BulkCargo(8, "Australia", 120, BulkCargoType.MINERALS);
+        yard.storeAll(List.of(standard, second, coal));
+        CargoYard fork = yard.fork();
+        fork.store(third);
+        fork.store(grain);
+        fork.remove(standard);
+
+        List<Container> taken = new ArrayList<>();
+        assertEquals(2, fork.takeContainers(AUSTRALIA, 5, taken));
+        assertEquals(List.of(second, third), taken);
+        // of two lots of the same tonnage the shared one was stored first
+        assertEquals(coal, fork.takeBulkCargo(AUSTRALIA, 110));
+        assertEquals(grain, fork.takeBulkCargo(AUSTRALIA, 110));
+        assertNull(fork.takeBulkCargo(AUSTRALIA, 110));
+        fork.store(ore);
+        assertEquals(ore, fork.takeBulkCargo(AUSTRALIA, 1000));
+        assertTrue(fork.isEmpty());
+
+        // the yard still holds what it held when forked
+        assertEquals(List.of(standard, second, coal), new ArrayList<>(yard.getCargoView()));
+        assertEquals(CargoLocation.YARD, second.getLocation());
+        taken.clear();
+        assertEquals(2, yard.takeContainers(AUSTRALIA, 5, taken));
+        assertEquals(List.of(standard, second), taken);
+        assertEquals(CargoLocation.NONE, second.getLocation());
+    }
+
+    @Test
+    public void forkStopsSharingTest() {
+        List<Container> stored = new ArrayList<>();
+        for (int c = 10; c < 40; c++) {
+            stored.add(new Container(c, c % 2 == 0 ? "Australia" : "Japan",
+                    ContainerType.STANDARD));
+        }
+        yard.storeAll(stored);
+        CargoYard fork = yard.fork();
+        CargoYard second = fork.fork();
+        // more changes than the cargo shared
+        for (int c = 0; c < stored.size(); c += 3) {
+            fork.remove(stored.get(c));
+        }
+        List<Container> added = new ArrayList<>();
+        for (int c = 40; c < 70; c++) {
+            added.add(new Container(c, "Australia", ContainerType.REEFER));
+        }
+        fork.storeAll(added);
+
+        List<Cargo> expected = new ArrayList<>();
+        for (int c = 0; c < stored.size(); c++) {
+            if (c % 3 != 0) {
+                expected.add(stored.get(c));
+            }
+        }
+        expected.addAll(added);
+        assertEquals(expected, new ArrayList<>(fork.getCargoView()));
+        assertEquals(expected.size(), fork.size());
+        assertEquals(30, fork.getContainerCount(ContainerType.REEFER));
+        List<Container> taken = new ArrayList<>();
+        fork.takeContainers(AUSTRALIA, 3, taken);
+        assertEquals(List.of(stored.get(2), stored.get(4), stored.get(8)), taken);
+
+        assertEquals(stored, new ArrayList<>(yard.getCargoView()));
+        assertEquals(stored, new ArrayList<>(second.getCargoView()));
+    }
+
+    @Test
+    public void forkResetTest() {
+        yard.storeAll(List.of(oil, standard));
+        CargoYard.Mark mark = yard.mark();
+        CargoYard fork = yard.fork();
+        yard.remove(oil);
+        yard.store(coal);
+        yard.reset(mark);
+        assertEquals(List.of(oil, standard), new ArrayList<>(yard.getCargoView()));
+        assertEquals(CargoLocation.NONE, coal.getLocation());
+
+        fork.store(coal);
+        CargoYard.Mark forkMark = fork.mark();
+        fork.remove(oil);
+        fork.reset(forkMark);
+        assertEquals(List.of(oil, standard, coal), new ArrayList<>(fork.getCargoView()));
+        assertEquals(CargoLocation.NONE, coal.getLocation());
+    }
+}
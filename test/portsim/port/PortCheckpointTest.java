@@ -0,0 +1,170 @@
+package portsim.port;
+
+import org.junit.*;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.MovementHandle;
+import portsim.movement.RecurringSchedule;
+import portsim.movement.ShipMovement;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PortCheckpointTest {
+
+    Port port;
+    List<ContainerShip> ships;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        port = new Port("Brisbane");
+        port.addQuay(new ContainerQuay(1, 100));
+        port.addQuay(new ContainerQuay(2, 100));
+        ships = new ArrayList<>();
+        for (int s = 0; s < 6; s++) {
+            ContainerShip ship = new ContainerShip(1000001 + s, "Ship " + s,
+                    s % 2 == 0 ? "Japan" : "China", NauticalFlag.NOVEMBER, 10);
+            ships.add(ship);
+        }
+        for (int c = 0; c < 20; c++) {
+            port.getYard().store(new Container(c, c % 2 == 0 ? "Japan" : "China",
+                    ContainerType.STANDARD));
+        }
+        ships.get(0).loadCargo(new Container(100, "Australia", ContainerType.STANDARD));
+        for (int s = 0; s < 3; s++) {
+            port.getShipQueue().add(ships.get(s));
+            port.addMovement(new ShipMovement(25 + s * 20, MovementDirection.OUTBOUND,
+                    ships.get(s)));
+        }
+        port.addMovement(new ShipMovement(35, MovementDirection.INBOUND, ships.get(3)));
+        port.addMovement(new ShipMovement(90, MovementDirection.OUTBOUND, ships.get(3)));
+        List<Cargo> inbound = new ArrayList<>();
+        inbound.add(new Container(101, "China", ContainerType.STANDARD));
+        port.addMovement(new CargoMovement(40, MovementDirection.INBOUND, inbound));
+        port.addRecurringSchedule(new RecurringSchedule(ships.get(4), MovementDirection.INBOUND,
+                50, 15, 200));
+        port.addRecurringSchedule(new RecurringSchedule(ships.get(5), MovementDirection.INBOUND,
+                70, 5, 200));
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    private void elapse(int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            port.elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void restoreTest() {
+        elapse(12);
+        String atCheckpoint = port.encode();
+        PortCheckpoint checkpoint = port.checkpoint();
+        assertEquals(12, checkpoint.getTime());
+        assertSame(port, checkpoint.getPort());
+
+        elapse(150);
+        String ahead = port.encode();
+        assertNotEquals(atCheckpoint, ahead);
+
+        port.restore(checkpoint);
+        assertEquals(atCheckpoint, port.encode());
+        // replaying from the checkpoint repeats what the port did
+        elapse(150);
+        assertEquals(ahead, port.encode());
+    }
+
+    @Test
+    public void restoreTwiceTest() {
+        PortCheckpoint checkpoint = port.checkpoint();
+        String start = port.encode();
+        elapse(40);
+        port.restore(checkpoint);
+        elapse(80);
+        port.restore(checkpoint);
+        assertEquals(start, port.encode());
+        assertEquals(0, port.getTime());
+    }
+
+    @Test
+    public void departedShipCargoRestoredTest() {
+        elapse(24);
+        PortCheckpoint checkpoint = port.checkpoint();
+        List<Cargo> before = ships.get(0).getCargoOnBoard();
+        // the ship loads cargo bound for Japan and departs
+        elapse(10);
+        assertNotEquals(before, ships.get(0).getCargoOnBoard());
+        port.restore(checkpoint);
+        assertEquals(before, ships.get(0).getCargoOnBoard());
+    }
+
+    @Test
+    public void discardTest() {
+        PortCheckpoint first = port.checkpoint();
+        elapse(30);
+        PortCheckpoint second = port.checkpoint();
+        elapse(30);
+        port.discardCheckpointsBefore(second);
+        port.restore(second);
+        assertEquals(30, port.getTime());
+        try {
+            port.restore(first);
+            fail("the first checkpoint should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+        port.discardCheckpoints();
+        try {
+            port.restore(second);
+            fail("every checkpoint should have been discarded");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void movementsRestoredTest() {
+        MovementHandle later = port.scheduleMovement(new ShipMovement(60,
+                MovementDirection.OUTBOUND, ships.get(4)));
+        MovementHandle cancelled = port.scheduleMovement(new ShipMovement(65,
+                MovementDirection.OUTBOUND, ships.get(5)));
+        port.getMovementStore().add(new ShipMovement(45, MovementDirection.OUTBOUND,
+                ships.get(1)));
+        elapse(10);
+        String atCheckpoint = port.encode();
+        PortCheckpoint checkpoint = port.checkpoint();
+
+        port.rescheduleMovement(later, 20);
+        port.cancelMovement(cancelled);
+        port.getMovementStore().addCargoMovement(30, MovementDirection.INBOUND,
+                new int[] {0});
+        elapse(50);
+        assertFalse(later.isPending());
+
+        port.restore(checkpoint);
+        assertEquals(atCheckpoint, port.encode());
+        // the handles refer to the restored movements
+        assertTrue(later.isPending());
+        assertTrue(cancelled.isPending());
+        assertEquals(60, later.getMovement().getTime());
+        assertEquals(1, port.getMovementStore().size());
+        assertTrue(port.cancelMovement(cancelled));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherPortTest() {
+        new Port("Tokyo").restore(port.checkpoint());
+    }
+}
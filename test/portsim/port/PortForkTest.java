@@ -0,0 +1,333 @@
+package portsim.port;
+
+import org.junit.*;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.CargoLocation;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.EvaluatorReport;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.RecurringSchedule;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class PortForkTest {
+
+    Port port;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        port = build();
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    private static Port build() {
+        Port port = new Port("Brisbane");
+        port.addQuay(new ContainerQuay(0, 100));
+        port.addQuay(new ContainerQuay(1, 100));
+        port.addQuay(new BulkQuay(2, 1000));
+        for (int s = 0; s < 10; s++) {
+            Ship ship;
+            if (s % 4 == 3) {
+                BulkCarrier carrier = new BulkCarrier(1000001 + s, "Carrier " + s, "China",
+                        NauticalFlag.HOTEL, 500);
+                carrier.loadCargo(new BulkCargo(1000 + s, "Australia", 200,
+                        BulkCargoType.COAL));
+                ship = carrier;
+            } else {
+                ContainerShip containerShip = new ContainerShip(1000001 + s, "Ship " + s,
+                        s % 2 == 0 ? "Japan" : "China", NauticalFlag.NOVEMBER, 8);
+                for (int c = 0; c < 3; c++) {
+                    containerShip.loadCargo(new Container(1000 + s * 10 + c, "Australia",
+                            ContainerType.STANDARD));
+                }
+                ship = containerShip;
+            }
+            port.addMovement(new ShipMovement(10 + s * 20, MovementDirection.INBOUND, ship));
+            port.addMovement(new ShipMovement(90 + s * 20, MovementDirection.OUTBOUND, ship));
+        }
+        for (int c = 0; c < 60; c++) {
+            port.getYard().store(new Container(c, c % 2 == 0 ? "Japan" : "China",
+                    ContainerType.STANDARD));
+        }
+        port.getYard().store(new BulkCargo(60, "China", 300, BulkCargoType.GRAIN));
+        List<Cargo> inbound = new ArrayList<>();
+        for (int c = 61; c < 70; c++) {
+            inbound.add(new Container(c, "Japan", ContainerType.REEFER));
+        }
+        port.addMovement(new CargoMovement(45, MovementDirection.INBOUND, inbound));
+        ContainerShip liner = new ContainerShip(1000050, "Liner", "Japan",
+                NauticalFlag.WHISKEY, 10);
+        port.addRecurringSchedule(new RecurringSchedule(liner, MovementDirection.INBOUND,
+                120, 15, 400));
+        port.addRecurringSchedule(new RecurringSchedule(liner, MovementDirection.OUTBOUND,
+                120, 75, 400));
+        port.addStatisticsEvaluator(new QuayOccupancyEvaluator(port));
+        port.addStatisticsEvaluator(new ShipFlagEvaluator());
+        port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+        port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+        return port;
+    }
+
+    private static void elapse(Port port, int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            port.elapseOneMinute();
+        }
+    }
+
+    /* A ship as its IMO number and the IDs of its cargo onboard */
+    private static String describe(Ship ship) {
+        StringBuilder description = new StringBuilder().append(ship.getImoNumber());
+        for (Cargo cargo : ship.getCargoOnBoard()) {
+            description.append(' ').append(cargo.getId());
+        }
+        return description.toString();
+    }
+
+    /* Everything the port's state is compared by */
+    private static List<Object> state(Port port) {
+        List<Object> state = new ArrayList<>();
+        state.add(port.getTime());
+        for (Quay quay : port.getQuays()) {
+            state.add(quay.isEmpty() ? null : describe(quay.getShip()));
+        }
+        for (Ship ship : port.getShipQueue().getShipQueue()) {
+            state.add(describe(ship));
+        }
+        List<Integer> stored = new ArrayList<>();
+        for (Cargo cargo : port.getCargoView()) {
+            stored.add(cargo.getId());
+        }
+        state.add(stored);
+        state.add(port.getYard().getContainerCount());
+        state.add(port.getYard().getTonnage());
+        List<String> movements = new ArrayList<>();
+        for (Movement movement : port.getMovementsBetween(0, Long.MAX_VALUE)) {
+            movements.add(movement.toString());
+        }
+        state.add(movements);
+        state.add(port.getRecurringScheduleCount());
+        for (StatisticsEvaluator eval : port.getEvaluators()) {
+            state.add(EvaluatorReport.tabulate(eval));
+            state.add(eval.getTime());
+        }
+        return state;
+    }
+
+    /* Reschedules the ship's next movement in the direction to later by the given minutes */
+    private static void delay(Port port, long imoNumber, MovementDirection direction,
+                              long minutes) {
+        for (ShipMovement movement : port.getShipMovements(imoNumber, port.getTime(),
+                Long.MAX_VALUE)) {
+            if (movement.getDirection() == direction) {
+                port.getMovements().remove(movement);
+                port.addMovement(new ShipMovement(movement.getTime() + minutes, direction,
+                        movement.getShip()));
+                return;
+            }
+        }
+        fail("no movement to delay");
+    }
+
+    @Test
+    public void forkMatchesTest() {
+        elapse(port, 40);
+        Port fork = port.fork();
+        assertEquals(state(port), state(fork));
+        assertEquals(port.getName(), fork.getName());
+        assertSame(port.getBerthAllocator(), fork.getBerthAllocator());
+
+        elapse(port, 300);
+        elapse(fork, 300);
+        assertEquals(state(port), state(fork));
+    }
+
+    @Test
+    public void forkIsIndependentTest() throws Exception {
+        elapse(port, 40);
+        Port fork = port.fork();
+        // the fork's movements and ships are its own
+        Ship docked = port.getQuays().get(0).getShip();
+        Ship forkDocked = fork.getQuays().get(0).getShip();
+        assertEquals(docked, forkDocked);
+        assertNotSame(docked, forkDocked);
+        assertSame(docked, Ship.getShipByImoNumber(docked.getImoNumber()));
+
+        List<CargoLocation> locations = new ArrayList<>();
+        for (Cargo cargo : Cargo.getCargoRegistry().values()) {
+            locations.add(cargo.getLocation());
+        }
+        String encoded = port.encode();
+
+        // what if the ship due to arrive next were four hours late
+        delay(fork, 1000004, MovementDirection.INBOUND, 240);
+        delay(fork, 1000004, MovementDirection.OUTBOUND, 240);
+        elapse(fork, 200);
+        assertEquals(encoded, port.encode());
+        List<CargoLocation> after = new ArrayList<>();
+        for (Cargo cargo : Cargo.getCargoRegistry().values()) {
+            after.add(cargo.getLocation());
+        }
+        assertEquals(locations, after);
+
+        elapse(port, 200);
+        List<Object> forked = state(port);
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        Port unforked = build();
+        elapse(unforked, 240);
+        assertEquals(state(unforked), forked);
+        assertNotEquals(forked, state(fork));
+    }
+
+    @Test
+    public void parallelForksTest() throws Exception {
+        elapse(port, 40);
+        List<Port> forks = new ArrayList<>();
+        for (int s = 0; s < 8; s++) {
+            Port fork = port.fork();
+            delay(fork, 1000003 + s, MovementDirection.INBOUND, 60 * s);
+            forks.add(fork);
+        }
+        List<Port> sequential = new ArrayList<>();
+        for (Port fork : forks) {
+            sequential.add(fork.fork());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (Port fork : forks) {
+                runs.add(executor.submit(() -> elapse(fork, 300)));
+            }
+            elapse(port, 300);
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int s = 0; s < forks.size(); s++) {
+            elapse(sequential.get(s), 300);
+            assertEquals(state(sequential.get(s)), state(forks.get(s)));
+        }
+        // without a delay the fork matches the port
+        assertEquals(state(port), state(forks.get(0)));
+    }
+
+    @Test
+    public void forkOfForkTest() {
+        elapse(port, 40);
+        Port fork = port.fork();
+        elapse(fork, 50);
+        Port second = fork.fork();
+        assertEquals(state(fork), state(second));
+        elapse(fork, 200);
+        elapse(second, 200);
+        elapse(port, 250);
+        assertEquals(state(fork), state(second));
+        assertEquals(state(port), state(second));
+    }
+
+    /* The state of the port, without the statistics evaluators not restored by checkpoints */
+    private static List<Object> restoredState(Port port) {
+        List<Object> state = state(port);
+        return state.subList(0, state.size() - 2 * port.getEvaluators().size());
+    }
+
+    @Test
+    public void forkWithCheckpointTest() {
+        elapse(port, 40);
+        PortCheckpoint checkpoint = port.checkpoint();
+        Port fork = port.fork();
+        List<Object> atFork = restoredState(fork);
+        elapse(port, 100);
+        port.restore(checkpoint);
+        assertEquals(atFork, restoredState(port));
+
+        PortCheckpoint forkCheckpoint = fork.checkpoint();
+        elapse(fork, 100);
+        fork.restore(forkCheckpoint);
+        assertEquals(atFork, restoredState(fork));
+    }
+
+    /* The ship with the given IMO number docked or queued at the port, or null */
+    private static Ship located(Port port, long imoNumber) {
+        for (Quay quay : port.getQuays()) {
+            if (!quay.isEmpty() && quay.getShip().getImoNumber() == imoNumber) {
+                return quay.getShip();
+            }
+        }
+        for (Ship ship : port.getShipQueue().getShipQueue()) {
+            if (ship.getImoNumber() == imoNumber) {
+                return ship;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void shipsMetLaterTest() {
+        ContainerShip stored = new ContainerShip(1000070, "Stored", "Japan",
+                NauticalFlag.WHISKEY, 8);
+        ContainerShip late = new ContainerShip(1000071, "Late", "China",
+                NauticalFlag.NOVEMBER, 8);
+        port.getMovementStore().add(new ShipMovement(45, MovementDirection.INBOUND, stored));
+        // room for both ships whatever else is docked
+        port.addQuay(new ContainerQuay(3, 100));
+        port.addQuay(new ContainerQuay(4, 100));
+        elapse(port, 40);
+        Port fork = port.fork();
+        fork.addMovement(new ShipMovement(42, MovementDirection.INBOUND, late));
+        elapse(port, 10);
+        elapse(fork, 10);
+
+        // each moves its own copy of the ship due from the movement store
+        assertSame(stored, located(port, 1000070));
+        Ship forkStored = located(fork, 1000070);
+        assertEquals(stored, forkStored);
+        assertNotSame(stored, forkStored);
+        // and the fork copies a ship it meets after it was forked
+        assertNull(located(port, 1000071));
+        Ship forkLate = located(fork, 1000071);
+        assertEquals(late, forkLate);
+        assertNotSame(late, forkLate);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void evaluatorNotCopiedTest() {
+        port.addStatisticsEvaluator(new StatisticsEvaluator() {
+            @Override
+            public void onProcessMovement(Movement movement) {
+            }
+        });
+        port.fork();
+    }
+}
@@ -421,6 +421,27 @@ public class ShipQueueTest {
         assertEquals(1,shipQueue.getShipQueue().size());
     }
 
+    @Test
+    public void getShipQueueViewTest() {
+        List<Ship> view = shipQueue.getShipQueueView();
+        assertEquals(0, view.size());
+
+        // the view follows ships added and polled later
+        shipQueue.add(defaultContainerShip);
+        shipQueue.add(readyBulkCarrier);
+        assertEquals(2, view.size());
+        assertEquals(defaultContainerShip, view.get(0));
+        assertEquals(readyBulkCarrier, view.get(1));
+        shipQueue.poll();
+        assertEquals(1, view.size());
+        assertSame(view, shipQueue.getShipQueueView());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getShipQueueViewReadOnlyTest() {
+        shipQueue.getShipQueueView().add(defaultContainerShip);
+    }
+
     // two empty ship queue
     @Test
     public void equalsTest1() {
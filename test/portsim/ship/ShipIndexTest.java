@@ -0,0 +1,114 @@
+package portsim.ship;
+
+import org.junit.*;
+import portsim.cargo.Cargo;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ShipIndexTest {
+
+    ShipIndex index;
+    ContainerShip evergreen;
+    ContainerShip everGiven;
+    BulkCarrier voyager;
+    BulkCarrier evening;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        index = Ship.getShipIndex();
+        evergreen = new ContainerShip(1000001, "Evergreen", "Australia",
+                NauticalFlag.NOVEMBER, 10);
+        voyager = new BulkCarrier(1000002, "Voyager", "Japan", NauticalFlag.BRAVO, 100);
+        everGiven = new ContainerShip(1000003, "Ever Given", "Japan", NauticalFlag.BRAVO, 10);
+        evening = new BulkCarrier(1000004, "evening", "Australia", NauticalFlag.HOTEL, 100);
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @Test
+    public void prefixTest() {
+        ShipQuery query = new ShipQuery();
+        query.setNamePrefix("EVE");
+        // name order, ignoring case
+        assertEquals(List.of(evening, everGiven, evergreen), index.find(query, 10));
+        assertEquals(3, index.count(query));
+        assertEquals(List.of(evening, everGiven), index.find(query, 2));
+
+        query.setNamePrefix("ever");
+        assertEquals(List.of(everGiven, evergreen), index.find(query, 10));
+        query.setNamePrefix("Everest");
+        assertEquals(List.of(), index.find(query, 10));
+        assertEquals(0, index.count(query));
+        query.setNamePrefix("");
+        assertEquals(4, index.count(query));
+    }
+
+    @Test
+    public void criteriaTest() {
+        ShipQuery query = new ShipQuery();
+        assertEquals(List.of(evergreen, voyager, everGiven, evening), index.find(query, 10));
+
+        query.setFlag(NauticalFlag.BRAVO);
+        assertEquals(List.of(voyager, everGiven), index.find(query, 10));
+        query.setOriginFlag("Japan");
+        query.setType(ContainerShip.class);
+        assertEquals(List.of(everGiven), index.find(query, 10));
+        assertEquals(1, index.count(query));
+
+        query = new ShipQuery();
+        query.setOriginFlag("Australia");
+        query.setNamePrefix("eve");
+        // fewer ships are from Australia than have the prefix, so creation order is used
+        assertEquals(List.of(evergreen, evening), index.find(query, 10));
+        query.setOriginFlag("Atlantis");
+        assertEquals(List.of(), index.find(query, 10));
+
+        query = new ShipQuery();
+        query.setType(Ship.class);
+        assertEquals(4, index.count(query));
+        query.setType(BulkCarrier.class);
+        assertEquals(List.of(voyager, evening), index.find(query, 10));
+    }
+
+    @Test
+    public void resetTest() {
+        assertEquals(4, index.size());
+        Ship.resetShipRegistry();
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.find(new ShipQuery(), 10));
+
+        ContainerShip again = new ContainerShip(1000001, "Evergreen", "Australia",
+                NauticalFlag.NOVEMBER, 10);
+        ShipQuery query = new ShipQuery();
+        query.setNamePrefix("Ever");
+        assertEquals(List.of(again), index.find(query, 10));
+    }
+
+    @Test
+    public void manyShipsTest() {
+        for (int i = 0; i < 5000; i++) {
+            new BulkCarrier(2000000 + i, "Ship " + i, "Australia", NauticalFlag.NOVEMBER,
+                    100);
+        }
+        ShipQuery query = new ShipQuery();
+        query.setNamePrefix("ship 12");
+        assertEquals(111, index.count(query));
+        List<Ship> found = index.find(query, 3);
+        assertEquals("Ship 12", found.get(0).getName());
+        assertEquals("Ship 120", found.get(1).getName());
+        assertEquals("Ship 1200", found.get(2).getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLimitTest() {
+        index.find(new ShipQuery(), -1);
+    }
+}
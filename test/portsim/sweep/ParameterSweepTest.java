@@ -0,0 +1,251 @@
+package portsim.sweep;
+
+import org.junit.*;
+import portsim.HeadlessLauncher;
+import portsim.cargo.Cargo;
+import portsim.cargo.CargoLocation;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ParameterSweepTest {
+
+    String save;
+
+    @Before
+    public void setUp() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        Port port = new Port("Brisbane");
+        port.addQuay(new ContainerQuay(0, 100));
+        port.addQuay(new ContainerQuay(1, 100));
+        port.addQuay(new BulkQuay(2, 1000));
+        for (int s = 0; s < 12; s++) {
+            Ship ship = s % 4 == 3
+                    ? new BulkCarrier(1000001 + s, "Carrier " + s, "China",
+                            NauticalFlag.HOTEL, 500)
+                    : new ContainerShip(1000001 + s, "Ship " + s,
+                            s % 2 == 0 ? "Japan" : "China", NauticalFlag.NOVEMBER, 20);
+            port.addMovement(new ShipMovement(10 + s * 15, MovementDirection.INBOUND, ship));
+            port.addMovement(new ShipMovement(130 + s * 15, MovementDirection.OUTBOUND, ship));
+        }
+        for (int c = 0; c < 40; c++) {
+            port.getYard().store(new Container(c, c % 2 == 0 ? "Japan" : "China",
+                    ContainerType.STANDARD));
+        }
+        port.addStatisticsEvaluator(new QuayOccupancyEvaluator(port));
+        port.addStatisticsEvaluator(new ShipFlagEvaluator());
+        port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+        port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+        save = port.encode();
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+    }
+
+    private Port load() throws Exception {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        return Port.initialisePort(new StringReader(save));
+    }
+
+    /* Values of the result without the wall clock time */
+    private static Map<String, Long> withoutWallTime(SweepResult result) {
+        Map<String, Long> values = new LinkedHashMap<>(result.getValues());
+        values.remove("wallTimeMs");
+        return values;
+    }
+
+    @Test
+    public void gridTest() {
+        ParameterGrid grid = new ParameterGrid();
+        assertEquals(1, grid.size());
+        grid.setContainerQuays(1, 2);
+        grid.setArrivalRates(0.5, 1, 2);
+        assertEquals(6, grid.size());
+        List<SweepVariant> variants = grid.getVariants();
+        assertEquals(6, variants.size());
+        assertEquals(1, variants.get(0).getContainerQuays());
+        assertEquals(0.5, variants.get(0).getArrivalRate(), 0);
+        assertEquals(2, variants.get(2).getArrivalRate(), 0);
+        assertEquals(2, variants.get(3).getContainerQuays());
+        assertEquals(SweepVariant.AS_BASE, variants.get(5).getBulkQuays());
+        assertEquals("containerQuays=2 containerCapacity=base bulkQuays=base "
+                + "bulkCapacity=base arrivalRate=2.0", variants.get(5).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidVariantTest() {
+        new SweepVariant(SweepVariant.AS_BASE, -2, SweepVariant.AS_BASE,
+                SweepVariant.AS_BASE, 1);
+    }
+
+    @Test
+    public void baseVariantTest() throws Exception {
+        Port port = load();
+        HeadlessLauncher.run(port, 400);
+        String encoded = port.encode();
+        Map<Long, Ship> ships = Ship.getShipRegistry();
+        Map<Integer, CargoLocation> locations = new HashMap<>();
+        for (Cargo cargo : Cargo.getCargoRegistry().values()) {
+            locations.put(cargo.getId(), cargo.getLocation());
+        }
+        ParameterSweep sweep = new ParameterSweep(new StringReader(save));
+        sweep.setMinutes(400);
+        SweepTable table = sweep.run(new ParameterGrid(), null);
+        assertEquals(1, table.size());
+        Map<String, Long> values = table.getResults().get(0).getValues();
+        assertEquals(400L, (long) values.get("minutes"));
+        assertEquals(port.getShipQueue().size(), (long) values.get("queuedShips"));
+        assertEquals(port.getPendingMovementCount(), (long) values.get("pendingMovements"));
+        assertEquals(port.getYard().size(), (long) values.get("storedCargo"));
+        ShipThroughputEvaluator throughput =
+                (ShipThroughputEvaluator) port.getEvaluators().get(2);
+        assertEquals(throughput.getThroughputPerHour(),
+                (long) values.get("ShipThroughputEvaluator.throughputPerHour"));
+        assertEquals(6L, (long) values.get("ShipFlagEvaluator.Japan"));
+        assertEquals(6L, (long) values.get("ShipFlagEvaluator.China"));
+        // the registries are restored for the port loaded before the sweep
+        assertEquals(ships, Ship.getShipRegistry());
+        assertEquals(ships.size(), Ship.getShipIndex().size());
+        assertEquals(locations.size(), Cargo.getCargoColumns().size());
+        for (Map.Entry<Integer, CargoLocation> location : locations.entrySet()) {
+            assertEquals(location.getValue(),
+                    Cargo.getCargoById(location.getKey()).getLocation());
+        }
+        assertEquals(encoded, port.encode());
+    }
+
+    @Test
+    public void parallelismTest() throws Exception {
+        ParameterGrid grid = new ParameterGrid();
+        grid.setContainerQuays(1, 2, 4);
+        grid.setContainerCapacities(SweepVariant.AS_BASE, 10);
+        grid.setArrivalRates(0.5, 1, 3);
+        List<SweepResult> streamed = Collections.synchronizedList(new ArrayList<>());
+        ParameterSweep sweep = new ParameterSweep(new StringReader(save));
+        sweep.setParallelism(1);
+        List<SweepResult> sequential = sweep.run(grid, null).getResults();
+        sweep.setParallelism(4);
+        SweepTable table = sweep.run(grid, streamed::add);
+
+        assertEquals(18, streamed.size());
+        List<SweepResult> parallel = table.getResults();
+        assertEquals(18, parallel.size());
+        for (int i = 0; i < parallel.size(); i++) {
+            assertEquals(i, parallel.get(i).getIndex());
+            assertNull(parallel.get(i).getFailure());
+            assertEquals(withoutWallTime(sequential.get(i)), withoutWallTime(parallel.get(i)));
+        }
+        // ships arriving three times as fast are all processed sooner
+        assertTrue(parallel.get(2).getValues().get("minutes")
+                < parallel.get(0).getValues().get("minutes"));
+    }
+
+    @Test
+    public void quaysTest() throws Exception {
+        Port base = load();
+        base.getQuays().get(1).shipArrives(Ship.getShipByImoNumber(1000001));
+
+        Port port = new SweepVariant(1, 50, 3, SweepVariant.AS_BASE, 1).apply(base);
+        List<Quay> quays = port.getQuays();
+        assertEquals(4, quays.size());
+        assertEquals(new ContainerQuay(0, 50), quays.get(0));
+        assertEquals(new BulkQuay(2, 1000), quays.get(1));
+        assertEquals(new BulkQuay(3, 1000), quays.get(2));
+        assertEquals(new BulkQuay(4, 1000), quays.get(3));
+        // the ship at the container quay dropped goes back to the queue
+        assertEquals(1, port.getShipQueue().size());
+        assertEquals(1000001, port.getShipQueue().peek().getImoNumber());
+        assertEquals(24, port.getPendingMovementCount());
+        assertEquals(40, port.getYard().size());
+        assertEquals(4, port.getEvaluators().size());
+        // the quay occupancy evaluator watches the new quays
+        quays.get(0).shipArrives(Ship.getShipByImoNumber(1000002));
+        assertEquals(1, ((QuayOccupancyEvaluator) port.getEvaluators().get(0))
+                .getQuaysOccupied());
+    }
+
+    @Test
+    public void arrivalRateTest() throws Exception {
+        Port port = new SweepVariant(SweepVariant.AS_BASE, SweepVariant.AS_BASE,
+                SweepVariant.AS_BASE, SweepVariant.AS_BASE, 2).apply(load());
+        Map<Long, List<Long>> times = new HashMap<>();
+        for (Movement movement : port.getMovements()) {
+            long imoNumber = ((ShipMovement) movement).getShip().getImoNumber();
+            times.computeIfAbsent(imoNumber, k -> new ArrayList<>()).add(movement.getTime());
+        }
+        for (int s = 0; s < 12; s++) {
+            List<Long> ship = times.get(1000001L + s);
+            Collections.sort(ship);
+            long arrival = Math.round((10 + s * 15) / 2.0);
+            assertEquals(List.of(arrival, arrival + 120), ship);
+        }
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        Cargo.resetCargoRegistry();
+        Ship.resetShipRegistry();
+        Port port = new Port("Brisbane");
+        port.addQuay(new ContainerQuay(0, 100));
+        String containerOnly = port.encode();
+        ParameterGrid grid = new ParameterGrid();
+        grid.setBulkQuays(0, 1);
+        ParameterSweep sweep = new ParameterSweep(new StringReader(containerOnly));
+        List<SweepResult> results = sweep.run(grid, null).getResults();
+        assertNull(results.get(0).getFailure());
+        assertTrue(results.get(1).getFailure() instanceof IllegalArgumentException);
+        assertTrue(results.get(1).getValues().isEmpty());
+    }
+
+    @Test
+    public void writeTest() throws Exception {
+        ParameterGrid grid = new ParameterGrid();
+        grid.setContainerQuays(1, 2);
+        ParameterSweep sweep = new ParameterSweep(new StringReader(save));
+        sweep.setMinutes(200);
+        SweepTable table = sweep.run(grid, null);
+        StringWriter writer = new StringWriter();
+        table.write(writer);
+        String[] lines = writer.toString().split(System.lineSeparator());
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("containerQuays,containerCapacity,bulkQuays,"
+                + "bulkCapacity,arrivalRate,minutes,wallTimeMs,queuedShips,dockedShips,"
+                + "pendingMovements,storedCargo,QuayOccupancyEvaluator.quaysOccupied,"));
+        assertTrue(lines[0].endsWith(",failure"));
+        assertTrue(lines[1].startsWith("1,base,base,base,1.0,200,"));
+        assertTrue(lines[2].startsWith("2,base,base,base,1.0,200,"));
+        assertTrue(lines[2].endsWith(","));
+    }
+}
@@ -0,0 +1,66 @@
+package portsim.util;
+
+import org.junit.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import static org.junit.Assert.*;
+
+public class CountryDictionaryTest {
+
+    @Test
+    public void codeTest() {
+        int australia = CountryDictionary.code("Australia");
+        assertEquals(australia, CountryDictionary.code("Australia"));
+        assertEquals(australia, CountryDictionary.code(new String("Australia")));
+        assertNotEquals(australia, CountryDictionary.code("New Zealand"));
+        assertEquals("Australia", CountryDictionary.name(australia));
+        assertTrue(australia < CountryDictionary.size());
+    }
+
+    @Test
+    public void nullTest() {
+        assertEquals(CountryDictionary.NONE, CountryDictionary.code(null));
+        assertNull(CountryDictionary.name(CountryDictionary.NONE));
+    }
+
+    @Test
+    public void lookupTest() {
+        int size = CountryDictionary.size();
+        assertEquals(CountryDictionary.NONE, CountryDictionary.lookup("Atlantis lookupTest"));
+        assertEquals(size, CountryDictionary.size());
+        int code = CountryDictionary.code("Atlantis lookupTest");
+        assertEquals(code, CountryDictionary.lookup("Atlantis lookupTest"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCodeTest() {
+        CountryDictionary.name(CountryDictionary.size());
+    }
+
+    @Test
+    public void concurrentCodeTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(executor.submit(() -> {
+                    int[] codes = new int[500];
+                    for (int i = 0; i < codes.length; i++) {
+                        codes[i] = CountryDictionary.code("Country " + i);
+                    }
+                    return codes;
+                }));
+            }
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(first, result.get());
+            }
+            for (int i = 0; i < first.length; i++) {
+                assertEquals("Country " + i, CountryDictionary.name(first[i]));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}